@@ -0,0 +1,100 @@
+package http;
+
+import manager.Managers;
+import manager.TaskManager;
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Нагрузка на HttpTaskServer с localhost: 8 клиентских потоков, HttpURLConnection с keep-alive
+ * (соединение возвращается в кэш после полного чтения тела). SampleTime даёт перцентили задержки (p50, p99),
+ * Throughput - запросов в секунду. getTask - элемент по id, notModified - условный GET списка с актуальным
+ * ETag (304 без тела), getTasks - полный список из 1000 задач, createTask - POST новой задачи.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class HttpServerBenchmark {
+
+    private static final int TASKS = 1_000;
+    private static final byte[] NEW_TASK = "{\"name\": \"Task\", \"description\": \"Description\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private HttpTaskServer server;
+    private String base;
+    private String etag;
+
+    @Setup
+    public void setUp() throws IOException {
+        TaskManager manager = Managers.getConcurrent();
+        for (int i = 0; i < TASKS; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+        base = "http://127.0.0.1:" + server.getPort();
+        HttpURLConnection connection = open("/tasks");
+        read(connection);
+        etag = connection.getHeaderField("ETag");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public int getTask() throws IOException {
+        return read(open("/tasks/" + ThreadLocalRandom.current().nextInt(TASKS)));
+    }
+
+    @Benchmark
+    public int notModified() throws IOException {
+        HttpURLConnection connection = open("/tasks");
+        connection.setRequestProperty("If-None-Match", etag);
+        return read(connection);
+    }
+
+    @Benchmark
+    public int getTasks() throws IOException {
+        return read(open("/tasks"));
+    }
+
+    @Benchmark
+    public int createTask() throws IOException {
+        HttpURLConnection connection = open("/tasks");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(NEW_TASK.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(NEW_TASK);
+        }
+        return read(connection);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL(base + path).openConnection();
+    }
+
+    // Тело вычитывается до конца, иначе соединение не вернётся в кэш keep-alive
+    private static int read(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        try (InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return in == null ? code : code + in.readAllBytes().length;
+        }
+    }
+}
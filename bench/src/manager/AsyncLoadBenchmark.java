@@ -0,0 +1,75 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Нагрузка на AsyncTaskManager: за один вызов подаётся inFlight запросов без ожидания, затем все дожидаются.
+ * 80% - обновления подзадач случайных эпиков, 20% - чтения эпиков. Время выводится на весь вызов,
+ * то есть на inFlight запросов.
+ * serialized - InMemoryTaskManager с одной полосой, striped - ConcurrentTaskManager с полосами по эпикам.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class AsyncLoadBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    @Param({"serialized", "striped"})
+    String mode;
+
+    @Param({"1000", "100000"})
+    int inFlight;
+
+    private AsyncTaskManager manager;
+    private int[] epicIds;
+    private int[] subtaskIds;
+
+    @Setup
+    public void setUp() {
+        TaskManager delegate = mode.equals("striped") ? Managers.getConcurrent() : Managers.getDefault();
+        epicIds = new int[EPICS];
+        subtaskIds = new int[EPICS * SUBTASKS_PER_EPIC];
+        for (int i = 0; i < EPICS; i++) {
+            epicIds[i] = delegate.createEpic(new Epic("Epic " + i, "Description")).getId();
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                subtaskIds[i * SUBTASKS_PER_EPIC + j] = delegate.createSubtask(
+                        new Subtask("Subtask", "Description", Status.NEW, epicIds[i])).getId();
+            }
+        }
+        manager = Managers.getAsync(delegate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.close();
+    }
+
+    @Benchmark
+    public Object requests() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[inFlight];
+        for (int i = 0; i < inFlight; i++) {
+            int epic = random.nextInt(EPICS);
+            if (random.nextInt(5) == 0) {
+                futures[i] = manager.getEpic(epicIds[epic]);
+            } else {
+                Subtask subtask = new Subtask("Subtask", "Updated", Status.values()[random.nextInt(3)], epicIds[epic]);
+                subtask.setId(subtaskIds[epic * SUBTASKS_PER_EPIC + random.nextInt(SUBTASKS_PER_EPIC)]);
+                futures[i] = manager.updateSubtask(subtask);
+            }
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,106 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Пакетное создание против цикла одиночных вызовов на BATCH элементах. memory - InMemoryTaskManager,
+ * sync-log - FileBackedTaskManager в режиме SYNC, где пакет пишется одним appendAll с одним fsync.
+ * Подзадачи раскладываются по EPICS эпикам: пакет пересчитывает статус каждого эпика один раз.
+ * Перед каждым вызовом прошлые элементы удаляются, чтобы менеджер не рос, - это время не измеряется.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final int EPICS = 10;
+
+    @Param({"memory", "sync-log"})
+    String target;
+
+    private Path directory;
+    private TaskManager manager;
+    private int[] epicIds;
+    private List<Task> tasks;
+    private List<Subtask> subtasks;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (target.equals("memory")) {
+            manager = new InMemoryTaskManager();
+        } else {
+            directory = Files.createTempDirectory("batch-benchmark");
+            manager = new FileBackedTaskManager(directory.resolve("tasks.log"), Durability.SYNC, 0);
+        }
+        epicIds = new int[EPICS];
+        for (int i = 0; i < EPICS; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Epic " + i, "Description")).getId();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void prepare() {
+        manager.clearTasks();
+        manager.clearSubtasks();
+        tasks = new ArrayList<>(BATCH);
+        subtasks = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            tasks.add(new Task("Task " + i, "Description " + i, Status.NEW));
+            Status status = i % 2 == 0 ? Status.NEW : Status.DONE;
+            subtasks.add(new Subtask("Subtask " + i, "Description " + i, status, epicIds[i % EPICS]));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (manager instanceof FileBackedTaskManager) {
+            ((FileBackedTaskManager) manager).close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void createTasksLoop() {
+        for (Task task : tasks) {
+            manager.createTask(task);
+        }
+    }
+
+    @Benchmark
+    public List<Task> createTasksBatch() {
+        return manager.createTasks(tasks);
+    }
+
+    @Benchmark
+    public void createSubtasksLoop() {
+        for (Subtask subtask : subtasks) {
+            manager.createSubtask(subtask);
+        }
+    }
+
+    @Benchmark
+    public List<Subtask> createSubtasksBatch() {
+        return manager.createSubtasks(subtasks);
+    }
+}
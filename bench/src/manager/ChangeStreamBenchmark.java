@@ -0,0 +1,85 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Цена публикации событий для писателя: updateTask без подписчиков, с подписчиком, которого в фоне
+ * вычитывает отдельный поток, и с подписчиком, который не читает вовсе и только теряет события.
+ * После прогона печатается, сколько событий фоновый читатель получил и сколько пропустил.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeStreamBenchmark {
+
+    @Param({"none", "drained", "stalled"})
+    String subscriber;
+
+    @Param({"10000"})
+    int size;
+
+    private TaskManager manager;
+    private ChangeSubscription subscription;
+    private Thread reader;
+    private volatile boolean running;
+    private volatile long received;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        for (int i = 0; i < size; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        if (subscriber.equals("none")) {
+            return;
+        }
+        subscription = manager.subscribe();
+        if (subscriber.equals("drained")) {
+            running = true;
+            reader = new Thread(this::drain, "change-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (reader != null) {
+            reader.join();
+            System.out.printf("%n%s: received %d events, missed %d%n", subscriber, received,
+                    subscription.getMissedCount());
+        }
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    @Benchmark
+    public Task updateTask() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Task task = new Task("Task", "Description", Status.values()[random.nextInt(3)]);
+        task.setId(random.nextInt(size));
+        return manager.updateTask(task);
+    }
+
+    private void drain() {
+        long count = 0;
+        try {
+            while (running) {
+                count += subscription.poll(1024, 10, TimeUnit.MILLISECONDS).getEvents().size();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        received = count;
+    }
+}
@@ -0,0 +1,86 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * InMemoryTaskManager против CompactTaskManager на доске из items элементов: на каждые 10 элементов
+ * эпик, 8 его подзадач и задача. templated - названия и описания из 50 шаблонов, unique - у каждого элемента свои.
+ * Занятая доской память печатается при подготовке прогона. 10M элементов в обычном представлении
+ * требуют больше 4 ГБ кучи, для них запускать с -p layout=compact.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class CompactStorageBenchmark {
+
+    private static final int TEMPLATES = 50;
+    private static final List<String> SERVICES = List.of("billing", "search", "gateway", "auth", "reports");
+
+    @Param({"default", "compact"})
+    String layout;
+
+    @Param({"templated", "unique"})
+    String board;
+
+    @Param({"1000000"})
+    int items;
+
+    private TaskManager manager;
+
+    @Setup
+    public void setUp() {
+        long before = usedHeap();
+        manager = layout.equals("compact") ? Managers.getCompact() : Managers.getDefault();
+        for (int i = 0; i < items; i += 10) {
+            int epicId = manager.createEpic(new Epic(name("Release", i), description(i))).getId();
+            for (int j = 1; j <= 8; j++) {
+                manager.createSubtask(new Subtask(name("Deploy", i + j), description(i + j), Status.NEW, epicId));
+            }
+            manager.createTask(new Task(name("Review", i + 9), description(i + 9), Status.IN_PROGRESS));
+        }
+        long bytes = usedHeap() - before;
+        System.out.printf("%n%s/%s: %d items, %.1f MB, %.1f bytes/item%n",
+                layout, board, items, bytes / 1048576.0, (double) bytes / items);
+    }
+
+    @Benchmark
+    public Task getSubtask() {
+        int id = ThreadLocalRandom.current().nextInt(items / 10) * 10 + 1;
+        return manager.getSubtask(id);
+    }
+
+    @Benchmark
+    public List<Task> search() {
+        return manager.search("billing review", 0, 10);
+    }
+
+    private String name(String prefix, int i) {
+        int n = board.equals("unique") ? i : i % TEMPLATES;
+        return prefix + " " + SERVICES.get(n % SERVICES.size()) + " " + n;
+    }
+
+    private String description(int i) {
+        int n = board.equals("unique") ? i : i % TEMPLATES;
+        return "Follow the runbook for " + SERVICES.get(n % SERVICES.size()) + " step " + n
+                + ", check dashboards and notify the on-call engineer";
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Контрольная точка дельтой против полного снимка на доске из 1 000 000 задач. Перед каждым вызовом
+ * переименовывается доля churn задач; checkpoint пишет только их, snapshot - всё состояние.
+ * Дельты сливаются с базой между итерациями, чтобы файлы не копились, - это время не измеряется.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeltaCheckpointBenchmark {
+
+    private static final int TASKS = 1_000_000;
+
+    @Param({"0.001", "0.1"})
+    double churn;
+
+    private Path directory;
+    private FileBackedTaskManager manager;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("delta-checkpoint-benchmark");
+        manager = new FileBackedTaskManager(directory.resolve("tasks.log"), Durability.OS_BUFFERED, 0);
+        manager.setDeltaMergeThreshold(0);
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(new Task("Task " + i, "Description " + i, Status.NEW));
+        }
+        manager.createTasks(tasks);
+        manager.snapshot();
+    }
+
+    @Setup(Level.Iteration)
+    public void merge() {
+        manager.mergeDeltas();
+    }
+
+    @Setup(Level.Invocation)
+    public void change() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = (int) (TASKS * churn); i > 0; i--) {
+            Task task = manager.findTask(random.nextInt(TASKS));
+            task.setName("Renamed " + sequence++);
+            manager.updateTask(task);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void checkpoint() {
+        manager.checkpoint();
+    }
+
+    @Benchmark
+    public void fullSnapshot() {
+        manager.snapshot();
+    }
+}
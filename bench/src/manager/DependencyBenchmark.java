@@ -0,0 +1,131 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Граф как у реального плана: элементы появляются по порядку, и каждый блокирует четыре из ближайших
+ * следующих 64, так что рёбер вчетверо больше, чем вершин.
+ * Вставка с метками Пирса - Келли против полного обхода достижимых вершин на каждой вставке.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DependencyBenchmark {
+
+    private static final int DEGREE = 4;
+    private static final int WINDOW = 64;
+
+    @Param({"10000", "1000000"})
+    int edges;
+
+    private DependencyGraph graph;
+    private int vertices;
+    private long[] weights;
+    // Те же рёбра в сжатом виде для обхода без графа
+    private int[] firstEdge;
+    private int[] targets;
+    private int[] visited;
+    private int[] stack;
+    private int visitMark;
+
+    @Setup
+    public void setUp() {
+        vertices = edges / DEGREE;
+        graph = new DependencyGraph();
+        weights = new long[vertices];
+        firstEdge = new int[vertices + 1];
+        targets = new int[edges];
+        Random random = new Random(42);
+        int count = 0;
+        for (int a = 0; a < vertices; a++) {
+            weights[a] = random.nextInt(480);
+            firstEdge[a] = count;
+            for (int k = 0; k < DEGREE; k++) {
+                int b = Math.min(a + 1 + random.nextInt(WINDOW), vertices);
+                if (b < vertices && graph.add(a, b)) {
+                    targets[count++] = b;
+                }
+            }
+        }
+        firstEdge[vertices] = count;
+        visited = new int[vertices];
+        stack = new int[vertices];
+    }
+
+    // Ребро вперёд за пределы окна: новое и без перестановки меток; удаляется, чтобы граф не рос
+    @Benchmark
+    public boolean addForwardEdge() {
+        int a = ThreadLocalRandom.current().nextInt(vertices - 2 * WINDOW);
+        int b = a + WINDOW + 1 + ThreadLocalRandom.current().nextInt(WINDOW);
+        boolean added = graph.add(a, b);
+        graph.remove(a, b);
+        return added;
+    }
+
+    // Обратное ребро к непосредственному блокирующему: цикл находится обходом только между их метками
+    @Benchmark
+    public boolean rejectCycle() {
+        int a = ThreadLocalRandom.current().nextInt(vertices);
+        for (int j = firstEdge[a]; j < firstEdge[a + 1]; j++) {
+            try {
+                graph.add(targets[j], a);
+            } catch (DependencyCycleException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // То же ребро вперёд без меток порядка: чтобы убедиться, что цикла нет, обходится всё достижимое из b
+    @Benchmark
+    public boolean addForwardEdgeFullSearch() {
+        int a = ThreadLocalRandom.current().nextInt(vertices - 2 * WINDOW);
+        int b = a + WINDOW + 1 + ThreadLocalRandom.current().nextInt(WINDOW);
+        return !reaches(b, a);
+    }
+
+    @Benchmark
+    public int[] topologicalOrder() {
+        return graph.topologicalOrder();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] criticalPathSequential() {
+        return graph.criticalPath(id -> weights[id], false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] criticalPathParallel() {
+        return graph.criticalPath(id -> weights[id], true);
+    }
+
+    private boolean reaches(int from, int to) {
+        int mark = ++visitMark;
+        int size = 0;
+        stack[size++] = from;
+        visited[from] = mark;
+        while (size > 0) {
+            int vertex = stack[--size];
+            if (vertex == to) {
+                return true;
+            }
+            for (int j = firstEdge[vertex]; j < firstEdge[vertex + 1]; j++) {
+                int next = targets[j];
+                if (visited[next] != mark) {
+                    visited[next] = mark;
+                    stack[size++] = next;
+                }
+            }
+        }
+        return false;
+    }
+}
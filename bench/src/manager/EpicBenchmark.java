@@ -0,0 +1,122 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пересчёт статуса большого эпика идёт через updateSubtask, так как сам updateEpicStatus закрытый
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EpicBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int epicSize;
+
+    private TaskManager manager;
+    private Subtask[] subtasks;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        subtasks = new Subtask[epicSize];
+        for (int i = 0; i < epicSize; i++) {
+            subtasks[i] = manager.createSubtask(new Subtask("Subtask " + i, "Description", Status.DONE,
+                    epic.getId()));
+        }
+    }
+
+    @Benchmark
+    public Status updateEpicStatusOnStatusChange() {
+        Subtask subtask = subtasks[ThreadLocalRandom.current().nextInt(epicSize)];
+        subtask.setStatus(subtask.getStatus() == Status.DONE ? Status.IN_PROGRESS : Status.DONE);
+        manager.updateSubtask(subtask);
+        return manager.getEpics().get(0).getStatus();
+    }
+
+    // Очистка разрушает состояние, поэтому каждый вызов идёт на свежем менеджере и меряется одиночным запуском
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, batchSize = 1)
+    @Measurement(iterations = 20, batchSize = 1)
+    @State(Scope.Thread)
+    public static class ClearSubtasks {
+
+        @Param({"100", "10000"})
+        int epics;
+
+        private TaskManager manager;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            manager = Managers.getDefault();
+            for (int i = 0; i < epics; i++) {
+                Epic epic = manager.createEpic(new Epic("Epic " + i, "Description"));
+                for (int j = 0; j < 10; j++) {
+                    manager.createSubtask(new Subtask("Subtask " + j, "Description", Status.IN_PROGRESS,
+                            epic.getId()));
+                }
+            }
+        }
+
+        @Benchmark
+        public void clearSubtasks() {
+            manager.clearSubtasks();
+        }
+    }
+
+    /*
+     * Эпик со 100 000 подзадач, каждая из которых есть в истории. deleteSubtasks удаляет их по одной в случайном
+     * порядке, deleteEpic удаляет эпик каскадом. Тоже одиночные запуски на свежем менеджере.
+     */
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    @State(Scope.Thread)
+    public static class DeleteFromLargeEpic {
+
+        @Param({"100000"})
+        int epicSize;
+
+        private TaskManager manager;
+        private int epicId;
+        private List<Integer> subtaskIds;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            manager = Managers.getDefault();
+            epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+            subtaskIds = new ArrayList<>(epicSize);
+            for (int i = 0; i < epicSize; i++) {
+                int subtaskId = manager.createSubtask(new Subtask("Subtask " + i, "Description", Status.NEW,
+                        epicId)).getId();
+                manager.getSubtask(subtaskId);
+                subtaskIds.add(subtaskId);
+            }
+            Collections.shuffle(subtaskIds, new Random(42));
+        }
+
+        @Benchmark
+        public void deleteSubtasks() {
+            manager.deleteSubtasks(subtaskIds);
+        }
+
+        @Benchmark
+        public void deleteEpic() {
+            manager.deleteEpic(epicId);
+        }
+    }
+}
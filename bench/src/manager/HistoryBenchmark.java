@@ -0,0 +1,53 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость выдачи истории растёт с её длиной, добавление должно оставаться O(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HistoryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int historySize;
+
+    private HistoryManager historyManager;
+    private Task[] tasks;
+
+    @Setup
+    public void setUp() {
+        historyManager = Managers.getDefaultHistory();
+        tasks = new Task[historySize];
+        for (int i = 0; i < historySize; i++) {
+            tasks[i] = new Task("Task " + i, "Description", Status.NEW);
+            tasks[i].setId(i);
+            historyManager.add(tasks[i]);
+        }
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Benchmark
+    public void addViewed() {
+        historyManager.add(tasks[ThreadLocalRandom.current().nextInt(historySize)]);
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        Task task = tasks[ThreadLocalRandom.current().nextInt(historySize)];
+        historyManager.remove(task.getId());
+        historyManager.add(task);
+    }
+}
@@ -0,0 +1,113 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Хранилище задач по id: HashMap<Integer, Task> против IntObjectMap<Task>.
+ * Значение у всех ключей одно и то же, поэтому в замер памяти попадает только сама таблица.
+ * Занятая память на элемент печатается при подготовке каждого прогона.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g"})
+public class IntMapBenchmark {
+
+    private static final Task VALUE = new Task("Task", "Description", Status.NEW);
+    private static final int KEYS_MASK = (1 << 16) - 1;
+
+    @State(Scope.Benchmark)
+    public static class Keys {
+        @Param({"1000000", "10000000"})
+        int size;
+
+        // Заранее выбранные случайные id, чтобы в замер не попадал генератор
+        int[] keys;
+
+        @Setup
+        public void setUp() {
+            SplittableRandom random = new SplittableRandom(42);
+            keys = new int[KEYS_MASK + 1];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = random.nextInt(size);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BoxedMap {
+        Map<Integer, Task> map;
+
+        @Setup
+        public void setUp(Keys keys) {
+            long before = usedHeap();
+            map = new HashMap<>();
+            for (int id = 0; id < keys.size; id++) {
+                map.put(id, VALUE);
+            }
+            report("HashMap", usedHeap() - before, keys.size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PrimitiveMap {
+        IntObjectMap<Task> map;
+
+        @Setup
+        public void setUp(Keys keys) {
+            long before = usedHeap();
+            map = new IntObjectMap<>();
+            for (int id = 0; id < keys.size; id++) {
+                map.put(id, VALUE);
+            }
+            report("IntObjectMap", usedHeap() - before, keys.size);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Task hashMapGet(Keys keys, BoxedMap state, Cursor cursor) {
+        return state.map.get(keys.keys[cursor.next++ & KEYS_MASK]);
+    }
+
+    @Benchmark
+    public Task intObjectMapGet(Keys keys, PrimitiveMap state, Cursor cursor) {
+        return state.map.get(keys.keys[cursor.next++ & KEYS_MASK]);
+    }
+
+    // Перезапись существующего id, как при updateTask: размер таблицы не меняется
+    @Benchmark
+    public Task hashMapPut(Keys keys, BoxedMap state, Cursor cursor) {
+        return state.map.put(keys.keys[cursor.next++ & KEYS_MASK], VALUE);
+    }
+
+    @Benchmark
+    public Task intObjectMapPut(Keys keys, PrimitiveMap state, Cursor cursor) {
+        return state.map.put(keys.keys[cursor.next++ & KEYS_MASK], VALUE);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String name, long bytes, int size) {
+        System.out.printf("%n%s: %d entries, %.1f MB, %.1f bytes/entry%n",
+                name, size, bytes / 1048576.0, (double) bytes / size);
+    }
+}
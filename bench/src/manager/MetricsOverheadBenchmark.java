@@ -0,0 +1,47 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Цена обёртки с метриками на самом частом пути - getTask
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsOverheadBenchmark {
+
+    @Param({"10000"})
+    int size;
+
+    private TaskManager plain;
+    private TaskManager instrumented;
+
+    @Setup
+    public void setUp() {
+        plain = fill(Managers.getDefault());
+        instrumented = Managers.getInstrumented(fill(Managers.getDefault()));
+    }
+
+    private TaskManager fill(TaskManager manager) {
+        for (int i = 0; i < size; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        return manager;
+    }
+
+    @Benchmark
+    public Task getTaskPlain() {
+        return plain.getTask(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public Task getTaskInstrumented() {
+        return instrumented.getTask(ThreadLocalRandom.current().nextInt(size));
+    }
+}
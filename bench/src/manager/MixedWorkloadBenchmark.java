@@ -0,0 +1,85 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Смешанная нагрузка: чтения с записью в историю вперемешку с обновлениями задач и подзадач
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedWorkloadBenchmark {
+
+    private static final int EPIC_SIZE = 10;
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"10000"})
+        int size;
+
+        @Param({"90", "50"})
+        int readPercent;
+
+        TaskManager inMemory;
+        TaskManager concurrent;
+
+        @Setup
+        public void setUp() {
+            inMemory = fill(Managers.getDefault(), size);
+            concurrent = fill(Managers.getConcurrent(), size);
+        }
+
+        private static TaskManager fill(TaskManager manager, int size) {
+            for (int i = 0; i < size; i++) {
+                manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+            }
+            for (int i = 0; i < size / EPIC_SIZE; i++) {
+                Epic epic = manager.createEpic(new Epic("Epic " + i, "Description"));
+                for (int j = 0; j < EPIC_SIZE; j++) {
+                    manager.createSubtask(new Subtask("Subtask " + j, "Description", Status.NEW, epic.getId()));
+                }
+            }
+            return manager;
+        }
+    }
+
+    @Benchmark
+    public void inMemory(Store store, Blackhole blackhole) {
+        run(store.inMemory, store, blackhole);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void concurrent(Store store, Blackhole blackhole) {
+        run(store.concurrent, store, blackhole);
+    }
+
+    // Задачи занимают id [0, size), затем каждый эпик идёт вместе со своими подзадачами
+    private static void run(TaskManager manager, Store store, Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int epic = random.nextInt(store.size / EPIC_SIZE);
+        int subtaskId = store.size + epic * (EPIC_SIZE + 1) + 1 + random.nextInt(EPIC_SIZE);
+        if (random.nextInt(100) < store.readPercent) {
+            blackhole.consume(random.nextBoolean() ? manager.getTask(random.nextInt(store.size))
+                    : manager.getSubtask(subtaskId));
+        } else if (random.nextBoolean()) {
+            Task task = new Task("Task", "Updated", Status.values()[random.nextInt(3)]);
+            task.setId(random.nextInt(store.size));
+            blackhole.consume(manager.updateTask(task));
+        } else {
+            Subtask subtask = new Subtask("Subtask", "Updated", Status.values()[random.nextInt(3)],
+                    store.size + epic * (EPIC_SIZE + 1));
+            subtask.setId(subtaskId);
+            blackhole.consume(manager.updateSubtask(subtask));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package manager;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import task.Status;
+import task.Task;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Тексты в куче против OffHeapTextStore под нагрузкой с обновлениями и удалениями: каждая операция
+ * переписывает описание случайной задачи, каждая пятая удаляет её, а следующее обновление того же id создаёт заново.
+ * При подготовке печатается занятая куча, после прогона - паузы сборщика за всё время измерений.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms3g", "-Xmx3g", "-XX:+UseG1GC"})
+@State(Scope.Benchmark)
+public class OffHeapTextBenchmark {
+
+    private static final String[] WORDS = {"deploy", "rollback", "incident", "review", "migration", "database",
+            "gateway", "latency", "customer", "billing", "release", "checklist", "dashboard", "alert", "on-call"};
+
+    @Param({"heap", "offheap"})
+    String layout;
+
+    @Param({"200000"})
+    int items;
+
+    @Param({"2000"})
+    int descriptionLength;
+
+    private TaskManager manager;
+    private OffHeapTextStore textStore;
+    private final List<Long> pauses = Collections.synchronizedList(new ArrayList<>());
+    private final List<Runnable> unsubscribe = new ArrayList<>();
+    private volatile boolean measuring;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        textStore = layout.equals("offheap") ? new OffHeapTextStore() : null;
+        manager = new InMemoryTaskManager(textStore);
+        for (int i = 0; i < items; i++) {
+            manager.createTask(new Task("Task " + i, description(i), Status.NEW));
+        }
+        long bytes = usedHeap() - before;
+        System.out.printf("%n%s: %d tasks, heap %.1f MB (%.0f bytes/task)%s%n", layout, items,
+                bytes / 1048576.0, (double) bytes / items, textStore == null ? ""
+                        : String.format(", off-heap %.1f MB", textStore.getCapacityBytes() / 1048576.0));
+        subscribeToGc();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration(IterationParams params) {
+        measuring = params.getType() == IterationType.MEASUREMENT;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        unsubscribe.forEach(Runnable::run);
+        List<Long> sorted = new ArrayList<>(pauses);
+        Collections.sort(sorted);
+        long total = 0;
+        for (long pause : sorted) {
+            total += pause;
+        }
+        System.out.printf("%n%s: %d GC pauses, total %d ms, p50 %d ms, p99 %d ms, max %d ms%n", layout,
+                sorted.size(), total, percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1));
+    }
+
+    @Benchmark
+    public Task churn() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int id = random.nextInt(items);
+        if (random.nextInt(5) == 0) {
+            manager.deleteTask(id);
+            return null;
+        }
+        Task task = new Task("Task " + id, description(random.nextInt()), Status.IN_PROGRESS);
+        task.setId(id);
+        return manager.updateTask(task);
+    }
+
+    private String description(int seed) {
+        StringBuilder builder = new StringBuilder(descriptionLength + 16);
+        int word = Math.floorMod(seed, WORDS.length);
+        while (builder.length() < descriptionLength) {
+            builder.append(WORDS[word]).append(' ');
+            word = (word * 7 + 3) % WORDS.length;
+        }
+        return builder.append(seed).toString();
+    }
+
+    private void subscribeToGc() {
+        NotificationListener listener = (notification, handback) -> {
+            if (measuring && notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                        (CompositeData) notification.getUserData());
+                pauses.add(info.getGcInfo().getDuration());
+            }
+        };
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+            emitter.addNotificationListener(listener, null, null);
+            unsubscribe.add(() -> {
+                try {
+                    emitter.removeNotificationListener(listener);
+                } catch (Exception ignored) {
+                    // слушатель уже снят
+                }
+            });
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double rank) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(rank * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,106 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Запросы TaskQuery с выбором пути доступа против фильтрации потоком по всем подзадачам, как их писали вручную.
+ * У каждого эпика 100 подзадач; на "API" начинается одно название из 100, в статусе IN_PROGRESS - одна подзадача из 50.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryBenchmark {
+
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    @Param({"10000", "1000000"})
+    int subtasks;
+
+    private TaskManager manager;
+    private int[] epicIds;
+    private TaskQuery<Subtask> epicQuery;
+    private TaskQuery<Subtask> textQuery;
+    private TaskQuery<Subtask> statusQuery;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        epicIds = new int[subtasks / SUBTASKS_PER_EPIC];
+        for (int i = 0; i < epicIds.length; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Epic " + i, "Description")).getId();
+        }
+        for (int i = 0; i < subtasks; i++) {
+            String name = (i % 100 == 0 ? "API " : "Backend ") + i;
+            Status status = i % 50 == 0 ? Status.IN_PROGRESS : i % 3 == 0 ? Status.NEW : Status.DONE;
+            manager.createSubtask(new Subtask(name, "Description", status, epicIds[i % epicIds.length]));
+        }
+        epicQuery = TaskQuery.subtasks().epic(epicIds[0]).statusNot(Status.DONE).nameStartsWith("API").build();
+        textQuery = TaskQuery.subtasks().nameStartsWith("API").statusNot(Status.DONE).build();
+        statusQuery = TaskQuery.subtasks().status(Status.IN_PROGRESS).nameContains("0").build();
+    }
+
+    // Подзадачи эпика не в статусе DONE с названием на "API": план выбирает поисковый индекс или подзадачи эпика
+    @Benchmark
+    public List<Subtask> epicSubtasksPlanned() {
+        return TaskQuery.subtasks().epic(randomEpic()).statusNot(Status.DONE).nameStartsWith("API").build()
+                .run(manager);
+    }
+
+    @Benchmark
+    public List<Subtask> epicSubtasksStream() {
+        int epicId = randomEpic();
+        return sorted(manager.getSubtasksView().stream()
+                .filter(subtask -> subtask.getEpicId() == epicId && subtask.getStatus() != Status.DONE
+                        && subtask.getName().startsWith("API")));
+    }
+
+    // Тот же запрос, собранный заранее: сколько стоит только выполнение
+    @Benchmark
+    public List<Subtask> epicSubtasksPrecompiled() {
+        return epicQuery.run(manager);
+    }
+
+    @Benchmark
+    public List<Subtask> namePrefixPlanned() {
+        return textQuery.run(manager);
+    }
+
+    @Benchmark
+    public List<Subtask> namePrefixStream() {
+        return sorted(manager.getSubtasksView().stream()
+                .filter(subtask -> subtask.getName().startsWith("API") && subtask.getStatus() != Status.DONE));
+    }
+
+    @Benchmark
+    public List<Subtask> statusPlanned() {
+        return statusQuery.run(manager);
+    }
+
+    @Benchmark
+    public List<Subtask> statusStream() {
+        return sorted(manager.getSubtasksView().stream()
+                .filter(subtask -> subtask.getStatus() == Status.IN_PROGRESS && subtask.getName().contains("0")));
+    }
+
+    private int randomEpic() {
+        return epicIds[ThreadLocalRandom.current().nextInt(epicIds.length)];
+    }
+
+    private static List<Subtask> sorted(Stream<Subtask> matches) {
+        return matches.sorted(Comparator.comparingInt(Task::getId)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,62 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import task.Status;
+import task.Task;
+
+import java.util.concurrent.TimeUnit;
+
+// Полный проход по задачам: копия списка, живое представление и постраничный обход
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadViewBenchmark {
+
+    @Param({"100000"})
+    int size;
+
+    @Param({"1000"})
+    int pageSize;
+
+    private TaskManager manager;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        for (int i = 0; i < size; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+    }
+
+    @Benchmark
+    public void copy(Blackhole blackhole) {
+        for (Task task : manager.getTasks()) {
+            blackhole.consume(task);
+        }
+    }
+
+    @Benchmark
+    public void view(Blackhole blackhole) {
+        for (Task task : manager.getTasksView()) {
+            blackhole.consume(task);
+        }
+    }
+
+    @Benchmark
+    public void pages(Blackhole blackhole) {
+        Page<Task> page = manager.getTasksPage(0, pageSize);
+        while (true) {
+            for (Task task : page.getItems()) {
+                blackhole.consume(task);
+            }
+            if (!page.hasNext()) {
+                return;
+            }
+            page = manager.getTasksPage(page.getNextCursor(), pageSize);
+        }
+    }
+}
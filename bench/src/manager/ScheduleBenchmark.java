@@ -0,0 +1,103 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Проверка пересечений по расписанию против прежнего способа - обхода всех задач.
+ * Задачи по 30 минут стоят в начале каждого часа: кандидат со сдвигом 40 минут свободен, со сдвигом 10 - пересекается.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScheduleBenchmark {
+
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int CANDIDATES = 1024;
+
+    @Param({"1000", "1000000"})
+    int scheduled;
+
+    private TaskManager manager;
+    private Schedule schedule;
+    private Task[] tasks;
+    private Task[] free;
+    private Task[] overlapping;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        schedule = new Schedule();
+        tasks = new Task[scheduled];
+        for (int i = 0; i < scheduled; i++) {
+            tasks[i] = manager.createTask(new Task("Task " + i, "Description", Status.NEW, ORIGIN.plusHours(i),
+                    Duration.ofMinutes(30)));
+            schedule.put(i, tasks[i]);
+        }
+        free = new Task[CANDIDATES];
+        overlapping = new Task[CANDIDATES];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < CANDIDATES; i++) {
+            LocalDateTime hour = ORIGIN.plusHours(random.nextInt(scheduled));
+            free[i] = new Task("Free", "Description", Status.NEW, hour.plusMinutes(40), Duration.ofMinutes(10));
+            overlapping[i] = new Task("Overlapping", "Description", Status.NEW, hour.plusMinutes(10),
+                    Duration.ofMinutes(10));
+        }
+    }
+
+    @Benchmark
+    public boolean checkFree() {
+        schedule.check(Schedule.NO_ID, free[ThreadLocalRandom.current().nextInt(CANDIDATES)]);
+        return true;
+    }
+
+    @Benchmark
+    public boolean checkOverlapping() {
+        try {
+            schedule.check(Schedule.NO_ID, overlapping[ThreadLocalRandom.current().nextInt(CANDIDATES)]);
+            return true;
+        } catch (TaskOverlapException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean linearScanFree() {
+        return !overlapsAny(free[ThreadLocalRandom.current().nextInt(CANDIDATES)]);
+    }
+
+    @Benchmark
+    public boolean linearScanOverlapping() {
+        return !overlapsAny(overlapping[ThreadLocalRandom.current().nextInt(CANDIDATES)]);
+    }
+
+    // Сдвиг задачи внутри её часа: проверка, замена в дереве и обновление менеджера
+    @Benchmark
+    public Task updateTaskMove() {
+        int i = ThreadLocalRandom.current().nextInt(scheduled);
+        Task task = tasks[i];
+        LocalDateTime hour = ORIGIN.plusHours(i);
+        task.setStartTime(task.getStartTime().equals(hour) ? hour.plusMinutes(15) : hour);
+        return manager.updateTask(task);
+    }
+
+    private boolean overlapsAny(Task candidate) {
+        LocalDateTime start = candidate.getStartTime();
+        LocalDateTime end = candidate.getEndTime();
+        for (Task task : manager.getTasksView()) {
+            if (task.getStartTime().isBefore(end) && task.getEndTime().isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Цена версий для писателя и читателя: 1000 эпиков по 10 подзадач. updateSubtask - запись без срезов
+ * (snapshots=off) и после включения версий (on). getSnapshot - получение среза, readEpic - чтение эпика
+ * с подзадачами из среза, readAllSubtasks - полный обход подзадач среза; чтения включают версии первым
+ * же вызовом, так что для них snapshots ни на что не влияет.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    @Param({"inmemory", "concurrent"})
+    String manager;
+
+    @Param({"off", "on"})
+    String snapshots;
+
+    private TaskManager taskManager;
+    private int[] epicIds;
+    private int[] subtaskIds;
+
+    @Setup
+    public void setUp() {
+        taskManager = manager.equals("concurrent") ? Managers.getConcurrent() : Managers.getDefault();
+        epicIds = new int[EPICS];
+        subtaskIds = new int[EPICS * SUBTASKS_PER_EPIC];
+        for (int i = 0; i < EPICS; i++) {
+            epicIds[i] = taskManager.createEpic(new Epic("Epic " + i, "Description")).getId();
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                subtaskIds[i * SUBTASKS_PER_EPIC + j] = taskManager.createSubtask(
+                        new Subtask("Subtask", "Description", Status.NEW, epicIds[i])).getId();
+            }
+        }
+        if (snapshots.equals("on")) {
+            taskManager.getSnapshot();
+        }
+    }
+
+    @Benchmark
+    public Subtask updateSubtask() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int epic = random.nextInt(EPICS);
+        Subtask subtask = new Subtask("Subtask", "Updated", Status.values()[random.nextInt(3)], epicIds[epic]);
+        subtask.setId(subtaskIds[epic * SUBTASKS_PER_EPIC + random.nextInt(SUBTASKS_PER_EPIC)]);
+        return taskManager.updateSubtask(subtask);
+    }
+
+    @Benchmark
+    public TaskSnapshot getSnapshot() {
+        return taskManager.getSnapshot();
+    }
+
+    @Benchmark
+    public Epic readEpic() {
+        return taskManager.getSnapshot().getEpic(epicIds[ThreadLocalRandom.current().nextInt(EPICS)]);
+    }
+
+    @Benchmark
+    public List<Subtask> readAllSubtasks() {
+        return taskManager.getSnapshot().getSubtasks();
+    }
+}
@@ -0,0 +1,96 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * Запуск FileBackedTaskManager: восстановление из бинарного снимка против повтора журнала операций.
+ * Состояние одно и то же - EPICS эпиков по SUBTASKS_PER_EPIC подзадач, каждая подзадача после создания
+ * обновлена updates раз. Журнал растёт с числом обновлений, снимок - нет. Каждый замер - один запуск
+ * менеджера с закрытием; файлы готовятся один раз до замеров.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int SUBTASKS_PER_EPIC = 100;
+
+    @Param({"0", "3"})
+    int updates;
+
+    private Path directory;
+    private Path logFile;
+    private Path snapshotLog;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("startup-benchmark");
+        logFile = directory.resolve("log").resolve("tasks.log");
+        snapshotLog = directory.resolve("snapshot").resolve("tasks.log");
+        Files.createDirectories(logFile.getParent());
+        Files.createDirectories(snapshotLog.getParent());
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(logFile, Durability.OS_BUFFERED, 0)) {
+            List<Subtask> subtasks = new ArrayList<>(EPICS * SUBTASKS_PER_EPIC);
+            for (int i = 0; i < EPICS; i++) {
+                int epicId = manager.createEpic(new Epic("Epic " + i, "Description " + i)).getId();
+                for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                    subtasks.add(manager.createSubtask(
+                            new Subtask("Subtask " + j, "Description " + j, Status.NEW, epicId)));
+                }
+            }
+            for (int round = 1; round <= updates; round++) {
+                for (Subtask subtask : subtasks) {
+                    subtask.setName("Subtask " + subtask.getId() + " v" + round);
+                    subtask.setStatus(Status.values()[round % Status.values().length]);
+                    manager.updateSubtask(subtask);
+                }
+            }
+        }
+        Files.copy(logFile, snapshotLog, StandardCopyOption.REPLACE_EXISTING);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(snapshotLog, Durability.OS_BUFFERED, 0)) {
+            manager.snapshot();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public FileBackedTaskManager replayLog() {
+        return open(logFile);
+    }
+
+    @Benchmark
+    public FileBackedTaskManager loadSnapshot() {
+        return open(snapshotLog);
+    }
+
+    private static FileBackedTaskManager open(Path file) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.OS_BUFFERED, 0);
+        manager.close();
+        return manager;
+    }
+}
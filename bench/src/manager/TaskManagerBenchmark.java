@@ -0,0 +1,105 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// CRUD по каждому типу задач на заполненном хранилище; создание идёт в паре с удалением, чтобы размер не рос
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TaskManagerBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private TaskManager manager;
+    private int firstTaskId;
+    private int firstEpicId;
+    private int firstSubtaskId;
+
+    @Setup
+    public void setUp() {
+        manager = Managers.getDefault();
+        firstTaskId = manager.createTask(new Task("Task 0", "Description", Status.NEW)).getId();
+        for (int i = 1; i < size; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        int epicCount = Math.max(1, size / 10);
+        firstEpicId = manager.createEpic(new Epic("Epic 0", "Description")).getId();
+        for (int i = 1; i < epicCount; i++) {
+            manager.createEpic(new Epic("Epic " + i, "Description"));
+        }
+        firstSubtaskId = -1;
+        for (int i = 0; i < size; i++) {
+            Subtask subtask = manager.createSubtask(new Subtask("Subtask " + i, "Description", Status.NEW,
+                    firstEpicId + i % epicCount));
+            if (firstSubtaskId < 0) {
+                firstSubtaskId = subtask.getId();
+            }
+        }
+    }
+
+    @Benchmark
+    public void createAndDeleteTask() {
+        Task task = manager.createTask(new Task("Task", "Description", Status.NEW));
+        manager.deleteTask(task.getId());
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(firstTaskId + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public Task updateTask() {
+        Task task = new Task("Task", "Updated", Status.IN_PROGRESS);
+        task.setId(firstTaskId + ThreadLocalRandom.current().nextInt(size));
+        return manager.updateTask(task);
+    }
+
+    @Benchmark
+    public void createAndDeleteEpic() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        manager.deleteEpic(epic.getId());
+    }
+
+    @Benchmark
+    public Epic getEpic() {
+        return manager.getEpic(firstEpicId + ThreadLocalRandom.current().nextInt(Math.max(1, size / 10)));
+    }
+
+    @Benchmark
+    public Epic updateEpic() {
+        Epic epic = new Epic("Epic", "Updated");
+        epic.setId(firstEpicId + ThreadLocalRandom.current().nextInt(Math.max(1, size / 10)));
+        return manager.updateEpic(epic);
+    }
+
+    @Benchmark
+    public void createAndDeleteSubtask() {
+        Subtask subtask = manager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, firstEpicId));
+        manager.deleteSubtask(subtask.getId());
+    }
+
+    @Benchmark
+    public Subtask getSubtask() {
+        return manager.getSubtask(firstSubtaskId + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public void updateSubtask(Blackhole blackhole) {
+        Subtask subtask = manager.getSubtask(firstSubtaskId + ThreadLocalRandom.current().nextInt(size));
+        subtask.setStatus(subtask.getStatus() == Status.DONE ? Status.NEW : Status.DONE);
+        blackhole.consume(manager.updateSubtask(subtask));
+    }
+}
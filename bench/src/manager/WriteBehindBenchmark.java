@@ -0,0 +1,68 @@
+package manager;
+
+import org.openjdk.jmh.annotations.*;
+import task.Status;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Задержка записи FileBackedTaskManager по режимам журнала; SampleTime выводит перцентили, смотреть p0.99.
+ * updateTask переименовывает одну из 1000 задач - в WRITE_BEHIND повторы сливаются в очереди,
+ * viewTask пишет просмотр, который не сливается, - очередь держится только скоростью писателя.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteBehindBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"SYNC", "GROUP_COMMIT", "WRITE_BEHIND"})
+    Durability durability;
+
+    private Path directory;
+    private FileBackedTaskManager manager;
+    private Task[] tasks;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("write-behind-benchmark");
+        Path file = directory.resolve("tasks.log");
+        manager = durability == Durability.WRITE_BEHIND
+                ? new FileBackedTaskManager(file, 4096, Backpressure.BLOCK)
+                : new FileBackedTaskManager(file, durability, 5);
+        tasks = new Task[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            tasks[i] = manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        manager.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(directory.resolve("tasks.log"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Task updateTask() {
+        Task task = tasks[ThreadLocalRandom.current().nextInt(TASKS)];
+        task.setName("Task " + sequence++);
+        return manager.updateTask(task);
+    }
+
+    @Benchmark
+    public Task viewTask() {
+        return manager.getTask(ThreadLocalRandom.current().nextInt(TASKS));
+    }
+}
@@ -0,0 +1,443 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import manager.ConcurrentTaskManager;
+import manager.Managers;
+import manager.TaskManager;
+import manager.TaskOverlapException;
+import task.Epic;
+import task.Subtask;
+import task.Task;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/*
+ * HTTP API менеджера задач на localhost:
+ *   GET /tasks, /epics, /subtasks              - список (потоковый JSON, поддерживает If-None-Match)
+ *   GET /tasks/{id}, /epics/{id}, /subtasks/{id} - элемент, просмотр попадает в историю
+ *   GET /epics/{id}/subtasks                   - подзадачи эпика, считается просмотром эпика
+ *   POST /tasks, /epics, /subtasks             - создание без id (201) или обновление с id (200)
+ *   DELETE /tasks/{id} и т.д.                  - удаление элемента, DELETE /tasks - очистка
+ *   GET /history                               - история просмотров
+ *   GET /prioritized                           - задачи и подзадачи по времени начала
+ * Пересечение по времени с уже запланированной задачей отклоняется с кодом 406.
+ * Каждый запрос обрабатывается в своём потоке из Managers.getBlockingExecutor, соединения keep-alive.
+ * ConcurrentTaskManager вызывается напрямую, а списки пишутся прямо из живых представлений.
+ * Любой другой менеджер вызывается под общей блокировкой, списки (эпики - вместе с составом) копируются
+ * под ней и пишутся уже без неё, чтобы медленный клиент не держал запись.
+ */
+public class HttpTaskServer {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    static {
+        /*
+         * Сервер пишет заголовки и тело ответа отдельными сегментами: без TCP_NODELAY второй ждёт подтверждения
+         * первого, а клиент откладывает его до 40 мс. Свойство читается при первом создании HttpServer в JVM.
+         */
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final TaskManager manager;
+    private final boolean threadSafe;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Версии для ETag: читаются до чтения данных и увеличиваются после изменения, поэтому тег не бывает новее данных
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final AtomicLong historyVersion = new AtomicLong();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HttpTaskServer(TaskManager manager) throws IOException {
+        this(manager, DEFAULT_PORT);
+    }
+
+    // Порт 0 - свободный порт, который выберет система
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.threadSafe = manager instanceof ConcurrentTaskManager;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Managers.getBlockingExecutor("http-task-server");
+        server.setExecutor(executor);
+
+        Resource<Task> tasks = new Resource<>("/tasks", manager::getTasksView, manager::getTasks,
+                manager::getTask, manager::createTask, manager::updateTask, manager::deleteTask,
+                manager::clearTasks, TaskJson::readTask);
+        Resource<Epic> epics = new Resource<>("/epics", manager::getEpicsView, manager::getEpics,
+                manager::getEpic, manager::createEpic, manager::updateEpic, manager::deleteEpic,
+                manager::clearEpics, TaskJson::readEpic);
+        Resource<Subtask> subtasks = new Resource<>("/subtasks", manager::getSubtasksView, manager::getSubtasks,
+                manager::getSubtask, manager::createSubtask, manager::updateSubtask, manager::deleteSubtask,
+                manager::clearSubtasks, TaskJson::readSubtask);
+        for (Resource<?> resource : List.of(tasks, epics, subtasks)) {
+            server.createContext(resource.path, exchange -> handle(exchange, () -> route(exchange, resource)));
+        }
+        server.createContext("/history", exchange -> handle(exchange, () -> history(exchange)));
+        server.createContext("/prioritized", exchange -> handle(exchange, () -> prioritized(exchange)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        HttpTaskServer server = new HttpTaskServer(Managers.getConcurrent(),
+                args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT);
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // delay - сколько секунд ждать завершения начатых запросов
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private <T extends Task> void route(HttpExchange exchange, Resource<T> resource) throws IOException {
+        String method = exchange.getRequestMethod();
+        String rest = exchange.getRequestURI().getPath().substring(resource.path.length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            switch (method) {
+                case "GET":
+                    sendList(exchange, "\"d" + dataVersion.get() + "\"", resource.view, resource.copy);
+                    return;
+                case "POST":
+                    save(exchange, resource);
+                    return;
+                case "DELETE":
+                    mutate(() -> {
+                        resource.clear.run();
+                        return null;
+                    });
+                    sendEmpty(exchange, 204);
+                    return;
+                default:
+                    sendNotAllowed(exchange, "GET, POST, DELETE");
+                    return;
+            }
+        }
+        if (rest.charAt(0) != '/') {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        String[] segments = rest.substring(1).split("/");
+        int id = parseId(segments[0]);
+        if (segments.length == 2 && segments[1].equals("subtasks") && resource.path.equals("/epics")) {
+            if (!method.equals("GET")) {
+                sendNotAllowed(exchange, "GET");
+                return;
+            }
+            // Состав эпика и поля подзадач читаются под той же блокировкой, что и сам эпик
+            String members = view(() -> {
+                Epic epic = (Epic) resource.get.apply(id);
+                return epic == null ? null : toJson(epic.getSubtaskList());
+            });
+            if (members == null) {
+                sendError(exchange, 404, "Epic " + id + " not found");
+                return;
+            }
+            send(exchange, 200, members);
+            return;
+        }
+        if (segments.length != 1) {
+            sendError(exchange, 404, "Not found");
+            return;
+        }
+        switch (method) {
+            case "GET":
+                String etag = "\"d" + dataVersion.get() + "\"";
+                String item = view(() -> toJson(resource.get.apply(id)));
+                if (item == null) {
+                    sendError(exchange, 404, resource.path.substring(1) + " " + id + " not found");
+                } else {
+                    sendItem(exchange, 200, etag, item);
+                }
+                return;
+            case "DELETE":
+                mutate(() -> {
+                    resource.delete.accept(id);
+                    return null;
+                });
+                sendEmpty(exchange, 204);
+                return;
+            default:
+                sendNotAllowed(exchange, "GET, DELETE");
+        }
+    }
+
+    private <T extends Task> void save(HttpExchange exchange, Resource<T> resource) throws IOException {
+        T item = resource.reader.apply(readBody(exchange));
+        boolean create = item.getId() == null;
+        String saved = mutate(() -> toJson(create ? resource.create.apply(item) : resource.update.apply(item)));
+        if (saved == null) {
+            // Причину менеджер уже вывел в консоль
+            sendError(exchange, 400, "Rejected by task manager");
+            return;
+        }
+        sendItem(exchange, create ? 201 : 200, null, saved);
+    }
+
+    private void history(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendNotAllowed(exchange, "GET");
+            return;
+        }
+        // Историю меняют и просмотры, и удаления
+        String etag = "\"h" + historyVersion.get() + "." + dataVersion.get() + "\"";
+        sendList(exchange, etag, manager::getHistoryView, manager::getHistory);
+    }
+
+    private void prioritized(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendNotAllowed(exchange, "GET");
+            return;
+        }
+        String etag = "\"d" + dataVersion.get() + "\"";
+        sendList(exchange, etag, manager::getPrioritizedTasks, manager::getPrioritizedTasks);
+    }
+
+    private <T> T mutate(Supplier<T> call) {
+        try {
+            return call(call);
+        } finally {
+            dataVersion.incrementAndGet();
+        }
+    }
+
+    private <T> T view(Supplier<T> call) {
+        try {
+            return call(call);
+        } finally {
+            historyVersion.incrementAndGet();
+        }
+    }
+
+    private <T> T call(Supplier<T> call) {
+        if (threadSafe) {
+            return call.get();
+        }
+        lock.lock();
+        try {
+            return call.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void handle(HttpExchange exchange, Route route) {
+        try {
+            route.run();
+        } catch (TaskOverlapException e) {
+            trySendError(exchange, 406, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            trySendError(exchange, 400, e.getMessage());
+        } catch (Exception e) {
+            trySendError(exchange, 500, e.getClass().getSimpleName());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Списки пишутся кусками по мере обхода, без сборки всего ответа в памяти
+    private void sendList(HttpExchange exchange, String etag, Supplier<? extends Collection<? extends Task>> view,
+                          Supplier<? extends Collection<? extends Task>> copy) throws IOException {
+        if (etag != null && notModified(exchange, etag)) {
+            return;
+        }
+        Collection<? extends Task> items = threadSafe || copy == null ? view.get() : call(() -> detached(copy.get()));
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8), 8192);
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        for (Task item : items) {
+            TaskJson.write(json, item);
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    // Эпики копируются вместе с составом: после снятия блокировки живой эпик может менять другой запрос
+    private static List<Task> detached(Collection<? extends Task> items) {
+        List<Task> copies = new ArrayList<>(items.size());
+        for (Task item : items) {
+            copies.add(item instanceof Epic ? copyOf((Epic) item) : item);
+        }
+        return copies;
+    }
+
+    private static Epic copyOf(Epic epic) {
+        Epic copy = new Epic(epic.getName(), epic.getDescription());
+        copy.setId(epic.getId());
+        copy.setStatus(epic.getStatus());
+        for (Subtask subtask : epic.getSubtasksView()) {
+            copy.addSubtask(subtask);
+        }
+        return copy;
+    }
+
+    private void sendItem(HttpExchange exchange, int code, String etag, String item) throws IOException {
+        if (etag != null && notModified(exchange, etag)) {
+            return;
+        }
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        send(exchange, code, item);
+    }
+
+    /*
+     * Объекты менеджера живые, поэтому элемент сериализуется внутри call: у непотокобезопасного менеджера
+     * после снятия блокировки его может менять другой запрос. null остаётся null.
+     */
+    private static String toJson(Task item) {
+        if (item == null) {
+            return null;
+        }
+        StringWriter body = new StringWriter();
+        try {
+            TaskJson.write(new JsonWriter(body), item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toString();
+    }
+
+    private static String toJson(List<? extends Task> items) {
+        StringWriter body = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(body);
+            json.beginArray();
+            for (Task item : items) {
+                TaskJson.write(json, item);
+            }
+            json.endArray();
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toString();
+    }
+
+    private boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !(ifNoneMatch.equals(etag) || ifNoneMatch.equals("*"))) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        sendEmpty(exchange, 304);
+        return true;
+    }
+
+    private void sendNotAllowed(HttpExchange exchange, String allow) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allow);
+        sendError(exchange, 405, "Method not allowed");
+    }
+
+    private void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        StringWriter body = new StringWriter();
+        new JsonWriter(body).beginObject().name("error").value(message).endObject();
+        send(exchange, code, body.toString());
+    }
+
+    private void trySendError(HttpExchange exchange, int code, String message) {
+        try {
+            sendError(exchange, code, message);
+        } catch (IOException | IllegalStateException e) {
+            // Ответ уже начат или клиент отключился: остаётся только закрыть обмен
+        }
+    }
+
+    private void sendEmpty(HttpExchange exchange, int code) throws IOException {
+        // Ответ без тела сразу считается завершённым, и непрочитанный запрос закрыл бы keep-alive соединение
+        exchange.getRequestBody().close();
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    private void send(HttpExchange exchange, int code, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid id " + segment);
+        }
+    }
+
+    private interface Route {
+        void run() throws IOException;
+    }
+
+    // Операции менеджера над одним видом задач
+    private static final class Resource<T extends Task> {
+        final String path;
+        final Supplier<Collection<T>> view;
+        final Supplier<List<T>> copy;
+        final IntFunction<T> get;
+        final UnaryOperator<T> create;
+        final UnaryOperator<T> update;
+        final IntConsumer delete;
+        final Runnable clear;
+        final Function<String, T> reader;
+
+        Resource(String path, Supplier<Collection<T>> view, Supplier<List<T>> copy, IntFunction<T> get,
+                 UnaryOperator<T> create, UnaryOperator<T> update, IntConsumer delete, Runnable clear,
+                 Function<String, T> reader) {
+            this.path = path;
+            this.view = view;
+            this.copy = copy;
+            this.get = get;
+            this.create = create;
+            this.update = update;
+            this.delete = delete;
+            this.clear = clear;
+            this.reader = reader;
+        }
+    }
+}
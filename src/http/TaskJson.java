@@ -0,0 +1,150 @@
+package http;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/*
+ * Перевод задач в JSON и обратно: {"id", "name", "description", "status", "startTime", "duration", "endTime"},
+ * у подзадач epicId, у эпиков список id подзадач. Время - строки ISO-8601 ("2024-05-01T10:00", "PT30M"),
+ * незаданное время не пишется; endTime и время эпика вычисляются и из тела не читаются.
+ */
+final class TaskJson {
+
+    private TaskJson() {
+    }
+
+    // Состав эпика читается без копии: эпик приходит копией от ConcurrentTaskManager или под блокировкой сервера
+    static void write(JsonWriter json, Task task) throws IOException {
+        json.beginObject()
+                .name("id").value(task.getId())
+                .name("name").value(task.getName())
+                .name("description").value(task.getDescription())
+                .name("status").value(task.getStatus() == null ? null : task.getStatus().name());
+        writeTimes(json, task);
+        if (task instanceof Epic) {
+            json.name("subtasks").beginArray();
+            for (Subtask subtask : ((Epic) task).getSubtasksView()) {
+                json.value(subtask.getId());
+            }
+            json.endArray();
+        } else if (task instanceof Subtask) {
+            json.name("epicId").value(((Subtask) task).getEpicId());
+        }
+        json.endObject();
+    }
+
+    private static void writeTimes(JsonWriter json, Task task) throws IOException {
+        writeOptional(json, "startTime", task.getStartTime());
+        writeOptional(json, "duration", task.getDuration());
+        writeOptional(json, "endTime", task.getEndTime());
+    }
+
+    private static void writeOptional(JsonWriter json, String name, Object value) throws IOException {
+        if (value != null) {
+            json.name(name).value(value.toString());
+        }
+    }
+
+    static Task readTask(String body) {
+        Map<String, Object> fields = JsonReader.readObject(body);
+        Task task = new Task(string(fields, "name"), string(fields, "description"), status(fields),
+                startTime(fields), duration(fields));
+        task.setId(id(fields));
+        return task;
+    }
+
+    // Статус эпика вычисляется по подзадачам, поэтому из тела не читается
+    static Epic readEpic(String body) {
+        Map<String, Object> fields = JsonReader.readObject(body);
+        Epic epic = new Epic(string(fields, "name"), string(fields, "description"));
+        epic.setId(id(fields));
+        return epic;
+    }
+
+    static Subtask readSubtask(String body) {
+        Map<String, Object> fields = JsonReader.readObject(body);
+        Object epicId = fields.get("epicId");
+        if (!(epicId instanceof Long)) {
+            throw new IllegalArgumentException("Subtask must have a numeric epicId");
+        }
+        Subtask subtask = new Subtask(string(fields, "name"), string(fields, "description"), status(fields),
+                toInt((Long) epicId), startTime(fields), duration(fields));
+        subtask.setId(id(fields));
+        return subtask;
+    }
+
+    private static Integer id(Map<String, Object> fields) {
+        Object id = fields.get("id");
+        if (id == null) {
+            return null;
+        }
+        if (!(id instanceof Long)) {
+            throw new IllegalArgumentException("Field id must be a number");
+        }
+        return toInt((Long) id);
+    }
+
+    private static String string(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Field " + name + " is required");
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static Status status(Map<String, Object> fields) {
+        Object status = fields.get("status");
+        if (status == null) {
+            return Status.NEW;
+        }
+        try {
+            return Status.valueOf(String.valueOf(status));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status " + status);
+        }
+    }
+
+    private static LocalDateTime startTime(Map<String, Object> fields) {
+        String value = optionalString(fields, "startTime");
+        try {
+            return value == null ? null : LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid startTime " + value);
+        }
+    }
+
+    private static Duration duration(Map<String, Object> fields) {
+        String value = optionalString(fields, "duration");
+        try {
+            return value == null ? null : Duration.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid duration " + value);
+        }
+    }
+
+    private static String optionalString(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + name + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int toInt(long value) {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id out of range: " + value);
+        }
+        return (int) value;
+    }
+}
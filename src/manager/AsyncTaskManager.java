@@ -0,0 +1,455 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Асинхронная обёртка над любым TaskManager: каждый метод ставит вызов в очередь и сразу возвращает CompletableFuture.
+ * Если менеджер потокобезопасен, операции одного эпика и его подзадач (и операции одной задачи) идут в порядке подачи
+ * по своей полосе, а остальные - параллельно. Выборки, очистки и пакетные операции порядка не держат.
+ * Подзадача, которую переносят в другой эпик, обновляется в полосе нового эпика только после всего, что уже
+ * стоит в полосе прежнего.
+ * Непотокобезопасный менеджер, например InMemoryTaskManager или FileBackedTaskManager, получает все вызовы по одному
+ * в порядке подачи. Отменённая или просроченная до начала операция не выполняется; начавшаяся доводится до конца.
+ */
+public class AsyncTaskManager implements AutoCloseable {
+
+    private static final int LANES = 256;
+    // Сколько операций полоса выполняет подряд, прежде чем уступить поток другим
+    private static final int DRAIN_LIMIT = 64;
+    private static final int NO_KEY = -1;
+
+    private final TaskManager delegate;
+    private final boolean threadSafe;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Lane[] lanes;
+    // Эпик подзадачи на момент подачи: по нему deleteSubtask встаёт в полосу эпика; удаления и очистки его чистят
+    private final Map<Integer, Integer> subtaskEpics;
+    private final AtomicBoolean closed;
+    private final long timeoutNanos;
+
+    public AsyncTaskManager(TaskManager delegate, boolean threadSafe) {
+        this(delegate, threadSafe, Managers.getBlockingExecutor("async-task-manager"), true);
+    }
+
+    public AsyncTaskManager(TaskManager delegate, boolean threadSafe, Executor executor) {
+        this(delegate, threadSafe, executor, false);
+    }
+
+    private AsyncTaskManager(TaskManager delegate, boolean threadSafe, Executor executor, boolean ownsExecutor) {
+        this.delegate = delegate;
+        this.threadSafe = threadSafe;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        lanes = new Lane[threadSafe ? LANES : 1];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        subtaskEpics = new ConcurrentHashMap<>();
+        closed = new AtomicBoolean();
+        timeoutNanos = 0;
+    }
+
+    private AsyncTaskManager(AsyncTaskManager source, long timeoutNanos) {
+        delegate = source.delegate;
+        threadSafe = source.threadSafe;
+        executor = source.executor;
+        ownsExecutor = false;
+        lanes = source.lanes;
+        subtaskEpics = source.subtaskEpics;
+        closed = source.closed;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /*
+     * Та же очередь, но каждое будущее завершается TimeoutException, если операция не закончилась за timeout.
+     * Не начавшаяся к этому сроку операция уже не выполнится.
+     */
+    public AsyncTaskManager withTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        return new AsyncTaskManager(this, unit.toNanos(timeout));
+    }
+
+    public CompletableFuture<List<Task>> getTasks() {
+        return submit(NO_KEY, delegate::getTasks);
+    }
+
+    public CompletableFuture<Void> clearTasks() {
+        return run(NO_KEY, delegate::clearTasks);
+    }
+
+    public CompletableFuture<Task> getTask(int taskId) {
+        return submit(taskId, () -> delegate.getTask(taskId));
+    }
+
+    public CompletableFuture<Task> createTask(Task task) {
+        return submit(NO_KEY, () -> delegate.createTask(task));
+    }
+
+    public CompletableFuture<Task> updateTask(Task task) {
+        return submit(keyOf(task.getId()), () -> delegate.updateTask(task));
+    }
+
+    public CompletableFuture<Void> deleteTask(int taskId) {
+        return run(taskId, () -> delegate.deleteTask(taskId));
+    }
+
+    // Epic
+    public CompletableFuture<List<Epic>> getEpics() {
+        return submit(NO_KEY, delegate::getEpics);
+    }
+
+    public CompletableFuture<Void> clearEpics() {
+        return run(NO_KEY, () -> {
+            delegate.clearEpics();
+            subtaskEpics.clear();
+        });
+    }
+
+    public CompletableFuture<Epic> getEpic(int epicId) {
+        return submit(epicId, () -> delegate.getEpic(epicId));
+    }
+
+    public CompletableFuture<Epic> createEpic(Epic epic) {
+        return submit(NO_KEY, () -> delegate.createEpic(epic));
+    }
+
+    public CompletableFuture<Epic> updateEpic(Epic epic) {
+        return submit(keyOf(epic.getId()), () -> delegate.updateEpic(epic));
+    }
+
+    public CompletableFuture<Void> deleteEpic(int epicId) {
+        return run(epicId, () -> {
+            delegate.deleteEpic(epicId);
+            forgetEpics(Set.of(epicId));
+        });
+    }
+
+    // Subtask
+    public CompletableFuture<List<Subtask>> getSubtasks() {
+        return submit(NO_KEY, delegate::getSubtasks);
+    }
+
+    public CompletableFuture<Void> clearSubtasks() {
+        return run(NO_KEY, () -> {
+            delegate.clearSubtasks();
+            subtaskEpics.clear();
+        });
+    }
+
+    public CompletableFuture<Subtask> getSubtask(int subtaskId) {
+        return submit(epicKeyOf(subtaskId), () -> delegate.getSubtask(subtaskId));
+    }
+
+    public CompletableFuture<Subtask> createSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        return submit(epicId, () -> {
+            Subtask created = delegate.createSubtask(subtask);
+            rememberEpic(created.getId(), epicId);
+            return created;
+        });
+    }
+
+    public CompletableFuture<Subtask> updateSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        Integer previousEpicId = rememberEpic(subtask.getId(), epicId);
+        CompletableFuture<Void> drained = null;
+        if (previousEpicId != null && laneFor(previousEpicId) != laneFor(epicId)) {
+            // Отметка встаёт в конец полосы прежнего эпика и открывает обновление, когда всё до неё выполнено
+            CompletableFuture<Void> mark = new CompletableFuture<>();
+            lanes[laneFor(previousEpicId)].submit(() -> mark.complete(null));
+            drained = mark;
+        }
+        return submit(epicId, drained, () -> delegate.updateSubtask(subtask));
+    }
+
+    public CompletableFuture<Void> deleteSubtask(int subtaskId) {
+        int epicId = epicKeyOf(subtaskId);
+        return run(epicId, () -> {
+            delegate.deleteSubtask(subtaskId);
+            subtaskEpics.remove(subtaskId, epicId);
+        });
+    }
+
+    public CompletableFuture<List<Task>> getHistory() {
+        return submit(NO_KEY, delegate::getHistory);
+    }
+
+    // Пакетные операции
+    public CompletableFuture<List<Task>> createTasks(List<Task> tasks) {
+        return submit(NO_KEY, () -> delegate.createTasks(tasks));
+    }
+
+    public CompletableFuture<List<Epic>> createEpics(List<Epic> epics) {
+        return submit(NO_KEY, () -> delegate.createEpics(epics));
+    }
+
+    public CompletableFuture<List<Subtask>> createSubtasks(List<Subtask> subtasks) {
+        return submit(NO_KEY, () -> {
+            List<Subtask> created = delegate.createSubtasks(subtasks);
+            for (Subtask subtask : created) {
+                rememberEpic(subtask.getId(), subtask.getEpicId());
+            }
+            return created;
+        });
+    }
+
+    public CompletableFuture<List<Task>> updateTasks(List<Task> tasks) {
+        return submit(NO_KEY, () -> delegate.updateTasks(tasks));
+    }
+
+    public CompletableFuture<List<Epic>> updateEpics(List<Epic> epics) {
+        return submit(NO_KEY, () -> delegate.updateEpics(epics));
+    }
+
+    public CompletableFuture<List<Subtask>> updateSubtasks(List<Subtask> subtasks) {
+        return submit(NO_KEY, () -> delegate.updateSubtasks(subtasks));
+    }
+
+    public CompletableFuture<Void> deleteTasks(Collection<Integer> taskIds) {
+        return run(NO_KEY, () -> delegate.deleteTasks(taskIds));
+    }
+
+    public CompletableFuture<Void> deleteEpics(Collection<Integer> epicIds) {
+        return run(NO_KEY, () -> {
+            delegate.deleteEpics(epicIds);
+            forgetEpics(new HashSet<>(epicIds));
+        });
+    }
+
+    public CompletableFuture<Void> deleteSubtasks(Collection<Integer> subtaskIds) {
+        return run(NO_KEY, () -> {
+            delegate.deleteSubtasks(subtaskIds);
+            subtaskEpics.keySet().removeAll(subtaskIds);
+        });
+    }
+
+    // Выборки по статусу
+    public CompletableFuture<List<Task>> getTasksByStatus(Status status) {
+        return submit(NO_KEY, () -> delegate.getTasksByStatus(status));
+    }
+
+    public CompletableFuture<List<Epic>> getEpicsByStatus(Status status) {
+        return submit(NO_KEY, () -> delegate.getEpicsByStatus(status));
+    }
+
+    public CompletableFuture<List<Subtask>> getSubtasksByStatus(Status status) {
+        return submit(NO_KEY, () -> delegate.getSubtasksByStatus(status));
+    }
+
+    public CompletableFuture<List<Task>> search(String query, int offset, int limit) {
+        return submit(NO_KEY, () -> delegate.search(query, offset, limit));
+    }
+
+    public CompletableFuture<List<Task>> getPrioritizedTasks() {
+        return submit(NO_KEY, delegate::getPrioritizedTasks);
+    }
+
+    // Представления живые: читать их можно только так, как позволяет сам менеджер
+    public CompletableFuture<Collection<Task>> getTasksView() {
+        return submit(NO_KEY, delegate::getTasksView);
+    }
+
+    public CompletableFuture<Collection<Epic>> getEpicsView() {
+        return submit(NO_KEY, delegate::getEpicsView);
+    }
+
+    public CompletableFuture<Collection<Subtask>> getSubtasksView() {
+        return submit(NO_KEY, delegate::getSubtasksView);
+    }
+
+    public CompletableFuture<Collection<Task>> getHistoryView() {
+        return submit(NO_KEY, delegate::getHistoryView);
+    }
+
+    public CompletableFuture<Page<Task>> getTasksPage(int cursor, int limit) {
+        return submit(NO_KEY, () -> delegate.getTasksPage(cursor, limit));
+    }
+
+    public CompletableFuture<Page<Epic>> getEpicsPage(int cursor, int limit) {
+        return submit(NO_KEY, () -> delegate.getEpicsPage(cursor, limit));
+    }
+
+    public CompletableFuture<Page<Subtask>> getSubtasksPage(int cursor, int limit) {
+        return submit(NO_KEY, () -> delegate.getSubtasksPage(cursor, limit));
+    }
+
+    public CompletableFuture<ChangeSubscription> subscribe() {
+        return submit(NO_KEY, delegate::subscribe);
+    }
+
+    public CompletableFuture<TaskSnapshot> getSnapshot() {
+        return submit(NO_KEY, delegate::getSnapshot);
+    }
+
+    // Закрывает и обёртки из withTimeout: новые вызовы завершаются ошибкой, уже поставленные выполняются
+    @Override
+    public void close() {
+        closed.set(true);
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private CompletableFuture<Void> run(int key, Runnable operation) {
+        return submit(key, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(int key, Supplier<T> operation) {
+        return submit(key, null, operation);
+    }
+
+    // Операция с after выполняется в своей полосе не раньше, чем завершится after; полоса до тех пор стоит
+    private <T> CompletableFuture<T> submit(int key, CompletableFuture<?> after, Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed.get()) {
+            future.completeExceptionally(new IllegalStateException("Async task manager is closed"));
+            return future;
+        }
+        if (timeoutNanos > 0) {
+            future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        Runnable call = () -> {
+            // Отменённое или просроченное будущее уже завершено: операцию не применяем
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(operation.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (!threadSafe) {
+            lanes[0].submit(call);
+        } else if (key == NO_KEY) {
+            try {
+                executor.execute(call);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        } else {
+            lanes[laneFor(key)].submit(after == null ? call : new Gated(after, call));
+        }
+        return future;
+    }
+
+    // Нужен только для выбора полосы, поэтому при последовательном выполнении не ведётся; возвращает прежний эпик
+    private Integer rememberEpic(Integer subtaskId, int epicId) {
+        if (threadSafe && subtaskId != null) {
+            return subtaskEpics.put(subtaskId, epicId);
+        }
+        return null;
+    }
+
+    // Подзадачи удалённых эпиков удалены вместе с ними: их эпики больше не нужны для выбора полосы
+    private void forgetEpics(Set<Integer> epicIds) {
+        if (threadSafe) {
+            subtaskEpics.values().removeIf(epicIds::contains);
+        }
+    }
+
+    // Сколько подзадач помнит обёртка (для тестов)
+    int trackedSubtaskCount() {
+        return subtaskEpics.size();
+    }
+
+    private int epicKeyOf(int subtaskId) {
+        return subtaskEpics.getOrDefault(subtaskId, NO_KEY);
+    }
+
+    private static int keyOf(Integer id) {
+        return id == null ? NO_KEY : id;
+    }
+
+    private static int laneFor(int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (LANES - 1);
+    }
+
+    // Последовательная очередь поверх общего пула: в каждый момент выполняется не больше одной её операции
+    private final class Lane implements Runnable {
+
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        void submit(Runnable call) {
+            queue.add(call);
+            if (pending.getAndIncrement() == 0 && !reschedule()) {
+                run();
+            }
+        }
+
+        /*
+         * Операция, ждущая другую полосу, остаётся в голове очереди, и полоса выходит, не уменьшая pending:
+         * новые вызовы её не запустят, а продолжит её завершение того, чего ждали. Поток пула при этом не занят.
+         */
+        @Override
+        public void run() {
+            do {
+                for (int i = 0; i < DRAIN_LIMIT; i++) {
+                    Runnable next = queue.peek();
+                    if (next instanceof Gated && !((Gated) next).after.isDone()) {
+                        ((Gated) next).after.whenComplete((result, failure) -> resume());
+                        return;
+                    }
+                    queue.poll().run();
+                    if (pending.decrementAndGet() == 0) {
+                        return;
+                    }
+                }
+            } while (!reschedule());
+        }
+
+        private void resume() {
+            if (!reschedule()) {
+                run();
+            }
+        }
+
+        // Если пул уже не принимает задачи, очередь дорабатывает текущий поток, чтобы будущие не зависли
+        private boolean reschedule() {
+            try {
+                executor.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class Gated implements Runnable {
+
+        private final CompletableFuture<?> after;
+        private final Runnable call;
+
+        Gated(CompletableFuture<?> after, Runnable call) {
+            this.after = after;
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            call.run();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package manager;
+
+// Что делает операция, когда очередь отложенной записи журнала заполнена
+public enum Backpressure {
+    // ждёт, пока писатель заберёт очередь
+    BLOCK,
+    // сама пишет очередь в журнал с fsync
+    CALLER_RUNS,
+    // отклоняется с WriteQueueFullException
+    FAIL
+}
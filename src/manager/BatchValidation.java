@@ -0,0 +1,40 @@
+package manager;
+
+import task.Task;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// Проверки пакета до начала изменений, чтобы пакет применялся целиком или не применялся вовсе
+final class BatchValidation {
+
+    private BatchValidation() {
+    }
+
+    static void requireNewItems(List<? extends Task> items) {
+        Set<Task> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Task item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException("Batch must not contain null");
+            }
+            if (!seen.add(item)) {
+                throw new IllegalArgumentException("Batch contains the same object twice");
+            }
+        }
+    }
+
+    static void requireExisting(List<? extends Task> items, IntPredicate exists) {
+        Set<Integer> seen = new HashSet<>();
+        for (Task item : items) {
+            if (item == null || item.getId() == null) {
+                throw new IllegalArgumentException("Every item in the batch must have an id");
+            }
+            if (!exists.test(item.getId())) {
+                throw new IllegalArgumentException("Item " + item.getId() + " not found");
+            }
+            if (!seen.add(item.getId())) {
+                throw new IllegalArgumentException("Batch contains id " + item.getId() + " twice");
+            }
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/*
+ * Формат (big-endian):
+ * magic, version, generation, nextId, число задач/эпиков/подзадач/записей истории,
+ * задачи, эпики вместе с id своих подзадач по порядку, подзадачи, id истории по порядку, crc32 всего, что выше.
+ * Строка - длина в байтах (-1 для null) и UTF-8. С версии 2 за задачей и подзадачей идёт время (TimeCodec),
+ * с версии 3 после истории - число зависимостей и пары blocker, blocked. Снимки прежних версий читаются.
+ * Дельта - изменения после снимка или предыдущей дельты: DELTA_MAGIC, версия, generation, поколение, к которому
+ * она применяется, nextId, число задач/эпиков/подзадач/удалённых id/записей истории/зависимостей, те же записи,
+ * что в снимке, id удалённых, история, пары зависимостей и crc32. Историю и зависимости дельта пишет целиком
+ * и только если они менялись, иначе их число -1. При свёртке всё, что было в базе под id из дельты, заменяется.
+ */
+final class BinarySnapshot {
+
+    private static final int MAGIC = 0x4B4E4253;
+    private static final short VERSION = 3;
+    private static final int DELTA_MAGIC = 0x4B4E4244;
+    private static final short DELTA_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int TRAILER_SIZE = 4;
+    private static final int[] EMPTY = new int[0];
+
+    private BinarySnapshot() {
+    }
+
+    static void write(Path file, InMemoryTaskManager source, long generation) {
+        List<Task> tasks = source.getTasks();
+        List<Epic> epics = source.getEpics();
+        List<Subtask> subtasks = source.getSubtasks();
+        int[] history = ids(source.getHistory());
+        int[] dependencies = source.dependencyEdges();
+        writeAtomically(file, out -> writeBase(out, generation, source.peekNextId(), tasks, epics,
+                epic -> toArray(epic.getSubtaskIds()), subtasks, history, dependencies));
+    }
+
+    // Записывает свёрнутый образ как новый снимок его поколения
+    static void write(Path file, Image image) {
+        writeAtomically(file, out -> writeBase(out, image.generation, image.nextId, image.tasks.values(),
+                image.epics.values(), epic -> image.members.get(epic.getId()), image.subtasks.values(),
+                image.history, image.dependencies));
+    }
+
+    /*
+     * Записывает дельту поколения generation поверх parent: текущее состояние id из changes - элемент,
+     * если он есть, иначе удаление, - а также историю и зависимости, если они менялись.
+     */
+    static void writeDelta(Path file, InMemoryTaskManager source, DirtySet changes, long parent, long generation) {
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        // По возрастанию id элементы идут в порядке создания, и обход меньше скачет по памяти
+        int[] ids = toArray(changes.ids());
+        Arrays.sort(ids);
+        for (int id : ids) {
+            Task task = source.findTask(id);
+            Epic epic = source.findEpic(id);
+            Subtask subtask = source.findSubtask(id);
+            if (task != null) {
+                tasks.add(task);
+            }
+            if (epic != null) {
+                epics.add(epic);
+            }
+            if (subtask != null) {
+                subtasks.add(subtask);
+            }
+            if (task == null && epic == null && subtask == null) {
+                deleted.add(id);
+            }
+        }
+        int[] history = changes.historyChanged() ? ids(source.getHistory()) : null;
+        int[] dependencies = changes.dependenciesChanged() ? source.dependencyEdges() : null;
+        writeAtomically(file, out -> {
+            out.buffer.putInt(DELTA_MAGIC).putShort(DELTA_VERSION).putLong(generation).putLong(parent)
+                    .putInt(source.peekNextId());
+            out.buffer.putInt(tasks.size()).putInt(epics.size()).putInt(subtasks.size()).putInt(deleted.size())
+                    .putInt(history == null ? -1 : history.length)
+                    .putInt(dependencies == null ? -1 : dependencies.length / 2);
+            writeItems(out, tasks, epics, epic -> toArray(epic.getSubtaskIds()), subtasks);
+            for (int id : deleted) {
+                out.writeInt(id);
+            }
+            if (history != null) {
+                out.writeInts(history);
+            }
+            if (dependencies != null) {
+                out.writeInts(dependencies);
+            }
+        });
+    }
+
+    // Читает снимок в образ, на который затем накладываются дельты
+    static Image read(Path file) {
+        ByteBuffer buffer = open(file, MAGIC);
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version, null);
+        }
+        Image image = new Image(buffer.getLong(), buffer.getInt());
+        int taskCount = buffer.getInt();
+        int epicCount = buffer.getInt();
+        int subtaskCount = buffer.getInt();
+        int historyCount = buffer.getInt();
+        for (int i = 0; i < taskCount; i++) {
+            Task task = readTask(buffer, new Task(null, null), version >= 2);
+            image.tasks.put(task.getId(), task);
+        }
+        for (int i = 0; i < epicCount; i++) {
+            Epic epic = readTask(buffer, new Epic(null, null), false);
+            image.epics.put(epic.getId(), epic);
+            image.members.put(epic.getId(), readInts(buffer, buffer.getInt()));
+        }
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask subtask = readSubtask(buffer, version >= 2);
+            image.subtasks.put(subtask.getId(), subtask);
+        }
+        image.history = readInts(buffer, historyCount);
+        image.dependencies = version >= 3 ? readInts(buffer, buffer.getInt() * 2) : EMPTY;
+        return image;
+    }
+
+    // Накладывает дельту на образ; дельта должна продолжать именно его поколение
+    static void fold(Path file, Image image) {
+        ByteBuffer buffer = open(file, DELTA_MAGIC);
+        short version = buffer.getShort();
+        if (version < 1 || version > DELTA_VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия дельты: " + version, null);
+        }
+        long generation = buffer.getLong();
+        long parent = buffer.getLong();
+        if (parent != image.generation) {
+            throw new ManagerSaveException("Дельта " + file + " продолжает поколение " + parent
+                    + ", а не " + image.generation, null);
+        }
+        int nextId = buffer.getInt();
+        Task[] tasks = new Task[buffer.getInt()];
+        Epic[] epics = new Epic[buffer.getInt()];
+        Subtask[] subtasks = new Subtask[buffer.getInt()];
+        int[] deleted = new int[buffer.getInt()];
+        int historyCount = buffer.getInt();
+        int dependencyCount = buffer.getInt();
+        int[][] members = new int[epics.length][];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = readTask(buffer, new Task(null, null), true);
+        }
+        for (int i = 0; i < epics.length; i++) {
+            epics[i] = readTask(buffer, new Epic(null, null), false);
+            members[i] = readInts(buffer, buffer.getInt());
+        }
+        for (int i = 0; i < subtasks.length; i++) {
+            subtasks[i] = readSubtask(buffer, true);
+        }
+        for (int i = 0; i < deleted.length; i++) {
+            deleted[i] = buffer.getInt();
+            image.remove(deleted[i]);
+        }
+        // Сначала id уходит из всех видов, и только потом записывается туда, где он есть сейчас
+        for (Task task : tasks) {
+            image.remove(task.getId());
+        }
+        for (Epic epic : epics) {
+            image.remove(epic.getId());
+        }
+        for (Subtask subtask : subtasks) {
+            image.remove(subtask.getId());
+        }
+        for (Task task : tasks) {
+            image.tasks.put(task.getId(), task);
+        }
+        for (int i = 0; i < epics.length; i++) {
+            image.epics.put(epics[i].getId(), epics[i]);
+            image.members.put(epics[i].getId(), members[i]);
+        }
+        for (Subtask subtask : subtasks) {
+            image.subtasks.put(subtask.getId(), subtask);
+        }
+        if (historyCount >= 0) {
+            image.history = readInts(buffer, historyCount);
+        } else if (deleted.length > 0) {
+            image.history = without(image.history, deleted);
+        }
+        if (dependencyCount >= 0) {
+            image.dependencies = readInts(buffer, dependencyCount * 2);
+        }
+        image.nextId = nextId;
+        image.generation = generation;
+    }
+
+    /*
+     * Переносит образ в пустой менеджер так же, как его создавали: элементы получают прежние id,
+     * подзадачи создаются в порядке списков эпиков, история - просмотрами. Образ после этого не используется.
+     */
+    static void apply(Image image, InMemoryTaskManager target) {
+        for (Task task : image.tasks.values()) {
+            target.setNextId(task.getId());
+            target.createTask(task);
+        }
+        for (Epic epic : image.epics.values()) {
+            target.setNextId(epic.getId());
+            target.createEpic(epic);
+        }
+        // Подзадачи создаются в порядке списков эпиков, чтобы сохранить этот порядок
+        for (Epic epic : image.epics.values()) {
+            for (int subtaskId : image.members.get(epic.getId())) {
+                Subtask subtask = image.subtasks.remove(subtaskId);
+                if (subtask != null) {
+                    createSubtask(target, subtask);
+                }
+            }
+        }
+        for (Subtask orphan : image.subtasks.values()) {
+            createSubtask(target, orphan);
+        }
+        for (int id : image.history) {
+            if (target.findTask(id) != null) {
+                target.getTask(id);
+            } else if (target.findEpic(id) != null) {
+                target.getEpic(id);
+            } else {
+                target.getSubtask(id);
+            }
+        }
+        // Ребро с элементом, которого нет в образе, пропускается: addDependency его бы отклонил
+        for (int i = 0; i < image.dependencies.length; i += 2) {
+            int blockerId = image.dependencies[i];
+            int blockedId = image.dependencies[i + 1];
+            if (target.contains(blockerId) && target.contains(blockedId)) {
+                target.addDependency(blockerId, blockedId);
+            }
+        }
+        target.setNextId(image.nextId);
+    }
+
+    private static void writeAtomically(Path file, Body body) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            body.write(out);
+            out.finish();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать снимок " + file, e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось заменить снимок " + file, e);
+        }
+    }
+
+    private static void writeBase(Writer out, long generation, int nextId, Collection<? extends Task> tasks,
+                                  Collection<Epic> epics, Function<Epic, int[]> members,
+                                  Collection<Subtask> subtasks, int[] history, int[] dependencies)
+            throws IOException {
+        out.buffer.putInt(MAGIC).putShort(VERSION).putLong(generation).putInt(nextId);
+        out.buffer.putInt(tasks.size()).putInt(epics.size()).putInt(subtasks.size()).putInt(history.length);
+        writeItems(out, tasks, epics, members, subtasks);
+        out.writeInts(history);
+        out.writeInt(dependencies.length / 2);
+        out.writeInts(dependencies);
+    }
+
+    private static void writeItems(Writer out, Collection<? extends Task> tasks, Collection<Epic> epics,
+                                   Function<Epic, int[]> members, Collection<Subtask> subtasks)
+            throws IOException {
+        for (Task task : tasks) {
+            out.writeTask(task);
+            out.writeTimes(task);
+        }
+        for (Epic epic : epics) {
+            out.writeTask(epic);
+            int[] subtaskIds = members.apply(epic);
+            out.writeInt(subtaskIds.length);
+            out.writeInts(subtaskIds);
+        }
+        for (Subtask subtask : subtasks) {
+            out.writeTask(subtask);
+            out.writeInt(subtask.getEpicId());
+            out.writeTimes(subtask);
+        }
+    }
+
+    // Отображает файл и проверяет magic и crc; позиция буфера - сразу после magic
+    private static ByteBuffer open(Path file, int magic) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть снимок " + file, e);
+        }
+        if (buffer.capacity() < TRAILER_SIZE || buffer.getInt(0) != magic) {
+            throw new ManagerSaveException("Файл не является снимком: " + file, null);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(buffer.capacity() - TRAILER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(buffer.capacity() - TRAILER_SIZE)) {
+            throw new ManagerSaveException("Снимок повреждён: " + file, null);
+        }
+        buffer.position(4);
+        return buffer;
+    }
+
+    private static void createSubtask(InMemoryTaskManager target, Subtask subtask) {
+        target.setNextId(subtask.getId());
+        target.createSubtask(subtask);
+    }
+
+    private static <T extends Task> T readTask(ByteBuffer buffer, T task, boolean times) {
+        task.setId(buffer.getInt());
+        task.setName(readString(buffer));
+        task.setDescription(readString(buffer));
+        task.setStatus(readStatus(buffer));
+        if (times) {
+            TimeCodec.read(buffer, task);
+        }
+        return task;
+    }
+
+    private static Subtask readSubtask(ByteBuffer buffer, boolean times) {
+        int id = buffer.getInt();
+        String name = readString(buffer);
+        String description = readString(buffer);
+        Status status = readStatus(buffer);
+        Subtask subtask = new Subtask(name, description, status, buffer.getInt());
+        subtask.setId(id);
+        if (times) {
+            TimeCodec.read(buffer, subtask);
+        }
+        return subtask;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+
+    private static int[] ids(List<Task> items) {
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).getId();
+        }
+        return ids;
+    }
+
+    private static int[] toArray(Collection<Integer> values) {
+        int[] array = new int[values.size()];
+        int i = 0;
+        for (int value : values) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    // Порядок оставшихся сохраняется
+    private static int[] without(int[] values, int[] removed) {
+        Set<Integer> excluded = new HashSet<>(removed.length * 2);
+        for (int value : removed) {
+            excluded.add(value);
+        }
+        int[] kept = new int[values.length];
+        int count = 0;
+        for (int value : values) {
+            if (!excluded.contains(value)) {
+                kept[count++] = value;
+            }
+        }
+        return Arrays.copyOf(kept, count);
+    }
+
+    private static Status readStatus(ByteBuffer buffer) {
+        byte status = buffer.get();
+        return status < 0 ? null : Status.values()[status];
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void writeTask(Task task) throws IOException {
+            ensure(4);
+            buffer.putInt(task.getId());
+            writeString(task.getName());
+            writeString(task.getDescription());
+            ensure(1);
+            buffer.put(task.getStatus() == null ? -1 : (byte) task.getStatus().ordinal());
+        }
+
+        private void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void writeInts(int[] values) throws IOException {
+            for (int value : values) {
+                writeInt(value);
+            }
+        }
+
+        private void writeTimes(Task task) throws IOException {
+            ensure(TimeCodec.MAX_SIZE);
+            TimeCodec.write(buffer, task);
+        }
+
+        private void writeString(String value) throws IOException {
+            ensure(4);
+            if (value == null) {
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                drain();
+                write(ByteBuffer.wrap(bytes));
+            } else {
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+            if (buffer.remaining() < bytes) {
+                throw new IOException("Запись длиннее буфера: " + bytes);
+            }
+        }
+
+        private void finish() throws IOException {
+            drain();
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE).putInt((int) crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+        }
+
+        private void write(ByteBuffer data) throws IOException {
+            crc.update(data.duplicate());
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    /*
+     * Состояние снимка вне менеджера: в него читается база, на него накладываются дельты, из него пишется
+     * новая база при слиянии или собирается менеджер при загрузке.
+     */
+    static final class Image {
+        private final IntObjectMap<Task> tasks = new IntObjectMap<>();
+        private final IntObjectMap<Epic> epics = new IntObjectMap<>();
+        // Id подзадач эпика по порядку
+        private final IntObjectMap<int[]> members = new IntObjectMap<>();
+        private final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+        private int[] history = EMPTY;
+        private int[] dependencies = EMPTY;
+        private long generation;
+        private int nextId;
+
+        private Image(long generation, int nextId) {
+            this.generation = generation;
+            this.nextId = nextId;
+        }
+
+        long generation() {
+            return generation;
+        }
+
+        private void remove(int id) {
+            tasks.remove(id);
+            epics.remove(id);
+            members.remove(id);
+            subtasks.remove(id);
+        }
+    }
+
+    private interface Body {
+        void write(Writer out) throws IOException;
+    }
+}
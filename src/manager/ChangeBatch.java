@@ -0,0 +1,32 @@
+package manager;
+
+import java.util.Collections;
+import java.util.List;
+
+// Пачка событий подписки; missed - сколько событий перед ней было затёрто, пока подписчик отставал
+public final class ChangeBatch {
+
+    private final List<ChangeEvent> events;
+    private final long missed;
+
+    ChangeBatch(List<ChangeEvent> events, long missed) {
+        this.events = Collections.unmodifiableList(events);
+        this.missed = missed;
+    }
+
+    public List<ChangeEvent> getEvents() {
+        return events;
+    }
+
+    public long getMissed() {
+        return missed;
+    }
+
+    public boolean hasGap() {
+        return missed > 0;
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty() && missed == 0;
+    }
+}
@@ -0,0 +1,57 @@
+package manager;
+
+import task.Status;
+import task.Task;
+
+/*
+ * Событие изменения. Номер сквозной для всех событий менеджера и растёт в порядке публикации.
+ * status - статус элемента после изменения, у DELETED он null. item - записанный объект у CREATED и UPDATED,
+ * у остальных событий null; CompactTaskManager объекты не хранит и отдаёт переданный ему.
+ */
+public final class ChangeEvent {
+
+    private final long sequence;
+    private final ChangeType type;
+    private final ItemType itemType;
+    private final int id;
+    private final Status status;
+    private final Task item;
+
+    ChangeEvent(long sequence, ChangeType type, ItemType itemType, int id, Status status, Task item) {
+        this.sequence = sequence;
+        this.type = type;
+        this.itemType = itemType;
+        this.id = id;
+        this.status = status;
+        this.item = item;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public ItemType getItemType() {
+        return itemType;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Task getItem() {
+        return item;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + itemType + " " + id + (status == null ? "" : " " + status);
+    }
+}
@@ -0,0 +1,87 @@
+package manager;
+
+import task.Status;
+import task.Task;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Кольцевой буфер событий изменений. Писатели не ждут ни читателей, ни друг друга: номер события берётся
+ * из общего счётчика, событие кладётся в ячейку номер & mask и затирает лежавшее там событие прошлого круга.
+ * Событие неизменяемо и хранит свой номер, поэтому читатель без блокировок отличает ещё не записанную ячейку
+ * (номер меньше ожидаемого) от перезаписанной (больше). Пока подписчиков нет, события не создаются.
+ */
+final class ChangeStream {
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    // Меняется только под блокировкой, писатели читают без неё
+    private volatile ChangeSubscription[] subscriptions = new ChangeSubscription[0];
+    // Создаётся при первой подписке, до того как подписка станет видна писателям
+    private volatile AtomicReferenceArray<ChangeEvent> slots;
+
+    ChangeStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ChangeStream(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        mask = capacity - 1;
+    }
+
+    synchronized ChangeSubscription subscribe() {
+        if (slots == null) {
+            slots = new AtomicReferenceArray<>(mask + 1);
+        }
+        ChangeSubscription subscription = new ChangeSubscription(this, cursor.get());
+        ChangeSubscription[] current = subscriptions;
+        ChangeSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;
+        return subscription;
+    }
+
+    synchronized void unsubscribe(ChangeSubscription subscription) {
+        ChangeSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                ChangeSubscription[] updated = new ChangeSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    void publish(ChangeType type, ItemType itemType, int id, Status status, Task item) {
+        ChangeSubscription[] current = subscriptions;
+        if (current.length == 0) {
+            return;
+        }
+        long sequence = cursor.getAndIncrement();
+        slots.set((int) sequence & mask, new ChangeEvent(sequence, type, itemType, id, status, item));
+        for (ChangeSubscription subscription : current) {
+            subscription.wakeUp();
+        }
+    }
+
+    ChangeEvent get(long sequence) {
+        return slots.get((int) sequence & mask);
+    }
+
+    // Следующий номер, который получит писатель
+    long getCursor() {
+        return cursor.get();
+    }
+
+    int getCapacity() {
+        return mask + 1;
+    }
+}
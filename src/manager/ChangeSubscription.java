@@ -0,0 +1,107 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Подписка на события менеджера начиная с момента подписки. Читает её один поток: poll отдаёт события
+ * по возрастанию номера пачками до maxEvents. Писатели подписчика не ждут, поэтому отставший больше
+ * чем на ёмкость буфера теряет старые события: очередная пачка сообщает, сколько их пропало,
+ * и после такого пропуска состояние стоит перечитать из менеджера.
+ */
+public final class ChangeSubscription implements AutoCloseable {
+
+    private final ChangeStream stream;
+    private long nextSequence;
+    private long missedCount;
+    // Поток, который ждёт событий в poll с таймаутом; писатель будит его после публикации
+    private volatile Thread waiter;
+    private volatile boolean closed;
+
+    ChangeSubscription(ChangeStream stream, long nextSequence) {
+        this.stream = stream;
+        this.nextSequence = nextSequence;
+    }
+
+    // Не ждёт: если новых событий нет, пачка пустая
+    public ChangeBatch poll(int maxEvents) {
+        if (maxEvents <= 0) {
+            throw new IllegalArgumentException("Max events must be positive");
+        }
+        List<ChangeEvent> events = new ArrayList<>(Math.min(maxEvents, 256));
+        long missed = 0;
+        while (events.size() < maxEvents) {
+            ChangeEvent event = stream.get(nextSequence);
+            if (event == null || event.getSequence() < nextSequence) {
+                break;
+            }
+            if (event.getSequence() > nextSequence) {
+                // Пропуск отдаётся в начале пачки, чтобы было видно, между какими событиями он случился
+                if (!events.isEmpty()) {
+                    break;
+                }
+                // Ячейку затёрли: события старше последнего круга потеряны, читаем с самого старого уцелевшего
+                long resume = Math.max(event.getSequence() + 1, stream.getCursor()) - stream.getCapacity();
+                missed += resume - nextSequence;
+                nextSequence = resume;
+                continue;
+            }
+            events.add(event);
+            nextSequence++;
+        }
+        missedCount += missed;
+        return new ChangeBatch(events, missed);
+    }
+
+    // Ждёт до таймаута, пока не появится хотя бы одно событие или пропуск
+    public ChangeBatch poll(int maxEvents, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ChangeBatch batch = poll(maxEvents);
+        while (batch.isEmpty() && !closed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            waiter = Thread.currentThread();
+            try {
+                // Проверка после записи waiter: событие, опубликованное до неё, уже видно, а после - разбудит нас
+                batch = poll(maxEvents);
+                if (batch.isEmpty()) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiter = null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return batch;
+    }
+
+    // Сколько опубликованных событий подписчик ещё не прочитал
+    public long getLag() {
+        return stream.getCursor() - nextSequence;
+    }
+
+    // Всего пропущенных событий за время подписки
+    public long getMissedCount() {
+        return missedCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        stream.unsubscribe(this);
+        wakeUp();
+    }
+
+    void wakeUp() {
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    // Удаление, в том числе каскадное: подзадачи удалённого эпика приходят отдельными событиями
+    DELETED,
+    // Пересчитанный статус эпика изменился из-за его подзадач
+    EPIC_STATUS_CHANGED
+}
@@ -0,0 +1,828 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+
+/*
+ * Менеджер для больших досок: элементы хранятся не объектами, а столбцами массивов, где индекс - id.
+ * Названия и описания лежат в TextPool один раз на различную строку, статус - байт, эпик подзадачи - int.
+ * Объекты Task, Epic и Subtask собираются заново при каждом чтении, поэтому изменение полученного объекта
+ * не меняет хранилище, а два чтения одного id дают разные объекты.
+ * Индексов по статусу и по словам нет: выборки по статусу и поиск проходят по столбцам целиком,
+ * а TaskQuery получает только пути по id и по подзадачам эпика.
+ * Время задач и подзадач есть не у всех, поэтому хранится не столбцами, а только в расписании.
+ * id служат индексами столбцов, поэтому обновление принимает только уже выданные id: иначе один большой id,
+ * пришедший, например, в теле HTTP-запроса, растил бы все столбцы до него.
+ */
+public class CompactTaskManager implements TaskManager, QueryAccess {
+
+    private static final byte ABSENT = 0;
+    private static final byte TASK = 1;
+    private static final byte EPIC = 2;
+    private static final byte SUBTASK = 3;
+    private static final Status[] STATUSES = Status.values();
+    private static final int MIN_CAPACITY = 16;
+
+    private byte[] kinds = new byte[MIN_CAPACITY];
+    // ordinal статуса + 1, 0 - статус не задан
+    private byte[] statuses = new byte[MIN_CAPACITY];
+    // Номера строк в textPool
+    private int[] names = new int[MIN_CAPACITY];
+    private int[] descriptions = new int[MIN_CAPACITY];
+    private int[] epicIds = new int[MIN_CAPACITY];
+    // Подзадачи эпика - кольцевой двусвязный список, заголовок которого сам эпик; подзадача без эпика ссылается на себя
+    private int[] nextLinks = new int[MIN_CAPACITY];
+    private int[] prevLinks = new int[MIN_CAPACITY];
+    private final int[] counts = new int[SUBTASK + 1];
+    private final TextPool textPool = new TextPool();
+    private final Schedule schedule = new Schedule();
+    private final IntObjectMap<EpicStatusCounter> epicStatusCounters = new IntObjectMap<>();
+    private final HistoryManager historyManager;
+    private final ChangeStream changes = new ChangeStream();
+    // Однопоточный менеджер: срез запрашивают между операциями, поэтому изменения сразу меняют корень
+    private final VersionedStore versions = new VersionedStore(false);
+    private int nextId = 0;
+
+    public CompactTaskManager() {
+        historyManager = Managers.getDefaultHistory();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return collect(TASK);
+    }
+
+    @Override
+    public void clearTasks() {
+        List<Integer> removed = new ArrayList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == TASK) {
+                erase(id);
+                removed.add(id);
+                publishDelete(ItemType.TASK, id);
+            }
+        }
+        historyManager.removeAll(removed);
+    }
+
+    @Override
+    public Task getTask(int taskId) {
+        Task task = kindOf(taskId) == TASK ? toTask(taskId) : null;
+        historyManager.add(task);
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        schedule.check(Schedule.NO_ID, task);
+        task.setId(getNextId());
+        schedule.put(task.getId(), task);
+        write(task.getId(), TASK, task);
+        publishWrite(ItemType.TASK, false, task);
+        return task;
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        Integer taskId = task.getId();
+        if (taskId == null) {
+            System.out.println("У таска должен быть идентификатор");
+            return null;
+        }
+        if (!canStore(taskId, TASK)) {
+            return null;
+        }
+        schedule.put(taskId, task);
+        boolean existed = kinds[taskId] == TASK;
+        write(taskId, TASK, task);
+        publishWrite(ItemType.TASK, existed, task);
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int taskId) {
+        if (kindOf(taskId) == TASK) {
+            erase(taskId);
+            historyManager.remove(taskId);
+            publishDelete(ItemType.TASK, taskId);
+        }
+    }
+
+    // Epic
+    @Override
+    public List<Epic> getEpics() {
+        return collect(EPIC);
+    }
+
+    @Override
+    public void clearEpics() {
+        // Два прохода, чтобы события об удалении подзадач шли раньше событий об их эпиках
+        List<Integer> removed = new ArrayList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == SUBTASK) {
+                erase(id);
+                removed.add(id);
+                publishDelete(ItemType.SUBTASK, id);
+            }
+        }
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == EPIC) {
+                erase(id);
+                removed.add(id);
+                publishDelete(ItemType.EPIC, id);
+            }
+        }
+        historyManager.removeAll(removed);
+        epicStatusCounters.clear();
+    }
+
+    @Override
+    public Epic getEpic(int epicId) {
+        Epic epic = kindOf(epicId) == EPIC ? toEpic(epicId) : null;
+        historyManager.add(epic);
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(getNextId());
+        write(epic.getId(), EPIC, epic);
+        attachEpic(epic.getId());
+        epic.setStatus(statusOf(epic.getId()));
+        publishWrite(ItemType.EPIC, false, epic);
+        return epic;
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        Integer epicId = epic.getId();
+        if (epicId == null) {
+            System.out.println("У эпика должен быть идентификатор");
+            return null;
+        }
+        if (!canStore(epicId, EPIC)) {
+            return null;
+        }
+        boolean existed = kinds[epicId] == EPIC;
+        // Статус эпика выводится из подзадач, поэтому переданный вместе с эпиком не записывается
+        byte status = statuses[epicId];
+        write(epicId, EPIC, epic);
+        if (existed) {
+            statuses[epicId] = status;
+            epic.clearSubtasks();
+            for (int id = nextLinks[epicId]; id != epicId; id = nextLinks[id]) {
+                epic.addSubtask(toSubtask(id));
+            }
+        } else {
+            attachEpic(epicId);
+        }
+        epic.setStatus(statusOf(epicId));
+        publishWrite(ItemType.EPIC, existed, epic);
+        return epic;
+    }
+
+    @Override
+    public void deleteEpic(int epicId) {
+        if (kindOf(epicId) != EPIC) {
+            return;
+        }
+        List<Integer> removed = new ArrayList<>();
+        for (int id = nextLinks[epicId]; id != epicId; id = nextLinks[id]) {
+            erase(id);
+            removed.add(id);
+            publishDelete(ItemType.SUBTASK, id);
+        }
+        removed.add(epicId);
+        epicStatusCounters.remove(epicId);
+        erase(epicId);
+        historyManager.removeAll(removed);
+        publishDelete(ItemType.EPIC, epicId);
+    }
+
+    // Subtask
+    @Override
+    public List<Subtask> getSubtasks() {
+        return collect(SUBTASK);
+    }
+
+    @Override
+    public void clearSubtasks() {
+        List<Integer> removed = new ArrayList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == SUBTASK) {
+                erase(id);
+                removed.add(id);
+                publishDelete(ItemType.SUBTASK, id);
+            }
+        }
+        historyManager.removeAll(removed);
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == EPIC) {
+                nextLinks[id] = id;
+                prevLinks[id] = id;
+                epicStatusCounters.get(id).clear();
+                refreshEpicStatus(id);
+            }
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int subtaskId) {
+        Subtask subtask = kindOf(subtaskId) == SUBTASK ? toSubtask(subtaskId) : null;
+        historyManager.add(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        schedule.check(Schedule.NO_ID, subtask);
+        subtask.setId(getNextId());
+        schedule.put(subtask.getId(), subtask);
+        write(subtask.getId(), SUBTASK, subtask);
+        // Событие подзадачи публикуется до пересчёта статуса эпика, который она вызвала
+        publishWrite(ItemType.SUBTASK, false, subtask);
+        attachSubtask(subtask.getId(), subtask.getEpicId());
+        return subtask;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    // Обновлённая подзадача, как и в InMemoryTaskManager, остаётся на своём месте в списке эпика, если не сменила его
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        Integer subtaskId = subtask.getId();
+        if (subtaskId == null) {
+            System.out.println("У подзадачи должен быть идентификатор");
+            return null;
+        }
+        if (!canStore(subtaskId, SUBTASK)) {
+            return null;
+        }
+        schedule.put(subtaskId, subtask);
+        boolean existed = kinds[subtaskId] == SUBTASK;
+        int oldEpicId = epicIds[subtaskId];
+        // Подзадача, оставшаяся в своём эпике, сохраняет место в его списке: меняется только счётчик статусов
+        boolean inPlace = existed && oldEpicId == subtask.getEpicId() && nextLinks[subtaskId] != subtaskId;
+        if (inPlace) {
+            epicStatusCounters.get(oldEpicId).decrement(statusOf(subtaskId));
+        } else if (existed) {
+            detachSubtask(subtaskId, false);
+        }
+        write(subtaskId, SUBTASK, subtask);
+        // Статус прежнего эпика пересчитывается после события подзадачи, которое его вызвало
+        publishWrite(ItemType.SUBTASK, existed, subtask);
+        if (existed && oldEpicId != subtask.getEpicId() && kindOf(oldEpicId) == EPIC) {
+            refreshEpicStatus(oldEpicId);
+        }
+        if (inPlace) {
+            epicStatusCounters.get(oldEpicId).increment(statusOf(subtaskId));
+            refreshEpicStatus(oldEpicId);
+        } else {
+            attachSubtask(subtaskId, subtask.getEpicId());
+        }
+        return subtask;
+    }
+
+    @Override
+    public void deleteSubtask(int subtaskId) {
+        if (kindOf(subtaskId) == SUBTASK) {
+            publishDelete(ItemType.SUBTASK, subtaskId);
+            detachSubtask(subtaskId, true);
+            erase(subtaskId);
+            historyManager.remove(subtaskId);
+        }
+    }
+
+    // Пакетные операции: сначала проверяется весь пакет, затем он применяется целиком
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        BatchValidation.requireNewItems(newTasks);
+        schedule.checkAll(newTasks, true);
+        ensureColumns(nextId + newTasks.size());
+        for (Task task : newTasks) {
+            createTask(task);
+        }
+        return newTasks;
+    }
+
+    @Override
+    public List<Epic> createEpics(List<Epic> newEpics) {
+        BatchValidation.requireNewItems(newEpics);
+        ensureColumns(nextId + newEpics.size());
+        for (Epic epic : newEpics) {
+            createEpic(epic);
+        }
+        return newEpics;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        BatchValidation.requireNewItems(newSubtasks);
+        for (Subtask subtask : newSubtasks) {
+            if (kindOf(subtask.getEpicId()) != EPIC) {
+                throw new IllegalArgumentException("Epic " + subtask.getEpicId() + " not found");
+            }
+        }
+        schedule.checkAll(newSubtasks, true);
+        ensureColumns(nextId + newSubtasks.size());
+        for (Subtask subtask : newSubtasks) {
+            createSubtask(subtask);
+        }
+        return newSubtasks;
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> changedTasks) {
+        BatchValidation.requireExisting(changedTasks, id -> kindOf(id) == TASK);
+        schedule.checkAll(changedTasks, false);
+        for (Task task : changedTasks) {
+            updateTask(task);
+        }
+        return changedTasks;
+    }
+
+    @Override
+    public List<Epic> updateEpics(List<Epic> changedEpics) {
+        BatchValidation.requireExisting(changedEpics, id -> kindOf(id) == EPIC);
+        for (Epic epic : changedEpics) {
+            updateEpic(epic);
+        }
+        return changedEpics;
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(List<Subtask> changedSubtasks) {
+        BatchValidation.requireExisting(changedSubtasks, id -> kindOf(id) == SUBTASK);
+        schedule.checkAll(changedSubtasks, false);
+        for (Subtask subtask : changedSubtasks) {
+            updateSubtask(subtask);
+        }
+        return changedSubtasks;
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> taskIds) {
+        for (int taskId : taskIds) {
+            deleteTask(taskId);
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> epicIds) {
+        for (int epicId : epicIds) {
+            deleteEpic(epicId);
+        }
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> subtaskIds) {
+        for (int subtaskId : subtaskIds) {
+            deleteSubtask(subtaskId);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(schedule.size());
+        for (int id : schedule.ids()) {
+            result.add(materialize(id));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return collectByStatus(TASK, status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return collectByStatus(EPIC, status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return collectByStatus(SUBTASK, status);
+    }
+
+    /*
+     * Результат совпадает с SearchIndex: очки слова запроса считаются один раз на различную строку,
+     * затем складываются по столбцам названий и описаний. Так поиск не держит индекс на каждый элемент,
+     * но каждое слово запроса стоит прохода по словарю строк и по всем элементам.
+     */
+    @Override
+    public List<Task> search(String query, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        List<Task> result = new ArrayList<>();
+        List<String> queryTerms = SearchIndex.tokenize(query);
+        if (queryTerms.isEmpty() || limit == 0) {
+            return result;
+        }
+        Map<Integer, Integer> scores = null;
+        for (String queryTerm : new LinkedHashSet<>(queryTerms)) {
+            int[] textScores = new int[textPool.refLimit()];
+            for (int ref = 1; ref < textScores.length; ref++) {
+                String text = textPool.get(ref);
+                if (text != null) {
+                    textScores[ref] = SearchIndex.termScore(text, queryTerm);
+                }
+            }
+            Map<Integer, Integer> termScores = new HashMap<>();
+            if (scores == null) {
+                for (int id = 0; id < nextId; id++) {
+                    int score = kinds[id] == ABSENT ? 0 : scoreOf(id, textScores);
+                    if (score > 0) {
+                        termScores.put(id, score);
+                    }
+                }
+            } else {
+                for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                    int score = scoreOf(entry.getKey(), textScores);
+                    if (score > 0) {
+                        termScores.put(entry.getKey(), entry.getValue() + score);
+                    }
+                }
+            }
+            scores = termScores;
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        for (int id : SearchIndex.topIds(scores, offset, limit)) {
+            result.add(materialize(id));
+        }
+        return result;
+    }
+
+    // Пути доступа для TaskQuery: объекты собираются так же, как при чтении, но без записи в историю
+    @Override
+    public Task peek(int id) {
+        return kindOf(id) == ABSENT ? null : materialize(id);
+    }
+
+    @Override
+    public Collection<Subtask> subtasksOf(int epicId) {
+        List<Subtask> result = new ArrayList<>();
+        if (kindOf(epicId) == EPIC) {
+            for (int id = nextLinks[epicId]; id != epicId; id = nextLinks[id]) {
+                result.add(toSubtask(id));
+            }
+        }
+        return result;
+    }
+
+    // Индексов нет, поэтому оценок тоже нет, а выборки проходят по столбцам целиком
+    @Override
+    public int countWithStatus(ItemType itemType, Status status) {
+        return -1;
+    }
+
+    @Override
+    public Collection<? extends Task> withStatus(ItemType itemType, Status status) {
+        switch (itemType) {
+            case TASK:
+                return getTasksByStatus(status);
+            case EPIC:
+                return getEpicsByStatus(status);
+            default:
+                return getSubtasksByStatus(status);
+        }
+    }
+
+    @Override
+    public int countPrefix(String term, int limit) {
+        return -1;
+    }
+
+    @Override
+    public Collection<Integer> prefixIds(String term) {
+        List<Integer> result = new ArrayList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] != ABSENT && (SearchIndex.termScore(textPool.get(names[id]), term) > 0
+                    || SearchIndex.termScore(textPool.get(descriptions[id]), term) > 0)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // Представления собирают объекты по мере обхода
+    @Override
+    public Collection<Task> getTasksView() {
+        return view(TASK);
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return view(EPIC);
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return view(SUBTASK);
+    }
+
+    @Override
+    public Collection<Task> getHistoryView() {
+        return historyManager.getHistoryView();
+    }
+
+    @Override
+    public Page<Task> getTasksPage(int cursor, int limit) {
+        return page(TASK, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int cursor, int limit) {
+        return page(EPIC, cursor, limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        return page(SUBTASK, cursor, limit);
+    }
+
+    @Override
+    public ChangeSubscription subscribe() {
+        return changes.subscribe();
+    }
+
+    @Override
+    public TaskSnapshot getSnapshot() {
+        TaskSnapshot snapshot = versions.current();
+        return snapshot != null ? snapshot : versions.enable(getTasksView(), getEpicsView(), getSubtasksView());
+    }
+
+    // Число различных строк в словаре (для тестов)
+    int textCount() {
+        return textPool.size();
+    }
+
+    private int scoreOf(int id, int[] textScores) {
+        return SearchIndex.weigh(textScores[names[id]], textScores[descriptions[id]]);
+    }
+
+    private <T extends Task> List<T> collect(byte kind) {
+        List<T> items = new ArrayList<>(counts[kind]);
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == kind) {
+                items.add(materialize(id));
+            }
+        }
+        return items;
+    }
+
+    private <T extends Task> List<T> collectByStatus(byte kind, Status status) {
+        List<T> items = new ArrayList<>();
+        for (int id = 0; id < nextId; id++) {
+            if (kinds[id] == kind && EpicStatusCounter.normalize(statusOf(id)) == status) {
+                items.add(materialize(id));
+            }
+        }
+        return items;
+    }
+
+    private <T extends Task> Collection<T> view(byte kind) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        int id = from;
+                        while (id < nextId && kinds[id] != kind) {
+                            id++;
+                        }
+                        return id;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < nextId;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        T item = materialize(next);
+                        next = advance(next + 1);
+                        return item;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return counts[kind];
+            }
+        };
+    }
+
+    private <T extends Task> Page<T> page(byte kind, int cursor, int limit) {
+        if (cursor < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Cursor must not be negative and limit must be positive");
+        }
+        List<T> items = new ArrayList<>(Math.min(limit, counts[kind]));
+        int id = cursor;
+        for (; id < nextId && items.size() < limit; id++) {
+            if (kinds[id] == kind) {
+                items.add(materialize(id));
+            }
+        }
+        for (; id < nextId; id++) {
+            if (kinds[id] == kind) {
+                return new Page<>(items, id, true);
+            }
+        }
+        return new Page<>(items, id, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> T materialize(int id) {
+        switch (kinds[id]) {
+            case TASK:
+                return (T) toTask(id);
+            case EPIC:
+                return (T) toEpic(id);
+            case SUBTASK:
+                return (T) toSubtask(id);
+            default:
+                return null;
+        }
+    }
+
+    private Task toTask(int id) {
+        Task task = new Task(textPool.get(names[id]), textPool.get(descriptions[id]), statusOf(id),
+                schedule.startOf(id), schedule.durationOf(id));
+        task.setId(id);
+        return task;
+    }
+
+    private Epic toEpic(int id) {
+        Epic epic = new Epic(textPool.get(names[id]), textPool.get(descriptions[id]));
+        epic.setId(id);
+        epic.setStatus(statusOf(id));
+        for (int subtaskId = nextLinks[id]; subtaskId != id; subtaskId = nextLinks[subtaskId]) {
+            epic.addSubtask(toSubtask(subtaskId));
+        }
+        return epic;
+    }
+
+    private Subtask toSubtask(int id) {
+        Subtask subtask = new Subtask(textPool.get(names[id]), textPool.get(descriptions[id]), statusOf(id),
+                epicIds[id], schedule.startOf(id), schedule.durationOf(id));
+        subtask.setId(id);
+        return subtask;
+    }
+
+    // Записывает поля элемента в столбцы; старые строки отпускаются после захвата новых,
+    // чтобы общая строка не пересоздавалась
+    private void write(int id, byte kind, Task item) {
+        int name = textPool.acquire(item.getName());
+        int description = textPool.acquire(item.getDescription());
+        if (kinds[id] == ABSENT) {
+            kinds[id] = kind;
+            counts[kind]++;
+        } else {
+            textPool.release(names[id]);
+            textPool.release(descriptions[id]);
+        }
+        names[id] = name;
+        descriptions[id] = description;
+        statuses[id] = encode(item.getStatus());
+    }
+
+    private void erase(int id) {
+        textPool.release(names[id]);
+        textPool.release(descriptions[id]);
+        names[id] = 0;
+        descriptions[id] = 0;
+        statuses[id] = 0;
+        schedule.remove(id);
+        counts[kinds[id]]--;
+        kinds[id] = ABSENT;
+    }
+
+    private static byte encode(Status status) {
+        return (byte) (status == null ? 0 : status.ordinal() + 1);
+    }
+
+    private Status statusOf(int id) {
+        return statuses[id] == 0 ? null : STATUSES[statuses[id] - 1];
+    }
+
+    private byte kindOf(int id) {
+        return id >= 0 && id < nextId ? kinds[id] : ABSENT;
+    }
+
+    // id общие для задач, эпиков и подзадач, поэтому занятый другим видом id обновлением не перезаписывается
+    private boolean canStore(int id, byte kind) {
+        if (id < 0) {
+            System.out.println("Идентификатор не может быть отрицательным");
+            return false;
+        }
+        if (id >= nextId) {
+            System.out.println("Идентификатор ещё не выдан");
+            return false;
+        }
+        byte existing = kindOf(id);
+        if (existing != ABSENT && existing != kind) {
+            System.out.println("Идентификатор уже занят элементом другого типа");
+            return false;
+        }
+        return true;
+    }
+
+    private void attachEpic(int epicId) {
+        nextLinks[epicId] = epicId;
+        prevLinks[epicId] = epicId;
+        EpicStatusCounter counter = new EpicStatusCounter();
+        epicStatusCounters.put(epicId, counter);
+        statuses[epicId] = encode(counter.getStatus());
+    }
+
+    private void attachSubtask(int subtaskId, int epicId) {
+        epicIds[subtaskId] = epicId;
+        if (kindOf(epicId) != EPIC) {
+            nextLinks[subtaskId] = subtaskId;
+            prevLinks[subtaskId] = subtaskId;
+            return;
+        }
+        int last = prevLinks[epicId];
+        nextLinks[last] = subtaskId;
+        prevLinks[subtaskId] = last;
+        nextLinks[subtaskId] = epicId;
+        prevLinks[epicId] = subtaskId;
+        epicStatusCounters.get(epicId).increment(statusOf(subtaskId));
+        refreshEpicStatus(epicId);
+    }
+
+    // refresh = false, если статус эпика пересчитает вызывающий: updateSubtask делает это после записи подзадачи
+    private void detachSubtask(int subtaskId, boolean refresh) {
+        int next = nextLinks[subtaskId];
+        if (next == subtaskId) {
+            return;
+        }
+        int prev = prevLinks[subtaskId];
+        nextLinks[prev] = next;
+        prevLinks[next] = prev;
+        nextLinks[subtaskId] = subtaskId;
+        prevLinks[subtaskId] = subtaskId;
+        int epicId = epicIds[subtaskId];
+        epicStatusCounters.get(epicId).decrement(statusOf(subtaskId));
+        if (refresh) {
+            refreshEpicStatus(epicId);
+        }
+    }
+
+    private void refreshEpicStatus(int epicId) {
+        Status status = epicStatusCounters.get(epicId).getStatus();
+        if (statuses[epicId] != encode(status)) {
+            statuses[epicId] = encode(status);
+            changes.publish(ChangeType.EPIC_STATUS_CHANGED, ItemType.EPIC, epicId, status, null);
+        }
+    }
+
+    // CREATED, если под этим id ничего не было, иначе UPDATED
+    private void publishWrite(ItemType itemType, boolean existed, Task item) {
+        ChangeType type = existed ? ChangeType.UPDATED : ChangeType.CREATED;
+        changes.publish(type, itemType, item.getId(), EpicStatusCounter.normalize(item.getStatus()), item);
+        versions.write(itemType, item);
+    }
+
+    private void publishDelete(ItemType itemType, int id) {
+        changes.publish(ChangeType.DELETED, itemType, id, null, null);
+        versions.delete(itemType, id);
+    }
+
+    private int getNextId() {
+        ensureColumns(nextId + 1);
+        return nextId++;
+    }
+
+    private void ensureColumns(int capacity) {
+        if (capacity <= kinds.length) {
+            return;
+        }
+        int length = Math.max(capacity, kinds.length + (kinds.length >> 1));
+        kinds = Arrays.copyOf(kinds, length);
+        statuses = Arrays.copyOf(statuses, length);
+        names = Arrays.copyOf(names, length);
+        descriptions = Arrays.copyOf(descriptions, length);
+        epicIds = Arrays.copyOf(epicIds, length);
+        nextLinks = Arrays.copyOf(nextLinks, length);
+        prevLinks = Arrays.copyOf(prevLinks, length);
+    }
+}
@@ -0,0 +1,146 @@
+package manager;
+
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/*
+ * Просмотры не перестраивают список сразу, а складываются в неблокирующий буфер.
+ * Буфер сливается в InMemoryHistoryManager пачками тем потоком, которому удалось
+ * взять tryLock, либо перед чтением истории. Порядок событий в очереди совпадает
+ * с порядком вызовов, поэтому после слива история упорядочена так же, как у
+ * обычного менеджера.
+ */
+public final class ConcurrentHistoryManager implements HistoryManager {
+
+    private static final int DRAIN_THRESHOLD = 64;
+    // Если сливающий поток не успевает за остальными, они ждут слива сами, иначе буфер растёт без предела
+    private static final int MAX_PENDING = DRAIN_THRESHOLD * 64;
+
+    private final InMemoryHistoryManager delegate;
+    private final Queue<Event> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    public ConcurrentHistoryManager() {
+        this(new InMemoryHistoryManager());
+    }
+
+    public ConcurrentHistoryManager(int capacity, IntFunction<? extends EvictionPolicy> evictionPolicy) {
+        this(new InMemoryHistoryManager(capacity, evictionPolicy));
+    }
+
+    private ConcurrentHistoryManager(InMemoryHistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task != null) {
+            record(new Event(task, task.getId(), null));
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        record(new Event(null, id, null));
+    }
+
+    // Вся пачка ложится в буфер одним событием и сливается целиком под одним захватом drainLock
+    @Override
+    public void removeAll(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            record(new Event(null, -1, new ArrayList<>(ids)));
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffer();
+            return delegate.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Список истории меняется при сливе буфера другими потоками, поэтому здесь отдаётся копия
+    @Override
+    public Collection<Task> getHistoryView() {
+        return Collections.unmodifiableList(getHistory());
+    }
+
+    @Override
+    public long getEvictionCount() {
+        drainLock.lock();
+        try {
+            drainBuffer();
+            return delegate.getEvictionCount();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        drainLock.lock();
+        try {
+            drainBuffer();
+            return delegate.getHitCount();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void record(Event event) {
+        buffer.add(event);
+        int count = pending.incrementAndGet();
+        if (count >= MAX_PENDING) {
+            drainLock.lock();
+        } else if (count < DRAIN_THRESHOLD || !drainLock.tryLock()) {
+            return;
+        }
+        try {
+            drainBuffer();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Вызывается под drainLock; сливает не больше, чем было в буфере на входе, чтобы не крутиться бесконечно
+    private void drainBuffer() {
+        int limit = pending.get();
+        Event event;
+        while (limit-- > 0 && (event = buffer.poll()) != null) {
+            pending.decrementAndGet();
+            if (event.task != null) {
+                delegate.add(event.task);
+            } else if (event.ids != null) {
+                delegate.removeAll(event.ids);
+            } else {
+                delegate.remove(event.id);
+            }
+        }
+    }
+
+    private static final class Event {
+        private final Task task;
+        private final int id;
+        private final List<Integer> ids;
+
+        private Event(Task task, int id, List<Integer> ids) {
+            this.task = task;
+            this.id = id;
+            this.ids = ids;
+        }
+    }
+}
@@ -0,0 +1,1140 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+public class ConcurrentTaskManager implements TaskManager, QueryAccess {
+
+    private static final int STRIPES = 64;
+
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    /*
+     * Состав эпика - не потокобезопасная карта, которую меняют под страйпом, поэтому сами эпики наружу не уходят:
+     * create и update хранят копию переданного объекта, а чтения и события отдают копии, снятые под страйпом.
+     */
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    private final Map<Integer, EpicStatusCounter> epicStatusCounters = new ConcurrentHashMap<>();
+    private final Map<Integer, RecordedSubtask> recordedSubtasks = new ConcurrentHashMap<>();
+    // Вид элемента по id: id общие для всех видов, и обновление занимает id через putIfAbsent
+    private final Map<Integer, ItemType> owners = new ConcurrentHashMap<>();
+    // Id каждого вида по возрастанию для постраничного обхода; пишутся из publishWrite/publishDelete под страйпом
+    private final NavigableSet<Integer> taskIds = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> epicIds = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> subtaskIds = new ConcurrentSkipListSet<>();
+    private final ReentrantLock[] epicLocks = new ReentrantLock[STRIPES];
+    // Расписание общее для всех страйпов: его блокировка берётся последней, внутри блокировок страйпов
+    private final Schedule schedule = new Schedule();
+    private final ReentrantLock scheduleLock = new ReentrantLock();
+    // Индексы поиска и статусов тоже общие и ведутся из publishWrite/publishDelete; их блокировка берётся последней
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final StatusIndex<Task> taskStatusIndex = new StatusIndex<>();
+    private final StatusIndex<Epic> epicStatusIndex = new StatusIndex<>();
+    private final StatusIndex<Subtask> subtaskStatusIndex = new StatusIndex<>();
+    private final ReentrantLock indexLock = new ReentrantLock();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final HistoryManager historyManager;
+    private final ChangeStream changes = new ChangeStream();
+    // Изменения операции копятся в её потоке и ставятся в срез одним корнем до снятия блокировки страйпа
+    private final VersionedStore versions = new VersionedStore(true);
+
+    public ConcurrentTaskManager() {
+        historyManager = Managers.getConcurrentHistory();
+        for (int i = 0; i < STRIPES; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void clearTasks() {
+        lockAll();
+        try {
+            List<Integer> removed = new ArrayList<>(tasks.size());
+            for (Integer taskId : tasks.keySet()) {
+                if (tasks.remove(taskId) != null) {
+                    removed.add(taskId);
+                    publishDelete(ItemType.TASK, taskId);
+                }
+            }
+            unschedule(removed);
+            historyManager.removeAll(removed);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Task getTask(int taskId) {
+        // Просмотр пишется под страйпом элемента: иначе удаление между чтением и записью оставит призрак в истории
+        ReentrantLock lock = lockFor(taskId);
+        lock.lock();
+        try {
+            Task task = tasks.get(taskId);
+            historyManager.add(task);
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        checkSchedule(Schedule.NO_ID, task);
+        task.setId(getNextId());
+        ReentrantLock lock = lockFor(task.getId());
+        lock(lock);
+        try {
+            schedule(task.getId(), task);
+            tasks.put(task.getId(), task);
+            publishWrite(ItemType.TASK, null, task);
+        } finally {
+            unlock(lock);
+        }
+        return task;
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        Integer taskId = task.getId();
+        if (taskId == null) {
+            System.out.println("У таска должен быть идентификатор");
+            return null;
+        }
+        reserveId(taskId);
+        // Задачи пишутся под страйпом своего id, чтобы порядок записей одного id в срезе совпадал с картой
+        ReentrantLock lock = lockFor(taskId);
+        lock(lock);
+        try {
+            if (!claim(taskId, ItemType.TASK)) {
+                return null;
+            }
+            try {
+                schedule(taskId, task);
+            } catch (TaskOverlapException e) {
+                if (!tasks.containsKey(taskId)) {
+                    owners.remove(taskId, ItemType.TASK);
+                }
+                throw e;
+            }
+            Task previous = tasks.put(taskId, task);
+            publishWrite(ItemType.TASK, previous, task);
+        } finally {
+            unlock(lock);
+        }
+        return task;
+    }
+
+    @Override
+    public void deleteTask(int taskId) {
+        ReentrantLock lock = lockFor(taskId);
+        lock(lock);
+        try {
+            Task task = tasks.remove(taskId);
+            if (task != null) {
+                historyManager.remove(taskId);
+                unschedule(List.of(taskId));
+                publishDelete(ItemType.TASK, taskId);
+            }
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    // Epic
+    @Override
+    public List<Epic> getEpics() {
+        List<Epic> result = new ArrayList<>(epics.size());
+        for (int epicId : epics.keySet()) {
+            Epic epic = readEpic(epicId);
+            if (epic != null) {
+                result.add(epic);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clearEpics() {
+        lockAll();
+        try {
+            historyManager.removeAll(epics.keySet());
+            historyManager.removeAll(subtasks.keySet());
+            unschedule(subtasks.keySet());
+            for (Integer subtaskId : subtasks.keySet()) {
+                publishDelete(ItemType.SUBTASK, subtaskId);
+            }
+            for (Integer epicId : epics.keySet()) {
+                publishDelete(ItemType.EPIC, epicId);
+            }
+            epics.clear();
+            subtasks.clear();
+            epicStatusCounters.clear();
+            recordedSubtasks.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            Epic copy = epic == null ? null : copyOf(epic);
+            historyManager.add(copy);
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(getNextId());
+        Epic stored = copyOf(epic);
+        ReentrantLock lock = lockFor(epic.getId());
+        lock(lock);
+        try {
+            epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+            epics.put(epic.getId(), stored);
+            updateEpicStatus(stored);
+            epic.setStatus(stored.getStatus());
+            publishWrite(ItemType.EPIC, null, stored);
+        } finally {
+            unlock(lock);
+        }
+        return epic;
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        Integer epicId = epic.getId();
+        if (epicId == null) {
+            System.out.println("У эпика должен быть идентификатор");
+            return null;
+        }
+        reserveId(epicId);
+        Epic stored = copyOf(epic);
+        ReentrantLock lock = lockFor(epicId);
+        lock(lock);
+        try {
+            if (!claim(epicId, ItemType.EPIC)) {
+                return null;
+            }
+            Epic previous = epics.put(epicId, stored);
+            if (previous != null) {
+                stored.clearSubtasks();
+                for (Subtask subtask : previous.getSubtasksView()) {
+                    stored.addSubtask(subtask);
+                }
+            }
+            epicStatusCounters.computeIfAbsent(epicId, id -> new EpicStatusCounter());
+            updateEpicStatus(stored);
+            epic.setStatus(stored.getStatus());
+            publishWrite(ItemType.EPIC, previous, stored);
+        } finally {
+            unlock(lock);
+        }
+        return epic;
+    }
+
+    @Override
+    public void deleteEpic(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock(lock);
+        try {
+            Epic epic = epics.remove(epicId);
+            if (epic != null) {
+                epicStatusCounters.remove(epicId);
+                List<Integer> removed = new ArrayList<>(epic.getSubtaskCount() + 1);
+                for (Subtask subtask : epic.getSubtasksView()) {
+                    removed.add(subtask.getId());
+                    subtasks.remove(subtask.getId());
+                    recordedSubtasks.remove(subtask.getId());
+                    publishDelete(ItemType.SUBTASK, subtask.getId());
+                }
+                unschedule(removed);
+                removed.add(epicId);
+                historyManager.removeAll(removed);
+                publishDelete(ItemType.EPIC, epicId);
+            }
+        } finally {
+            unlock(lock);
+        }
+    }
+
+    // Subtask
+    @Override
+    public List<Subtask> getSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public void clearSubtasks() {
+        lockAll();
+        try {
+            historyManager.removeAll(subtasks.keySet());
+            unschedule(subtasks.keySet());
+            for (Integer subtaskId : subtasks.keySet()) {
+                publishDelete(ItemType.SUBTASK, subtaskId);
+            }
+            for (Epic epic : epics.values()) {
+                Status before = counterStatus(epic.getId());
+                epic.clearSubtasks();
+                epicStatusCounters.get(epic.getId()).clear();
+                updateEpicStatus(epic);
+                publishEpicStatus(epic.getId(), before);
+            }
+            subtasks.clear();
+            recordedSubtasks.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int subtaskId) {
+        // Подзадачу удаляют под страйпом её эпика, поэтому и просмотр пишется под ним
+        while (true) {
+            RecordedSubtask recorded = recordedSubtasks.get(subtaskId);
+            if (recorded == null) {
+                return null;
+            }
+            ReentrantLock lock = lockFor(recorded.epicId);
+            lock.lock();
+            try {
+                if (recordedSubtasks.get(subtaskId) != recorded) {
+                    continue;
+                }
+                Subtask subtask = subtasks.get(subtaskId);
+                historyManager.add(subtask);
+                return subtask;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        checkSchedule(Schedule.NO_ID, subtask);
+        subtask.setId(getNextId());
+        ReentrantLock lock = lockFor(subtask.getEpicId());
+        lock(lock);
+        try {
+            schedule(subtask.getId(), subtask);
+            Status before = counterStatus(subtask.getEpicId());
+            // Запись ставится первой: обновление того же id, увидев её, будет ждать на этом страйпе
+            attachSubtask(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtask(subtask);
+            }
+            publishWrite(ItemType.SUBTASK, null, subtask);
+            publishEpicStatus(subtask.getEpicId(), before);
+        } finally {
+            unlock(lock);
+        }
+        return subtask;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        Integer subtaskId = subtask.getId();
+        if (subtaskId == null) {
+            System.out.println("У подзадачи должен быть идентификатор");
+            return null;
+        }
+        reserveId(subtaskId);
+        while (true) {
+            RecordedSubtask recorded = recordedSubtasks.get(subtaskId);
+            int oldEpicId = recorded == null ? subtask.getEpicId() : recorded.epicId;
+            int oldStripe = stripeFor(oldEpicId);
+            int newStripe = stripeFor(subtask.getEpicId());
+            ReentrantLock first = epicLocks[Math.min(oldStripe, newStripe)];
+            ReentrantLock second = epicLocks[Math.max(oldStripe, newStripe)];
+            lock(first);
+            lock(second);
+            try {
+                if (recorded == null) {
+                    // Занимаем id, чтобы параллельное обновление того же id ждало на нашем страйпе
+                    RecordedSubtask claim = new RecordedSubtask(subtask.getEpicId(), subtask.getStatus());
+                    if (recordedSubtasks.putIfAbsent(subtaskId, claim) != null) {
+                        continue;
+                    }
+                } else if (recordedSubtasks.get(subtaskId) != recorded) {
+                    continue;
+                }
+                if (!claim(subtaskId, ItemType.SUBTASK)) {
+                    if (recorded == null) {
+                        recordedSubtasks.remove(subtaskId);
+                    }
+                    return null;
+                }
+                try {
+                    schedule(subtaskId, subtask);
+                } catch (TaskOverlapException e) {
+                    if (recorded == null) {
+                        // Подзадача так и не создана, поэтому занятые выше id освобождаются
+                        recordedSubtasks.remove(subtaskId);
+                        owners.remove(subtaskId, ItemType.SUBTASK);
+                    }
+                    throw e;
+                }
+                Status oldEpicBefore = counterStatus(oldEpicId);
+                Status newEpicBefore = counterStatus(subtask.getEpicId());
+                Subtask previous = subtasks.put(subtaskId, subtask);
+                if (recorded != null) {
+                    // Запись не удаляется: иначе параллельное обновление увидит её отсутствие и займёт id повторно
+                    uncountSubtask(recorded);
+                }
+                Epic epic = epics.get(subtask.getEpicId());
+                boolean moved = recorded == null || recorded.epicId != subtask.getEpicId();
+                if (moved || previous != subtask) {
+                    Epic oldEpic = recorded == null ? null : epics.get(recorded.epicId);
+                    // В прежнем эпике подзадача остаётся только при замене на месте, иначе её место освобождается
+                    if (oldEpic != null && previous != null && moved) {
+                        oldEpic.removeSubtask(subtaskId);
+                    }
+                    if (epic != null) {
+                        epic.addSubtask(subtask);
+                    }
+                }
+                attachSubtask(subtask);
+                publishWrite(ItemType.SUBTASK, previous, subtask);
+                if (oldEpicId != subtask.getEpicId()) {
+                    publishEpicStatus(oldEpicId, oldEpicBefore);
+                }
+                publishEpicStatus(subtask.getEpicId(), newEpicBefore);
+                return subtask;
+            } finally {
+                unlock(second);
+                unlock(first);
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int subtaskId) {
+        while (true) {
+            RecordedSubtask recorded = recordedSubtasks.get(subtaskId);
+            if (recorded == null) {
+                return;
+            }
+            ReentrantLock lock = lockFor(recorded.epicId);
+            lock(lock);
+            try {
+                if (recordedSubtasks.get(subtaskId) != recorded) {
+                    continue;
+                }
+                Status before = counterStatus(recorded.epicId);
+                Subtask subtask = subtasks.remove(subtaskId);
+                unschedule(List.of(subtaskId));
+                Epic epic = epics.get(recorded.epicId);
+                if (epic != null) {
+                    epic.removeSubtask(subtaskId);
+                }
+                detachSubtask(subtaskId);
+                historyManager.remove(subtaskId);
+                publishDelete(ItemType.SUBTASK, subtaskId);
+                publishEpicStatus(recorded.epicId, before);
+                return;
+            } finally {
+                unlock(lock);
+            }
+        }
+    }
+
+    // Пакетные операции: пакет проверяется по состоянию на момент вызова, id выделяются одним диапазоном
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        BatchValidation.requireNewItems(newTasks);
+        scheduleNew(newTasks);
+        for (Task task : newTasks) {
+            ReentrantLock lock = lockFor(task.getId());
+            lock(lock);
+            try {
+                tasks.put(task.getId(), task);
+                publishWrite(ItemType.TASK, null, task);
+            } finally {
+                unlock(lock);
+            }
+        }
+        return newTasks;
+    }
+
+    @Override
+    public List<Epic> createEpics(List<Epic> newEpics) {
+        BatchValidation.requireNewItems(newEpics);
+        int id = nextId.getAndAdd(newEpics.size());
+        for (Epic epic : newEpics) {
+            epic.setId(id++);
+            Epic stored = copyOf(epic);
+            ReentrantLock lock = lockFor(epic.getId());
+            lock(lock);
+            try {
+                epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+                epics.put(epic.getId(), stored);
+                updateEpicStatus(stored);
+                epic.setStatus(stored.getStatus());
+                publishWrite(ItemType.EPIC, null, stored);
+            } finally {
+                unlock(lock);
+            }
+        }
+        return newEpics;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        BatchValidation.requireNewItems(newSubtasks);
+        for (Subtask subtask : newSubtasks) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Epic " + subtask.getEpicId() + " not found");
+            }
+        }
+        // Группируем по страйпам, чтобы брать каждую блокировку один раз на пакет
+        Map<Integer, List<Subtask>> byStripe = new TreeMap<>();
+        scheduleNew(newSubtasks);
+        for (Subtask subtask : newSubtasks) {
+            byStripe.computeIfAbsent(stripeFor(subtask.getEpicId()), stripe -> new ArrayList<>()).add(subtask);
+        }
+        for (Map.Entry<Integer, List<Subtask>> entry : byStripe.entrySet()) {
+            ReentrantLock lock = epicLocks[entry.getKey()];
+            lock(lock);
+            try {
+                for (Subtask subtask : entry.getValue()) {
+                    Status before = counterStatus(subtask.getEpicId());
+                    attachSubtask(subtask);
+                    subtasks.put(subtask.getId(), subtask);
+                    Epic epic = epics.get(subtask.getEpicId());
+                    if (epic != null) {
+                        epic.addSubtask(subtask);
+                    }
+                    publishWrite(ItemType.SUBTASK, null, subtask);
+                    publishEpicStatus(subtask.getEpicId(), before);
+                }
+            } finally {
+                unlock(lock);
+            }
+        }
+        return newSubtasks;
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> changedTasks) {
+        BatchValidation.requireExisting(changedTasks, tasks::containsKey);
+        checkSchedule(changedTasks);
+        for (Task task : changedTasks) {
+            updateTask(task);
+        }
+        return changedTasks;
+    }
+
+    @Override
+    public List<Epic> updateEpics(List<Epic> changedEpics) {
+        BatchValidation.requireExisting(changedEpics, epics::containsKey);
+        for (Epic epic : changedEpics) {
+            updateEpic(epic);
+        }
+        return changedEpics;
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(List<Subtask> changedSubtasks) {
+        BatchValidation.requireExisting(changedSubtasks, subtasks::containsKey);
+        checkSchedule(changedSubtasks);
+        for (Subtask subtask : changedSubtasks) {
+            updateSubtask(subtask);
+        }
+        return changedSubtasks;
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> taskIds) {
+        for (int taskId : taskIds) {
+            deleteTask(taskId);
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> epicIds) {
+        for (int epicId : epicIds) {
+            deleteEpic(epicId);
+        }
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> subtaskIds) {
+        for (int subtaskId : subtaskIds) {
+            deleteSubtask(subtaskId);
+        }
+    }
+
+    // Представления поверх ConcurrentHashMap слабо согласованы: обход не падает при параллельных изменениях
+    @Override
+    public Collection<Task> getTasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    // Эпики отдаются копиями, снятыми по одной при обходе
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return new EpicCopies();
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    @Override
+    public Collection<Task> getHistoryView() {
+        return historyManager.getHistoryView();
+    }
+
+    @Override
+    public Page<Task> getTasksPage(int cursor, int limit) {
+        return page(tasks::get, tasks.size(), taskIds, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int cursor, int limit) {
+        return page(this::readEpic, epics.size(), epicIds, cursor, limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        return page(subtasks::get, subtasks.size(), subtaskIds, cursor, limit);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return byStatus(taskStatusIndex, status);
+    }
+
+    // Индекс хранит внутренние эпики, поэтому наружу уходят их копии; удалённый после чтения индекса пропускается
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        List<Epic> found = byStatus(epicStatusIndex, status);
+        List<Epic> result = new ArrayList<>(found.size());
+        for (Epic epic : found) {
+            Epic copy = readEpic(epic.getId());
+            if (copy != null) {
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return byStatus(subtaskStatusIndex, status);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Integer> ids;
+        scheduleLock.lock();
+        try {
+            ids = schedule.ids();
+        } finally {
+            scheduleLock.unlock();
+        }
+        // Элемент могли удалить после чтения расписания - такой пропускается
+        List<Task> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Task task = tasks.get(id);
+            if (task == null) {
+                task = subtasks.get(id);
+            }
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> search(String query, int offset, int limit) {
+        List<Integer> ids;
+        indexLock.lock();
+        try {
+            ids = searchIndex.search(query, offset, limit);
+        } finally {
+            indexLock.unlock();
+        }
+        // Как и в getPrioritizedTasks, элемент могли удалить после поиска - такой пропускается
+        List<Task> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Task item = peek(id);
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    // Пути доступа для TaskQuery; эпики, как и в остальных методах, отдаются копиями
+    @Override
+    public Task peek(int id) {
+        Task item = tasks.get(id);
+        if (item == null) {
+            item = readEpic(id);
+        }
+        return item == null ? subtasks.get(id) : item;
+    }
+
+    @Override
+    public Collection<Subtask> subtasksOf(int epicId) {
+        Epic epic = readEpic(epicId);
+        return epic == null ? Collections.emptyList() : epic.getSubtasksView();
+    }
+
+    @Override
+    public int countWithStatus(ItemType itemType, Status status) {
+        indexLock.lock();
+        try {
+            return statusIndex(itemType).count(status);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<? extends Task> withStatus(ItemType itemType, Status status) {
+        switch (itemType) {
+            case TASK:
+                return getTasksByStatus(status);
+            case EPIC:
+                return getEpicsByStatus(status);
+            default:
+                return getSubtasksByStatus(status);
+        }
+    }
+
+    @Override
+    public int countPrefix(String term, int limit) {
+        indexLock.lock();
+        try {
+            return searchIndex.countPrefix(term, limit);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    // Копия: словарь индекса меняется под indexLock
+    @Override
+    public Collection<Integer> prefixIds(String term) {
+        indexLock.lock();
+        try {
+            return new ArrayList<>(searchIndex.prefixIds(term));
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    @Override
+    public ChangeSubscription subscribe() {
+        return changes.subscribe();
+    }
+
+    // Первый срез строится под всеми блокировками: ни одна операция не идёт, и каждая следующая попадёт в версии
+    @Override
+    public TaskSnapshot getSnapshot() {
+        TaskSnapshot snapshot = versions.current();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        for (ReentrantLock lock : epicLocks) {
+            lock.lock();
+        }
+        try {
+            return versions.enable(tasks.values(), epics.values(), subtasks.values());
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                epicLocks[i].unlock();
+            }
+        }
+    }
+
+    private NavigableSet<Integer> orderedIds(ItemType itemType) {
+        switch (itemType) {
+            case TASK:
+                return taskIds;
+            case EPIC:
+                return epicIds;
+            default:
+                return subtaskIds;
+        }
+    }
+
+    private StatusIndex<? extends Task> statusIndex(ItemType itemType) {
+        switch (itemType) {
+            case TASK:
+                return taskStatusIndex;
+            case EPIC:
+                return epicStatusIndex;
+            default:
+                return subtaskStatusIndex;
+        }
+    }
+
+    private <T extends Task> List<T> byStatus(StatusIndex<T> index, Status status) {
+        indexLock.lock();
+        try {
+            return index.get(status);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой страйпа эпика подзадачи
+    private void attachSubtask(Subtask subtask) {
+        Status status = EpicStatusCounter.normalize(subtask.getStatus());
+        recordedSubtasks.put(subtask.getId(), new RecordedSubtask(subtask.getEpicId(), status));
+        EpicStatusCounter counter = epicStatusCounters.get(subtask.getEpicId());
+        if (counter != null) {
+            counter.increment(status);
+            updateEpicStatus(epics.get(subtask.getEpicId()));
+        }
+    }
+
+    // Вызывается под блокировкой страйпа эпика подзадачи
+    private void detachSubtask(int subtaskId) {
+        RecordedSubtask recorded = recordedSubtasks.remove(subtaskId);
+        if (recorded != null) {
+            uncountSubtask(recorded);
+        }
+    }
+
+    // Вызывается под блокировкой страйпа эпика из записи
+    private void uncountSubtask(RecordedSubtask recorded) {
+        EpicStatusCounter counter = epicStatusCounters.get(recorded.epicId);
+        if (counter != null) {
+            counter.decrement(recorded.status);
+            updateEpicStatus(epics.get(recorded.epicId));
+        }
+    }
+
+    // Вызывается под блокировкой страйпа эпика, поэтому индекс видит его статусы в том же порядке, что и эпик
+    private void updateEpicStatus(Epic epic) {
+        epic.setStatus(epicStatusCounters.get(epic.getId()).getStatus());
+        indexLock.lock();
+        try {
+            epicStatusIndex.put(epic);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    // Статус эпика по счётчику или null, если эпика нет; вызывается под блокировкой страйпа эпика
+    private Status counterStatus(int epicId) {
+        EpicStatusCounter counter = epicStatusCounters.get(epicId);
+        return counter == null ? null : counter.getStatus();
+    }
+
+    /*
+     * Сравнивает статус эпика со снятым до изменения и публикует событие, если он сменился. Вызывается
+     * под той же блокировкой страйпа после события подзадачи, поэтому событие статуса идёт за причиной.
+     */
+    private void publishEpicStatus(int epicId, Status before) {
+        Status status = counterStatus(epicId);
+        if (before != null && status != null && before != status) {
+            changes.publish(ChangeType.EPIC_STATUS_CHANGED, ItemType.EPIC, epicId, status, null);
+        }
+    }
+
+    // CREATED, если под этим id ничего не было, иначе UPDATED
+    private void publishWrite(ItemType itemType, Task previous, Task item) {
+        ChangeType type = previous == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        Task published = itemType == ItemType.EPIC ? copyOf((Epic) item) : item;
+        changes.publish(type, itemType, item.getId(), EpicStatusCounter.normalize(item.getStatus()), published);
+        versions.write(itemType, item);
+        if (previous == null) {
+            owners.put(item.getId(), itemType);
+            orderedIds(itemType).add(item.getId());
+        }
+        indexLock.lock();
+        try {
+            searchIndex.put(item);
+            if (itemType == ItemType.TASK) {
+                taskStatusIndex.put(item);
+            } else if (itemType == ItemType.EPIC) {
+                epicStatusIndex.put((Epic) item);
+            } else {
+                subtaskStatusIndex.put((Subtask) item);
+            }
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    private void publishDelete(ItemType itemType, int id) {
+        changes.publish(ChangeType.DELETED, itemType, id, null, null);
+        versions.delete(itemType, id);
+        owners.remove(id, itemType);
+        orderedIds(itemType).remove(id);
+        indexLock.lock();
+        try {
+            searchIndex.remove(id);
+            statusIndex(itemType).remove(id);
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    // Пересчитывает счётчики статусов с нуля и сравнивает с инкрементальными (для тестов)
+    boolean isEpicStatusConsistent() {
+        lockAll();
+        try {
+            Map<Integer, EpicStatusCounter> rebuilt = new HashMap<>();
+            for (Integer epicId : epics.keySet()) {
+                rebuilt.put(epicId, new EpicStatusCounter());
+            }
+            for (Subtask subtask : subtasks.values()) {
+                EpicStatusCounter counter = rebuilt.get(subtask.getEpicId());
+                if (counter != null) {
+                    counter.increment(subtask.getStatus());
+                }
+            }
+            if (!rebuilt.equals(new HashMap<>(epicStatusCounters))) {
+                return false;
+            }
+            for (Epic epic : epics.values()) {
+                if (epic.getStatus() != rebuilt.get(epic.getId()).getStatus()) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Вызывается под блокировкой, которая упорядочивает записи этого id в своём виде
+    private boolean claim(int id, ItemType itemType) {
+        ItemType owner = owners.putIfAbsent(id, itemType);
+        if (owner != null && owner != itemType) {
+            System.out.println("Идентификатор уже занят элементом другого типа");
+            return false;
+        }
+        return true;
+    }
+
+    private void checkSchedule(int id, Task item) {
+        scheduleLock.lock();
+        try {
+            schedule.check(id, item);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void checkSchedule(List<? extends Task> items) {
+        scheduleLock.lock();
+        try {
+            schedule.checkAll(items, false);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void schedule(int id, Task item) {
+        scheduleLock.lock();
+        try {
+            schedule.put(id, item);
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Проверка пакета, выдача id и запись в расписание идут под одной блокировкой, чтобы пакет не перехватили
+    private void scheduleNew(List<? extends Task> items) {
+        scheduleLock.lock();
+        try {
+            schedule.checkAll(items, true);
+            int id = nextId.getAndAdd(items.size());
+            for (Task item : items) {
+                item.setId(id++);
+                schedule.put(item.getId(), item);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    private void unschedule(Collection<Integer> ids) {
+        scheduleLock.lock();
+        try {
+            for (int id : ids) {
+                schedule.remove(id);
+            }
+        } finally {
+            scheduleLock.unlock();
+        }
+    }
+
+    // Копия эпика под блокировкой его страйпа или null, если эпика нет
+    private Epic readEpic(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            Epic epic = epics.get(epicId);
+            return epic == null ? null : copyOf(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вызывается под блокировкой страйпа эпика, если это внутренний эпик
+    private static Epic copyOf(Epic epic) {
+        Epic copy = new Epic(epic.getName(), epic.getDescription());
+        copy.setId(epic.getId());
+        copy.setStatus(epic.getStatus());
+        for (Subtask subtask : epic.getSubtasksView()) {
+            copy.addSubtask(subtask);
+        }
+        return copy;
+    }
+
+    private ReentrantLock lockFor(int epicId) {
+        return epicLocks[stripeFor(epicId)];
+    }
+
+    // Блокировки берутся в порядке номера страйпа, чтобы не было дедлоков
+    private static int stripeFor(int epicId) {
+        int hash = epicId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    // Блокировка операции открывает транзакцию среза, снятие последней ставит её изменения до освобождения страйпа
+    private void lock(ReentrantLock lock) {
+        lock.lock();
+        versions.begin();
+    }
+
+    private void unlock(ReentrantLock lock) {
+        try {
+            versions.commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : epicLocks) {
+            lock.lock();
+        }
+        versions.begin();
+    }
+
+    private void unlockAll() {
+        try {
+            versions.commit();
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                epicLocks[i].unlock();
+            }
+        }
+    }
+
+    private int getNextId() {
+        return nextId.getAndIncrement();
+    }
+
+    private void reserveId(int id) {
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /*
+     * Обход списка id от курсора без блокировок: он слабо согласован, как и ConcurrentHashMap. Элемент,
+     * удалённый между чтением id и карты, пропускается; созданный во время обхода попадёт в страницу,
+     * только если его id ещё впереди курсора. Курсор последней страницы не меньше последнего прочитанного id + 1,
+     * чтобы id, созданный после чтения nextId, но уже попавший в страницу, не вернулся повторно.
+     */
+    private <T extends Task> Page<T> page(IntFunction<T> store, int size, NavigableSet<Integer> ids, int cursor,
+                                          int limit) {
+        if (cursor < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Cursor must not be negative and limit must be positive");
+        }
+        int end = Math.max(cursor, nextId.get());
+        List<T> items = new ArrayList<>(Math.min(limit, size));
+        Iterator<Integer> tail = ids.tailSet(cursor, true).iterator();
+        while (tail.hasNext() && items.size() < limit) {
+            int id = tail.next();
+            end = Math.max(end, id + 1);
+            T item = store.apply(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        if (tail.hasNext()) {
+            return new Page<>(items, tail.next(), true);
+        }
+        return new Page<>(items, end, false);
+    }
+
+    private final class EpicCopies extends AbstractCollection<Epic> {
+
+        @Override
+        public Iterator<Epic> iterator() {
+            Iterator<Integer> ids = epics.keySet().iterator();
+            return new Iterator<>() {
+                private Epic next = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Epic next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Epic current = next;
+                    next = advance();
+                    return current;
+                }
+
+                // Эпик могли удалить после того, как обход увидел его id
+                private Epic advance() {
+                    while (ids.hasNext()) {
+                        Epic epic = readEpic(ids.next());
+                        if (epic != null) {
+                            return epic;
+                        }
+                    }
+                    return null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return epics.size();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+// Зависимость замкнула бы цикл, и задачи нельзя было бы выполнить ни в каком порядке; граф при этом не меняется
+public class DependencyCycleException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DependencyCycleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,592 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+/*
+ * Граф зависимостей "blocker блокирует blocked" по id элементов. Смежность хранится массивами int у каждой
+ * вершины в обе стороны; в графе только элементы хотя бы с одной связью.
+ * Вершины держат метки топологического порядка (алгоритм Пирса - Келли): ребро вперёд по порядку
+ * добавляется за O(1), а ребро назад обходит только вершины между его концами - из них же становится
+ * виден цикл, - и переставляет их метки. Полный обход графа на каждой вставке не нужен.
+ * Новая вершина по возможности получает меткой свой id: id растут со временем создания, поэтому обычная
+ * зависимость старого элемента от нового сразу идёт вперёд по порядку.
+ * Не потокобезопасно, кроме расчёта критического пути, который сам распараллеливается на больших графах.
+ */
+final class DependencyGraph {
+
+    // С этого числа вершин критический путь считается по уровням в ForkJoinPool, если в нём больше одного потока
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    // Часть уровня, которую одна подзадача ForkJoin обрабатывает без дальнейшего деления
+    private static final int CHUNK = 4096;
+    private static final int[] EMPTY = new int[0];
+
+    private final IntObjectMap<Vertex> vertices = new IntObjectMap<>();
+    // Вершины по меткам: метки уникальны, и занятый id не может стать меткой новой вершины
+    private final IntObjectMap<Vertex> byOrder = new IntObjectMap<>();
+    // Все выданные метки лежат в [firstOrder, nextOrder)
+    private int firstOrder;
+    private int nextOrder;
+    private int edgeCount;
+    // Растёт при каждом изменении рёбер: по нему видно, менялся ли граф с прошлой контрольной точки
+    private long modifications;
+    // Отметка текущего обхода: вершины не нужно сбрасывать перед каждым поиском
+    private int visitMark;
+
+    int vertexCount() {
+        return vertices.size();
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    long modifications() {
+        return modifications;
+    }
+
+    boolean contains(int id) {
+        return vertices.containsKey(id);
+    }
+
+    /*
+     * Добавляет ребро и возвращает false, если оно уже было. Если ребро замкнуло бы цикл, бросает
+     * DependencyCycleException и граф не меняется.
+     */
+    boolean add(int blocker, int blocked) {
+        if (blocker == blocked) {
+            throw new DependencyCycleException("Задача " + blocker + " не может блокировать саму себя");
+        }
+        Vertex from = vertices.get(blocker);
+        Vertex to = vertices.get(blocked);
+        if (from != null && to != null) {
+            if (from.hasEdgeTo(to)) {
+                return false;
+            }
+            if (from.order > to.order) {
+                reorder(from, to);
+            }
+        }
+        // Новой вершине ещё не с чем конфликтовать, и её место в порядке выбирается так, чтобы ребро шло вперёд
+        if (from == null) {
+            from = addVertex(blocker, to == null || blocker < to.order ? blocker : firstOrder - 1, true);
+        }
+        if (to == null) {
+            to = addVertex(blocked, blocked > from.order ? blocked : nextOrder, false);
+        }
+        from.successors = append(from.successors, from.successorCount++, blocked);
+        to.predecessors = append(to.predecessors, to.predecessorCount++, blocker);
+        edgeCount++;
+        modifications++;
+        return true;
+    }
+
+    // Удаляет ребро; вершины, у которых не осталось связей, уходят из графа
+    boolean remove(int blocker, int blocked) {
+        Vertex from = vertices.get(blocker);
+        Vertex to = vertices.get(blocked);
+        if (from == null || to == null || !from.hasEdgeTo(to)) {
+            return false;
+        }
+        from.successorCount = removeValue(from.successors, from.successorCount, blocked);
+        to.predecessorCount = removeValue(to.predecessors, to.predecessorCount, blocker);
+        edgeCount--;
+        modifications++;
+        dropIfIsolated(from);
+        dropIfIsolated(to);
+        return true;
+    }
+
+    // Удаляет вершину со всеми её рёбрами за O(сумма степеней соседей)
+    void removeVertex(int id) {
+        Vertex vertex = vertices.remove(id);
+        if (vertex == null) {
+            return;
+        }
+        modifications++;
+        byOrder.remove(vertex.order);
+        for (int i = 0; i < vertex.successorCount; i++) {
+            Vertex successor = vertices.get(vertex.successors[i]);
+            successor.predecessorCount = removeValue(successor.predecessors, successor.predecessorCount, id);
+            dropIfIsolated(successor);
+        }
+        for (int i = 0; i < vertex.predecessorCount; i++) {
+            Vertex predecessor = vertices.get(vertex.predecessors[i]);
+            predecessor.successorCount = removeValue(predecessor.successors, predecessor.successorCount, id);
+            dropIfIsolated(predecessor);
+        }
+        edgeCount -= vertex.successorCount + vertex.predecessorCount;
+    }
+
+    /*
+     * Удаляет вершины пачкой: каждый уцелевший сосед чистит свои списки один раз, поэтому очистка
+     * тысяч зависимых одного элемента стоит O(V + E), а не по O(степень) на каждую.
+     */
+    void removeVertices(Collection<Integer> ids) {
+        if (ids.size() >= vertices.size() && coversAll(ids)) {
+            clear();
+            return;
+        }
+        List<Vertex> removed = new ArrayList<>();
+        for (int id : ids) {
+            Vertex vertex = vertices.remove(id);
+            if (vertex != null) {
+                byOrder.remove(vertex.order);
+                removed.add(vertex);
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        modifications++;
+        // Ребро между двумя удалёнными вершинами есть в списках обеих, поэтому в сумме степеней оно учтено дважды
+        int internalEdges = 0;
+        int mark = ++visitMark;
+        for (Vertex vertex : removed) {
+            for (int i = 0; i < vertex.successorCount; i++) {
+                Vertex successor = vertices.get(vertex.successors[i]);
+                if (successor == null) {
+                    internalEdges++;
+                } else if (successor.mark != mark) {
+                    successor.mark = mark;
+                    successor.predecessorCount = retainPresent(successor.predecessors, successor.predecessorCount);
+                }
+            }
+        }
+        // Отдельная отметка: сосед может быть и зависимым одной удалённой вершины, и блокирующим другой
+        mark = ++visitMark;
+        for (Vertex vertex : removed) {
+            for (int i = 0; i < vertex.predecessorCount; i++) {
+                Vertex predecessor = vertices.get(vertex.predecessors[i]);
+                if (predecessor != null && predecessor.mark != mark) {
+                    predecessor.mark = mark;
+                    predecessor.successorCount = retainPresent(predecessor.successors, predecessor.successorCount);
+                }
+            }
+        }
+        int incident = 0;
+        for (Vertex vertex : removed) {
+            incident += vertex.successorCount + vertex.predecessorCount;
+        }
+        edgeCount -= incident - internalEdges;
+        for (Vertex vertex : removed) {
+            for (int i = 0; i < vertex.successorCount; i++) {
+                dropIfIsolated(vertices.get(vertex.successors[i]));
+            }
+            for (int i = 0; i < vertex.predecessorCount; i++) {
+                dropIfIsolated(vertices.get(vertex.predecessors[i]));
+            }
+        }
+    }
+
+    void clear() {
+        if (!vertices.isEmpty()) {
+            modifications++;
+        }
+        vertices.clear();
+        byOrder.clear();
+        firstOrder = 0;
+        nextOrder = 0;
+        edgeCount = 0;
+    }
+
+    int[] successors(int id) {
+        Vertex vertex = vertices.get(id);
+        return vertex == null ? EMPTY : Arrays.copyOf(vertex.successors, vertex.successorCount);
+    }
+
+    int[] predecessors(int id) {
+        Vertex vertex = vertices.get(id);
+        return vertex == null ? EMPTY : Arrays.copyOf(vertex.predecessors, vertex.predecessorCount);
+    }
+
+    // true, если у элемента нет блокирующих или все они удовлетворяют done
+    boolean allPredecessors(int id, IntPredicate done) {
+        Vertex vertex = vertices.get(id);
+        if (vertex != null) {
+            for (int i = 0; i < vertex.predecessorCount; i++) {
+                if (!done.test(vertex.predecessors[i])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * id вершин в топологическом порядке. Если метки лежат плотно, они раскладываются по корзинам без сортировки,
+     * иначе (в графе малая часть элементов или много удалённых) сортируются.
+     */
+    int[] topologicalOrder() {
+        Vertex[] sorted;
+        if ((long) nextOrder - firstOrder <= 2L * vertices.size() + CHUNK) {
+            sorted = new Vertex[nextOrder - firstOrder];
+            for (Vertex vertex : vertices.values()) {
+                sorted[vertex.order - firstOrder] = vertex;
+            }
+        } else {
+            sorted = vertices.values().toArray(new Vertex[0]);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.order, b.order));
+        }
+        int[] ids = new int[vertices.size()];
+        int count = 0;
+        for (Vertex vertex : sorted) {
+            if (vertex != null) {
+                vertex.index = count;
+                ids[count++] = vertex.id;
+            }
+        }
+        return ids;
+    }
+
+    // Рёбра парами blocker, blocked подряд; для сохранения в снимок
+    int[] edges() {
+        int[] edges = new int[edgeCount * 2];
+        int count = 0;
+        for (int id : topologicalOrder()) {
+            Vertex vertex = vertices.get(id);
+            for (int i = 0; i < vertex.successorCount; i++) {
+                edges[count++] = id;
+                edges[count++] = vertex.successors[i];
+            }
+        }
+        return edges;
+    }
+
+    /*
+     * Самая длинная по сумме весов цепочка зависимостей; при равных весах - с большим числом элементов.
+     * Веса читаются здесь же, в потоке вызова, а дальше расчёт идёт по неизменяемым массивам: на больших
+     * графах уровнями (вершины, у которых посчитаны все блокирующие) параллельно в ForkJoinPool.
+     */
+    int[] criticalPath(IntToLongFunction weight) {
+        return criticalPath(weight, vertices.size() >= PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() > 1);
+    }
+
+    int[] criticalPath(IntToLongFunction weight, boolean parallel) {
+        int[] ids = topologicalOrder();
+        int n = ids.length;
+        if (n == 0) {
+            return EMPTY;
+        }
+        long[] weights = new long[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = weight.applyAsLong(ids[i]);
+        }
+        // Списки блокирующих и зависимых по позициям в порядке, в сжатом виде: соседи i лежат в [start[i], start[i+1])
+        int[] predecessorStart = new int[n + 1];
+        int[] predecessorIndex = new int[edgeCount];
+        int[] successorStart = new int[n + 1];
+        int[] successorIndex = new int[edgeCount];
+        int predecessorCount = 0;
+        int successorCount = 0;
+        for (int i = 0; i < n; i++) {
+            Vertex vertex = vertices.get(ids[i]);
+            predecessorStart[i] = predecessorCount;
+            for (int j = 0; j < vertex.predecessorCount; j++) {
+                predecessorIndex[predecessorCount++] = vertices.get(vertex.predecessors[j]).index;
+            }
+            successorStart[i] = successorCount;
+            for (int j = 0; j < vertex.successorCount; j++) {
+                successorIndex[successorCount++] = vertices.get(vertex.successors[j]).index;
+            }
+        }
+        predecessorStart[n] = predecessorCount;
+        successorStart[n] = successorCount;
+
+        PathState state = new PathState(weights, predecessorStart, predecessorIndex, successorStart, successorIndex);
+        if (!parallel) {
+            for (int i = 0; i < n; i++) {
+                state.relax(i);
+            }
+        } else {
+            state.runByLevels();
+        }
+        return state.path(ids);
+    }
+
+    // Метка preferred, если она свободна, иначе новая метка в начале (first) или в конце порядка
+    private Vertex addVertex(int id, int preferred, boolean first) {
+        int order = !byOrder.containsKey(preferred) ? preferred : first ? firstOrder - 1 : nextOrder;
+        Vertex vertex = new Vertex(id, order);
+        vertices.put(id, vertex);
+        byOrder.put(order, vertex);
+        firstOrder = Math.min(firstOrder, order);
+        nextOrder = Math.max(nextOrder, order + 1);
+        return vertex;
+    }
+
+    private void dropIfIsolated(Vertex vertex) {
+        if (vertex != null && vertex.successorCount == 0 && vertex.predecessorCount == 0) {
+            vertices.remove(vertex.id);
+            byOrder.remove(vertex.order);
+        }
+    }
+
+    private boolean coversAll(Collection<Integer> ids) {
+        int covered = 0;
+        for (int id : ids) {
+            if (vertices.containsKey(id)) {
+                covered++;
+            }
+        }
+        return covered == vertices.size();
+    }
+
+    // Соседи, ещё оставшиеся в графе, сдвигаются в начало массива; возвращает их число
+    private int retainPresent(int[] neighbours, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (vertices.containsKey(neighbours[i])) {
+                neighbours[kept++] = neighbours[i];
+            }
+        }
+        return kept;
+    }
+
+    /*
+     * Ребро from -> to при order(from) > order(to). Обход вперёд от to и назад от from затрагивает только метки
+     * между order(to) и order(from); если обход вперёд дошёл до from, ребро замкнуло бы цикл. Иначе найденные
+     * назад вершины ставятся перед найденными вперёд на те же метки, и порядок снова согласован с рёбрами.
+     */
+    private void reorder(Vertex from, Vertex to) {
+        int lower = to.order;
+        int upper = from.order;
+        int forwardMark = ++visitMark;
+        List<Vertex> forward = search(to, forwardMark, true, lower, upper);
+        if (from.mark == forwardMark) {
+            throw new DependencyCycleException("Зависимость " + from.id + " -> " + to.id + " образует цикл");
+        }
+        List<Vertex> backward = search(from, ++visitMark, false, lower, upper);
+        forward.sort((a, b) -> Integer.compare(a.order, b.order));
+        backward.sort((a, b) -> Integer.compare(a.order, b.order));
+        int[] labels = new int[forward.size() + backward.size()];
+        int count = 0;
+        for (Vertex vertex : backward) {
+            labels[count++] = vertex.order;
+        }
+        for (Vertex vertex : forward) {
+            labels[count++] = vertex.order;
+        }
+        Arrays.sort(labels);
+        count = 0;
+        for (Vertex vertex : backward) {
+            vertex.order = labels[count++];
+            byOrder.put(vertex.order, vertex);
+        }
+        for (Vertex vertex : forward) {
+            vertex.order = labels[count++];
+            byOrder.put(vertex.order, vertex);
+        }
+    }
+
+    // Обход в глубину со своим стеком: вперёд - по меткам не выше upper, назад - не ниже lower
+    private List<Vertex> search(Vertex start, int mark, boolean forward, int lower, int upper) {
+        List<Vertex> found = new ArrayList<>();
+        List<Vertex> stack = new ArrayList<>();
+        start.mark = mark;
+        stack.add(start);
+        while (!stack.isEmpty()) {
+            Vertex vertex = stack.remove(stack.size() - 1);
+            found.add(vertex);
+            int[] next = forward ? vertex.successors : vertex.predecessors;
+            int count = forward ? vertex.successorCount : vertex.predecessorCount;
+            for (int i = 0; i < count; i++) {
+                Vertex neighbour = vertices.get(next[i]);
+                if (neighbour.mark == mark) {
+                    continue;
+                }
+                // Метки уникальны: метка upper у обхода вперёд - это сам from, то есть цикл
+                if (forward && neighbour.order == upper) {
+                    neighbour.mark = mark;
+                    return found;
+                }
+                if (forward ? neighbour.order < upper : neighbour.order > lower) {
+                    neighbour.mark = mark;
+                    stack.add(neighbour);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, count * 2));
+        }
+        values[count] = value;
+        return values;
+    }
+
+    private static int removeValue(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                values[i] = values[count - 1];
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    private static final class Vertex {
+        final int id;
+        int order;
+        // Позиция в последнем topologicalOrder; по ней критический путь строит свои массивы
+        int index;
+        int mark;
+        int[] successors = EMPTY;
+        int successorCount;
+        int[] predecessors = EMPTY;
+        int predecessorCount;
+
+        Vertex(int id, int order) {
+            this.id = id;
+            this.order = order;
+        }
+
+        // Проверяется более короткий из двух списков: у элемента, блокирующего тысячи других, он у зависимого
+        boolean hasEdgeTo(Vertex to) {
+            if (successorCount <= to.predecessorCount) {
+                for (int i = 0; i < successorCount; i++) {
+                    if (successors[i] == to.id) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            for (int i = 0; i < to.predecessorCount; i++) {
+                if (to.predecessors[i] == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Лучшие суммы путей по позициям топологического порядка
+    private static final class PathState {
+        final long[] weights;
+        final int[] predecessorStart;
+        final int[] predecessorIndex;
+        final int[] successorStart;
+        final int[] successorIndex;
+        final long[] best;
+        final int[] length;
+        final int[] parent;
+
+        PathState(long[] weights, int[] predecessorStart, int[] predecessorIndex, int[] successorStart,
+                  int[] successorIndex) {
+            this.weights = weights;
+            this.predecessorStart = predecessorStart;
+            this.predecessorIndex = predecessorIndex;
+            this.successorStart = successorStart;
+            this.successorIndex = successorIndex;
+            this.best = new long[weights.length];
+            this.length = new int[weights.length];
+            this.parent = new int[weights.length];
+        }
+
+        // Все блокирующие i уже посчитаны: берётся лучший из них
+        void relax(int i) {
+            int chosen = -1;
+            for (int j = predecessorStart[i]; j < predecessorStart[i + 1]; j++) {
+                int p = predecessorIndex[j];
+                if (chosen < 0 || best[p] > best[chosen] || best[p] == best[chosen] && length[p] > length[chosen]) {
+                    chosen = p;
+                }
+            }
+            parent[i] = chosen;
+            best[i] = weights[i] + (chosen < 0 ? 0 : best[chosen]);
+            length[i] = 1 + (chosen < 0 ? 0 : length[chosen]);
+        }
+
+        /*
+         * Уровень - вершины, у которых все блокирующие уже посчитаны. Уровень делится между подзадачами,
+         * каждая считает свои вершины и собирает зависимых, у которых это был последний блокирующий.
+         * join между уровнями публикует посчитанные значения следующему.
+         */
+        void runByLevels() {
+            int n = weights.length;
+            AtomicIntegerArray remaining = new AtomicIntegerArray(n);
+            int[] level = new int[n];
+            int size = 0;
+            for (int i = 0; i < n; i++) {
+                int count = predecessorStart[i + 1] - predecessorStart[i];
+                remaining.set(i, count);
+                if (count == 0) {
+                    level[size++] = i;
+                }
+            }
+            int[] current = Arrays.copyOf(level, size);
+            while (current.length > 0) {
+                current = new LevelTask(this, remaining, current, 0, current.length).invoke();
+            }
+        }
+
+        int[] path(int[] ids) {
+            int end = 0;
+            for (int i = 1; i < best.length; i++) {
+                if (best[i] > best[end] || best[i] == best[end] && length[i] > length[end]) {
+                    end = i;
+                }
+            }
+            int[] path = new int[length[end]];
+            for (int i = path.length - 1, at = end; i >= 0; i--, at = parent[at]) {
+                path[i] = ids[at];
+            }
+            return path;
+        }
+    }
+
+    private static final class LevelTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final PathState state;
+        private final AtomicIntegerArray remaining;
+        private final int[] level;
+        private final int from;
+        private final int to;
+
+        LevelTask(PathState state, AtomicIntegerArray remaining, int[] level, int from, int to) {
+            this.state = state;
+            this.remaining = remaining;
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from > CHUNK) {
+                int middle = (from + to) >>> 1;
+                LevelTask left = new LevelTask(state, remaining, level, from, middle);
+                left.fork();
+                int[] right = new LevelTask(state, remaining, level, middle, to).compute();
+                int[] leftResult = left.join();
+                int[] next = Arrays.copyOf(leftResult, leftResult.length + right.length);
+                System.arraycopy(right, 0, next, leftResult.length, right.length);
+                return next;
+            }
+            int[] next = new int[16];
+            int count = 0;
+            for (int k = from; k < to; k++) {
+                int i = level[k];
+                state.relax(i);
+                for (int j = state.successorStart[i]; j < state.successorStart[i + 1]; j++) {
+                    int successor = state.successorIndex[j];
+                    if (remaining.decrementAndGet(successor) == 0) {
+                        next = append(next, count++, successor);
+                    }
+                }
+            }
+            return Arrays.copyOf(next, count);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package manager;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Что изменилось в InMemoryTaskManager после последней контрольной точки: id записанных и удалённых элементов
+ * и эпиков, у которых поменялся состав подзадач. Дельта пишет текущее состояние этих id, а не сами операции,
+ * поэтому сколько бы раз элемент ни меняли, в дельту он попадает один раз.
+ * История - упорядоченный список с вытеснением, которого менеджер не видит, поэтому по ней хранится только
+ * признак изменения, и дельта тогда пишет её целиком. Граф зависимостей сравнивается по счётчику изменений.
+ */
+final class DirtySet {
+
+    private final Set<Integer> ids = new HashSet<>();
+    private final DependencyGraph dependencies;
+    private final long dependencyModifications;
+    private boolean history;
+
+    DirtySet(DependencyGraph dependencies) {
+        this.dependencies = dependencies;
+        dependencyModifications = dependencies.modifications();
+    }
+
+    void mark(int id) {
+        ids.add(id);
+    }
+
+    /*
+     * Удалённый id уходит из истории и при свёртке дельты; но если элемент с тем же id создан заново
+     * до контрольной точки, дельта запишет его как изменённый, и историю нужно передать целиком.
+     */
+    void markWrite(int id, boolean created) {
+        if (!ids.add(id) && created) {
+            history = true;
+        }
+    }
+
+    void markHistory() {
+        history = true;
+    }
+
+    Set<Integer> ids() {
+        return ids;
+    }
+
+    boolean historyChanged() {
+        return history;
+    }
+
+    boolean dependenciesChanged() {
+        return dependencies.modifications() != dependencyModifications;
+    }
+}
@@ -0,0 +1,12 @@
+package manager;
+
+public enum Durability {
+    // fsync после каждой операции
+    SYNC,
+    // fsync фоновым потоком раз в заданный интервал
+    GROUP_COMMIT,
+    // запись в файл без fsync, сбрасывает ОС
+    OS_BUFFERED,
+    // запись и fsync пакетами в фоновом потоке, операция только ставит запись в очередь
+    WRITE_BEHIND
+}
@@ -0,0 +1,75 @@
+package manager;
+
+import task.Status;
+
+final class EpicStatusCounter {
+    private int newCount;
+    private int inProgressCount;
+    private int doneCount;
+
+    void increment(Status status) {
+        add(status, 1);
+    }
+
+    void decrement(Status status) {
+        add(status, -1);
+    }
+
+    void clear() {
+        newCount = 0;
+        inProgressCount = 0;
+        doneCount = 0;
+    }
+
+    int size() {
+        return newCount + inProgressCount + doneCount;
+    }
+
+    Status getStatus() {
+        int total = size();
+        if (total == newCount) {
+            return Status.NEW;
+        }
+        if (total == doneCount) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    private void add(Status status, int delta) {
+        switch (normalize(status)) {
+            case NEW:
+                newCount += delta;
+                break;
+            case IN_PROGRESS:
+                inProgressCount += delta;
+                break;
+            case DONE:
+                doneCount += delta;
+                break;
+        }
+    }
+
+    static Status normalize(Status status) {
+        return status == null ? Status.NEW : status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EpicStatusCounter)) {
+            return false;
+        }
+        EpicStatusCounter that = (EpicStatusCounter) o;
+        return newCount == that.newCount
+                && inProgressCount == that.inProgressCount
+                && doneCount == that.doneCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return (newCount * 31 + inProgressCount) * 31 + doneCount;
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+public interface EvictionPolicy {
+    void recordAccess(int id);
+
+    void recordRemoval(int id);
+
+    // Выбирает id для вытеснения; leastRecentlyViewedId - самый давний просмотр в истории
+    int selectVictim(int leastRecentlyViewedId);
+}
@@ -0,0 +1,811 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+
+    private static final byte CREATE_TASK = 1;
+    private static final byte UPDATE_TASK = 2;
+    private static final byte DELETE_TASK = 3;
+    private static final byte CLEAR_TASKS = 4;
+    private static final byte VIEW_TASK = 5;
+    private static final byte CREATE_EPIC = 11;
+    private static final byte UPDATE_EPIC = 12;
+    private static final byte DELETE_EPIC = 13;
+    private static final byte CLEAR_EPICS = 14;
+    private static final byte VIEW_EPIC = 15;
+    private static final byte CREATE_SUBTASK = 21;
+    private static final byte UPDATE_SUBTASK = 22;
+    private static final byte DELETE_SUBTASK = 23;
+    private static final byte CLEAR_SUBTASKS = 24;
+    private static final byte VIEW_SUBTASK = 25;
+    private static final byte ADD_DEPENDENCY = 31;
+    private static final byte REMOVE_DEPENDENCY = 32;
+    private static final byte GENERATION = 100;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int DEFAULT_MERGE_THRESHOLD = 8;
+
+    private final MutationLog log;
+    // Очередь и писатель режима WRITE_BEHIND; в остальных режимах null
+    private final WriteBehindLog writeBehind;
+    private final Path snapshotFile;
+    // Запись базового снимка и удаление дельт не пересекаются со слиянием, которое идёт в фоне
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private boolean replaying;
+    private long generation;
+    // Поколение базового снимка; дельты после него ещё не слиты
+    private volatile long baseGeneration;
+    private int deltaMergeThreshold = DEFAULT_MERGE_THRESHOLD;
+    // Фоновое слияние дельт, не больше одного одновременно, и его ошибка, ещё не брошенная вызывающему
+    private Thread merger;
+    private volatile RuntimeException mergeFailure;
+    private int snapshotInterval;
+    private int operationsSinceSnapshot;
+    // Записи пакетной операции, которые уйдут в журнал одной порцией
+    private List<byte[]> pendingRecords;
+
+    public FileBackedTaskManager(Path file) {
+        this(file, Durability.SYNC, 0);
+    }
+
+    // WRITE_BEHIND здесь берёт очередь на DEFAULT_QUEUE_CAPACITY записей с ожиданием при заполнении
+    public FileBackedTaskManager(Path file, Durability durability, long groupCommitMillis) {
+        this(file, durability, groupCommitMillis, DEFAULT_QUEUE_CAPACITY, Backpressure.BLOCK);
+    }
+
+    /*
+     * Отложенная запись: операция меняет память и ставит запись в очередь на queueCapacity записей, журнал
+     * пишет фоновый поток пакетами с одним fsync. Записанным на диск можно считать только то, что было
+     * до успешного flush() или close().
+     */
+    public FileBackedTaskManager(Path file, int queueCapacity, Backpressure backpressure) {
+        this(file, Durability.WRITE_BEHIND, 0, queueCapacity, backpressure);
+    }
+
+    private FileBackedTaskManager(Path file, Durability durability, long groupCommitMillis, int queueCapacity,
+                                  Backpressure backpressure) {
+        log = new MutationLog(file, durability, groupCommitMillis);
+        snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+        replaying = true;
+        try {
+            if (Files.exists(snapshotFile)) {
+                BinarySnapshot.Image image = BinarySnapshot.read(snapshotFile);
+                baseGeneration = image.generation();
+                // Дельты не старше базы остались от слияния, прерванного до их удаления, - они уже в ней
+                NavigableMap<Long, Path> deltas = deltaFiles();
+                deleteFiles(deltas.headMap(baseGeneration, true));
+                for (Path delta : deltas.tailMap(baseGeneration, false).values()) {
+                    BinarySnapshot.fold(delta, image);
+                }
+                generation = image.generation();
+                BinarySnapshot.apply(image, this);
+                // Операции из журнала ниже ещё не попали ни в одну дельту
+                trackChanges();
+            }
+            LogReplay replay = new LogReplay();
+            log.replay(replay);
+            if (replay.stale) {
+                // Снимок записан, а журнал до него не успели очистить - его операции уже в снимке
+                log.truncate();
+                log.append(generationRecord());
+            }
+        } catch (RuntimeException e) {
+            // Менеджер не создан, поэтому журнал закрывается здесь: иначе файл остался бы открытым
+            try {
+                log.close();
+            } catch (RuntimeException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        } finally {
+            replaying = false;
+        }
+        writeBehind = durability == Durability.WRITE_BEHIND
+                ? new WriteBehindLog(log, queueCapacity, backpressure, FileBackedTaskManager::placementOf)
+                : null;
+    }
+
+    public static FileBackedTaskManager loadFromFile(Path file) {
+        return new FileBackedTaskManager(file);
+    }
+
+    @Override
+    public void clearTasks() {
+        admit();
+        super.clearTasks();
+        append(CLEAR_TASKS);
+    }
+
+    @Override
+    public Task getTask(int taskId) {
+        admit();
+        Task task = super.getTask(taskId);
+        if (task != null) {
+            append(VIEW_TASK, taskId);
+        }
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        admit();
+        Task created = super.createTask(task);
+        append(CREATE_TASK, created);
+        return created;
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        admit();
+        Task updated = super.updateTask(task);
+        if (updated != null) {
+            append(UPDATE_TASK, updated);
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteTask(int taskId) {
+        admit();
+        super.deleteTask(taskId);
+        append(DELETE_TASK, taskId);
+    }
+
+    @Override
+    public void clearEpics() {
+        admit();
+        super.clearEpics();
+        append(CLEAR_EPICS);
+    }
+
+    @Override
+    public Epic getEpic(int epicId) {
+        admit();
+        Epic epic = super.getEpic(epicId);
+        if (epic != null) {
+            append(VIEW_EPIC, epicId);
+        }
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        admit();
+        Epic created = super.createEpic(epic);
+        append(CREATE_EPIC, created);
+        return created;
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        admit();
+        Epic updated = super.updateEpic(epic);
+        if (updated != null) {
+            append(UPDATE_EPIC, updated);
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteEpic(int epicId) {
+        admit();
+        super.deleteEpic(epicId);
+        append(DELETE_EPIC, epicId);
+    }
+
+    @Override
+    public void clearSubtasks() {
+        admit();
+        super.clearSubtasks();
+        append(CLEAR_SUBTASKS);
+    }
+
+    @Override
+    public Subtask getSubtask(int subtaskId) {
+        admit();
+        Subtask subtask = super.getSubtask(subtaskId);
+        if (subtask != null) {
+            append(VIEW_SUBTASK, subtaskId);
+        }
+        return subtask;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        admit();
+        Subtask created = super.createSubtask(subtask);
+        append(CREATE_SUBTASK, created);
+        return created;
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        admit();
+        Subtask updated = super.updateSubtask(subtask);
+        if (updated != null) {
+            append(UPDATE_SUBTASK, updated);
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteSubtask(int subtaskId) {
+        admit();
+        super.deleteSubtask(subtaskId);
+        append(DELETE_SUBTASK, subtaskId);
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> tasks) {
+        return inBatch(() -> {
+            List<Task> created = super.createTasks(tasks);
+            for (Task task : created) {
+                append(CREATE_TASK, task);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public List<Epic> createEpics(List<Epic> epics) {
+        return inBatch(() -> {
+            List<Epic> created = super.createEpics(epics);
+            for (Epic epic : created) {
+                append(CREATE_EPIC, epic);
+            }
+            return created;
+        });
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> subtasks) {
+        return inBatch(() -> {
+            List<Subtask> created = super.createSubtasks(subtasks);
+            for (Subtask subtask : created) {
+                append(CREATE_SUBTASK, subtask);
+            }
+            return created;
+        });
+    }
+
+    // Обновления и удаления родителя идут через одиночные методы, которые здесь уже пишут журнал
+    @Override
+    public List<Task> updateTasks(List<Task> tasks) {
+        return inBatch(() -> super.updateTasks(tasks));
+    }
+
+    @Override
+    public List<Epic> updateEpics(List<Epic> epics) {
+        return inBatch(() -> super.updateEpics(epics));
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(List<Subtask> subtasks) {
+        return inBatch(() -> super.updateSubtasks(subtasks));
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> taskIds) {
+        inBatch(() -> {
+            super.deleteTasks(taskIds);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> epicIds) {
+        inBatch(() -> {
+            super.deleteEpics(epicIds);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> subtaskIds) {
+        inBatch(() -> {
+            super.deleteSubtasks(subtaskIds);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean addDependency(int blockerId, int blockedId) {
+        admit();
+        boolean added = super.addDependency(blockerId, blockedId);
+        if (added) {
+            append(ADD_DEPENDENCY, blockerId, blockedId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeDependency(int blockerId, int blockedId) {
+        admit();
+        boolean removed = super.removeDependency(blockerId, blockedId);
+        if (removed) {
+            append(REMOVE_DEPENDENCY, blockerId, blockedId);
+        }
+        return removed;
+    }
+
+    // Записывает полный снимок состояния, очищает журнал и удаляет дельты; ещё не записанная очередь уже есть в снимке
+    public void snapshot() {
+        if (writeBehind != null) {
+            writeBehind.checkpoint(this::writeSnapshot);
+        } else {
+            writeSnapshot();
+        }
+        operationsSinceSnapshot = 0;
+    }
+
+    /*
+     * Инкрементальная контрольная точка: пишет дельту только с элементами, изменёнными или удалёнными после
+     * прошлой точки, и очищает журнал. Пока базового снимка нет, пишется полный снимок. Когда после базы
+     * накапливается setDeltaMergeThreshold дельт, фоновый поток сливает их с ней в новую базу.
+     */
+    public void checkpoint() {
+        if (dirtySet() == null) {
+            snapshot();
+            return;
+        }
+        if (writeBehind != null) {
+            writeBehind.checkpoint(this::writeDelta);
+        } else {
+            writeDelta();
+        }
+        operationsSinceSnapshot = 0;
+        if (deltaMergeThreshold > 0 && generation - baseGeneration >= deltaMergeThreshold) {
+            scheduleMerge();
+        }
+    }
+
+    // Фоновое слияние начинается после deltas дельт поверх базы; 0 - сливать только через mergeDeltas
+    public void setDeltaMergeThreshold(int deltas) {
+        deltaMergeThreshold = deltas;
+    }
+
+    /*
+     * Сворачивает базовый снимок и дельты после него в новый снимок и удаляет слитые дельты. Работает только
+     * с файлами, поэтому в фоне идёт параллельно с операциями и новыми контрольными точками.
+     */
+    public void mergeDeltas() {
+        snapshotLock.lock();
+        try {
+            NavigableMap<Long, Path> deltas = deltaFiles().tailMap(baseGeneration, false);
+            if (deltas.isEmpty()) {
+                return;
+            }
+            BinarySnapshot.Image image = BinarySnapshot.read(snapshotFile);
+            for (Path delta : deltas.values()) {
+                BinarySnapshot.fold(delta, image);
+            }
+            BinarySnapshot.write(snapshotFile, image);
+            baseGeneration = image.generation();
+            deleteFiles(deltas);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    // Снимок будет делаться автоматически каждые operations записей в журнал; 0 - отключено
+    public void setSnapshotInterval(int operations) {
+        snapshotInterval = operations;
+    }
+
+    // Принудительно сбрасывает журнал на диск независимо от режима; при отложенной записи ждёт очередь
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        } else {
+            log.force();
+        }
+    }
+
+    // Дожидается фонового слияния дельт; если оно не удалось, ошибка бросается здесь
+    @Override
+    public void close() {
+        try {
+            if (writeBehind != null) {
+                writeBehind.close();
+            }
+            awaitMerge();
+        } finally {
+            log.close();
+        }
+    }
+
+    private void writeSnapshot() {
+        snapshotLock.lock();
+        try {
+            generation++;
+            BinarySnapshot.write(snapshotFile, this, generation);
+            baseGeneration = generation;
+            deleteFiles(deltaFiles());
+        } finally {
+            snapshotLock.unlock();
+        }
+        trackChanges();
+        log.truncate();
+        log.append(generationRecord());
+    }
+
+    // Поколение растёт только после записи дельты: при ошибке изменения остаются учтёнными до следующей точки
+    private void writeDelta() {
+        BinarySnapshot.writeDelta(deltaFile(generation + 1), this, dirtySet(), generation, generation + 1);
+        generation++;
+        trackChanges();
+        log.truncate();
+        log.append(generationRecord());
+    }
+
+    private Path deltaFile(long deltaGeneration) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".delta." + deltaGeneration);
+    }
+
+    // Дельты рядом со снимком по поколениям; недописанные .tmp пропускаются
+    private NavigableMap<Long, Path> deltaFiles() {
+        String prefix = snapshotFile.getFileName() + ".delta.";
+        NavigableMap<Long, Path> deltas = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshotFile.toAbsolutePath().getParent(),
+                path -> path.getFileName().toString().startsWith(prefix))) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    deltas.put(Long.parseLong(suffix), file);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать список дельт " + snapshotFile, e);
+        }
+        return deltas;
+    }
+
+    private static void deleteFiles(NavigableMap<Long, Path> files) {
+        for (Path file : files.values()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Не удалось удалить дельту " + file, e);
+            }
+        }
+    }
+
+    private void scheduleMerge() {
+        if (merger != null && merger.isAlive()) {
+            return;
+        }
+        awaitMerge();
+        merger = new Thread(() -> {
+            try {
+                mergeDeltas();
+            } catch (RuntimeException e) {
+                mergeFailure = e;
+            }
+        }, "snapshot-merger");
+        merger.setDaemon(true);
+        merger.start();
+    }
+
+    private void awaitMerge() {
+        if (merger == null) {
+            return;
+        }
+        try {
+            merger.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        merger = null;
+        RuntimeException failure = mergeFailure;
+        if (failure != null) {
+            mergeFailure = null;
+            throw failure;
+        }
+    }
+
+    private void apply(ByteBuffer record) {
+        byte op = record.get();
+        switch (op) {
+            case CREATE_TASK:
+                Task task = readTask(record, new Task(null, null));
+                setNextId(task.getId());
+                super.createTask(task);
+                break;
+            case UPDATE_TASK:
+                Task taskUpdate = readTask(record, new Task(null, null));
+                super.updateTask(mergeInto(findTask(taskUpdate.getId()), taskUpdate));
+                break;
+            case DELETE_TASK:
+                super.deleteTask(record.getInt());
+                break;
+            case CLEAR_TASKS:
+                super.clearTasks();
+                break;
+            case VIEW_TASK:
+                super.getTask(record.getInt());
+                break;
+            case CREATE_EPIC:
+                Epic epic = readTask(record, new Epic(null, null));
+                setNextId(epic.getId());
+                super.createEpic(epic);
+                break;
+            case UPDATE_EPIC:
+                Epic epicUpdate = readTask(record, new Epic(null, null));
+                super.updateEpic(mergeInto(findEpic(epicUpdate.getId()), epicUpdate));
+                break;
+            case DELETE_EPIC:
+                super.deleteEpic(record.getInt());
+                break;
+            case CLEAR_EPICS:
+                super.clearEpics();
+                break;
+            case VIEW_EPIC:
+                super.getEpic(record.getInt());
+                break;
+            case CREATE_SUBTASK:
+                Subtask subtask = readSubtask(record);
+                setNextId(subtask.getId());
+                super.createSubtask(subtask);
+                break;
+            case UPDATE_SUBTASK:
+                Subtask subtaskUpdate = readSubtask(record);
+                Subtask existing = findSubtask(subtaskUpdate.getId());
+                if (existing != null && existing.getEpicId() != subtaskUpdate.getEpicId()) {
+                    existing.setEpicId(subtaskUpdate.getEpicId());
+                }
+                super.updateSubtask(mergeInto(existing, subtaskUpdate));
+                break;
+            case DELETE_SUBTASK:
+                super.deleteSubtask(record.getInt());
+                break;
+            case CLEAR_SUBTASKS:
+                super.clearSubtasks();
+                break;
+            case VIEW_SUBTASK:
+                super.getSubtask(record.getInt());
+                break;
+            case ADD_DEPENDENCY:
+                int blockerId = record.getInt();
+                int blockedId = record.getInt();
+                if (contains(blockerId) && contains(blockedId)) {
+                    super.addDependency(blockerId, blockedId);
+                }
+                break;
+            case REMOVE_DEPENDENCY:
+                super.removeDependency(record.getInt(), record.getInt());
+                break;
+            default:
+                throw new ManagerSaveException("Неизвестная операция в журнале: " + op, null);
+        }
+    }
+
+    // Обновление применяется к уже загруженному объекту, чтобы история ссылалась на актуальные данные
+    private static <T extends Task> T mergeInto(T existing, T update) {
+        if (existing == null) {
+            return update;
+        }
+        existing.setName(update.getName());
+        existing.setDescription(update.getDescription());
+        existing.setStatus(update.getStatus());
+        existing.setStartTime(update.getStartTime());
+        existing.setDuration(update.getDuration());
+        return existing;
+    }
+
+    private byte[] generationRecord() {
+        return ByteBuffer.allocate(9).put(GENERATION).putLong(generation).array();
+    }
+
+    private void append(byte op) {
+        if (!replaying) {
+            write(new byte[]{op});
+        }
+    }
+
+    private void append(byte op, int id) {
+        if (!replaying) {
+            write(ByteBuffer.allocate(5).put(op).putInt(id).array());
+        }
+    }
+
+    private void append(byte op, int first, int second) {
+        if (!replaying) {
+            write(ByteBuffer.allocate(9).put(op).putInt(first).putInt(second).array());
+        }
+    }
+
+    private void write(byte[] record) {
+        if (pendingRecords != null) {
+            pendingRecords.add(record);
+            return;
+        }
+        if (writeBehind != null) {
+            writeBehind.submit(List.of(record));
+        } else {
+            log.append(record);
+        }
+        countOperations(1);
+    }
+
+    // Пакетная и вложенные в неё операции проходят ограничение очереди один раз, в начале пакета
+    private void admit() {
+        if (writeBehind != null && !replaying && pendingRecords == null) {
+            writeBehind.admit();
+        }
+    }
+
+    private <T> T inBatch(Supplier<T> operation) {
+        if (replaying || pendingRecords != null) {
+            return operation.get();
+        }
+        admit();
+        pendingRecords = new ArrayList<>();
+        try {
+            return operation.get();
+        } finally {
+            // Даже если пакет прервался, уже применённые изменения должны попасть в журнал
+            List<byte[]> records = pendingRecords;
+            pendingRecords = null;
+            if (!records.isEmpty()) {
+                if (writeBehind != null) {
+                    writeBehind.submit(records);
+                } else {
+                    log.appendAll(records);
+                }
+                countOperations(records.size());
+            }
+        }
+    }
+
+    private void countOperations(int count) {
+        operationsSinceSnapshot += count;
+        if (snapshotInterval > 0 && operationsSinceSnapshot >= snapshotInterval) {
+            snapshot();
+        }
+    }
+
+    private void append(byte op, Task task) {
+        if (replaying) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            out.writeInt(task.getId());
+            writeString(out, task.getName());
+            writeString(out, task.getDescription());
+            out.writeByte(task.getStatus() == null ? -1 : task.getStatus().ordinal());
+            if (task instanceof Subtask) {
+                out.writeInt(((Subtask) task).getEpicId());
+            }
+            // Время эпика выводится из подзадач и не пишется
+            if (!(task instanceof Epic)) {
+                ByteBuffer times = ByteBuffer.allocate(TimeCodec.MAX_SIZE);
+                TimeCodec.write(times, task);
+                out.write(times.array(), 0, times.position());
+            }
+            write(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сериализовать задачу " + task.getId(), e);
+        }
+    }
+
+    /*
+     * Для WriteBehindLog: у записи обновления - смещение полей после статуса (epicId подзадачи и время),
+     * которые должны совпасть, чтобы следующее обновление заменило её в очереди. Удаление задачи или подзадачи
+     * отменяет слияние для своего id, удаление эпика вместе с подзадачами и очистки - для всех.
+     */
+    private static int placementOf(byte[] record) {
+        byte op = record[0];
+        if (op == DELETE_TASK || op == DELETE_SUBTASK) {
+            return WriteBehindLog.FORGET_ID;
+        }
+        if (op == DELETE_EPIC || op == CLEAR_TASKS || op == CLEAR_EPICS || op == CLEAR_SUBTASKS) {
+            return WriteBehindLog.FORGET_ALL;
+        }
+        if (op != UPDATE_TASK && op != UPDATE_EPIC && op != UPDATE_SUBTASK) {
+            return WriteBehindLog.KEEP;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record, 5, record.length - 5);
+        for (int i = 0; i < 2; i++) {
+            int length = buffer.getInt();
+            if (length > 0) {
+                buffer.position(buffer.position() + length);
+            }
+        }
+        return buffer.position() + 1;
+    }
+
+    private static <T extends Task> T readTask(ByteBuffer record, T task) {
+        task.setId(record.getInt());
+        task.setName(readString(record));
+        task.setDescription(readString(record));
+        byte status = record.get();
+        task.setStatus(status < 0 ? null : Status.values()[status]);
+        readTimes(record, task);
+        return task;
+    }
+
+    private static Subtask readSubtask(ByteBuffer record) {
+        int id = record.getInt();
+        String name = readString(record);
+        String description = readString(record);
+        byte status = record.get();
+        Subtask subtask = new Subtask(name, description, status < 0 ? null : Status.values()[status],
+                record.getInt());
+        subtask.setId(id);
+        readTimes(record, subtask);
+        return subtask;
+    }
+
+    // В журналах, записанных до появления времени, запись кончается на статусе или epicId
+    private static void readTimes(ByteBuffer record, Task task) {
+        if (record.hasRemaining()) {
+            TimeCodec.read(record, task);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private final class LogReplay implements Consumer<ByteBuffer> {
+        private boolean first = true;
+        private boolean stale;
+
+        @Override
+        public void accept(ByteBuffer record) {
+            if (first) {
+                first = false;
+                long logGeneration = record.get(0) == GENERATION ? record.getLong(1) : 0;
+                stale = logGeneration != generation;
+                if (record.get(0) == GENERATION) {
+                    return;
+                }
+            }
+            if (!stale) {
+                apply(record);
+            }
+        }
+    }
+}
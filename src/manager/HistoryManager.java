@@ -2,6 +2,7 @@ package manager;
 
 import task.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 
@@ -10,5 +11,15 @@ public interface HistoryManager {
 
     void remove(int id);
 
+    // Удаление пачки id за один вызов: каскады и очистки не платят за каждый id отдельно
+    void removeAll(Collection<Integer> ids);
+
     List<Task> getHistory();
+
+    // История только для чтения без копирования, если реализация это позволяет
+    Collection<Task> getHistoryView();
+
+    long getEvictionCount();
+
+    long getHitCount();
 }
\ No newline at end of file
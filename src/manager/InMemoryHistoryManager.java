@@ -3,18 +3,44 @@ package manager;
 import task.Task;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 public final class InMemoryHistoryManager implements HistoryManager {
 
-    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final IntObjectMap<Node> historyMap = new IntObjectMap<>();
+    private final int capacity;
+    private final EvictionPolicy evictionPolicy;
     private Node head;
     private Node tail;
+    private long evictionCount;
+    private long hitCount;
+
+    public InMemoryHistoryManager() {
+        this(Integer.MAX_VALUE, capacity -> new LruEvictionPolicy());
+    }
+
+    // Политика создаётся по ёмкости истории, чтобы её сегменты не разошлись с ней
+    public InMemoryHistoryManager(int capacity, IntFunction<? extends EvictionPolicy> evictionPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.evictionPolicy = evictionPolicy.apply(capacity);
+    }
 
     @Override
     public void add(Task task) {
         if (task != null) {
-            remove(task.getId());
+            Node node = historyMap.remove(task.getId());
+            if (node != null) {
+                hitCount++;
+                removeNode(node);
+            }
             linkLast(task);
+            evictionPolicy.recordAccess(task.getId());
+            if (historyMap.size() > capacity) {
+                evict(evictionPolicy.selectVictim(head.getTask().getId()));
+            }
         }
     }
 
@@ -23,6 +49,14 @@ public final class InMemoryHistoryManager implements HistoryManager {
         Node node = historyMap.remove(id);
         if (node != null) {
             removeNode(node);
+            evictionPolicy.recordRemoval(id);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<Integer> ids) {
+        for (int id : ids) {
+            remove(id);
         }
     }
 
@@ -31,6 +65,54 @@ public final class InMemoryHistoryManager implements HistoryManager {
         return getTasks();
     }
 
+    // Обход идёт по самому связному списку; удалённый узел сохраняет ссылку вперёд, так что итератор не ломается
+    @Override
+    public Collection<Task> getHistoryView() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<>() {
+                    private Node next = head;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Task task = next.getTask();
+                        next = next.getNext();
+                        return task;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return historyMap.size();
+            }
+        };
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    private void evict(int id) {
+        remove(id);
+        evictionCount++;
+    }
+
     private void linkLast(Task task) {
         Node newNode = new Node(task);
         if (tail == null) {
@@ -4,18 +4,51 @@ import task.Epic;
 import task.Status;
 import task.Subtask;
 import task.Task;
+import task.TaskTexts;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.IntFunction;
 
-public class InMemoryTaskManager implements TaskManager {
+public class InMemoryTaskManager implements TaskManager, QueryAccess {
 
-    private final Map<Integer, Task> tasks = new HashMap<>();
-    private final Map<Integer, Epic> epics = new HashMap<>();
-    private final Map<Integer, Subtask> subtasks = new HashMap<>();
+    private final IntObjectMap<Task> tasks = new IntObjectMap<>();
+    private final IntObjectMap<Epic> epics = new IntObjectMap<>();
+    private final IntObjectMap<Subtask> subtasks = new IntObjectMap<>();
+    private final Map<Integer, EpicStatusCounter> epicStatusCounters = new HashMap<>();
+    private final Map<Integer, RecordedSubtask> recordedSubtasks = new HashMap<>();
+    private final StatusIndex<Task> taskStatusIndex = new StatusIndex<>();
+    private final StatusIndex<Epic> epicStatusIndex = new StatusIndex<>();
+    private final StatusIndex<Subtask> subtaskStatusIndex = new StatusIndex<>();
+    private final SearchIndex searchIndex = new SearchIndex();
+    // Id каждого вида по возрастанию: страница начинается с курсора в дереве и не обходит пропуски между id
+    private final NavigableSet<Integer> taskIds = new TreeSet<>();
+    private final NavigableSet<Integer> epicIds = new TreeSet<>();
+    private final NavigableSet<Integer> subtaskIds = new TreeSet<>();
+    private final Schedule schedule = new Schedule();
+    private final DependencyGraph dependencies = new DependencyGraph();
     private final HistoryManager historyManager;
+    // Если хранилище задано, названия и описания хранимых элементов лежат в нём, а не в куче
+    private final OffHeapTextStore textStore;
+    private final IntObjectMap<OffHeapText> storedTexts = new IntObjectMap<>();
+    // Одна функция чтения на менеджер: по ней вынесенная задача декодирует тексты из textStore
+    private final IntFunction<String> textReader;
+    private final ChangeStream changes = new ChangeStream();
+    // Однопоточный менеджер: срез запрашивают между операциями, поэтому изменения сразу меняют корень
+    private final VersionedStore versions = new VersionedStore(false);
+    // Во время пакетной операции статусы затронутых эпиков пересчитываются один раз в конце
+    private Set<Integer> deferredEpicIds;
+    // Изменения после последней контрольной точки; null, пока учёт не включил FileBackedTaskManager
+    private DirtySet dirty;
 
     public InMemoryTaskManager() {
+        this(null);
+    }
+
+    public InMemoryTaskManager(OffHeapTextStore textStore) {
         historyManager = Managers.getDefaultHistory();
+        this.textStore = textStore;
+        textReader = textStore == null ? null : textStore::get;
     }
 
     private int nextId = 0;
@@ -27,23 +60,39 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void clearTasks() {
-        for (Integer taskId : tasks.keySet()) {
-            historyManager.remove(taskId);
+        List<Integer> removed = new ArrayList<>(tasks.size());
+        for (Task task : tasks.values()) {
+            removed.add(task.getId());
+            schedule.remove(task.getId());
+            searchIndex.remove(task.getId());
+            releaseTexts(task.getId(), task);
+            publishDelete(ItemType.TASK, task.getId());
         }
+        historyManager.removeAll(removed);
+        dependencies.removeVertices(removed);
         tasks.clear();
+        taskStatusIndex.clear();
+        compactTexts();
     }
 
     @Override
     public Task getTask(int taskId) {
         Task task = tasks.get(taskId);
         historyManager.add(task);
+        markHistory(task);
         return task;
     }
 
     @Override
     public Task createTask(Task task) {
+        schedule.check(Schedule.NO_ID, task);
         task.setId(getNextId());
+        schedule.put(task.getId(), task);
         tasks.put(task.getId(), task);
+        taskStatusIndex.put(task);
+        searchIndex.put(task);
+        storeTexts(null, task);
+        publishWrite(ItemType.TASK, null, task);
         return task;
     }
 
@@ -54,14 +103,32 @@ public class InMemoryTaskManager implements TaskManager {
             System.out.println("У таска должен быть идентификатор");
             return null;
         }
-        tasks.put(taskId, task);
+        if (!canStore(taskId, ItemType.TASK)) {
+            return null;
+        }
+        schedule.put(taskId, task);
+        reserveId(taskId);
+        Task previous = tasks.put(taskId, task);
+        taskStatusIndex.put(task);
+        searchIndex.put(task);
+        storeTexts(previous, task);
+        publishWrite(ItemType.TASK, previous, task);
         return task;
     }
 
     @Override
     public void deleteTask(int taskId) {
-        tasks.remove(taskId);
-        historyManager.remove(taskId);
+        Task task = tasks.remove(taskId);
+        if (task != null) {
+            taskStatusIndex.remove(taskId);
+            searchIndex.remove(taskId);
+            historyManager.remove(taskId);
+            schedule.remove(taskId);
+            dependencies.removeVertex(taskId);
+            releaseTexts(taskId, task);
+            compactTexts();
+            publishDelete(ItemType.TASK, taskId);
+        }
     }
 
     // Epic
@@ -72,17 +139,37 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void clearEpics() {
-        for (Integer epicId : epics.keySet()) {
-            historyManager.remove(epicId);
+        List<Integer> removed = new ArrayList<>(subtasks.size() + epics.size());
+        for (Subtask subtask : subtasks.values()) {
+            removed.add(subtask.getId());
+            schedule.remove(subtask.getId());
+            searchIndex.remove(subtask.getId());
+            releaseTexts(subtask.getId(), subtask);
+            publishDelete(ItemType.SUBTASK, subtask.getId());
+        }
+        for (Epic epic : epics.values()) {
+            removed.add(epic.getId());
+            searchIndex.remove(epic.getId());
+            releaseTexts(epic.getId(), epic);
+            publishDelete(ItemType.EPIC, epic.getId());
         }
+        // Подзадачи уходят из истории вместе с эпиками, одним вызовом на всю очистку
+        historyManager.removeAll(removed);
+        dependencies.removeVertices(removed);
         epics.clear();
         subtasks.clear();
+        epicStatusCounters.clear();
+        recordedSubtasks.clear();
+        epicStatusIndex.clear();
+        subtaskStatusIndex.clear();
+        compactTexts();
     }
 
     @Override
     public Epic getEpic(int epicId) {
         Task task = epics.get(epicId);
         historyManager.add(task);
+        markHistory(task);
         return epics.get(epicId);
     }
 
@@ -90,6 +177,11 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic createEpic(Epic epic) {
         epic.setId(getNextId());
         epics.put(epic.getId(), epic);
+        searchIndex.put(epic);
+        storeTexts(null, epic);
+        epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+        updateEpicStatus(epic);
+        publishWrite(ItemType.EPIC, null, epic);
         return epic;
     }
 
@@ -100,7 +192,22 @@ public class InMemoryTaskManager implements TaskManager {
             System.out.println("У эпика должен быть идентификатор");
             return null;
         }
-        epics.put(epicId, epic);
+        if (!canStore(epicId, ItemType.EPIC)) {
+            return null;
+        }
+        reserveId(epicId);
+        Epic previous = epics.put(epicId, epic);
+        if (previous != null && previous != epic) {
+            epic.clearSubtasks();
+            for (Subtask subtask : previous.getSubtasksView()) {
+                epic.addSubtask(subtask);
+            }
+        }
+        searchIndex.put(epic);
+        storeTexts(previous, epic);
+        epicStatusCounters.computeIfAbsent(epicId, id -> new EpicStatusCounter());
+        updateEpicStatus(epic);
+        publishWrite(ItemType.EPIC, previous, epic);
         return epic;
     }
 
@@ -108,11 +215,26 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteEpic(int epicId) {
         Epic epic = epics.remove(epicId);
         if (epic != null) {
-            for (Subtask subtask : epic.getSubtaskList()) {
+            epicStatusCounters.remove(epicId);
+            epicStatusIndex.remove(epicId);
+            List<Integer> removed = new ArrayList<>(epic.getSubtaskCount() + 1);
+            for (Subtask subtask : epic.getSubtasksView()) {
+                removed.add(subtask.getId());
                 subtasks.remove(subtask.getId());
-                historyManager.remove(subtask.getId());
+                schedule.remove(subtask.getId());
+                recordedSubtasks.remove(subtask.getId());
+                subtaskStatusIndex.remove(subtask.getId());
+                searchIndex.remove(subtask.getId());
+                releaseTexts(subtask.getId(), subtask);
+                publishDelete(ItemType.SUBTASK, subtask.getId());
             }
-            historyManager.remove(epicId);
+            removed.add(epicId);
+            searchIndex.remove(epicId);
+            historyManager.removeAll(removed);
+            dependencies.removeVertices(removed);
+            releaseTexts(epicId, epic);
+            compactTexts();
+            publishDelete(ItemType.EPIC, epicId);
         }
     }
 
@@ -124,32 +246,51 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void clearSubtasks() {
-        for (Integer subtaskId : subtasks.keySet()) {
-            historyManager.remove(subtaskId);
+        List<Integer> removed = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks.values()) {
+            removed.add(subtask.getId());
+            schedule.remove(subtask.getId());
+            searchIndex.remove(subtask.getId());
+            releaseTexts(subtask.getId(), subtask);
+            publishDelete(ItemType.SUBTASK, subtask.getId());
         }
+        historyManager.removeAll(removed);
+        dependencies.removeVertices(removed);
         for (Epic epic : epics.values()) {
-            epic.getSubtaskList().clear();
+            epic.clearSubtasks();
+            markDirty(epic.getId());
+            epicStatusCounters.get(epic.getId()).clear();
             updateEpicStatus(epic);
         }
         subtasks.clear();
+        recordedSubtasks.clear();
+        subtaskStatusIndex.clear();
+        compactTexts();
     }
 
     @Override
     public Subtask getSubtask(int subtaskId) {
         Task task = subtasks.get(subtaskId);
         historyManager.add(task);
+        markHistory(task);
         return subtasks.get(subtaskId);
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
+        schedule.check(Schedule.NO_ID, subtask);
         subtask.setId(getNextId());
+        schedule.put(subtask.getId(), subtask);
         subtasks.put(subtask.getId(), subtask);
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) {
             epic.addSubtask(subtask);
-            updateEpicStatus(epic);
+            markDirty(epic.getId());
         }
+        // Событие подзадачи публикуется до пересчёта статуса эпика, который она вызвала
+        publishWrite(ItemType.SUBTASK, null, subtask);
+        attachSubtask(subtask);
+        storeTexts(null, subtask);
         return subtask;
     }
 
@@ -165,11 +306,35 @@ public class InMemoryTaskManager implements TaskManager {
             System.out.println("У подзадачи должен быть идентификатор");
             return null;
         }
-        subtasks.put(subtaskId, subtask);
+        if (!canStore(subtaskId, ItemType.SUBTASK)) {
+            return null;
+        }
+        schedule.put(subtaskId, subtask);
+        reserveId(subtaskId);
+        Subtask previous = subtasks.put(subtaskId, subtask);
+        publishWrite(ItemType.SUBTASK, previous, subtask);
+        RecordedSubtask recorded = recordedSubtasks.get(subtaskId);
+        if (recorded != null) {
+            detachSubtask(subtaskId, recorded.epicId != subtask.getEpicId());
+        }
         Epic epic = epics.get(subtask.getEpicId());
-        if (epic != null) {
-            updateEpicStatus(epic);
+        boolean moved = recorded == null || recorded.epicId != subtask.getEpicId();
+        if (moved || previous != subtask) {
+            Epic oldEpic = recorded == null ? null : epics.get(recorded.epicId);
+            // В прежнем эпике подзадача остаётся только при замене на месте, иначе её место освобождается
+            if (oldEpic != null && previous != null && moved) {
+                oldEpic.removeSubtask(subtaskId);
+                markDirty(oldEpic.getId());
+            }
+            if (epic != null) {
+                epic.addSubtask(subtask);
+                if (moved) {
+                    markDirty(epic.getId());
+                }
+            }
         }
+        attachSubtask(subtask);
+        storeTexts(previous, subtask);
         return subtask;
     }
 
@@ -177,45 +342,617 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteSubtask(int subtaskId) {
         Subtask subtask = subtasks.remove(subtaskId);
         if (subtask != null) {
-            Epic epic = epics.get(subtask.getEpicId());
+            schedule.remove(subtaskId);
+            dependencies.removeVertex(subtaskId);
+            Epic epic = epics.get(recordedSubtasks.get(subtaskId).epicId);
             if (epic != null) {
-                epic.deleteSubtask(subtask);
-                updateEpicStatus(epic);
+                epic.removeSubtask(subtaskId);
+                markDirty(epic.getId());
             }
+            publishDelete(ItemType.SUBTASK, subtaskId);
+            detachSubtask(subtaskId, true);
+            subtaskStatusIndex.remove(subtaskId);
+            searchIndex.remove(subtaskId);
             historyManager.remove(subtaskId);
+            releaseTexts(subtaskId, subtask);
+            compactTexts();
         }
     }
 
-    private void updateEpicStatus(Epic epic) {
-        List<Subtask> subtaskList = epic.getSubtaskList();
+    // Пакетные операции: сначала проверяется весь пакет, затем он применяется целиком
+    @Override
+    public List<Task> createTasks(List<Task> newTasks) {
+        BatchValidation.requireNewItems(newTasks);
+        schedule.checkAll(newTasks, true);
+        int id = reserveIds(newTasks.size());
+        tasks.ensureCapacity(tasks.size() + newTasks.size());
+        for (Task task : newTasks) {
+            task.setId(id++);
+            schedule.put(task.getId(), task);
+            tasks.put(task.getId(), task);
+        }
+        for (Task task : newTasks) {
+            taskStatusIndex.put(task);
+            searchIndex.put(task);
+            storeTexts(null, task);
+            publishWrite(ItemType.TASK, null, task);
+        }
+        return newTasks;
+    }
 
-        if (subtaskList.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
+    @Override
+    public List<Epic> createEpics(List<Epic> newEpics) {
+        BatchValidation.requireNewItems(newEpics);
+        int id = reserveIds(newEpics.size());
+        epics.ensureCapacity(epics.size() + newEpics.size());
+        for (Epic epic : newEpics) {
+            epic.setId(id++);
+            epics.put(epic.getId(), epic);
         }
+        for (Epic epic : newEpics) {
+            searchIndex.put(epic);
+            storeTexts(null, epic);
+            epicStatusCounters.put(epic.getId(), new EpicStatusCounter());
+            updateEpicStatus(epic);
+            publishWrite(ItemType.EPIC, null, epic);
+        }
+        return newEpics;
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> newSubtasks) {
+        BatchValidation.requireNewItems(newSubtasks);
+        for (Subtask subtask : newSubtasks) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Epic " + subtask.getEpicId() + " not found");
+            }
+        }
+        schedule.checkAll(newSubtasks, true);
+        int id = reserveIds(newSubtasks.size());
+        subtasks.ensureCapacity(subtasks.size() + newSubtasks.size());
+        for (Subtask subtask : newSubtasks) {
+            subtask.setId(id++);
+            schedule.put(subtask.getId(), subtask);
+            subtasks.put(subtask.getId(), subtask);
+        }
+        beginBatch();
+        try {
+            for (Subtask subtask : newSubtasks) {
+                epics.get(subtask.getEpicId()).addSubtask(subtask);
+                markDirty(subtask.getEpicId());
+                publishWrite(ItemType.SUBTASK, null, subtask);
+                attachSubtask(subtask);
+                storeTexts(null, subtask);
+            }
+        } finally {
+            endBatch();
+        }
+        return newSubtasks;
+    }
 
-        boolean allNew = true;
-        boolean allDone = true;
+    @Override
+    public List<Task> updateTasks(List<Task> changedTasks) {
+        BatchValidation.requireExisting(changedTasks, tasks::containsKey);
+        schedule.checkAll(changedTasks, false);
+        for (Task task : changedTasks) {
+            updateTask(task);
+        }
+        return changedTasks;
+    }
 
-        for (Subtask subtask : subtaskList) {
-            if (!subtask.getStatus().equals(Status.NEW)) {
-                allNew = false;
+    @Override
+    public List<Epic> updateEpics(List<Epic> changedEpics) {
+        BatchValidation.requireExisting(changedEpics, epics::containsKey);
+        for (Epic epic : changedEpics) {
+            updateEpic(epic);
+        }
+        return changedEpics;
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(List<Subtask> changedSubtasks) {
+        BatchValidation.requireExisting(changedSubtasks, subtasks::containsKey);
+        schedule.checkAll(changedSubtasks, false);
+        beginBatch();
+        try {
+            for (Subtask subtask : changedSubtasks) {
+                updateSubtask(subtask);
             }
-            if (!subtask.getStatus().equals(Status.DONE)) {
-                allDone = false;
+        } finally {
+            endBatch();
+        }
+        return changedSubtasks;
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> taskIds) {
+        for (int taskId : taskIds) {
+            deleteTask(taskId);
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> epicIds) {
+        for (int epicId : epicIds) {
+            deleteEpic(epicId);
+        }
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> subtaskIds) {
+        beginBatch();
+        try {
+            for (int subtaskId : subtaskIds) {
+                deleteSubtask(subtaskId);
             }
+        } finally {
+            endBatch();
+        }
+    }
+
+    private int reserveIds(int count) {
+        int first = nextId;
+        nextId += count;
+        return first;
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return Collections.unmodifiableCollection(epics.values());
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    @Override
+    public Collection<Task> getHistoryView() {
+        return historyManager.getHistoryView();
+    }
+
+    @Override
+    public Page<Task> getTasksPage(int cursor, int limit) {
+        return page(tasks, taskIds, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int cursor, int limit) {
+        return page(epics, epicIds, cursor, limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        return page(subtasks, subtaskIds, cursor, limit);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return taskStatusIndex.get(status);
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return epicStatusIndex.get(status);
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return subtaskStatusIndex.get(status);
+    }
+
+    @Override
+    public List<Task> search(String query, int offset, int limit) {
+        List<Task> result = new ArrayList<>();
+        for (int id : searchIndex.search(query, offset, limit)) {
+            result.add(findAny(id));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        List<Task> result = new ArrayList<>(schedule.size());
+        for (int id : schedule.ids()) {
+            Task task = tasks.get(id);
+            result.add(task != null ? task : subtasks.get(id));
         }
+        return result;
+    }
 
-        if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else if (allDone) {
-            epic.setStatus(Status.DONE);
+    @Override
+    public ChangeSubscription subscribe() {
+        return changes.subscribe();
+    }
+
+    @Override
+    public TaskSnapshot getSnapshot() {
+        TaskSnapshot snapshot = versions.current();
+        return snapshot != null ? snapshot : versions.enable(getTasksView(), getEpicsView(), getSubtasksView());
+    }
+
+    /*
+     * Зависимости "blocker блокирует blocked" между любыми задачами, эпиками и подзадачами. Возвращает false,
+     * если такая зависимость уже есть; зависимость с несуществующим элементом отклоняется
+     * с IllegalArgumentException, замыкающая цикл - с DependencyCycleException. Удалённый элемент уходит
+     * из графа вместе со своими зависимостями.
+     */
+    public boolean addDependency(int blockerId, int blockedId) {
+        if (!contains(blockerId)) {
+            throw new IllegalArgumentException("Item " + blockerId + " not found");
+        }
+        if (!contains(blockedId)) {
+            throw new IllegalArgumentException("Item " + blockedId + " not found");
+        }
+        return dependencies.add(blockerId, blockedId);
+    }
+
+    public boolean removeDependency(int blockerId, int blockedId) {
+        return dependencies.remove(blockerId, blockedId);
+    }
+
+    // Элементы, которые блокируют данный
+    public List<Task> getBlockers(int id) {
+        return findAll(dependencies.predecessors(id));
+    }
+
+    // Элементы, которые ждут данный
+    public List<Task> getDependents(int id) {
+        return findAll(dependencies.successors(id));
+    }
+
+    // Элементы, у которых есть зависимости, в порядке, где каждый идёт после всех своих блокирующих
+    public List<Task> getTopologicalOrder() {
+        return findAll(dependencies.topologicalOrder());
+    }
+
+    // Ещё не начатые элементы по возрастанию id, все блокирующие которых выполнены
+    public List<Task> getReadyTasks() {
+        List<Task> ready = new ArrayList<>();
+        addReady(ready, taskStatusIndex.get(Status.NEW));
+        addReady(ready, epicStatusIndex.get(Status.NEW));
+        addReady(ready, subtaskStatusIndex.get(Status.NEW));
+        ready.sort(Comparator.comparingInt(Task::getId));
+        return ready;
+    }
+
+    /*
+     * Цепочка зависимостей с наибольшей суммарной продолжительностью, от первого блокирующего до последнего
+     * зависимого. Элемент без продолжительности весит ноль; при равной сумме выбирается более длинная цепочка.
+     */
+    public List<Task> getCriticalPath() {
+        return findAll(dependencies.criticalPath(id -> {
+            Duration duration = findAny(id).getDuration();
+            return duration == null ? 0 : duration.toNanos();
+        }));
+    }
+
+    // Рёбра графа парами blocker, blocked для снимка
+    int[] dependencyEdges() {
+        return dependencies.edges();
+    }
+
+    // Начинает учёт изменений для дельты заново; до первого вызова изменения не учитываются
+    void trackChanges() {
+        dirty = new DirtySet(dependencies);
+    }
+
+    // Изменения с последнего trackChanges или null, если учёт не включён
+    DirtySet dirtySet() {
+        return dirty;
+    }
+
+    // Пути доступа для TaskQuery
+    @Override
+    public Task peek(int id) {
+        return findAny(id);
+    }
+
+    @Override
+    public Collection<Subtask> subtasksOf(int epicId) {
+        Epic epic = epics.get(epicId);
+        return epic == null ? Collections.emptyList() : epic.getSubtasksView();
+    }
+
+    @Override
+    public int countWithStatus(ItemType itemType, Status status) {
+        return statusIndex(itemType).count(status);
+    }
+
+    @Override
+    public Collection<? extends Task> withStatus(ItemType itemType, Status status) {
+        return statusIndex(itemType).get(status);
+    }
+
+    @Override
+    public int countPrefix(String term, int limit) {
+        return searchIndex.countPrefix(term, limit);
+    }
+
+    @Override
+    public Collection<Integer> prefixIds(String term) {
+        return searchIndex.prefixIds(term);
+    }
+
+    private StatusIndex<? extends Task> statusIndex(ItemType itemType) {
+        switch (itemType) {
+            case TASK:
+                return taskStatusIndex;
+            case EPIC:
+                return epicStatusIndex;
+            default:
+                return subtaskStatusIndex;
+        }
+    }
+
+    private void addReady(List<Task> ready, List<? extends Task> candidates) {
+        for (Task item : candidates) {
+            if (dependencies.allPredecessors(item.getId(),
+                    id -> EpicStatusCounter.normalize(findAny(id).getStatus()) == Status.DONE)) {
+                ready.add(item);
+            }
+        }
+    }
+
+    private List<Task> findAll(int[] ids) {
+        List<Task> items = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            items.add(findAny(id));
+        }
+        return items;
+    }
+
+    // id общие для задач, эпиков и подзадач, поэтому занятый другим видом id обновлением не перезаписывается
+    private boolean canStore(int id, ItemType itemType) {
+        boolean taken = itemType != ItemType.TASK && tasks.containsKey(id)
+                || itemType != ItemType.EPIC && epics.containsKey(id)
+                || itemType != ItemType.SUBTASK && subtasks.containsKey(id);
+        if (taken) {
+            System.out.println("Идентификатор уже занят элементом другого типа");
+            return false;
+        }
+        return true;
+    }
+
+    // Есть ли задача, эпик или подзадача с таким id
+    boolean contains(int id) {
+        return findAny(id) != null;
+    }
+
+    private Task findAny(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task;
+    }
+
+    /*
+     * Переносит тексты элемента в textStore. Вызывается после поискового индекса, чтобы тот прочитал строки
+     * из объекта, а не декодировал их заново. previous - объект, хранившийся под этим id раньше:
+     * если его заменил другой объект, он получает свои тексты обратно до освобождения записей,
+     * потому что на него ещё могут ссылаться вызывающий код и история.
+     */
+    private void storeTexts(Task previous, Task item) {
+        if (textStore == null) {
+            return;
+        }
+        OffHeapText stored = storedTexts.get(item.getId());
+        if (stored != null && TaskTexts.isStoredAt(item, textReader, stored.nameHandle, stored.descriptionHandle)) {
+            return;
+        }
+        if (previous != null && previous != item) {
+            TaskTexts.loadBack(previous);
+        }
+        TaskTexts.loadBack(item);
+        if (stored != null) {
+            textStore.free(stored);
+        }
+        OffHeapText text = textStore.put(item.getName(), item.getDescription());
+        storedTexts.put(item.getId(), text);
+        TaskTexts.storeOutside(item, textReader, text.nameHandle, text.descriptionHandle);
+        compactTexts();
+    }
+
+    // Удалённый элемент получает свои тексты обратно, и только потом его записи освобождаются
+    private void releaseTexts(int id, Task item) {
+        if (textStore == null) {
+            return;
+        }
+        OffHeapText stored = storedTexts.remove(id);
+        if (stored != null) {
+            TaskTexts.loadBack(item);
+            textStore.free(stored);
+        }
+    }
+
+    private void compactTexts() {
+        if (textStore != null) {
+            textStore.compact();
+        }
+    }
+
+    private void attachSubtask(Subtask subtask) {
+        subtaskStatusIndex.put(subtask);
+        searchIndex.put(subtask);
+        Status status = EpicStatusCounter.normalize(subtask.getStatus());
+        recordedSubtasks.put(subtask.getId(), new RecordedSubtask(subtask.getEpicId(), status));
+        EpicStatusCounter counter = epicStatusCounters.get(subtask.getEpicId());
+        if (counter != null) {
+            counter.increment(status);
+            refreshEpicStatus(subtask.getEpicId());
+        }
+    }
+
+    // refresh = false, если подзадача сразу вернётся в тот же эпик: его статус не пересчитывается без неё на полпути
+    private void detachSubtask(int subtaskId, boolean refresh) {
+        RecordedSubtask recorded = recordedSubtasks.remove(subtaskId);
+        if (recorded == null) {
+            return;
+        }
+        EpicStatusCounter counter = epicStatusCounters.get(recorded.epicId);
+        if (counter != null) {
+            counter.decrement(recorded.status);
+            if (refresh) {
+                refreshEpicStatus(recorded.epicId);
+            }
+        }
+    }
+
+    private void refreshEpicStatus(int epicId) {
+        if (deferredEpicIds != null) {
+            deferredEpicIds.add(epicId);
         } else {
-            epic.setStatus(Status.IN_PROGRESS);
+            updateEpicStatus(epics.get(epicId));
+        }
+    }
+
+    private void beginBatch() {
+        deferredEpicIds = new HashSet<>();
+    }
+
+    private void endBatch() {
+        Set<Integer> epicIds = deferredEpicIds;
+        deferredEpicIds = null;
+        for (Integer epicId : epicIds) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                updateEpicStatus(epic);
+            }
+        }
+    }
+
+    // Событие о статусе публикуется, только если он отличается от записанного раньше; у нового эпика его нет
+    private void updateEpicStatus(Epic epic) {
+        Status status = epicStatusCounters.get(epic.getId()).getStatus();
+        epic.setStatus(status);
+        Status previous = epicStatusIndex.put(epic);
+        if (previous != null && previous != status) {
+            changes.publish(ChangeType.EPIC_STATUS_CHANGED, ItemType.EPIC, epic.getId(), status, null);
+        }
+    }
+
+    // CREATED, если под этим id ничего не было, иначе UPDATED
+    private void publishWrite(ItemType itemType, Task previous, Task item) {
+        ChangeType type = previous == null ? ChangeType.CREATED : ChangeType.UPDATED;
+        changes.publish(type, itemType, item.getId(), EpicStatusCounter.normalize(item.getStatus()), item);
+        versions.write(itemType, item);
+        if (previous == null) {
+            orderedIds(itemType).add(item.getId());
+        }
+        if (dirty != null) {
+            dirty.markWrite(item.getId(), previous == null);
+        }
+    }
+
+    private void publishDelete(ItemType itemType, int id) {
+        changes.publish(ChangeType.DELETED, itemType, id, null, null);
+        versions.delete(itemType, id);
+        orderedIds(itemType).remove(id);
+        markDirty(id);
+    }
+
+    private NavigableSet<Integer> orderedIds(ItemType itemType) {
+        switch (itemType) {
+            case TASK:
+                return taskIds;
+            case EPIC:
+                return epicIds;
+            default:
+                return subtaskIds;
+        }
+    }
+
+    // Кроме записанных и удалённых id отмечаются эпики, у которых изменился только состав подзадач
+    private void markDirty(int id) {
+        if (dirty != null) {
+            dirty.mark(id);
+        }
+    }
+
+    private void markHistory(Task viewed) {
+        if (dirty != null && viewed != null) {
+            dirty.markHistory();
+        }
+    }
+
+    // Пересчитывает счётчики статусов с нуля и сравнивает с инкрементальными (для тестов)
+    boolean isEpicStatusConsistent() {
+        Map<Integer, EpicStatusCounter> rebuilt = new HashMap<>();
+        for (Epic epic : epics.values()) {
+            rebuilt.put(epic.getId(), new EpicStatusCounter());
+        }
+        for (Subtask subtask : subtasks.values()) {
+            EpicStatusCounter counter = rebuilt.get(subtask.getEpicId());
+            if (counter != null) {
+                counter.increment(subtask.getStatus());
+            }
+        }
+        if (!rebuilt.equals(epicStatusCounters)) {
+            return false;
         }
+        for (Epic epic : epics.values()) {
+            if (epic.getStatus() != rebuilt.get(epic.getId()).getStatus()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private int getNextId() {
         return nextId++;
     }
+
+    // Обновление с ещё не выданным id создаёт элемент, и счётчик сдвигается за него, чтобы id не повторились
+    private void reserveId(int id) {
+        if (id >= nextId) {
+            nextId = id + 1;
+        }
+    }
+
+    // Страница стоит O(limit + log n): обход дерева id начинается с курсора; без следующей страницы курсор - nextId
+    private <T extends Task> Page<T> page(IntObjectMap<T> store, NavigableSet<Integer> ids, int cursor, int limit) {
+        if (cursor < 0 || limit <= 0) {
+            throw new IllegalArgumentException("Cursor must not be negative and limit must be positive");
+        }
+        List<T> items = new ArrayList<>(Math.min(limit, store.size()));
+        Iterator<Integer> tail = ids.tailSet(cursor, true).iterator();
+        while (tail.hasNext() && items.size() < limit) {
+            items.add(store.get(tail.next()));
+        }
+        if (tail.hasNext()) {
+            return new Page<>(items, tail.next(), true);
+        }
+        return new Page<>(items, Math.max(cursor, nextId), false);
+    }
+
+    // Поиск без записи в историю
+    protected Task findTask(int taskId) {
+        return tasks.get(taskId);
+    }
+
+    protected Epic findEpic(int epicId) {
+        return epics.get(epicId);
+    }
+
+    protected Subtask findSubtask(int subtaskId) {
+        return subtasks.get(subtaskId);
+    }
+
+    protected int peekNextId() {
+        return nextId;
+    }
+
+    // Нужен при восстановлении из файла, чтобы созданные задачи получили прежние id
+    protected void setNextId(int nextId) {
+        this.nextId = nextId;
+    }
 }
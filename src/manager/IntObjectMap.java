@@ -0,0 +1,235 @@
+package manager;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * Хеш-таблица с открытой адресацией и линейным пробированием для ключей int: без упаковки ключей в Integer
+ * и без узла на каждую запись. Пустая ячейка - null в values, поэтому null как значение не хранится.
+ * Удаление сдвигает следующие записи цепочки назад, так что надгробий нет.
+ * Плотные id занимают ячейки сплошным отрезком, и поиск конца цепочки при удалении стоил бы O(n). Поэтому
+ * таблица помнит наибольшее смещение записи от её исходной ячейки: дальше него поиск и сдвиг не заглядывают.
+ * Хеш, как у HashMap, почти не перемешивает ключ: плотные id из счётчика ложатся в соседние ячейки
+ * без коллизий, и обход values идёт по возрастанию id, пока id меньше размера таблицы.
+ */
+final class IntObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+    // Наибольшее смещение записи от исходной ячейки; при удалениях не уменьшается, сбрасывается при перестройке
+    private int maxProbe;
+    // Число структурных изменений: по нему итератор замечает вставку или удаление во время обхода
+    private int modCount;
+
+    IntObjectMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        int home = slotOf(key);
+        for (int slot = home, probe = 0; probe <= maxProbe; slot = (slot + 1) & mask, probe++) {
+            Object value = values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int slot = slotOf(key);
+        int probe = 0;
+        for (; values[slot] != null; slot = (slot + 1) & mask, probe++) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        maxProbe = Math.max(maxProbe, probe);
+        modCount++;
+        if (++size > resizeAt && keys.length < MAX_CAPACITY) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int home = slotOf(key);
+        for (int slot = home, probe = 0; probe <= maxProbe; slot = (slot + 1) & mask, probe++) {
+            Object value = values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keys[slot] == key) {
+                shiftBack(slot);
+                size--;
+                modCount++;
+                return (V) value;
+            }
+        }
+        return null;
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+        maxProbe = 0;
+    }
+
+    // Заранее растит таблицу под expectedSize записей, чтобы пакетная вставка не перестраивала её по частям
+    void ensureCapacity(int expectedSize) {
+        if (expectedSize > resizeAt) {
+            modCount++;
+            rehash(capacityFor(expectedSize));
+        }
+    }
+
+    // Живое представление значений только для чтения
+    Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int slotOf(int key) {
+        return (key ^ (key >>> 16)) & mask;
+    }
+
+    /*
+     * Сдвигает записи за освобождённой ячейкой на её место, если их исходная ячейка не лежит между ними.
+     * Запись дальше maxProbe от свободной ячейки не может ссылаться на неё, поэтому там просмотр заканчивается.
+     */
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null || ((slot - free) & mask) > maxProbe) {
+                break;
+            }
+            int home = slotOf(keys[slot]);
+            boolean reachable = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!reachable) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+        values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                int probe = 0;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                    probe++;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                maxProbe = Math.max(maxProbe, probe);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+        maxProbe = 0;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) expectedSize * 4 / 3 + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed && capacity < MAX_CAPACITY) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private final Object[] table = values;
+        private final int expectedModCount = modCount;
+        private int next = advance(0);
+
+        private int advance(int from) {
+            int i = from;
+            while (i < table.length && table[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForComodification();
+            return next < table.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) table[next];
+            next = advance(next + 1);
+            return value;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
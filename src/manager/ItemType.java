@@ -0,0 +1,7 @@
+package manager;
+
+public enum ItemType {
+    TASK,
+    EPIC,
+    SUBTASK
+}
@@ -0,0 +1,71 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Гистограмма задержек в наносекундах с лог-линейными корзинами, как в HdrHistogram:
+ * значения до 16 нс хранятся точно, дальше каждая степень двойки делится на 8 корзин,
+ * то есть погрешность не больше 12,5%. Запись - один инкремент в AtomicLongArray, без аллокаций.
+ */
+final class LatencyHistogram {
+
+    private static final int EXACT = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int FIRST_EXPONENT = 4;
+    static final int BUCKETS = EXACT + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    long count(int bucket) {
+        return counts.get(bucket);
+    }
+
+    long totalCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    // Верхняя граница корзины, в которую попал квантиль q из [0, 1]; 0, если записей нет
+    long percentile(double q) {
+        long total = totalCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < EXACT) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int exponent = (bucket - EXACT) / SUB_BUCKETS + FIRST_EXPONENT;
+        int subBucket = (bucket - EXACT) % SUB_BUCKETS;
+        long bound = ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        return bound < 0 ? Long.MAX_VALUE : bound;
+    }
+}
@@ -0,0 +1,17 @@
+package manager;
+
+public final class LruEvictionPolicy implements EvictionPolicy {
+
+    @Override
+    public void recordAccess(int id) {
+    }
+
+    @Override
+    public void recordRemoval(int id) {
+    }
+
+    @Override
+    public int selectVictim(int leastRecentlyViewedId) {
+        return leastRecentlyViewedId;
+    }
+}
@@ -0,0 +1,133 @@
+package manager;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/*
+ * Счётчики вызовов, ошибок и гистограммы задержек по методам, а также датчики (gauges).
+ * Методы и датчики регистрируются при создании обёртки, поэтому запись на горячем пути
+ * не ищет ничего по имени и не аллоцирует. Датчики вычисляются только при выгрузке.
+ */
+public final class ManagerMetrics {
+
+    private final String prefix;
+    private final Map<String, MethodMetrics> methods = new LinkedHashMap<>();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+
+    ManagerMetrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    MethodMetrics method(String name) {
+        return methods.computeIfAbsent(name, key -> new MethodMetrics());
+    }
+
+    void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public long getCallCount(String method) {
+        MethodMetrics metrics = methods.get(method);
+        return metrics == null ? 0 : metrics.calls.sum();
+    }
+
+    public long getErrorCount(String method) {
+        MethodMetrics metrics = methods.get(method);
+        return metrics == null ? 0 : metrics.errors.sum();
+    }
+
+    // Квантиль задержки в наносекундах с точностью до корзины гистограммы
+    public long getLatencyPercentile(String method, double quantile) {
+        MethodMetrics metrics = methods.get(method);
+        return metrics == null ? 0 : metrics.latency.percentile(quantile);
+    }
+
+    public long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    // Текстовый формат Prometheus; для непотокобезопасного менеджера вызывать из того же потока, что и его методы
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE ").append(prefix).append("_calls_total counter\n");
+        for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+            sample(out, "_calls_total", entry.getKey(), null, entry.getValue().calls.sum());
+        }
+        out.append("# TYPE ").append(prefix).append("_errors_total counter\n");
+        for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+            sample(out, "_errors_total", entry.getKey(), null, entry.getValue().errors.sum());
+        }
+        out.append("# TYPE ").append(prefix).append("_latency_seconds histogram\n");
+        for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+            appendHistogram(out, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            String name = prefix + "_" + entry.getKey();
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Пустые корзины пропускаются: накопленные значения от этого не меняются
+    private void appendHistogram(StringBuilder out, String method, MethodMetrics metrics) {
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long count = metrics.latency.count(i);
+            if (count > 0) {
+                cumulative += count;
+                sample(out, "_latency_seconds_bucket", method, seconds(LatencyHistogram.upperBound(i)), cumulative);
+            }
+        }
+        sample(out, "_latency_seconds_bucket", method, "+Inf", cumulative);
+        out.append(prefix).append("_latency_seconds_sum{method=\"").append(method).append("\"} ")
+                .append(seconds(metrics.totalNanos.sum())).append('\n');
+        sample(out, "_latency_seconds_count", method, null, cumulative);
+    }
+
+    private void sample(StringBuilder out, String suffix, String method, String le, long value) {
+        out.append(prefix).append(suffix).append("{method=\"").append(method).append('"');
+        if (le != null) {
+            out.append(",le=\"").append(le).append('"');
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    // Время замеряется у каждого SAMPLE_INTERVAL-го вызова: System.nanoTime на виртуалках бывает дороже самого getTask.
+    // Поэтому _count и _sum гистограммы относятся к замеренным вызовам, а calls_total и errors_total точные
+    static final class MethodMetrics {
+        private static final int SAMPLE_INTERVAL = 64;
+        private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        // Гонки при инкременте не страшны: от счётчика зависит только выбор вызовов для замера
+        private int ticks;
+
+        long start() {
+            return (ticks++ & (SAMPLE_INTERVAL - 1)) == 0 ? System.nanoTime() : NOT_SAMPLED;
+        }
+
+        void record(long start, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            if (start != NOT_SAMPLED) {
+                long elapsed = System.nanoTime() - start;
+                totalNanos.add(elapsed);
+                latency.record(elapsed);
+            }
+        }
+    }
+}
@@ -4,6 +4,12 @@ import manager.HistoryManager;
 import manager.InMemoryHistoryManager;
 import manager.InMemoryTaskManager;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
 public class Managers {
 
     private Managers() {
@@ -13,8 +19,64 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    public static TaskManager getOffHeap() {
+        return new InMemoryTaskManager(new OffHeapTextStore());
+    }
+
+    public static TaskManager getCompact() {
+        return new CompactTaskManager();
+    }
+
+    // Вызовы по одному в порядке подачи, если менеджер не ConcurrentTaskManager
+    public static AsyncTaskManager getAsync(TaskManager taskManager) {
+        return new AsyncTaskManager(taskManager, taskManager instanceof ConcurrentTaskManager);
+    }
+
+    public static MetricsTaskManager getInstrumented(TaskManager taskManager) {
+        return new MetricsTaskManager(taskManager);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
-}
 
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return getDefaultHistory(capacity, limit -> new LruEvictionPolicy());
+    }
+
+    // Политика получает ту же ёмкость, что и история, например SegmentedLruEvictionPolicy::new
+    public static HistoryManager getDefaultHistory(int capacity, IntFunction<? extends EvictionPolicy> evictionPolicy) {
+        return new InMemoryHistoryManager(capacity, evictionPolicy);
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
+    public static MetricsHistoryManager getInstrumentedHistory(HistoryManager historyManager) {
+        return new MetricsHistoryManager(historyManager);
+    }
+
+    /*
+     * Исполнитель для блокирующей работы: виртуальные потоки, если JVM их поддерживает (Java 21+), иначе пул
+     * из 4 потоков-демонов на ядро. Задачи сверх пула ждут в очереди, не занимая потоков.
+     */
+    public static ExecutorService getBlockingExecutor(String threadName) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 4),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName + "-" + threads.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+}
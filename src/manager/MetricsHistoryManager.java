@@ -0,0 +1,106 @@
+package manager;
+
+import task.Task;
+
+import java.util.Collection;
+import java.util.List;
+
+// Обёртка над HistoryManager: вызовы, ошибки и задержки методов плюс длина истории, попадания и вытеснения
+public class MetricsHistoryManager implements HistoryManager {
+
+    private final HistoryManager delegate;
+    private final ManagerMetrics metrics = new ManagerMetrics("kanban_history_manager");
+    private final ManagerMetrics.MethodMetrics addMetrics;
+    private final ManagerMetrics.MethodMetrics removeMetrics;
+    private final ManagerMetrics.MethodMetrics removeAllMetrics;
+    private final ManagerMetrics.MethodMetrics getHistoryMetrics;
+    private final ManagerMetrics.MethodMetrics getHistoryViewMetrics;
+
+    public MetricsHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+        addMetrics = metrics.method("add");
+        removeMetrics = metrics.method("remove");
+        removeAllMetrics = metrics.method("removeAll");
+        getHistoryMetrics = metrics.method("getHistory");
+        getHistoryViewMetrics = metrics.method("getHistoryView");
+        metrics.gauge("history_length", () -> delegate.getHistoryView().size());
+        metrics.gauge("hits", delegate::getHitCount);
+        metrics.gauge("evictions", delegate::getEvictionCount);
+    }
+
+    public ManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void add(Task task) {
+        long start = addMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.add(task);
+            failed = false;
+        } finally {
+            addMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long start = removeMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.remove(id);
+            failed = false;
+        } finally {
+            removeMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<Integer> ids) {
+        long start = removeAllMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.removeAll(ids);
+            failed = false;
+        } finally {
+            removeAllMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = getHistoryMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.getHistory();
+            failed = false;
+            return result;
+        } finally {
+            getHistoryMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Collection<Task> getHistoryView() {
+        long start = getHistoryViewMetrics.start();
+        boolean failed = true;
+        try {
+            Collection<Task> result = delegate.getHistoryView();
+            failed = false;
+            return result;
+        } finally {
+            getHistoryViewMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return delegate.getEvictionCount();
+    }
+
+    @Override
+    public long getHitCount() {
+        return delegate.getHitCount();
+    }
+}
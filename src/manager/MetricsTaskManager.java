@@ -0,0 +1,736 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * Обёртка над любым TaskManager, которая считает вызовы, ошибки и задержки каждого метода.
+ * Ошибкой считается исключение, а для одиночных update* ещё и ответ null - так менеджер
+ * сообщает о задаче без идентификатора.
+ * Пути доступа TaskQuery берутся у обёрнутого менеджера и в метриках не учитываются, как и сам запрос.
+ */
+public class MetricsTaskManager implements TaskManager, QueryAccess {
+
+    private final TaskManager delegate;
+    private final ManagerMetrics metrics = new ManagerMetrics("kanban_task_manager");
+    private final ManagerMetrics.MethodMetrics getTasksMetrics;
+    private final ManagerMetrics.MethodMetrics clearTasksMetrics;
+    private final ManagerMetrics.MethodMetrics getTaskMetrics;
+    private final ManagerMetrics.MethodMetrics createTaskMetrics;
+    private final ManagerMetrics.MethodMetrics updateTaskMetrics;
+    private final ManagerMetrics.MethodMetrics deleteTaskMetrics;
+    private final ManagerMetrics.MethodMetrics getEpicsMetrics;
+    private final ManagerMetrics.MethodMetrics clearEpicsMetrics;
+    private final ManagerMetrics.MethodMetrics getEpicMetrics;
+    private final ManagerMetrics.MethodMetrics createEpicMetrics;
+    private final ManagerMetrics.MethodMetrics updateEpicMetrics;
+    private final ManagerMetrics.MethodMetrics deleteEpicMetrics;
+    private final ManagerMetrics.MethodMetrics getSubtasksMetrics;
+    private final ManagerMetrics.MethodMetrics clearSubtasksMetrics;
+    private final ManagerMetrics.MethodMetrics getSubtaskMetrics;
+    private final ManagerMetrics.MethodMetrics createSubtaskMetrics;
+    private final ManagerMetrics.MethodMetrics updateSubtaskMetrics;
+    private final ManagerMetrics.MethodMetrics deleteSubtaskMetrics;
+    private final ManagerMetrics.MethodMetrics getHistoryMetrics;
+    private final ManagerMetrics.MethodMetrics createTasksMetrics;
+    private final ManagerMetrics.MethodMetrics createEpicsMetrics;
+    private final ManagerMetrics.MethodMetrics createSubtasksMetrics;
+    private final ManagerMetrics.MethodMetrics updateTasksMetrics;
+    private final ManagerMetrics.MethodMetrics updateEpicsMetrics;
+    private final ManagerMetrics.MethodMetrics updateSubtasksMetrics;
+    private final ManagerMetrics.MethodMetrics deleteTasksMetrics;
+    private final ManagerMetrics.MethodMetrics deleteEpicsMetrics;
+    private final ManagerMetrics.MethodMetrics deleteSubtasksMetrics;
+    private final ManagerMetrics.MethodMetrics getTasksByStatusMetrics;
+    private final ManagerMetrics.MethodMetrics getEpicsByStatusMetrics;
+    private final ManagerMetrics.MethodMetrics getSubtasksByStatusMetrics;
+    private final ManagerMetrics.MethodMetrics searchMetrics;
+    private final ManagerMetrics.MethodMetrics getPrioritizedTasksMetrics;
+    private final ManagerMetrics.MethodMetrics getTasksViewMetrics;
+    private final ManagerMetrics.MethodMetrics getEpicsViewMetrics;
+    private final ManagerMetrics.MethodMetrics getSubtasksViewMetrics;
+    private final ManagerMetrics.MethodMetrics getHistoryViewMetrics;
+    private final ManagerMetrics.MethodMetrics getTasksPageMetrics;
+    private final ManagerMetrics.MethodMetrics getEpicsPageMetrics;
+    private final ManagerMetrics.MethodMetrics getSubtasksPageMetrics;
+    private final ManagerMetrics.MethodMetrics subscribeMetrics;
+    private final ManagerMetrics.MethodMetrics getSnapshotMetrics;
+
+    public MetricsTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        getTasksMetrics = metrics.method("getTasks");
+        clearTasksMetrics = metrics.method("clearTasks");
+        getTaskMetrics = metrics.method("getTask");
+        createTaskMetrics = metrics.method("createTask");
+        updateTaskMetrics = metrics.method("updateTask");
+        deleteTaskMetrics = metrics.method("deleteTask");
+        getEpicsMetrics = metrics.method("getEpics");
+        clearEpicsMetrics = metrics.method("clearEpics");
+        getEpicMetrics = metrics.method("getEpic");
+        createEpicMetrics = metrics.method("createEpic");
+        updateEpicMetrics = metrics.method("updateEpic");
+        deleteEpicMetrics = metrics.method("deleteEpic");
+        getSubtasksMetrics = metrics.method("getSubtasks");
+        clearSubtasksMetrics = metrics.method("clearSubtasks");
+        getSubtaskMetrics = metrics.method("getSubtask");
+        createSubtaskMetrics = metrics.method("createSubtask");
+        updateSubtaskMetrics = metrics.method("updateSubtask");
+        deleteSubtaskMetrics = metrics.method("deleteSubtask");
+        getHistoryMetrics = metrics.method("getHistory");
+        createTasksMetrics = metrics.method("createTasks");
+        createEpicsMetrics = metrics.method("createEpics");
+        createSubtasksMetrics = metrics.method("createSubtasks");
+        updateTasksMetrics = metrics.method("updateTasks");
+        updateEpicsMetrics = metrics.method("updateEpics");
+        updateSubtasksMetrics = metrics.method("updateSubtasks");
+        deleteTasksMetrics = metrics.method("deleteTasks");
+        deleteEpicsMetrics = metrics.method("deleteEpics");
+        deleteSubtasksMetrics = metrics.method("deleteSubtasks");
+        getTasksByStatusMetrics = metrics.method("getTasksByStatus");
+        getEpicsByStatusMetrics = metrics.method("getEpicsByStatus");
+        getSubtasksByStatusMetrics = metrics.method("getSubtasksByStatus");
+        searchMetrics = metrics.method("search");
+        getPrioritizedTasksMetrics = metrics.method("getPrioritizedTasks");
+        getTasksViewMetrics = metrics.method("getTasksView");
+        getEpicsViewMetrics = metrics.method("getEpicsView");
+        getSubtasksViewMetrics = metrics.method("getSubtasksView");
+        getHistoryViewMetrics = metrics.method("getHistoryView");
+        getTasksPageMetrics = metrics.method("getTasksPage");
+        getEpicsPageMetrics = metrics.method("getEpicsPage");
+        getSubtasksPageMetrics = metrics.method("getSubtasksPage");
+        subscribeMetrics = metrics.method("subscribe");
+        getSnapshotMetrics = metrics.method("getSnapshot");
+        metrics.gauge("tasks", () -> delegate.getTasksView().size());
+        metrics.gauge("epics", () -> delegate.getEpicsView().size());
+        metrics.gauge("subtasks", () -> delegate.getSubtasksView().size());
+        metrics.gauge("history_length", () -> delegate.getHistoryView().size());
+        metrics.gauge("largest_epic_subtasks", () -> {
+            int largest = 0;
+            for (Epic epic : delegate.getEpicsView()) {
+                largest = Math.max(largest, epic.getSubtaskCount());
+            }
+            return largest;
+        });
+    }
+
+    public ManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        long start = getTasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.getTasks();
+            failed = false;
+            return result;
+        } finally {
+            getTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void clearTasks() {
+        long start = clearTasksMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.clearTasks();
+            failed = false;
+        } finally {
+            clearTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Task getTask(int taskId) {
+        long start = getTaskMetrics.start();
+        boolean failed = true;
+        try {
+            Task result = delegate.getTask(taskId);
+            failed = false;
+            return result;
+        } finally {
+            getTaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        long start = createTaskMetrics.start();
+        boolean failed = true;
+        try {
+            Task result = delegate.createTask(task);
+            failed = false;
+            return result;
+        } finally {
+            createTaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        long start = updateTaskMetrics.start();
+        boolean failed = true;
+        try {
+            Task result = delegate.updateTask(task);
+            failed = result == null;
+            return result;
+        } finally {
+            updateTaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteTask(int taskId) {
+        long start = deleteTaskMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteTask(taskId);
+            failed = false;
+        } finally {
+            deleteTaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        long start = getEpicsMetrics.start();
+        boolean failed = true;
+        try {
+            List<Epic> result = delegate.getEpics();
+            failed = false;
+            return result;
+        } finally {
+            getEpicsMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void clearEpics() {
+        long start = clearEpicsMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.clearEpics();
+            failed = false;
+        } finally {
+            clearEpicsMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Epic getEpic(int epicId) {
+        long start = getEpicMetrics.start();
+        boolean failed = true;
+        try {
+            Epic result = delegate.getEpic(epicId);
+            failed = false;
+            return result;
+        } finally {
+            getEpicMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        long start = createEpicMetrics.start();
+        boolean failed = true;
+        try {
+            Epic result = delegate.createEpic(epic);
+            failed = false;
+            return result;
+        } finally {
+            createEpicMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        long start = updateEpicMetrics.start();
+        boolean failed = true;
+        try {
+            Epic result = delegate.updateEpic(epic);
+            failed = result == null;
+            return result;
+        } finally {
+            updateEpicMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int epicId) {
+        long start = deleteEpicMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteEpic(epicId);
+            failed = false;
+        } finally {
+            deleteEpicMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        long start = getSubtasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Subtask> result = delegate.getSubtasks();
+            failed = false;
+            return result;
+        } finally {
+            getSubtasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void clearSubtasks() {
+        long start = clearSubtasksMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.clearSubtasks();
+            failed = false;
+        } finally {
+            clearSubtasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int subtaskId) {
+        long start = getSubtaskMetrics.start();
+        boolean failed = true;
+        try {
+            Subtask result = delegate.getSubtask(subtaskId);
+            failed = false;
+            return result;
+        } finally {
+            getSubtaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        long start = createSubtaskMetrics.start();
+        boolean failed = true;
+        try {
+            Subtask result = delegate.createSubtask(subtask);
+            failed = false;
+            return result;
+        } finally {
+            createSubtaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        long start = updateSubtaskMetrics.start();
+        boolean failed = true;
+        try {
+            Subtask result = delegate.updateSubtask(subtask);
+            failed = result == null;
+            return result;
+        } finally {
+            updateSubtaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int subtaskId) {
+        long start = deleteSubtaskMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteSubtask(subtaskId);
+            failed = false;
+        } finally {
+            deleteSubtaskMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = getHistoryMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.getHistory();
+            failed = false;
+            return result;
+        } finally {
+            getHistoryMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> createTasks(List<Task> tasks) {
+        long start = createTasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.createTasks(tasks);
+            failed = false;
+            return result;
+        } finally {
+            createTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Epic> createEpics(List<Epic> epics) {
+        long start = createEpicsMetrics.start();
+        boolean failed = true;
+        try {
+            List<Epic> result = delegate.createEpics(epics);
+            failed = false;
+            return result;
+        } finally {
+            createEpicsMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Subtask> createSubtasks(List<Subtask> subtasks) {
+        long start = createSubtasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Subtask> result = delegate.createSubtasks(subtasks);
+            failed = false;
+            return result;
+        } finally {
+            createSubtasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> tasks) {
+        long start = updateTasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.updateTasks(tasks);
+            failed = false;
+            return result;
+        } finally {
+            updateTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Epic> updateEpics(List<Epic> epics) {
+        long start = updateEpicsMetrics.start();
+        boolean failed = true;
+        try {
+            List<Epic> result = delegate.updateEpics(epics);
+            failed = false;
+            return result;
+        } finally {
+            updateEpicsMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Subtask> updateSubtasks(List<Subtask> subtasks) {
+        long start = updateSubtasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Subtask> result = delegate.updateSubtasks(subtasks);
+            failed = false;
+            return result;
+        } finally {
+            updateSubtasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> taskIds) {
+        long start = deleteTasksMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteTasks(taskIds);
+            failed = false;
+        } finally {
+            deleteTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> epicIds) {
+        long start = deleteEpicsMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteEpics(epicIds);
+            failed = false;
+        } finally {
+            deleteEpicsMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> subtaskIds) {
+        long start = deleteSubtasksMetrics.start();
+        boolean failed = true;
+        try {
+            delegate.deleteSubtasks(subtaskIds);
+            failed = false;
+        } finally {
+            deleteSubtasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        long start = getTasksByStatusMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.getTasksByStatus(status);
+            failed = false;
+            return result;
+        } finally {
+            getTasksByStatusMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        long start = getEpicsByStatusMetrics.start();
+        boolean failed = true;
+        try {
+            List<Epic> result = delegate.getEpicsByStatus(status);
+            failed = false;
+            return result;
+        } finally {
+            getEpicsByStatusMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        long start = getSubtasksByStatusMetrics.start();
+        boolean failed = true;
+        try {
+            List<Subtask> result = delegate.getSubtasksByStatus(status);
+            failed = false;
+            return result;
+        } finally {
+            getSubtasksByStatusMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> search(String query, int offset, int limit) {
+        long start = searchMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.search(query, offset, limit);
+            failed = false;
+            return result;
+        } finally {
+            searchMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        long start = getPrioritizedTasksMetrics.start();
+        boolean failed = true;
+        try {
+            List<Task> result = delegate.getPrioritizedTasks();
+            failed = false;
+            return result;
+        } finally {
+            getPrioritizedTasksMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        long start = getTasksViewMetrics.start();
+        boolean failed = true;
+        try {
+            Collection<Task> result = delegate.getTasksView();
+            failed = false;
+            return result;
+        } finally {
+            getTasksViewMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        long start = getEpicsViewMetrics.start();
+        boolean failed = true;
+        try {
+            Collection<Epic> result = delegate.getEpicsView();
+            failed = false;
+            return result;
+        } finally {
+            getEpicsViewMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        long start = getSubtasksViewMetrics.start();
+        boolean failed = true;
+        try {
+            Collection<Subtask> result = delegate.getSubtasksView();
+            failed = false;
+            return result;
+        } finally {
+            getSubtasksViewMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Collection<Task> getHistoryView() {
+        long start = getHistoryViewMetrics.start();
+        boolean failed = true;
+        try {
+            Collection<Task> result = delegate.getHistoryView();
+            failed = false;
+            return result;
+        } finally {
+            getHistoryViewMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Page<Task> getTasksPage(int cursor, int limit) {
+        long start = getTasksPageMetrics.start();
+        boolean failed = true;
+        try {
+            Page<Task> result = delegate.getTasksPage(cursor, limit);
+            failed = false;
+            return result;
+        } finally {
+            getTasksPageMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int cursor, int limit) {
+        long start = getEpicsPageMetrics.start();
+        boolean failed = true;
+        try {
+            Page<Epic> result = delegate.getEpicsPage(cursor, limit);
+            failed = false;
+            return result;
+        } finally {
+            getEpicsPageMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int cursor, int limit) {
+        long start = getSubtasksPageMetrics.start();
+        boolean failed = true;
+        try {
+            Page<Subtask> result = delegate.getSubtasksPage(cursor, limit);
+            failed = false;
+            return result;
+        } finally {
+            getSubtasksPageMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public ChangeSubscription subscribe() {
+        long start = subscribeMetrics.start();
+        boolean failed = true;
+        try {
+            ChangeSubscription result = delegate.subscribe();
+            failed = false;
+            return result;
+        } finally {
+            subscribeMetrics.record(start, failed);
+        }
+    }
+
+    @Override
+    public TaskSnapshot getSnapshot() {
+        long start = getSnapshotMetrics.start();
+        boolean failed = true;
+        try {
+            TaskSnapshot result = delegate.getSnapshot();
+            failed = false;
+            return result;
+        } finally {
+            getSnapshotMetrics.record(start, failed);
+        }
+    }
+
+    // Менеджер без путей доступа отвечает полным проходом, а оценки индексов не даёт
+    @Override
+    public Task peek(int id) {
+        if (delegate instanceof QueryAccess) {
+            return ((QueryAccess) delegate).peek(id);
+        }
+        for (Collection<? extends Task> view : List.of(delegate.getTasksView(), delegate.getEpicsView(),
+                delegate.getSubtasksView())) {
+            for (Task item : view) {
+                if (item.getId() == id) {
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<Subtask> subtasksOf(int epicId) {
+        if (delegate instanceof QueryAccess) {
+            return ((QueryAccess) delegate).subtasksOf(epicId);
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (Subtask subtask : delegate.getSubtasksView()) {
+            if (subtask.getEpicId() == epicId) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int countWithStatus(ItemType itemType, Status status) {
+        return delegate instanceof QueryAccess ? ((QueryAccess) delegate).countWithStatus(itemType, status) : -1;
+    }
+
+    @Override
+    public Collection<? extends Task> withStatus(ItemType itemType, Status status) {
+        if (delegate instanceof QueryAccess) {
+            return ((QueryAccess) delegate).withStatus(itemType, status);
+        }
+        switch (itemType) {
+            case TASK:
+                return delegate.getTasksByStatus(status);
+            case EPIC:
+                return delegate.getEpicsByStatus(status);
+            default:
+                return delegate.getSubtasksByStatus(status);
+        }
+    }
+
+    @Override
+    public int countPrefix(String term, int limit) {
+        return delegate instanceof QueryAccess ? ((QueryAccess) delegate).countPrefix(term, limit) : -1;
+    }
+
+    @Override
+    public Collection<Integer> prefixIds(String term) {
+        if (delegate instanceof QueryAccess) {
+            return ((QueryAccess) delegate).prefixIds(term);
+        }
+        List<Integer> result = new ArrayList<>();
+        for (Collection<? extends Task> view : List.of(delegate.getTasksView(), delegate.getEpicsView(),
+                delegate.getSubtasksView())) {
+            for (Task item : view) {
+                if (SearchIndex.termScore(item.getName(), term) > 0
+                        || SearchIndex.termScore(item.getDescription(), term) > 0) {
+                    result.add(item.getId());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,218 @@
+package manager;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Журнал записей вида [длина][crc32][данные], дописывается только в конец
+final class MutationLog implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc = new CRC32();
+    private volatile boolean dirty;
+    /*
+     * Ошибка фонового сброса. После неудачного fsync записанное могло не дойти до диска, поэтому ошибка
+     * бросается из каждой следующей записи, сброса и close, пока снимок не заменит журнал через truncate.
+     */
+    private volatile ManagerSaveException flushFailure;
+
+    MutationLog(Path file, Durability durability, long groupCommitMillis) {
+        this.durability = durability;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось открыть журнал " + file, e);
+        }
+        if (durability == Durability.GROUP_COMMIT) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mutation-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleAtFixedRate(this::flushIfDirty, groupCommitMillis, groupCommitMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /*
+     * Отдаёт все целые записи по порядку. Отрезается только оборванный хвост: неполный заголовок, запись,
+     * выходящая за конец файла, или запись с неверной crc, за которой нет ни одной целой записи.
+     * Битая запись, после которой журнал продолжается, - повреждение в середине: оно не отрезается,
+     * потому что вместе с ним пропали бы уже подтверждённые записи, и бросается ManagerSaveException.
+     */
+    void replay(Consumer<ByteBuffer> consumer) {
+        try {
+            long size = channel.size();
+            channel.position(0);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            long validSize = 0;
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 && validSize + HEADER_SIZE < size) {
+                        throw corrupted(validSize);
+                    }
+                    if (length < 0 || validSize + HEADER_SIZE + length > size) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (checksumOf(payload) != checksum) {
+                    if (isValidRecordAt(validSize + HEADER_SIZE + length, size)) {
+                        throw corrupted(validSize);
+                    }
+                    break;
+                }
+                consumer.accept(ByteBuffer.wrap(payload));
+                validSize += HEADER_SIZE + length;
+            }
+            if (validSize < size) {
+                channel.truncate(validSize);
+            }
+            channel.position(validSize);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось прочитать журнал", e);
+        }
+    }
+
+    private boolean isValidRecordAt(long position, long size) throws IOException {
+        if (position + HEADER_SIZE > size) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, position);
+        int length = header.getInt(0);
+        if (length < 0 || position + HEADER_SIZE + length > size) {
+            return false;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(payload, position + HEADER_SIZE);
+        return checksumOf(payload.array()) == header.getInt(4);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private int checksumOf(byte[] payload) {
+        crc.reset();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static ManagerSaveException corrupted(long position) {
+        return new ManagerSaveException("Журнал повреждён в позиции " + position
+                + ", после неё есть записи; журнал не изменён", null);
+    }
+
+    void append(byte[] payload) {
+        appendAll(List.of(payload));
+    }
+
+    // Пакет пишется одним буфером и в режиме SYNC сбрасывается на диск одним fsync
+    void appendAll(List<byte[]> payloads) {
+        checkFlushFailure();
+        int size = 0;
+        for (byte[] payload : payloads) {
+            size += HEADER_SIZE + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] payload : payloads) {
+            buffer.putInt(payload.length).putInt(checksumOf(payload)).put(payload);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (durability == Durability.SYNC) {
+                channel.force(false);
+            } else {
+                dirty = true;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось записать журнал", e);
+        }
+    }
+
+    void truncate() {
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            flushFailure = null;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось очистить журнал", e);
+        }
+    }
+
+    void force() {
+        checkFlushFailure();
+        try {
+            dirty = false;
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось сбросить журнал на диск", e);
+        }
+    }
+
+    private void flushIfDirty() {
+        if (dirty && flushFailure == null) {
+            try {
+                force();
+            } catch (ManagerSaveException e) {
+                flushFailure = e;
+            }
+        }
+    }
+
+    private void checkFlushFailure() {
+        ManagerSaveException failure = flushFailure;
+        if (failure != null) {
+            throw new ManagerSaveException("Фоновый сброс журнала на диск не удался", failure);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Не удалось закрыть журнал", e);
+        }
+        checkFlushFailure();
+    }
+}
@@ -0,0 +1,12 @@
+package manager;
+
+// Номера названия и описания элемента в OffHeapTextStore; задача читает их через TaskTexts
+final class OffHeapText {
+    final int nameHandle;
+    final int descriptionHandle;
+
+    OffHeapText(int nameHandle, int descriptionHandle) {
+        this.nameHandle = nameHandle;
+        this.descriptionHandle = descriptionHandle;
+    }
+}
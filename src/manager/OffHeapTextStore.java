@@ -0,0 +1,238 @@
+package manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Названия и описания в UTF-8 вне кучи, в прямых ByteBuffer-слабах. Запись в слабе - id записи, длина и байты.
+ * Задача держит только номера записей; таблица номеров хранит, в каком слабе и где лежит запись,
+ * поэтому сжатие переносит байты, не трогая задачи. Освобождённые записи остаются мусором в слабе,
+ * пока compact не перенесёт живые записи из слабов, где мусора больше половины. Сжатие запускается, только когда
+ * с прошлого прохода накопился ещё слаб мусора: мусор в слабах, живых больше чем наполовину, не гоняет его снова.
+ * Как и InMemoryTaskManager, не потокобезопасно: текст нельзя читать во время изменений менеджера.
+ */
+public final class OffHeapTextStore {
+
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final int HEADER_SIZE = 8;
+    // Сколько пустых слабов держать для повторного использования, остальные отдаются сборщику
+    private static final int SPARE_SLABS = 2;
+
+    private final int slabSize;
+    private final List<Slab> slabs = new ArrayList<>();
+    private Slab active;
+    private long garbageBytes;
+    // Порог мусора для следующего сжатия: на слаб больше, чем осталось после прошлого
+    private long compactAt;
+    // Номер записи -> номер слаба в старших 32 битах и смещение в младших; номер 0 означает null
+    private long[] locations = new long[16];
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+    private int nextHandle = 1;
+
+    public OffHeapTextStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapTextStore(int slabSize) {
+        if (slabSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Slab size must be greater than " + HEADER_SIZE);
+        }
+        this.slabSize = slabSize;
+        compactAt = slabSize;
+    }
+
+    // Память всех слабов, включая мусор и свободный хвост
+    public long getCapacityBytes() {
+        long capacity = 0;
+        for (Slab slab : slabs) {
+            if (slab != null) {
+                capacity += slab.buffer.capacity();
+            }
+        }
+        return capacity;
+    }
+
+    public long getLiveBytes() {
+        long live = 0;
+        for (Slab slab : slabs) {
+            if (slab != null) {
+                live += slab.live;
+            }
+        }
+        return live;
+    }
+
+    public long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    OffHeapText put(String name, String description) {
+        return new OffHeapText(put(name), put(description));
+    }
+
+    void free(OffHeapText text) {
+        free(text.nameHandle);
+        free(text.descriptionHandle);
+    }
+
+    String get(int handle) {
+        if (handle == 0) {
+            return null;
+        }
+        long location = locations[handle];
+        ByteBuffer buffer = slabs.get((int) (location >>> 32)).buffer;
+        int offset = (int) location;
+        byte[] bytes = new byte[buffer.getInt(offset + 4)];
+        buffer.get(offset + HEADER_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Проверка порога - одно сравнение, поэтому менеджер зовёт его после каждой операции, освобождающей записи
+    void compact() {
+        if (garbageBytes < compactAt) {
+            return;
+        }
+        for (int i = 0; i < slabs.size(); i++) {
+            Slab slab = slabs.get(i);
+            if (slab != null && slab != active && slab.end > 0 && slab.live * 2L <= slab.buffer.capacity()) {
+                evacuate(slab);
+            }
+        }
+        compactAt = garbageBytes + slabSize;
+    }
+
+    private int put(String text) {
+        if (text == null) {
+            return 0;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int size = HEADER_SIZE + bytes.length;
+        Slab slab = slabFor(size);
+        int handle = newHandle();
+        slab.buffer.putInt(slab.end, handle);
+        slab.buffer.putInt(slab.end + 4, bytes.length);
+        slab.buffer.put(slab.end + HEADER_SIZE, bytes);
+        locations[handle] = locationOf(slab, slab.end);
+        slab.end += size;
+        slab.live += size;
+        return handle;
+    }
+
+    private void free(int handle) {
+        if (handle == 0) {
+            return;
+        }
+        long location = locations[handle];
+        Slab slab = slabs.get((int) (location >>> 32));
+        int size = HEADER_SIZE + slab.buffer.getInt((int) location + 4);
+        slab.live -= size;
+        garbageBytes += size;
+        // Иначе при сжатии запись по-прежнему указывала бы на себя и считалась живой
+        locations[handle] = -1;
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+        if (slab.live == 0) {
+            recycle(slab);
+        }
+    }
+
+    // Переносит живые записи слаба в активный и освобождает слаб
+    private void evacuate(Slab slab) {
+        int offset = 0;
+        while (offset < slab.end) {
+            int handle = slab.buffer.getInt(offset);
+            int size = HEADER_SIZE + slab.buffer.getInt(offset + 4);
+            if (locations[handle] == locationOf(slab, offset)) {
+                Slab target = slabFor(size);
+                target.buffer.put(target.end, slab.buffer, offset, size);
+                locations[handle] = locationOf(target, target.end);
+                target.end += size;
+                target.live += size;
+                slab.live -= size;
+                garbageBytes += size;
+            }
+            offset += size;
+        }
+        recycle(slab);
+    }
+
+    private void recycle(Slab slab) {
+        garbageBytes -= slab.end - slab.live;
+        compactAt = Math.min(compactAt, garbageBytes + slabSize);
+        slab.end = 0;
+        slab.live = 0;
+        if (slab == active) {
+            return;
+        }
+        int spares = 0;
+        for (Slab other : slabs) {
+            if (other != null && other != active && other != slab && other.end == 0) {
+                spares++;
+            }
+        }
+        if (slab.buffer.capacity() != slabSize || spares >= SPARE_SLABS) {
+            slabs.set(slab.index, null);
+        }
+    }
+
+    // Запись длиннее слаба получает отдельный слаб своего размера
+    private Slab slabFor(int size) {
+        if (size > slabSize) {
+            return newSlab(size);
+        }
+        if (active != null && active.buffer.capacity() - active.end >= size) {
+            return active;
+        }
+        for (Slab slab : slabs) {
+            if (slab != null && slab != active && slab.end == 0 && slab.buffer.capacity() == slabSize) {
+                active = slab;
+                return active;
+            }
+        }
+        active = newSlab(slabSize);
+        return active;
+    }
+
+    private Slab newSlab(int capacity) {
+        int index = slabs.indexOf(null);
+        if (index < 0) {
+            index = slabs.size();
+            slabs.add(null);
+        }
+        Slab slab = new Slab(ByteBuffer.allocateDirect(capacity), index);
+        slabs.set(index, slab);
+        return slab;
+    }
+
+    private int newHandle() {
+        if (freeCount > 0) {
+            return freeHandles[--freeCount];
+        }
+        if (nextHandle == locations.length) {
+            locations = Arrays.copyOf(locations, nextHandle * 2);
+        }
+        return nextHandle++;
+    }
+
+    private static long locationOf(Slab slab, int offset) {
+        return (long) slab.index << 32 | offset;
+    }
+
+    private static final class Slab {
+        private final ByteBuffer buffer;
+        private final int index;
+        private int end;
+        private int live;
+
+        private Slab(ByteBuffer buffer, int index) {
+            this.buffer = buffer;
+            this.index = index;
+        }
+    }
+}
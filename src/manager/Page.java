@@ -0,0 +1,30 @@
+package manager;
+
+import java.util.Collections;
+import java.util.List;
+
+// Страница выборки по возрастанию id; следующую страницу запрашивают с getNextCursor()
+public final class Page<T> {
+
+    private final List<T> items;
+    private final int nextCursor;
+    private final boolean hasNext;
+
+    Page(List<T> items, int nextCursor, boolean hasNext) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
@@ -0,0 +1,174 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Неизменяемое отображение int -> значение: префиксное дерево по 5 бит ключа, начиная со старших, с узлами
+ * на битовых масках. put и remove возвращают новое отображение, копируя только путь от корня к ключу
+ * (для миллиона id - 4 узла), остальные узлы общие со старой версией. Поэтому версия читается без
+ * блокировок сколько угодно долго, а ненужные версии просто собирает GC.
+ * Высота дерева растёт вместе с наибольшим ключом, а обход идёт по возрастанию ключей.
+ */
+final class PersistentIntMap<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int MAX_SHIFT = 30;
+
+    private static final PersistentIntMap<Object> EMPTY = new PersistentIntMap<>(null, 0, 0);
+
+    private final Node root;
+    // Сдвиг уровня корня: ключи до 2^(shift + 5) помещаются без роста дерева
+    private final int shift;
+    private final int size;
+
+    private PersistentIntMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        if (key < 0 || root == null || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = bitFor(key, level);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[indexOf(node.bitmap, bit)];
+            if (level == 0) {
+                return (V) child;
+            }
+            node = (Node) child;
+        }
+    }
+
+    PersistentIntMap<V> put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative keys are not supported");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        Node grown = root;
+        int rootShift = shift;
+        while (!fits(key, rootShift)) {
+            // Прежнее дерево становится нулевым потомком: у его ключей старшие 5 бит нового уровня равны нулю
+            if (grown != null) {
+                grown = new Node(1, new Object[]{grown});
+            }
+            rootShift += BITS;
+        }
+        boolean added = get(key) == null;
+        return new PersistentIntMap<>(put(grown, rootShift, key, value), rootShift, added ? size + 1 : size);
+    }
+
+    PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentIntMap<>(remove(root, shift, key), shift, size - 1);
+    }
+
+    // Значения по возрастанию ключей
+    List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        collect(root, shift, values);
+        return values;
+    }
+
+    private static Node put(Node node, int level, int key, Object value) {
+        int bit = bitFor(key, level);
+        if (node == null) {
+            return new Node(bit, new Object[]{level == 0 ? value : put(null, level - BITS, key, value)});
+        }
+        int index = indexOf(node.bitmap, bit);
+        if ((node.bitmap & bit) != 0) {
+            Object[] children = node.children.clone();
+            children[index] = level == 0 ? value : put((Node) children[index], level - BITS, key, value);
+            return new Node(node.bitmap, children);
+        }
+        Object[] children = new Object[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        children[index] = level == 0 ? value : put(null, level - BITS, key, value);
+        System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+        return new Node(node.bitmap | bit, children);
+    }
+
+    // Вызывается только для существующего ключа; опустевший узел заменяется на null
+    private static Node remove(Node node, int level, int key) {
+        int bit = bitFor(key, level);
+        int index = indexOf(node.bitmap, bit);
+        if (level > 0) {
+            Node child = remove((Node) node.children[index], level - BITS, key);
+            if (child != null) {
+                Object[] children = node.children.clone();
+                children[index] = child;
+                return new Node(node.bitmap, children);
+            }
+        }
+        if (node.children.length == 1) {
+            return null;
+        }
+        Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, index);
+        System.arraycopy(node.children, index + 1, children, index, children.length - index);
+        return new Node(node.bitmap & ~bit, children);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void collect(Node node, int level, List<V> values) {
+        if (node == null) {
+            return;
+        }
+        if (level == 0) {
+            values.addAll((List<V>) Arrays.asList(node.children));
+            return;
+        }
+        for (Object child : node.children) {
+            collect((Node) child, level - BITS, values);
+        }
+    }
+
+    private static boolean fits(int key, int shift) {
+        return shift >= MAX_SHIFT || key >>> (shift + BITS) == 0;
+    }
+
+    private static int bitFor(int key, int level) {
+        return 1 << ((key >>> level) & MASK);
+    }
+
+    // Позиция потомка в плотном массиве - число занятых младших битов маски
+    private static int indexOf(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static final class Node {
+        final int bitmap;
+        final Object[] children;
+
+        Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package manager;
+
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.Collection;
+
+/*
+ * Пути доступа, которые менеджер открывает планировщику TaskQuery. Элементы отдаются без записи в историю
+ * просмотров. Если индекса у менеджера нет, его оценка -1 и планировщик этот путь не рассматривает.
+ */
+interface QueryAccess {
+
+    // Элемент любого вида или null
+    Task peek(int id);
+
+    Collection<Subtask> subtasksOf(int epicId);
+
+    // Число элементов вида с этим статусом или -1, если индекса статусов нет
+    int countWithStatus(ItemType itemType, Status status);
+
+    Collection<? extends Task> withStatus(ItemType itemType, Status status);
+
+    // Число элементов со словом, которое начинается на term, не больше limit, или -1, если поискового индекса нет
+    int countPrefix(String term, int limit);
+
+    Collection<Integer> prefixIds(String term);
+}
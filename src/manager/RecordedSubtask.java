@@ -0,0 +1,13 @@
+package manager;
+
+import task.Status;
+
+final class RecordedSubtask {
+    final int epicId;
+    final Status status;
+
+    RecordedSubtask(int epicId, Status status) {
+        this.epicId = epicId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,150 @@
+package manager;
+
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/*
+ * Расписание задач и подзадач: интервалы [начало, конец) без пересечений, упорядоченные по началу, концу и id.
+ * Раз интервалы не пересекаются, их концы в этом порядке не убывают. Поэтому среди интервалов, начавшихся
+ * раньше конца нового, дальше всех заканчивается последний, и пересечение с любым из них проверяется одним
+ * поиском по дереву за O(log n), а не обходом всех элементов.
+ * Элементы без начала в дерево не входят, но их продолжительность тоже хранится здесь: менеджеры, которые
+ * не держат объекты задач, читают время отсюда. Не потокобезопасно.
+ */
+final class Schedule {
+
+    // id ещё не созданного элемента; пакет новых элементов получает id NO_ID, NO_ID - 1 и так далее
+    static final int NO_ID = -1;
+
+    private final TreeSet<Slot> slots = new TreeSet<>();
+    private final IntObjectMap<Slot> byId = new IntObjectMap<>();
+
+    int size() {
+        return slots.size();
+    }
+
+    // Бросает TaskOverlapException, если item под этим id пересёкся бы с другим элементом; свой интервал не мешает
+    void check(int id, Task item) {
+        LocalDateTime start = item.getStartTime();
+        if (start != null) {
+            Slot conflict = findConflict(id, start, item.getEndTime());
+            if (conflict != null) {
+                throw new TaskOverlapException((id < 0 ? "Новая задача" : "Задача " + id)
+                        + " пересекается по времени с задачей " + conflict.id);
+            }
+        }
+    }
+
+    // Проверяет и записывает время item под id, заменяя прежнее
+    void put(int id, Task item) {
+        check(id, item);
+        Slot slot = item.getStartTime() == null && item.getDuration() == null ? null
+                : new Slot(id, item.getStartTime(), item.getDuration(), item.getEndTime());
+        replace(id, slot);
+    }
+
+    /*
+     * Пакет проверяется пробной расстановкой: элементы ставятся по очереди, поэтому учитываются и пересечения
+     * внутри пакета, а затем прежнее расписание восстанавливается, даже если проверка не прошла.
+     */
+    void checkAll(List<? extends Task> items, boolean newItems) {
+        List<Slot> replaced = new ArrayList<>(items.size());
+        int placed = 0;
+        try {
+            for (Task item : items) {
+                int id = newItems ? NO_ID - placed : item.getId();
+                Slot previous = byId.get(id);
+                put(id, item);
+                replaced.add(previous);
+                placed++;
+            }
+        } finally {
+            for (int i = placed - 1; i >= 0; i--) {
+                Task item = items.get(i);
+                replace(newItems ? NO_ID - i : item.getId(), replaced.get(i));
+            }
+        }
+    }
+
+    void remove(int id) {
+        replace(id, null);
+    }
+
+    void clear() {
+        slots.clear();
+        byId.clear();
+    }
+
+    LocalDateTime startOf(int id) {
+        Slot slot = byId.get(id);
+        return slot == null ? null : slot.start;
+    }
+
+    Duration durationOf(int id) {
+        Slot slot = byId.get(id);
+        return slot == null ? null : slot.duration;
+    }
+
+    // id запланированных элементов по возрастанию начала
+    List<Integer> ids() {
+        List<Integer> ids = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            ids.add(slot.id);
+        }
+        return ids;
+    }
+
+    // Последний интервал, начавшийся раньше end, и если это свой же интервал - предыдущий перед ним
+    private Slot findConflict(int id, LocalDateTime start, LocalDateTime end) {
+        Slot candidate = slots.lower(Slot.probe(end));
+        if (candidate != null && candidate.id == id) {
+            candidate = slots.lower(candidate);
+        }
+        return candidate != null && candidate.end.isAfter(start) ? candidate : null;
+    }
+
+    private void replace(int id, Slot slot) {
+        Slot previous = slot == null ? byId.remove(id) : byId.put(id, slot);
+        if (previous != null && previous.start != null) {
+            slots.remove(previous);
+        }
+        if (slot != null && slot.start != null) {
+            slots.add(slot);
+        }
+    }
+
+    // Неизменяемая копия времени элемента: объект задачи могут поменять снаружи, а ключ в дереве меняться не должен
+    private static final class Slot implements Comparable<Slot> {
+        final int id;
+        final LocalDateTime start;
+        final Duration duration;
+        final LocalDateTime end;
+
+        Slot(int id, LocalDateTime start, Duration duration, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.duration = duration;
+            this.end = end;
+        }
+
+        // Ключ поиска меньше любого интервала, который начинается в start или позже
+        static Slot probe(LocalDateTime start) {
+            return new Slot(Integer.MIN_VALUE, start, null, LocalDateTime.MIN);
+        }
+
+        @Override
+        public int compareTo(Slot other) {
+            int byStart = start.compareTo(other.start);
+            if (byStart != 0) {
+                return byStart;
+            }
+            int byEnd = end.compareTo(other.end);
+            return byEnd != 0 ? byEnd : Integer.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package manager;
+
+import task.Task;
+
+import java.util.*;
+
+// Инвертированный индекс по словам названия и описания; слова запроса ищутся как префиксы
+final class SearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_BONUS = 2;
+
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<Integer, String[]> indexedTerms = new HashMap<>();
+
+    void put(Task item) {
+        remove(item.getId());
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(item.getName())) {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(item.getDescription())) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(item.getId(), entry.getValue());
+        }
+        indexedTerms.put(item.getId(), weights.keySet().toArray(new String[0]));
+    }
+
+    void remove(int id) {
+        String[] terms = indexedTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Integer, Integer> ids = postings.get(term);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        indexedTerms.clear();
+    }
+
+    // Возвращает id, в которых нашлись все слова запроса, по убыванию релевантности, затем по id
+    List<Integer> search(String query, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative");
+        }
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit == 0) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> scores = null;
+        for (String queryTerm : new LinkedHashSet<>(queryTerms)) {
+            Map<Integer, Integer> termScores = new HashMap<>();
+            SortedMap<String, Map<Integer, Integer>> matches = postings.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+            for (Map.Entry<String, Map<Integer, Integer>> match : matches.entrySet()) {
+                int bonus = match.getKey().equals(queryTerm) ? EXACT_MATCH_BONUS : 1;
+                for (Map.Entry<Integer, Integer> posting : match.getValue().entrySet()) {
+                    if (scores == null || scores.containsKey(posting.getKey())) {
+                        termScores.merge(posting.getKey(), posting.getValue() * bonus, Integer::sum);
+                    }
+                }
+            }
+            if (scores != null) {
+                for (Map.Entry<Integer, Integer> entry : termScores.entrySet()) {
+                    entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+                }
+            }
+            scores = termScores;
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        return topIds(scores, offset, limit);
+    }
+
+    /*
+     * Оценка для планировщика TaskQuery: сколько id стоит в списках слов с префиксом term. Элемент с несколькими
+     * такими словами считается несколько раз. Счёт останавливается на limit, чтобы короткий префикс
+     * не обходил весь словарь, когда уже есть путь дешевле.
+     */
+    int countPrefix(String term, int limit) {
+        int count = 0;
+        for (Map<Integer, Integer> ids : postings.subMap(term, term + Character.MAX_VALUE).values()) {
+            count += ids.size();
+            if (count >= limit) {
+                return limit;
+            }
+        }
+        return count;
+    }
+
+    // id элементов со словом, начинающимся с term, без ранжирования; при одном таком слове - его список без копии
+    Collection<Integer> prefixIds(String term) {
+        Iterator<Map<Integer, Integer>> matches = postings.subMap(term, term + Character.MAX_VALUE).values().iterator();
+        if (!matches.hasNext()) {
+            return Collections.emptySet();
+        }
+        Map<Integer, Integer> first = matches.next();
+        if (!matches.hasNext()) {
+            return Collections.unmodifiableSet(first.keySet());
+        }
+        Set<Integer> ids = new HashSet<>(first.keySet());
+        while (matches.hasNext()) {
+            ids.addAll(matches.next().keySet());
+        }
+        return ids;
+    }
+
+    /*
+     * Очки одного слова запроса для текста, как их посчитал бы search: каждое слово текста с этим префиксом
+     * добавляет 1, совпавшее целиком - EXACT_MATCH_BONUS. Очки элемента - weigh(очки названия, очки описания).
+     * Слова сравниваются посимвольно без выделения памяти, потому что CompactTaskManager вызывает это
+     * для каждой строки словаря на каждый запрос.
+     */
+    static int termScore(String text, String queryTerm) {
+        if (text == null) {
+            return 0;
+        }
+        int score = 0;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                score += wordScore(text, start, i, queryTerm);
+                start = -1;
+            }
+        }
+        return score;
+    }
+
+    private static int wordScore(String text, int start, int end, String queryTerm) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            // У этих букв toLowerCase строки отличается от посимвольного, сравниваем как tokenize
+            if (c == '\u0130' || c == '\u03a3') {
+                String term = text.substring(start, end).toLowerCase(Locale.ROOT);
+                if (!term.startsWith(queryTerm)) {
+                    return 0;
+                }
+                return term.length() == queryTerm.length() ? EXACT_MATCH_BONUS : 1;
+            }
+        }
+        if (end - start < queryTerm.length()) {
+            return 0;
+        }
+        for (int k = 0; k < queryTerm.length(); k++) {
+            if (Character.toLowerCase(text.charAt(start + k)) != queryTerm.charAt(k)) {
+                return 0;
+            }
+        }
+        return end - start == queryTerm.length() ? EXACT_MATCH_BONUS : 1;
+    }
+
+    static int weigh(int nameScore, int descriptionScore) {
+        return nameScore * NAME_WEIGHT + descriptionScore * DESCRIPTION_WEIGHT;
+    }
+
+    static List<Integer> topIds(Map<Integer, Integer> scores, int offset, int limit) {
+        Comparator<Map.Entry<Integer, Integer>> byRelevance = Map.Entry.<Integer, Integer>comparingByValue()
+                .reversed().thenComparing(Map.Entry.comparingByKey());
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        // Держим только нужную страницу в куче, чтобы не сортировать все совпадения
+        PriorityQueue<Map.Entry<Integer, Integer>> top = new PriorityQueue<>(byRelevance.reversed());
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            top.add(entry);
+            if (top.size() > wanted) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ordered = new ArrayList<>(top);
+        ordered.sort(byRelevance);
+        List<Integer> page = new ArrayList<>();
+        for (int i = offset; i < ordered.size(); i++) {
+            page.add(ordered.get(i).getKey());
+        }
+        return page;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,61 @@
+package manager;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Задачи, которые открывали повторно, переходят в защищённый сегмент и вытесняются
+// только после всех задач, просмотренных один раз. capacity - ёмкость истории, её передаёт сама история:
+// Managers.getDefaultHistory(capacity, SegmentedLruEvictionPolicy::new)
+public final class SegmentedLruEvictionPolicy implements EvictionPolicy {
+
+    private final Set<Integer> probation = new LinkedHashSet<>();
+    private final Set<Integer> protectedSegment = new LinkedHashSet<>();
+    private final int protectedCapacity;
+
+    public SegmentedLruEvictionPolicy(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.protectedCapacity = Math.min(capacity * 4 / 5, capacity - 1);
+    }
+
+    @Override
+    public void recordAccess(int id) {
+        if (protectedSegment.remove(id)) {
+            protectedSegment.add(id);
+        } else if (probation.remove(id) && protectedCapacity > 0) {
+            protectedSegment.add(id);
+            if (protectedSegment.size() > protectedCapacity) {
+                probation.add(pollEldest(protectedSegment));
+            }
+        } else {
+            probation.add(id);
+        }
+    }
+
+    @Override
+    public void recordRemoval(int id) {
+        if (!probation.remove(id)) {
+            protectedSegment.remove(id);
+        }
+    }
+
+    @Override
+    public int selectVictim(int leastRecentlyViewedId) {
+        if (!probation.isEmpty()) {
+            return probation.iterator().next();
+        }
+        if (!protectedSegment.isEmpty()) {
+            return protectedSegment.iterator().next();
+        }
+        return leastRecentlyViewedId;
+    }
+
+    private static int pollEldest(Set<Integer> segment) {
+        Iterator<Integer> iterator = segment.iterator();
+        int id = iterator.next();
+        iterator.remove();
+        return id;
+    }
+}
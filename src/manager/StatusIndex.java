@@ -0,0 +1,52 @@
+package manager;
+
+import task.Status;
+import task.Task;
+
+import java.util.*;
+
+// Хранит элементы по статусу, с которым они были записаны, чтобы выборка стоила O(размер результата)
+final class StatusIndex<T extends Task> {
+
+    private final Map<Status, Map<Integer, T>> byStatus = new EnumMap<>(Status.class);
+    private final Map<Integer, Status> indexedStatus = new HashMap<>();
+
+    StatusIndex() {
+        for (Status status : Status.values()) {
+            byStatus.put(status, new HashMap<>());
+        }
+    }
+
+    // Возвращает статус, с которым элемент был записан раньше, или null для нового
+    Status put(T item) {
+        Status status = EpicStatusCounter.normalize(item.getStatus());
+        Status previous = indexedStatus.put(item.getId(), status);
+        if (previous != null && previous != status) {
+            byStatus.get(previous).remove(item.getId());
+        }
+        byStatus.get(status).put(item.getId(), item);
+        return previous;
+    }
+
+    void remove(int id) {
+        Status previous = indexedStatus.remove(id);
+        if (previous != null) {
+            byStatus.get(previous).remove(id);
+        }
+    }
+
+    void clear() {
+        indexedStatus.clear();
+        for (Map<Integer, T> items : byStatus.values()) {
+            items.clear();
+        }
+    }
+
+    List<T> get(Status status) {
+        return new ArrayList<>(byStatus.get(status).values());
+    }
+
+    int count(Status status) {
+        return byStatus.get(status).size();
+    }
+}
@@ -1,9 +1,11 @@
 package manager;
 
 import task.Epic;
+import task.Status;
 import task.Subtask;
 import task.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TaskManager {
@@ -46,4 +48,73 @@ public interface TaskManager {
     void deleteSubtask(int subtaskId);
 
     List<Task> getHistory();
-}
\ No newline at end of file
+
+    // Пакетные операции: при ошибке в любом элементе пакет не применяется
+    List<Task> createTasks(List<Task> tasks);
+
+    List<Epic> createEpics(List<Epic> epics);
+
+    List<Subtask> createSubtasks(List<Subtask> subtasks);
+
+    List<Task> updateTasks(List<Task> tasks);
+
+    List<Epic> updateEpics(List<Epic> epics);
+
+    List<Subtask> updateSubtasks(List<Subtask> subtasks);
+
+    void deleteTasks(Collection<Integer> taskIds);
+
+    void deleteEpics(Collection<Integer> epicIds);
+
+    void deleteSubtasks(Collection<Integer> subtaskIds);
+
+    // Выборки по статусу
+    List<Task> getTasksByStatus(Status status);
+
+    List<Epic> getEpicsByStatus(Status status);
+
+    List<Subtask> getSubtasksByStatus(Status status);
+
+    // Поиск по словам названия и описания среди задач, эпиков и подзадач
+    List<Task> search(String query, int offset, int limit);
+
+    /*
+     * Задачи и подзадачи с заданным началом по возрастанию начала. Их интервалы не пересекаются: создание
+     * или обновление, которое пересеклось бы с уже запланированным, отклоняется с TaskOverlapException
+     * за O(log n), пакет - целиком. Время эпика выводится из подзадач, поэтому эпиков в списке нет.
+     */
+    List<Task> getPrioritizedTasks();
+
+    // Живые представления без копирования: только для чтения и сразу отражают изменения
+    Collection<Task> getTasksView();
+
+    Collection<Epic> getEpicsView();
+
+    Collection<Subtask> getSubtasksView();
+
+    Collection<Task> getHistoryView();
+
+    /*
+     * Постраничный обход по возрастанию id начиная с cursor (первая страница - с 0).
+     * Между страницами хранилище может меняться: элемент, который существовал всё время обхода,
+     * вернётся ровно один раз, а созданные или удалённые по ходу обхода могут попасть или не попасть.
+     */
+    Page<Task> getTasksPage(int cursor, int limit);
+
+    Page<Epic> getEpicsPage(int cursor, int limit);
+
+    Page<Subtask> getSubtasksPage(int cursor, int limit);
+
+    /*
+     * Поток изменений: подписка получает события всех изменений после подписки, включая каскадные удаления
+     * подзадач и пересчёт статуса эпиков. Запись в менеджер не ждёт подписчиков, отставший теряет старые события.
+     */
+    ChangeSubscription subscribe();
+
+    /*
+     * Неизменяемый срез задач, эпиков и подзадач за O(1): его можно читать сколько угодно долго, пока запись
+     * идёт дальше, и ни одна операция, включая каскадные удаления, не видна в нём наполовину.
+     * Первый вызов включает ведение версий и строит срез за O(n), до этого запись ничего не платит.
+     */
+    TaskSnapshot getSnapshot();
+}
@@ -0,0 +1,10 @@
+package manager;
+
+// Элемент пересёкся бы по времени с уже запланированным; менеджер при этом не меняется
+public class TaskOverlapException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public TaskOverlapException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,457 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/*
+ * Запрос к TaskManager из условий, соединённых через "и", например подзадачи эпика не в статусе DONE
+ * с названием на "API":
+ *     TaskQuery.subtasks().epic(epicId).statusNot(Status.DONE).nameStartsWith("API").build()
+ * build() компилирует условия один раз: готовый запрос неизменяем и выполняется сколько угодно раз на любых
+ * менеджерах. Перед каждым выполнением планировщик оценивает, сколько кандидатов даст каждый путь доступа -
+ * id, подзадачи эпика, индекс статусов, поисковый индекс или полный проход, - берёт путь с наименьшей оценкой
+ * и проверяет на кандидатах только оставшиеся условия. Пути доступа менеджер открывает через QueryAccess:
+ * путь, который менеджер оценить не может, не рассматривается, а у менеджера без QueryAccess запрос проходит
+ * все элементы своего вида. Результат - по возрастанию id, история просмотров не меняется.
+ */
+public final class TaskQuery<T extends Task> {
+
+    private static final ItemType[] ALL_TYPES = ItemType.values();
+
+    // null - элементы любого вида
+    private final ItemType itemType;
+    // По возрастанию стоимости проверки: сначала сравнения чисел, затем строк, последними - свои условия
+    private final Condition[] conditions;
+    // residuals[i] проверяет кандидатов пути условия i, residuals[conditions.length] - кандидатов полного прохода
+    private final Predicate<Task>[] residuals;
+    private final Predicate<Task> predicate;
+
+    @SuppressWarnings("unchecked")
+    private TaskQuery(ItemType itemType, List<Condition> conditions) {
+        this.itemType = itemType;
+        this.conditions = conditions.toArray(new Condition[0]);
+        Arrays.sort(this.conditions, Comparator.comparingInt(condition -> condition.cost));
+        residuals = (Predicate<Task>[]) new Predicate<?>[this.conditions.length + 1];
+        for (int i = 0; i < this.conditions.length; i++) {
+            residuals[i] = compile(checksType(i), skippedBy(i));
+        }
+        residuals[this.conditions.length] = compile(false, -1);
+        predicate = compile(itemType != null, -1);
+    }
+
+    // Элементы любого вида: задачи, эпики и подзадачи
+    public static Builder<Task> any() {
+        return new Builder<>(null);
+    }
+
+    public static Builder<Task> tasks() {
+        return new Builder<>(ItemType.TASK);
+    }
+
+    public static Builder<Epic> epics() {
+        return new Builder<>(ItemType.EPIC);
+    }
+
+    public static Builder<Subtask> subtasks() {
+        return new Builder<>(ItemType.SUBTASK);
+    }
+
+    public List<T> run(TaskManager manager) {
+        return execute(manager, plan(manager, null));
+    }
+
+    // Подходит ли элемент под запрос: то же скомпилированное условие, например для фильтра потока изменений
+    public boolean matches(Task item) {
+        return predicate.test(item);
+    }
+
+    /*
+     * План для текущего содержимого менеджера: выбранный путь с оценкой числа кандидатов, условия,
+     * которые проверяются на кандидатах, и оценки всех рассмотренных путей.
+     */
+    public String explain(TaskManager manager) {
+        StringBuilder considered = new StringBuilder();
+        Plan plan = plan(manager, considered);
+        StringBuilder out = new StringBuilder(toString()).append('\n');
+        out.append("access: ").append(plan.condition < 0 ? "full scan" : conditions[plan.condition].path())
+                .append(", ~").append(plan.estimate).append(" rows\n");
+        StringJoiner filter = new StringJoiner(" and ");
+        if (plan.condition >= 0 && checksType(plan.condition)) {
+            filter.add("type = " + itemType);
+        }
+        int skipped = plan.condition < 0 ? -1 : skippedBy(plan.condition);
+        for (int i = 0; i < conditions.length; i++) {
+            if (i != skipped) {
+                filter.add(conditions[i].description);
+            }
+        }
+        out.append("filter: ").append(filter.length() == 0 ? "none" : filter.toString()).append('\n');
+        return out.append("considered: ").append(considered).toString();
+    }
+
+    @Override
+    public String toString() {
+        String name = itemType == null ? "items" : itemType.name().toLowerCase(Locale.ROOT) + "s";
+        StringJoiner where = new StringJoiner(" and ", name + " where ", "");
+        where.setEmptyValue(name);
+        for (Condition condition : conditions) {
+            where.add(condition.description);
+        }
+        return where.toString();
+    }
+
+    /*
+     * Полный проход - путь по умолчанию; путь индекса выбирается, только если обещает меньше кандидатов.
+     * Оценка поискового индекса считается не дальше лучшей из уже найденных, поэтому короткий префикс
+     * не обходит весь словарь.
+     */
+    private Plan plan(TaskManager manager, StringBuilder considered) {
+        int best = -1;
+        int bestEstimate = 0;
+        for (ItemType type : types()) {
+            bestEstimate += view(manager, type).size();
+        }
+        int scanEstimate = bestEstimate;
+        if (manager instanceof QueryAccess) {
+            QueryAccess access = (QueryAccess) manager;
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].access != null) {
+                    int estimate = estimate(access, conditions[i], bestEstimate);
+                    if (estimate < 0) {
+                        continue;
+                    }
+                    if (considered != null) {
+                        boolean capped = conditions[i].access == Access.TEXT && estimate >= bestEstimate;
+                        considered.append(conditions[i].path()).append(capped ? " >=" : " ~").append(estimate)
+                                .append(", ");
+                    }
+                    if (estimate < bestEstimate) {
+                        best = i;
+                        bestEstimate = estimate;
+                    }
+                }
+            }
+        }
+        if (considered != null) {
+            considered.append("full scan ~").append(scanEstimate);
+        }
+        return new Plan(best, bestEstimate);
+    }
+
+    // -1 - менеджер не может оценить путь
+    private int estimate(QueryAccess access, Condition condition, int limit) {
+        switch (condition.access) {
+            case ID:
+                return access.peek(condition.value) == null ? 0 : 1;
+            case EPIC:
+                return access.subtasksOf(condition.value).size();
+            case STATUS:
+                int count = 0;
+                for (ItemType type : types()) {
+                    for (Status status : condition.statuses) {
+                        int found = access.countWithStatus(type, status);
+                        if (found < 0) {
+                            return -1;
+                        }
+                        count += found;
+                    }
+                }
+                return count;
+            default:
+                return access.countPrefix(condition.term, limit);
+        }
+    }
+
+    private List<T> execute(TaskManager manager, Plan plan) {
+        List<T> result = new ArrayList<>();
+        if (plan.condition < 0) {
+            Predicate<Task> residual = residuals[conditions.length];
+            for (ItemType type : types()) {
+                collect(result, view(manager, type), residual);
+            }
+        } else {
+            QueryAccess access = (QueryAccess) manager;
+            Condition condition = conditions[plan.condition];
+            Predicate<Task> residual = residuals[plan.condition];
+            switch (condition.access) {
+                case ID:
+                    Task item = access.peek(condition.value);
+                    if (item != null) {
+                        collect(result, List.of(item), residual);
+                    }
+                    break;
+                case EPIC:
+                    collect(result, access.subtasksOf(condition.value), residual);
+                    break;
+                case STATUS:
+                    for (ItemType type : types()) {
+                        for (Status status : condition.statuses) {
+                            collect(result, access.withStatus(type, status), residual);
+                        }
+                    }
+                    break;
+                default:
+                    // Элемент могли удалить после чтения индекса - такой пропускается
+                    Collection<Integer> ids = access.prefixIds(condition.term);
+                    List<Task> candidates = new ArrayList<>(ids.size());
+                    for (int id : ids) {
+                        Task candidate = access.peek(id);
+                        if (candidate != null) {
+                            candidates.add(candidate);
+                        }
+                    }
+                    collect(result, candidates, residual);
+            }
+        }
+        result.sort(Comparator.comparingInt(Task::getId));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void collect(List<T> result, Collection<? extends Task> candidates, Predicate<Task> residual) {
+        for (Task item : candidates) {
+            if (residual.test(item)) {
+                result.add((T) item);
+            }
+        }
+    }
+
+    // Путь по id и поисковому индексу даёт элементы любого вида, остальные - только нужного
+    private boolean checksType(int condition) {
+        Access access = conditions[condition].access;
+        return itemType != null && (access == Access.ID || access == Access.TEXT);
+    }
+
+    // Условие, которое путь выполняет точно, на кандидатах не проверяется; префикс названия ищется как слово - неточно
+    private int skippedBy(int condition) {
+        return conditions[condition].exact ? condition : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate<Task> compile(boolean checkType, int skipped) {
+        List<Predicate<Task>> tests = new ArrayList<>();
+        if (checkType) {
+            ItemType expected = itemType;
+            tests.add(item -> typeOf(item) == expected);
+        }
+        for (int i = 0; i < conditions.length; i++) {
+            if (i != skipped) {
+                tests.add(conditions[i].test);
+            }
+        }
+        switch (tests.size()) {
+            case 0:
+                return item -> true;
+            case 1:
+                return tests.get(0);
+            default:
+                Predicate<Task>[] all = (Predicate<Task>[]) tests.toArray(new Predicate<?>[0]);
+                return item -> {
+                    for (Predicate<Task> test : all) {
+                        if (!test.test(item)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+        }
+    }
+
+    private ItemType[] types() {
+        return itemType == null ? ALL_TYPES : new ItemType[]{itemType};
+    }
+
+    private static Collection<? extends Task> view(TaskManager manager, ItemType type) {
+        switch (type) {
+            case TASK:
+                return manager.getTasksView();
+            case EPIC:
+                return manager.getEpicsView();
+            default:
+                return manager.getSubtasksView();
+        }
+    }
+
+    private static ItemType typeOf(Task item) {
+        if (item instanceof Subtask) {
+            return ItemType.SUBTASK;
+        }
+        return item instanceof Epic ? ItemType.EPIC : ItemType.TASK;
+    }
+
+    public static final class Builder<T extends Task> {
+
+        private final ItemType itemType;
+        private final List<Condition> conditions = new ArrayList<>();
+
+        private Builder(ItemType itemType) {
+            this.itemType = itemType;
+        }
+
+        public Builder<T> id(int id) {
+            conditions.add(new Condition(Access.ID, 0, id, null, null, true, "id = " + id,
+                    item -> item.getId() == id));
+            return this;
+        }
+
+        // Подзадачи эпика; у запроса any() условие оставляет только подзадачи
+        public Builder<T> epic(int epicId) {
+            if (itemType == ItemType.TASK || itemType == ItemType.EPIC) {
+                throw new IllegalArgumentException("Only subtasks belong to an epic");
+            }
+            conditions.add(new Condition(Access.EPIC, 1, epicId, null, null, true, "epic = " + epicId,
+                    item -> item instanceof Subtask && ((Subtask) item).getEpicId() == epicId));
+            return this;
+        }
+
+        public Builder<T> status(Status... statuses) {
+            if (statuses.length == 0) {
+                throw new IllegalArgumentException("At least one status is required");
+            }
+            EnumSet<Status> allowed = EnumSet.copyOf(Arrays.asList(statuses));
+            String description = allowed.size() == 1 ? "status = " + allowed.iterator().next() : "status in " + allowed;
+            return status(allowed, description);
+        }
+
+        public Builder<T> statusNot(Status status) {
+            return status(EnumSet.complementOf(EnumSet.of(status)), "status != " + status);
+        }
+
+        // Начало названия с учётом регистра
+        public Builder<T> nameStartsWith(String prefix) {
+            requireText(prefix);
+            String term = indexTerm(prefix);
+            conditions.add(new Condition(term == null ? null : Access.TEXT, 3, 0, null, term, false,
+                    "name starts with \"" + prefix + "\"",
+                    item -> item.getName() != null && item.getName().startsWith(prefix)));
+            return this;
+        }
+
+        public Builder<T> nameContains(String part) {
+            requireText(part);
+            conditions.add(new Condition(null, 4, 0, null, null, false, "name contains \"" + part + "\"",
+                    item -> item.getName() != null && item.getName().contains(part)));
+            return this;
+        }
+
+        // Как search: каждое слово должно быть началом слова названия или описания, без учёта регистра
+        public Builder<T> matching(String words) {
+            List<String> terms = SearchIndex.tokenize(words);
+            if (terms.isEmpty()) {
+                throw new IllegalArgumentException("Query must contain at least one word");
+            }
+            for (String term : new LinkedHashSet<>(terms)) {
+                conditions.add(new Condition(Access.TEXT, 3, 0, null, term, true, "text matches \"" + term + "\"",
+                        item -> SearchIndex.termScore(item.getName(), term) > 0
+                                || SearchIndex.termScore(item.getDescription(), term) > 0));
+            }
+            return this;
+        }
+
+        // Произвольное условие; проверяется последним и только на кандидатах нужного вида
+        @SuppressWarnings("unchecked")
+        public Builder<T> where(Predicate<? super T> filter) {
+            if (filter == null) {
+                throw new IllegalArgumentException("Filter must not be null");
+            }
+            conditions.add(new Condition(null, 5, 0, null, null, false, "custom filter",
+                    item -> filter.test((T) item)));
+            return this;
+        }
+
+        public TaskQuery<T> build() {
+            return new TaskQuery<>(itemType, conditions);
+        }
+
+        private Builder<T> status(EnumSet<Status> allowed, String description) {
+            conditions.add(new Condition(Access.STATUS, 2, 0, allowed, null, true, description,
+                    item -> allowed.contains(EpicStatusCounter.normalize(item.getStatus()))));
+            return this;
+        }
+
+        private static void requireText(String text) {
+            if (text == null || text.isEmpty()) {
+                throw new IllegalArgumentException("Text must not be empty");
+            }
+        }
+
+        /*
+         * Каждое слово префикса названия - начало слова самого названия, поэтому любое из них годится как слово
+         * поискового индекса; самое длинное обычно самое избирательное. У букв, которые toLowerCase переводит
+         * по-разному в начале слова и в целом слове, совпадение не гарантировано - такой префикс в индекс не идёт.
+         */
+        private static String indexTerm(String prefix) {
+            if (prefix.indexOf('\u0130') >= 0 || prefix.indexOf('\u03a3') >= 0) {
+                return null;
+            }
+            String longest = null;
+            for (String term : SearchIndex.tokenize(prefix)) {
+                if (longest == null || term.length() > longest.length()) {
+                    longest = term;
+                }
+            }
+            return longest;
+        }
+    }
+
+    private enum Access {
+        ID,
+        EPIC,
+        STATUS,
+        TEXT
+    }
+
+    private static final class Condition {
+        // Путь доступа, который может дать кандидатов по этому условию, или null, если только проверка
+        final Access access;
+        final int cost;
+        final int value;
+        final EnumSet<Status> statuses;
+        final String term;
+        // Путь выдаёт ровно подходящие под условие элементы
+        final boolean exact;
+        final String description;
+        final Predicate<Task> test;
+
+        Condition(Access access, int cost, int value, EnumSet<Status> statuses, String term, boolean exact,
+                  String description, Predicate<Task> test) {
+            this.access = access;
+            this.cost = cost;
+            this.value = value;
+            this.statuses = statuses;
+            this.term = term;
+            this.exact = exact;
+            this.description = description;
+            this.test = test;
+        }
+
+        String path() {
+            switch (access) {
+                case ID:
+                    return "id " + value;
+                case EPIC:
+                    return "subtasks of epic " + value;
+                case STATUS:
+                    return "status index " + statuses;
+                default:
+                    return "search index \"" + term + "\"";
+            }
+        }
+    }
+
+    private static final class Plan {
+        // Номер условия, чей путь выбран, или -1 для полного прохода
+        final int condition;
+        final int estimate;
+
+        Plan(int condition, int estimate) {
+            this.condition = condition;
+            this.estimate = estimate;
+        }
+    }
+}
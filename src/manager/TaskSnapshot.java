@@ -0,0 +1,222 @@
+package manager;
+
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Неизменяемый срез задач, эпиков и подзадач на момент вызова TaskManager.getSnapshot(). Хранит замороженные
+ * копии полей, а при каждом чтении собирает новые объекты, поэтому их можно менять, не затрагивая срез.
+ * Статус эпика считается по его подзадачам в этом же срезе. Списки идут по возрастанию id.
+ */
+public final class TaskSnapshot {
+
+    static final TaskSnapshot EMPTY = new TaskSnapshot(PersistentIntMap.empty(), PersistentIntMap.empty(),
+            PersistentIntMap.empty(), 0);
+
+    private final PersistentIntMap<Record> tasks;
+    private final PersistentIntMap<Record> epics;
+    private final PersistentIntMap<Record> subtasks;
+    private final long version;
+
+    private TaskSnapshot(PersistentIntMap<Record> tasks, PersistentIntMap<Record> epics,
+                         PersistentIntMap<Record> subtasks, long version) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.version = version;
+    }
+
+    // Номер версии: растёт с каждым применённым к срезам изменением
+    public long getVersion() {
+        return version;
+    }
+
+    public Task getTask(int taskId) {
+        Record record = tasks.get(taskId);
+        return record == null ? null : toTask(taskId, record);
+    }
+
+    public Epic getEpic(int epicId) {
+        Record record = epics.get(epicId);
+        return record == null ? null : toEpic(epicId, record);
+    }
+
+    public Subtask getSubtask(int subtaskId) {
+        Record record = subtasks.get(subtaskId);
+        return record == null ? null : toSubtask(subtaskId, record);
+    }
+
+    public List<Task> getTasks() {
+        List<Task> result = new ArrayList<>(tasks.size());
+        for (Record record : tasks.values()) {
+            result.add(toTask(record.id, record));
+        }
+        return result;
+    }
+
+    public List<Epic> getEpics() {
+        List<Epic> result = new ArrayList<>(epics.size());
+        for (Record record : epics.values()) {
+            result.add(toEpic(record.id, record));
+        }
+        return result;
+    }
+
+    public List<Subtask> getSubtasks() {
+        List<Subtask> result = new ArrayList<>(subtasks.size());
+        for (Record record : subtasks.values()) {
+            result.add(toSubtask(record.id, record));
+        }
+        return result;
+    }
+
+    // Подзадачи эпика в порядке добавления или пустой список, если эпика в срезе нет
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        Record epic = epics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        List<Subtask> result = new ArrayList<>(epic.subtaskIds.length);
+        for (int subtaskId : epic.subtaskIds) {
+            result.add(toSubtask(subtaskId, subtasks.get(subtaskId)));
+        }
+        return result;
+    }
+
+    public int getTaskCount() {
+        return tasks.size();
+    }
+
+    public int getEpicCount() {
+        return epics.size();
+    }
+
+    public int getSubtaskCount() {
+        return subtasks.size();
+    }
+
+    /*
+     * Срез с записью элемента (record != null) или без него. Состав эпиков ведётся по подзадачам:
+     * подзадача добавляется в конец своего эпика при создании и переносе, удаляется из него при удалении.
+     */
+    TaskSnapshot apply(ItemType itemType, int id, Record record) {
+        switch (itemType) {
+            case TASK:
+                return new TaskSnapshot(record == null ? tasks.remove(id) : tasks.put(id, record), epics, subtasks,
+                        version + 1);
+            case EPIC:
+                if (record == null) {
+                    return new TaskSnapshot(tasks, epics.remove(id), subtasks, version + 1);
+                }
+                Record previous = epics.get(id);
+                Record epic = previous == null ? record : record.withSubtasks(previous.subtaskIds);
+                return new TaskSnapshot(tasks, epics.put(id, epic), subtasks, version + 1);
+            default:
+                Record before = subtasks.get(id);
+                PersistentIntMap<Record> members = epics;
+                if (before != null && (record == null || before.epicId != record.epicId)) {
+                    members = changeMembers(members, before.epicId, id, false);
+                }
+                if (record != null && (before == null || before.epicId != record.epicId)) {
+                    members = changeMembers(members, record.epicId, id, true);
+                }
+                return new TaskSnapshot(tasks, members,
+                        record == null ? subtasks.remove(id) : subtasks.put(id, record), version + 1);
+        }
+    }
+
+    private static PersistentIntMap<Record> changeMembers(PersistentIntMap<Record> epics, int epicId,
+                                                          int subtaskId, boolean add) {
+        Record epic = epics.get(epicId);
+        if (epic == null) {
+            return epics;
+        }
+        int[] ids = epic.subtaskIds;
+        if (add) {
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = subtaskId;
+        } else {
+            int[] kept = new int[ids.length];
+            int count = 0;
+            for (int id : ids) {
+                if (id != subtaskId) {
+                    kept[count++] = id;
+                }
+            }
+            ids = Arrays.copyOf(kept, count);
+        }
+        return epics.put(epicId, epic.withSubtasks(ids));
+    }
+
+    private static Task toTask(int id, Record record) {
+        Task task = new Task(record.name, record.description, record.status, record.startTime, record.duration);
+        task.setId(id);
+        return task;
+    }
+
+    private Epic toEpic(int id, Record record) {
+        Epic epic = new Epic(record.name, record.description);
+        epic.setId(id);
+        EpicStatusCounter counter = new EpicStatusCounter();
+        for (int subtaskId : record.subtaskIds) {
+            Subtask subtask = toSubtask(subtaskId, subtasks.get(subtaskId));
+            counter.increment(subtask.getStatus());
+            epic.addSubtask(subtask);
+        }
+        epic.setStatus(counter.getStatus());
+        return epic;
+    }
+
+    private static Subtask toSubtask(int id, Record record) {
+        Subtask subtask = new Subtask(record.name, record.description, record.status, record.epicId,
+                record.startTime, record.duration);
+        subtask.setId(id);
+        return subtask;
+    }
+
+    // Замороженные поля элемента; у эпика ещё id подзадач, у остальных массив пуст, а время эпика выводится из них
+    static final class Record {
+        private static final int[] NO_SUBTASKS = new int[0];
+
+        final int id;
+        final String name;
+        final String description;
+        final Status status;
+        final int epicId;
+        final LocalDateTime startTime;
+        final Duration duration;
+        final int[] subtaskIds;
+
+        private Record(int id, String name, String description, Status status, int epicId,
+                       LocalDateTime startTime, Duration duration, int[] subtaskIds) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.status = status;
+            this.epicId = epicId;
+            this.startTime = startTime;
+            this.duration = duration;
+            this.subtaskIds = subtaskIds;
+        }
+
+        static Record of(Task item) {
+            int epicId = item instanceof Subtask ? ((Subtask) item).getEpicId() : -1;
+            boolean epic = item instanceof Epic;
+            return new Record(item.getId(), item.getName(), item.getDescription(),
+                    EpicStatusCounter.normalize(item.getStatus()), epicId, epic ? null : item.getStartTime(),
+                    epic ? null : item.getDuration(), NO_SUBTASKS);
+        }
+
+        Record withSubtasks(int[] subtaskIds) {
+            return new Record(id, name, description, status, epicId, startTime, duration, subtaskIds);
+        }
+    }
+}
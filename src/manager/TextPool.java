@@ -0,0 +1,131 @@
+package manager;
+
+import java.util.Arrays;
+
+/*
+ * Словарь строк со счётчиком ссылок: одинаковые названия и описания хранятся один раз,
+ * а элементы держат только номер строки. Номер 0 означает null.
+ * Поиск строки - открытая адресация по номерам, как в IntObjectMap; номера освобождённых строк
+ * используются повторно, поэтому массивы не растут при перезаписи текстов.
+ */
+final class TextPool {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] texts = new String[MIN_CAPACITY];
+    private int[] refCounts = new int[MIN_CAPACITY];
+    private int[] freeRefs = new int[MIN_CAPACITY];
+    private int freeCount;
+    private int nextRef = 1;
+    private int size;
+    private int[] table;
+    private int mask;
+    private int resizeAt;
+
+    TextPool() {
+        allocate(MIN_CAPACITY);
+    }
+
+    // Возвращает номер строки и увеличивает её счётчик ссылок
+    int acquire(String text) {
+        if (text == null) {
+            return 0;
+        }
+        int slot = slotOf(text);
+        for (int ref; (ref = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (texts[ref].equals(text)) {
+                refCounts[ref]++;
+                return ref;
+            }
+        }
+        int ref = freeCount > 0 ? freeRefs[--freeCount] : newRef();
+        texts[ref] = text;
+        refCounts[ref] = 1;
+        table[slot] = ref;
+        if (++size > resizeAt) {
+            rehash(table.length * 2);
+        }
+        return ref;
+    }
+
+    void release(int ref) {
+        if (ref == 0 || --refCounts[ref] > 0) {
+            return;
+        }
+        int slot = slotOf(texts[ref]);
+        while (table[slot] != ref) {
+            slot = (slot + 1) & mask;
+        }
+        shiftBack(slot);
+        texts[ref] = null;
+        if (freeCount == freeRefs.length) {
+            freeRefs = Arrays.copyOf(freeRefs, freeCount * 2);
+        }
+        freeRefs[freeCount++] = ref;
+        size--;
+    }
+
+    String get(int ref) {
+        return texts[ref];
+    }
+
+    // Число различных строк
+    int size() {
+        return size;
+    }
+
+    // Все выданные номера меньше этого значения; у свободных номеров get возвращает null
+    int refLimit() {
+        return nextRef;
+    }
+
+    private int newRef() {
+        if (nextRef == texts.length) {
+            texts = Arrays.copyOf(texts, nextRef * 2);
+            refCounts = Arrays.copyOf(refCounts, nextRef * 2);
+        }
+        return nextRef++;
+    }
+
+    private int slotOf(String text) {
+        int hash = text.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (table[slot] == 0) {
+                break;
+            }
+            int home = slotOf(texts[table[slot]]);
+            boolean reachable = free <= slot ? free < home && home <= slot : free < home || home <= slot;
+            if (!reachable) {
+                table[free] = table[slot];
+                free = slot;
+            }
+        }
+        table[free] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldTable = table;
+        allocate(capacity);
+        for (int ref : oldTable) {
+            if (ref != 0) {
+                int slot = slotOf(texts[ref]);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = ref;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+}
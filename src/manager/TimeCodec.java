@@ -0,0 +1,46 @@
+package manager;
+
+import task.Task;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/*
+ * Время задачи в журнале и снимке: байт флагов, затем только заданные поля.
+ * Начало - секунды от эпохи (как UTC) и наносекунды, продолжительность - секунды и наносекунды.
+ * Задача без времени занимает один байт.
+ */
+final class TimeCodec {
+
+    static final int MAX_SIZE = 1 + 12 + 12;
+
+    private static final int HAS_START = 1;
+    private static final int HAS_DURATION = 2;
+
+    private TimeCodec() {
+    }
+
+    static void write(ByteBuffer buffer, Task task) {
+        LocalDateTime start = task.getStartTime();
+        Duration duration = task.getDuration();
+        buffer.put((byte) ((start != null ? HAS_START : 0) | (duration != null ? HAS_DURATION : 0)));
+        if (start != null) {
+            buffer.putLong(start.toEpochSecond(ZoneOffset.UTC)).putInt(start.getNano());
+        }
+        if (duration != null) {
+            buffer.putLong(duration.getSeconds()).putInt(duration.getNano());
+        }
+    }
+
+    static void read(ByteBuffer buffer, Task task) {
+        byte flags = buffer.get();
+        if ((flags & HAS_START) != 0) {
+            task.setStartTime(LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC));
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            task.setDuration(Duration.ofSeconds(buffer.getLong(), buffer.getInt()));
+        }
+    }
+}
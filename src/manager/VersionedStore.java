@@ -0,0 +1,135 @@
+package manager;
+
+import task.Epic;
+import task.Subtask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Версии срезов для TaskManager.getSnapshot(). Пока срез ни разу не запрашивали, записи ничего не стоят:
+ * первый вызов enable строит срез по текущему состоянию за O(n), дальше менеджер сообщает сюда каждое
+ * изменение, а snapshot отдаёт текущий корень за O(1).
+ * Без транзакций изменение сразу меняет корень: так работают однопоточные менеджеры, у которых срез
+ * запрашивают между операциями. С транзакциями изменения копятся в потоке писателя и ставятся
+ * одним CAS корня на commit, поэтому каскадное удаление или очистка видны в срезе целиком или никак.
+ */
+final class VersionedStore {
+
+    private final AtomicReference<TaskSnapshot> root = new AtomicReference<>();
+    private final ThreadLocal<Transaction> transactions;
+
+    VersionedStore(boolean transactional) {
+        transactions = transactional ? ThreadLocal.withInitial(Transaction::new) : null;
+    }
+
+    // Возвращает текущий срез или null, если срезы не включены
+    TaskSnapshot current() {
+        return root.get();
+    }
+
+    // Вызывается, пока запись в менеджер невозможна: у однопоточных - между операциями, иначе под всеми блокировками
+    TaskSnapshot enable(Collection<? extends Task> tasks, Collection<? extends Epic> epics,
+                        Collection<? extends Subtask> subtasks) {
+        TaskSnapshot snapshot = root.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        snapshot = TaskSnapshot.EMPTY;
+        for (Task task : tasks) {
+            snapshot = snapshot.apply(ItemType.TASK, task.getId(), TaskSnapshot.Record.of(task));
+        }
+        for (Epic epic : epics) {
+            snapshot = snapshot.apply(ItemType.EPIC, epic.getId(), TaskSnapshot.Record.of(epic));
+        }
+        // Сначала подзадачи в порядке списков эпиков, чтобы сохранить этот порядок, затем остальные
+        for (Epic epic : epics) {
+            for (Subtask subtask : epic.getSubtasksView()) {
+                snapshot = snapshot.apply(ItemType.SUBTASK, subtask.getId(), TaskSnapshot.Record.of(subtask));
+            }
+        }
+        for (Subtask subtask : subtasks) {
+            if (snapshot.getSubtask(subtask.getId()) == null) {
+                snapshot = snapshot.apply(ItemType.SUBTASK, subtask.getId(), TaskSnapshot.Record.of(subtask));
+            }
+        }
+        root.set(snapshot);
+        return snapshot;
+    }
+
+    void begin() {
+        if (root.get() != null) {
+            transactions.get().depth++;
+        }
+    }
+
+    // Парный к begin: закрывает внешнюю транзакцию потока и ставит все её изменения одним новым корнем
+    void commit() {
+        if (root.get() == null) {
+            return;
+        }
+        Transaction transaction = transactions.get();
+        if (--transaction.depth > 0 || transaction.changes.isEmpty()) {
+            return;
+        }
+        List<Change> changes = transaction.changes;
+        try {
+            // Транзакции с общими id держат один страйп, поэтому повтор после чужого CAS не меняет их порядок
+            TaskSnapshot current;
+            TaskSnapshot next;
+            do {
+                current = root.get();
+                next = current;
+                for (Change change : changes) {
+                    next = next.apply(change.itemType, change.id, change.record);
+                }
+            } while (!root.compareAndSet(current, next));
+        } finally {
+            changes.clear();
+        }
+    }
+
+    void write(ItemType itemType, Task item) {
+        if (root.get() != null) {
+            record(itemType, item.getId(), TaskSnapshot.Record.of(item));
+        }
+    }
+
+    void delete(ItemType itemType, int id) {
+        if (root.get() != null) {
+            record(itemType, id, null);
+        }
+    }
+
+    private void record(ItemType itemType, int id, TaskSnapshot.Record record) {
+        if (transactions == null) {
+            root.set(root.get().apply(itemType, id, record));
+            return;
+        }
+        Transaction transaction = transactions.get();
+        if (transaction.depth == 0) {
+            throw new IllegalStateException("Change recorded outside of a transaction");
+        }
+        transaction.changes.add(new Change(itemType, id, record));
+    }
+
+    private static final class Transaction {
+        int depth;
+        final List<Change> changes = new ArrayList<>();
+    }
+
+    private static final class Change {
+        final ItemType itemType;
+        final int id;
+        final TaskSnapshot.Record record;
+
+        Change(ItemType itemType, int id, TaskSnapshot.Record record) {
+            this.itemType = itemType;
+            this.id = id;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package manager;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/*
+ * Отложенная запись в MutationLog. Операция менеджера кладёт готовые записи в очередь и сразу возвращается,
+ * фоновый писатель забирает всю очередь, пишет её одним буфером и делает один fsync. Пока идёт fsync,
+ * набирается следующий пакет, поэтому под нагрузкой пакеты растут сами, без таймера.
+ * Повторное обновление того же элемента заменяет ещё не записанное на его месте в очереди, если у обоих
+ * совпадает "размещение" - поля после placement, от которых зависят другие записи (эпик подзадачи, время).
+ * Иначе замена сдвинула бы элемент в расписании или между эпиками раньше, чем при записи, и воспроизведение
+ * журнала могло бы не сойтись с памятью. По той же причине обновление не сливается через удаление своего id
+ * (FORGET_ID) или через запись, задевающую много id сразу (FORGET_ALL): очистку или удаление эпика.
+ * Очередь ограничена: admit вызывается до изменения в памяти и при полной очереди действует по Backpressure.
+ * Пакетная операция проходит admit один раз, поэтому очередь может превысить capacity на размер пакета.
+ */
+final class WriteBehindLog implements Closeable {
+
+    // Что функция placement возвращает для записей, которые сами не сливаются
+    static final int KEEP = -1;
+    // Запись удаляет id из байтов 1-4: следующее обновление этого id не сливается с поставленным до неё
+    static final int FORGET_ID = -2;
+    // Запись затрагивает неизвестный набор id: ни одно поставленное обновление больше не сливается
+    static final int FORGET_ALL = -3;
+
+    private final MutationLog log;
+    private final int capacity;
+    private final Backpressure backpressure;
+    // Смещение полей размещения в записи, которую можно заменить следующим обновлением, или KEEP, FORGET_*
+    private final ToIntFunction<byte[]> placement;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    // Пакеты пишутся по одному и в порядке, в котором их забрали из очереди, - писателем или вызывающим
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Thread writer;
+    private List<Entry> pending = new ArrayList<>();
+    // Id -> место его последнего обновления в pending
+    private final Map<Integer, Integer> pendingUpdates = new HashMap<>();
+    // Номер последней поставленной записи и последней, которая уже на диске; замена тоже получает номер
+    private long submitted;
+    private long committed;
+    private ManagerSaveException failure;
+    private boolean closed;
+
+    WriteBehindLog(MutationLog log, int capacity, Backpressure backpressure, ToIntFunction<byte[]> placement) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.log = log;
+        this.capacity = capacity;
+        this.backpressure = backpressure;
+        this.placement = placement;
+        writer = new Thread(this::run, "mutation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Вызывается до изменения в памяти: при FAIL отклонённая операция не должна ничего поменять
+    void admit() {
+        lock.lock();
+        try {
+            checkFailure();
+            if (pending.size() < capacity) {
+                return;
+            }
+            switch (backpressure) {
+                case BLOCK:
+                    while (pending.size() >= capacity && failure == null) {
+                        notEmpty.signal();
+                        notFull.awaitUninterruptibly();
+                    }
+                    checkFailure();
+                    return;
+                case FAIL:
+                    throw new WriteQueueFullException("Очередь записи журнала заполнена: " + capacity + " записей");
+                default:
+                    break;
+            }
+        } finally {
+            lock.unlock();
+        }
+        commit();
+        checkFailure();
+    }
+
+    void submit(List<byte[]> records) {
+        lock.lock();
+        try {
+            for (byte[] record : records) {
+                enqueue(record);
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ждёт, пока всё поставленное до вызова будет записано и сброшено на диск
+    void flush() {
+        lock.lock();
+        try {
+            long target = submitted;
+            notEmpty.signal();
+            while (committed < target && failure == null) {
+                durable.awaitUninterruptibly();
+            }
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Выполняет action, пока писатель стоит, а очередь отбрасывает: снимок пишется из памяти, где эти
+     * изменения уже есть, и после него журнал очищается. Ожидающие flush освобождаются после action.
+     */
+    void checkpoint(Runnable action) {
+        commitLock.lock();
+        try {
+            long target;
+            lock.lock();
+            try {
+                checkFailure();
+                target = submitted;
+                takePending();
+            } finally {
+                lock.unlock();
+            }
+            action.run();
+            markCommitted(target);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Писатель дописывает очередь и останавливается; ошибка записи бросается здесь, если её ещё никто не видел
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed && failure == null) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (failure != null || pending.isEmpty()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            commit();
+        }
+    }
+
+    private void commit() {
+        commitLock.lock();
+        try {
+            List<Entry> batch;
+            long target;
+            lock.lock();
+            try {
+                if (failure != null) {
+                    return;
+                }
+                target = submitted;
+                batch = takePending();
+            } finally {
+                lock.unlock();
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<byte[]> records = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                records.add(entry.record);
+            }
+            try {
+                log.appendAll(records);
+                log.force();
+            } catch (ManagerSaveException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    durable.signalAll();
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            markCommitted(target);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void enqueue(byte[] record) {
+        submitted++;
+        int offset = placement.applyAsInt(record);
+        if (offset == FORGET_ID) {
+            pendingUpdates.remove(ByteBuffer.wrap(record).getInt(1));
+        } else if (offset == FORGET_ALL) {
+            pendingUpdates.clear();
+        } else if (offset >= 0) {
+            int id = ByteBuffer.wrap(record).getInt(1);
+            Integer position = pendingUpdates.get(id);
+            if (position != null) {
+                Entry previous = pending.get(position);
+                if (previous.record[0] == record[0] && Arrays.equals(previous.record, previous.placement,
+                        previous.record.length, record, offset, record.length)) {
+                    pending.set(position, new Entry(record, offset));
+                    return;
+                }
+            }
+            pendingUpdates.put(id, pending.size());
+        }
+        pending.add(new Entry(record, offset));
+    }
+
+    // Вызывается под lock
+    private List<Entry> takePending() {
+        List<Entry> batch = pending;
+        pending = new ArrayList<>();
+        pendingUpdates.clear();
+        notFull.signalAll();
+        return batch;
+    }
+
+    private void markCommitted(long target) {
+        lock.lock();
+        try {
+            committed = Math.max(committed, target);
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ManagerSaveException("Журнал недоступен после ошибки записи", failure);
+        }
+    }
+
+    private static final class Entry {
+        final byte[] record;
+        final int placement;
+
+        Entry(byte[] record, int placement) {
+            this.record = record;
+            this.placement = placement;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+// Очередь отложенной записи журнала заполнена; операция отклонена, менеджер при этом не меняется
+public class WriteQueueFullException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+}
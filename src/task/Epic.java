@@ -1,28 +1,103 @@
 package task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class Epic extends Task {
 
-    private final List<Subtask> subtaskList = new ArrayList<>();
+    // Подзадачи по id в порядке добавления: добавление и удаление за O(1), повторов нет
+    private final Map<Integer, Subtask> subtasks = new LinkedHashMap<>();
 
     public Epic(String name, String description) {
         super(name, description);
     }
 
+    // Копия списка подзадач; её изменение не затрагивает эпик
     public List<Subtask> getSubtaskList() {
-        return subtaskList;
+        return new ArrayList<>(subtasks.values());
     }
 
+    // Подзадачи только для чтения без копирования; меняются вместе с эпиком
+    public Collection<Subtask> getSubtasksView() {
+        return Collections.unmodifiableCollection(subtasks.values());
+    }
+
+    public Set<Integer> getSubtaskIds() {
+        return Collections.unmodifiableSet(subtasks.keySet());
+    }
+
+    public int getSubtaskCount() {
+        return subtasks.size();
+    }
+
+    public boolean containsSubtask(int subtaskId) {
+        return subtasks.containsKey(subtaskId);
+    }
+
+    // Подзадача с уже известным id заменяет прежнюю на её месте
     public void addSubtask(Subtask subtask) {
         if (this.getId().equals(subtask.getId())) {
             throw new IllegalArgumentException("Epic cannot add itself as a subtask");
         }
-        this.subtaskList.add(subtask);
+        this.subtasks.put(subtask.getId(), subtask);
     }
 
     public void deleteSubtask(Subtask subtask) {
-        this.subtaskList.remove(subtask);
+        removeSubtask(subtask.getId());
+    }
+
+    public Subtask removeSubtask(int subtaskId) {
+        return this.subtasks.remove(subtaskId);
+    }
+
+    public void clearSubtasks() {
+        this.subtasks.clear();
+    }
+
+    /*
+     * Время эпика выводится из подзадач, как и статус: начало - самое раннее из их начал, конец - самый поздний
+     * из концов, продолжительность - сумма продолжительностей. Значения, заданные сеттерами, не используются.
+     */
+    @Override
+    public LocalDateTime getStartTime() {
+        LocalDateTime earliest = null;
+        for (Subtask subtask : subtasks.values()) {
+            LocalDateTime start = subtask.getStartTime();
+            if (start != null && (earliest == null || start.isBefore(earliest))) {
+                earliest = start;
+            }
+        }
+        return earliest;
+    }
+
+    @Override
+    public Duration getDuration() {
+        Duration total = null;
+        for (Subtask subtask : subtasks.values()) {
+            Duration duration = subtask.getDuration();
+            if (duration != null) {
+                total = total == null ? duration : total.plus(duration);
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        LocalDateTime latest = null;
+        for (Subtask subtask : subtasks.values()) {
+            LocalDateTime end = subtask.getEndTime();
+            if (end != null && (latest == null || end.isAfter(latest))) {
+                latest = end;
+            }
+        }
+        return latest;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package task;
+
+import java.util.function.IntFunction;
+
+// Номера названия и описания во внешнем хранилище; текст читается через reader при каждом обращении
+final class ExternalText {
+    private final IntFunction<String> reader;
+    private final int nameHandle;
+    private final int descriptionHandle;
+
+    ExternalText(IntFunction<String> reader, int nameHandle, int descriptionHandle) {
+        this.reader = reader;
+        this.nameHandle = nameHandle;
+        this.descriptionHandle = descriptionHandle;
+    }
+
+    String getName() {
+        return reader.apply(nameHandle);
+    }
+
+    String getDescription() {
+        return reader.apply(descriptionHandle);
+    }
+
+    boolean isStoredAt(IntFunction<String> reader, int nameHandle, int descriptionHandle) {
+        return this.reader == reader && this.nameHandle == nameHandle && this.descriptionHandle == descriptionHandle;
+    }
+}
@@ -1,10 +1,18 @@
 package task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 public class Task {
     private Integer id;
     private String name;
     private String description;
     private Status status;
+    // Тексты, вынесенные менеджером из объекта; пока они заданы, поля name и description пусты
+    private ExternalText externalText;
+    // Необязательные начало и продолжительность; без начала задача не попадает в расписание
+    private LocalDateTime startTime;
+    private Duration duration;
 
     public Task(String name, String description, Status status) {
         this.name = name;
@@ -12,6 +20,12 @@ public class Task {
         this.status = status;
     }
 
+    public Task(String name, String description, Status status, LocalDateTime startTime, Duration duration) {
+        this(name, description, status);
+        this.startTime = startTime;
+        setDuration(duration);
+    }
+
     public Task(String name, String description) {
         this.name = name;
         this.description = description;
@@ -26,21 +40,43 @@ public class Task {
     }
 
     public String getName() {
-        return this.name;
+        return externalText == null ? this.name : externalText.getName();
     }
 
     public void setName(String name) {
+        loadTexts();
         this.name = name;
     }
 
     public String getDescription() {
-        return this.description;
+        return externalText == null ? this.description : externalText.getDescription();
     }
 
     public void setDescription(String description) {
+        loadTexts();
         this.description = description;
     }
 
+    // Вынос текстов доступен менеджерам только через TaskTexts
+    void storeTexts(ExternalText text) {
+        this.externalText = text;
+        this.name = null;
+        this.description = null;
+    }
+
+    // Возвращает тексты в поля объекта; сеттеры делают это сами
+    void loadTexts() {
+        if (externalText != null) {
+            this.name = externalText.getName();
+            this.description = externalText.getDescription();
+            this.externalText = null;
+        }
+    }
+
+    ExternalText getExternalText() {
+        return externalText;
+    }
+
     public Status getStatus() {
         return this.status;
     }
@@ -48,4 +84,31 @@ public class Task {
     public void setStatus(Status status) {
         this.status = status;
     }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        if (duration != null && duration.isNegative()) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        this.duration = duration;
+    }
+
+    // Начало плюс продолжительность; без продолжительности задача заканчивается там же, где начинается
+    public LocalDateTime getEndTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration == null ? startTime : startTime.plus(duration);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package task;
+
+import java.util.function.IntFunction;
+
+/*
+ * Доступ менеджера к названию и описанию задачи, которые он держит вне объекта (OffHeapTextStore).
+ * Задача знает только номера записей и функцию чтения, поэтому сама модель от хранилища не зависит.
+ * Вызывающему коду это не нужно: тексты вынесенной задачи читаются и меняются обычными геттерами и сеттерами.
+ */
+public final class TaskTexts {
+
+    private TaskTexts() {
+    }
+
+    // Поля объекта освобождаются, а название и описание читаются через reader по номерам записей
+    public static void storeOutside(Task task, IntFunction<String> reader, int nameHandle, int descriptionHandle) {
+        task.storeTexts(new ExternalText(reader, nameHandle, descriptionHandle));
+    }
+
+    // Возвращает тексты в поля объекта; после этого записи в хранилище задаче не нужны
+    public static void loadBack(Task task) {
+        task.loadTexts();
+    }
+
+    public static boolean isStoredOutside(Task task) {
+        return task.getExternalText() != null;
+    }
+
+    // Читает ли задача тексты именно из этих записей
+    public static boolean isStoredAt(Task task, IntFunction<String> reader, int nameHandle, int descriptionHandle) {
+        ExternalText text = task.getExternalText();
+        return text != null && text.isStoredAt(reader, nameHandle, descriptionHandle);
+    }
+}
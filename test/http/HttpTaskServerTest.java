@@ -0,0 +1,169 @@
+package http;
+
+import manager.Managers;
+import manager.TaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private HttpTaskServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void createsReadsUpdatesAndDeletesThroughHttp() throws Exception {
+        TaskManager manager = Managers.getDefault();
+        start(manager);
+
+        HttpResponse<String> created = send("POST", "/tasks",
+                "{\"name\": \"Купить \\\"молоко\\\"\", \"description\": \"Строка\\nвторая\", \"status\": \"NEW\"}");
+        assertEquals(201, created.statusCode());
+        assertEquals(0L, JsonReader.readObject(created.body()).get("id"));
+        assertEquals("Купить \"молоко\"", manager.getTasks().get(0).getName());
+
+        int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+        assertEquals(201, send("POST", "/subtasks",
+                "{\"name\": \"Subtask\", \"description\": \"D\", \"status\": \"DONE\", \"epicId\": " + epicId + "}")
+                .statusCode());
+        Map<String, Object> epic = JsonReader.readObject(send("GET", "/epics/" + epicId, null).body());
+        assertEquals("DONE", epic.get("status"));
+        assertEquals(List.of(2L), epic.get("subtasks"));
+        assertEquals("[{\"id\":2,\"name\":\"Subtask\",\"description\":\"D\",\"status\":\"DONE\",\"epicId\":1}]",
+                send("GET", "/epics/" + epicId + "/subtasks", null).body());
+
+        HttpResponse<String> updated = send("POST", "/tasks",
+                "{\"id\": 0, \"name\": \"Task\", \"description\": \"D\", \"status\": \"IN_PROGRESS\"}");
+        assertEquals(200, updated.statusCode());
+        assertEquals(Status.IN_PROGRESS, manager.getTask(0).getStatus());
+
+        String history = send("GET", "/history", null).body();
+        assertTrue(history.startsWith("[{\"id\":1,"), history);
+
+        assertEquals(204, send("DELETE", "/epics/" + epicId, null).statusCode());
+        assertEquals(404, send("GET", "/subtasks/2", null).statusCode());
+        assertEquals(204, send("DELETE", "/tasks", null).statusCode());
+        assertEquals("[]", send("GET", "/tasks", null).body());
+    }
+
+    @Test
+    void reportsBadRequestsMissingItemsAndUnsupportedMethods() throws Exception {
+        start(Managers.getDefault());
+        assertEquals(400, send("POST", "/tasks", "{\"name\": \"Task\"").statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"name\": \"Task\", \"description\": \"D\", \"status\": \"LATE\"}")
+                .statusCode());
+        assertEquals(400, send("POST", "/subtasks", "{\"name\": \"Subtask\", \"description\": \"D\"}").statusCode());
+        assertEquals(400, send("GET", "/tasks/abc", null).statusCode());
+        assertEquals(404, send("GET", "/tasks/7", null).statusCode());
+        assertEquals(404, send("GET", "/tasks/7/subtasks", null).statusCode());
+
+        HttpResponse<String> notAllowed = send("PUT", "/tasks/7", "{}");
+        assertEquals(405, notAllowed.statusCode());
+        assertEquals("GET, DELETE", notAllowed.headers().firstValue("Allow").orElseThrow());
+    }
+
+    @Test
+    void schedulesTasksAndRejectsOverlapsWithNotAcceptable() throws Exception {
+        start(Managers.getConcurrent());
+        HttpResponse<String> created = send("POST", "/tasks",
+                "{\"name\": \"Task\", \"description\": \"D\", \"startTime\": \"2024-05-01T10:00\", "
+                        + "\"duration\": \"PT30M\"}");
+        assertEquals(201, created.statusCode());
+        assertEquals("2024-05-01T10:30", JsonReader.readObject(created.body()).get("endTime"));
+        assertEquals(406, send("POST", "/tasks",
+                "{\"name\": \"Overlap\", \"description\": \"D\", \"startTime\": \"2024-05-01T10:15\"}")
+                .statusCode());
+        assertEquals(400, send("POST", "/tasks",
+                "{\"name\": \"Task\", \"description\": \"D\", \"duration\": \"30 minutes\"}").statusCode());
+        assertEquals(201, send("POST", "/tasks",
+                "{\"name\": \"Earlier\", \"description\": \"D\", \"startTime\": \"2024-05-01T09:00\"}")
+                .statusCode());
+        send("POST", "/tasks", "{\"name\": \"Untimed\", \"description\": \"D\"}");
+
+        String prioritized = send("GET", "/prioritized", null).body();
+        assertTrue(prioritized.startsWith("[{\"id\":1,\"name\":\"Earlier\""), prioritized);
+        assertFalse(prioritized.contains("Untimed"), prioritized);
+    }
+
+    @Test
+    void conditionalGetReturnsNotModifiedUntilDataChanges() throws Exception {
+        TaskManager manager = Managers.getConcurrent();
+        for (int i = 0; i < 1_000; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+        }
+        start(manager);
+
+        HttpResponse<String> full = send("GET", "/tasks", null);
+        assertEquals(200, full.statusCode());
+        assertEquals(1_000, full.body().split("\\},\\{").length);
+        String etag = full.headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, conditional("/tasks", etag).statusCode());
+
+        send("POST", "/tasks", "{\"name\": \"New\", \"description\": \"D\"}");
+        HttpResponse<String> changed = conditional("/tasks", etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+
+        String historyTag = send("GET", "/history", null).headers().firstValue("ETag").orElseThrow();
+        assertEquals(304, conditional("/history", historyTag).statusCode());
+        send("GET", "/tasks/5", null);
+        assertEquals(200, conditional("/history", historyTag).statusCode());
+    }
+
+    @Test
+    void epicListsCarryTheirSubtasksForLockedAndConcurrentManagers() throws Exception {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            start(manager);
+            int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+            int subtaskId = manager.createSubtask(new Subtask("Subtask", "D", Status.DONE, epicId)).getId();
+            manager.getEpic(epicId);
+
+            for (String path : List.of("/epics", "/history")) {
+                String body = send("GET", path, null).body();
+                assertTrue(body.contains("\"status\":\"DONE\",\"subtasks\":[" + subtaskId + "]"), body);
+            }
+            server.stop(0);
+        }
+        server = null;
+    }
+
+    private void start(TaskManager manager) throws Exception {
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+    }
+
+    private HttpResponse<String> conditional(String path, String etag) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).header("If-None-Match", etag).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body);
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).method(method, publisher).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,181 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncTaskManagerTest {
+
+    @Test
+    void mirrorsDelegateAndReportsFailuresThroughFuture() throws Exception {
+        try (AsyncTaskManager manager = Managers.getAsync(Managers.getDefault())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Description")).get(5, TimeUnit.SECONDS);
+            Subtask subtask = manager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, epic.getId()))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(Status.DONE, manager.getEpic(epic.getId()).get(5, TimeUnit.SECONDS).getStatus());
+            assertEquals(List.of(subtask), manager.getSubtasksByStatus(Status.DONE).get(5, TimeUnit.SECONDS));
+
+            Task missing = new Task("Task", "Description", Status.NEW);
+            missing.setId(100);
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> manager.updateTasks(List.of(missing)).get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    void subtaskUpdatesOfOneEpicApplyInSubmissionOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            TaskManager delegate = Managers.getConcurrent();
+            AsyncTaskManager manager = new AsyncTaskManager(delegate, true, executor);
+            List<Integer> epicIds = new ArrayList<>();
+            List<Integer> subtaskIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int epicId = delegate.createEpic(new Epic("Epic " + i, "Description")).getId();
+                epicIds.add(epicId);
+                subtaskIds.add(delegate.createSubtask(new Subtask("0", "Description", Status.NEW, epicId)).getId());
+            }
+            ChangeSubscription subscription = delegate.subscribe();
+            List<CompletableFuture<Subtask>> futures = new ArrayList<>();
+            for (int version = 1; version <= 2_000; version++) {
+                int i = version % epicIds.size();
+                Subtask update = new Subtask(String.valueOf(version), "Description", Status.IN_PROGRESS, epicIds.get(i));
+                update.setId(subtaskIds.get(i));
+                futures.add(manager.updateSubtask(update));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+
+            Map<Integer, Integer> lastVersion = new HashMap<>();
+            for (ChangeEvent event : subscription.poll(10_000).getEvents()) {
+                if (event.getType() == ChangeType.UPDATED) {
+                    int version = Integer.parseInt(event.getItem().getName());
+                    Integer previous = lastVersion.put(event.getId(), version);
+                    assertTrue(previous == null || previous < version, previous + " после " + version);
+                }
+            }
+            assertEquals(4, lastVersion.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void cancelledAndTimedOutOperationsAreSkippedBeforeTheyStart() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            TaskManager delegate = Managers.getDefault();
+            AsyncTaskManager manager = new AsyncTaskManager(delegate, false, executor);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            CompletableFuture<Task> cancelled = manager.createTask(new Task("Cancelled", "Description", Status.NEW));
+            CompletableFuture<Task> timedOut = manager.withTimeout(20, TimeUnit.MILLISECONDS)
+                    .createTask(new Task("Timed out", "Description", Status.NEW));
+            CompletableFuture<Task> applied = manager.createTask(new Task("Applied", "Description", Status.NEW));
+            assertTrue(cancelled.cancel(false));
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> timedOut.get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof TimeoutException);
+
+            release.countDown();
+            assertEquals("Applied", applied.get(5, TimeUnit.SECONDS).getName());
+            assertEquals(List.of("Applied"), names(delegate.getTasks()));
+
+            manager.close();
+            failure = assertThrows(ExecutionException.class, () -> manager.getTasks().get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void movedSubtaskIsUpdatedAfterItsOldEpicLaneDrains() throws Exception {
+        // Исполнитель запускает поставленное в обратном порядке: новая полоса стартует раньше прежней
+        Deque<Runnable> queued = new ArrayDeque<>();
+        TaskManager delegate = Managers.getConcurrent();
+        AsyncTaskManager manager = new AsyncTaskManager(delegate, true, queued::add);
+        int from = delegate.createEpic(new Epic("From", "Description")).getId();
+        int to = delegate.createEpic(new Epic("To", "Description")).getId();
+        CompletableFuture<Subtask> created = manager.createSubtask(new Subtask("0", "Description", Status.NEW, from));
+        runLastFirst(queued);
+        int subtaskId = created.get(5, TimeUnit.SECONDS).getId();
+
+        Subtask stay = new Subtask("1", "Description", Status.NEW, from);
+        stay.setId(subtaskId);
+        Subtask move = new Subtask("2", "Description", Status.DONE, to);
+        move.setId(subtaskId);
+        CompletableFuture<Subtask> first = manager.updateSubtask(stay);
+        CompletableFuture<Subtask> second = manager.updateSubtask(move);
+        runLastFirst(queued);
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        Subtask stored = delegate.getSubtask(subtaskId);
+        assertEquals("2", stored.getName());
+        assertEquals(to, stored.getEpicId());
+        assertEquals(Status.NEW, delegate.getEpic(from).getStatus());
+        assertEquals(Status.DONE, delegate.getEpic(to).getStatus());
+    }
+
+    @Test
+    void deletesAndClearsForgetSubtaskEpics() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncTaskManager manager = new AsyncTaskManager(Managers.getConcurrent(), true, executor);
+            List<Integer> epicIds = new ArrayList<>();
+            List<Integer> subtaskIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                int epicId = manager.createEpic(new Epic("Epic", "Description")).get(5, TimeUnit.SECONDS).getId();
+                epicIds.add(epicId);
+                for (int j = 0; j < 3; j++) {
+                    subtaskIds.add(manager.createSubtask(new Subtask("Subtask", "Description", Status.NEW, epicId))
+                            .get(5, TimeUnit.SECONDS).getId());
+                }
+            }
+            assertEquals(12, manager.trackedSubtaskCount());
+            manager.deleteEpic(epicIds.get(0)).get(5, TimeUnit.SECONDS);
+            assertEquals(9, manager.trackedSubtaskCount());
+            manager.deleteEpics(List.of(epicIds.get(1))).get(5, TimeUnit.SECONDS);
+            assertEquals(6, manager.trackedSubtaskCount());
+            manager.deleteSubtasks(subtaskIds.subList(6, 8)).get(5, TimeUnit.SECONDS);
+            assertEquals(4, manager.trackedSubtaskCount());
+            manager.clearSubtasks().get(5, TimeUnit.SECONDS);
+            assertEquals(0, manager.trackedSubtaskCount());
+
+            manager.createSubtask(new Subtask("Subtask", "Description", Status.NEW, epicIds.get(2)))
+                    .get(5, TimeUnit.SECONDS);
+            manager.clearEpics().get(5, TimeUnit.SECONDS);
+            assertEquals(0, manager.trackedSubtaskCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runLastFirst(Deque<Runnable> queued) {
+        while (!queued.isEmpty()) {
+            queued.pollLast().run();
+        }
+    }
+
+    private static List<String> names(List<Task> tasks) {
+        List<String> names = new ArrayList<>();
+        for (Task task : tasks) {
+            names.add(task.getName());
+        }
+        return names;
+    }
+}
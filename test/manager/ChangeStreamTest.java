@@ -0,0 +1,187 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeStreamTest {
+
+    @Test
+    void managersPublishMutationsCascadesAndEpicStatusChanges() {
+        List<TaskManager> managers = List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new CompactTaskManager(), Managers.getInstrumented(new InMemoryTaskManager()));
+        for (TaskManager manager : managers) {
+            ChangeSubscription subscription = manager.subscribe();
+            int taskId = manager.createTask(new Task("Task", "Description", Status.NEW)).getId();
+            int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+            manager.createSubtask(new Subtask("Done", "Description", Status.DONE, epicId));
+            int subtaskId = manager.createSubtask(new Subtask("New", "Description", Status.NEW, epicId)).getId();
+            manager.updateSubtask(withId(new Subtask("Done", "Description", Status.DONE, epicId), subtaskId));
+            // Статус эпика не меняется, и промежуточный пересчёт без подзадачи не попадает в поток
+            manager.updateSubtask(withId(new Subtask("Done", "Description", Status.DONE, epicId), subtaskId));
+            manager.updateTask(withId(new Task("Task", "Description", Status.IN_PROGRESS), taskId));
+            manager.updateEpic(withId(new Epic("Renamed", "Description"), epicId));
+            int otherEpicId = manager.createEpic(new Epic("Other", "Description")).getId();
+            manager.updateSubtask(withId(new Subtask("Moved", "Description", Status.IN_PROGRESS, otherEpicId), 2));
+            manager.deleteEpic(epicId);
+            manager.createSubtask(new Subtask("Done", "Description", Status.DONE, otherEpicId));
+            manager.clearSubtasks();
+            manager.createSubtask(new Subtask("Done", "Description", Status.DONE, otherEpicId));
+            manager.clearEpics();
+            manager.deleteTask(taskId);
+            manager.deleteTask(taskId);
+
+            ChangeBatch batch = subscription.poll(100);
+            assertFalse(batch.hasGap());
+            assertEquals(List.of(
+                    "CREATED TASK 0 NEW",
+                    "CREATED EPIC 1 NEW",
+                    "CREATED SUBTASK 2 DONE",
+                    "EPIC_STATUS_CHANGED EPIC 1 DONE",
+                    "CREATED SUBTASK 3 NEW",
+                    "EPIC_STATUS_CHANGED EPIC 1 IN_PROGRESS",
+                    "UPDATED SUBTASK 3 DONE",
+                    "EPIC_STATUS_CHANGED EPIC 1 DONE",
+                    "UPDATED SUBTASK 3 DONE",
+                    "UPDATED TASK 0 IN_PROGRESS",
+                    "UPDATED EPIC 1 DONE",
+                    "CREATED EPIC 4 NEW",
+                    "UPDATED SUBTASK 2 IN_PROGRESS",
+                    "EPIC_STATUS_CHANGED EPIC 4 IN_PROGRESS",
+                    "DELETED SUBTASK 3",
+                    "DELETED EPIC 1",
+                    "CREATED SUBTASK 5 DONE",
+                    "DELETED SUBTASK 2",
+                    "DELETED SUBTASK 5",
+                    "EPIC_STATUS_CHANGED EPIC 4 NEW",
+                    "CREATED SUBTASK 6 DONE",
+                    "EPIC_STATUS_CHANGED EPIC 4 DONE",
+                    "DELETED SUBTASK 6",
+                    "DELETED EPIC 4",
+                    "DELETED TASK 0"), describe(batch), manager.getClass().getSimpleName());
+            for (int i = 0; i < batch.getEvents().size(); i++) {
+                assertEquals(i, batch.getEvents().get(i).getSequence());
+            }
+            assertTrue(subscription.poll(100).isEmpty());
+            assertEquals(0, subscription.getLag());
+        }
+    }
+
+    @Test
+    void batchCreatePublishesEpicStatusOnceAfterSubtaskEvents() {
+        TaskManager manager = new InMemoryTaskManager();
+        int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+        ChangeSubscription subscription = manager.subscribe();
+        manager.createSubtasks(List.of(new Subtask("First", "Description", Status.DONE, epicId),
+                new Subtask("Second", "Description", Status.DONE, epicId)));
+        assertEquals(List.of("CREATED SUBTASK 1 DONE", "CREATED SUBTASK 2 DONE", "EPIC_STATUS_CHANGED EPIC 0 DONE"),
+                describe(subscription.poll(10)));
+    }
+
+    @Test
+    void subscriberSeesOnlyLaterChangesAndBatchesAreBounded() {
+        TaskManager manager = Managers.getDefault();
+        manager.createTask(new Task("Before", "Description", Status.NEW));
+        ChangeSubscription subscription = manager.subscribe();
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task("After " + i, "Description", Status.NEW));
+        }
+        assertEquals(5, subscription.getLag());
+        assertEquals(List.of("CREATED TASK 1 NEW", "CREATED TASK 2 NEW"), describe(subscription.poll(2)));
+        assertEquals(3, subscription.poll(10).getEvents().size());
+
+        subscription.close();
+        manager.createTask(new Task("Closed", "Description", Status.NEW));
+        assertTrue(subscription.poll(10).isEmpty());
+    }
+
+    @Test
+    void slowSubscriberGetsGapInsteadOfBlockingWriter() {
+        ChangeStream stream = new ChangeStream(8);
+        ChangeSubscription slow = stream.subscribe();
+        ChangeSubscription fast = stream.subscribe();
+        for (int id = 0; id < 6; id++) {
+            stream.publish(ChangeType.CREATED, ItemType.TASK, id, Status.NEW, null);
+        }
+        assertEquals(6, fast.poll(100).getEvents().size());
+        for (int id = 6; id < 20; id++) {
+            stream.publish(ChangeType.CREATED, ItemType.TASK, id, Status.NEW, null);
+        }
+
+        ChangeBatch batch = slow.poll(100);
+        assertTrue(batch.hasGap());
+        assertEquals(12, batch.getMissed());
+        assertEquals(12, batch.getEvents().get(0).getId());
+        assertEquals(8, batch.getEvents().size());
+        assertEquals(12, slow.getMissedCount());
+
+        ChangeBatch fastBatch = fast.poll(100);
+        assertEquals(6, fastBatch.getMissed());
+        assertEquals(List.of(12L, 19L), List.of(fastBatch.getEvents().get(0).getSequence(),
+                fastBatch.getEvents().get(fastBatch.getEvents().size() - 1).getSequence()));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStream(12));
+    }
+
+    @Test
+    void waitingSubscriberReceivesEveryEventFromConcurrentWriters() throws Exception {
+        int writers = 4;
+        int perWriter = 5_000;
+        TaskManager manager = Managers.getConcurrent();
+        ChangeSubscription subscription = manager.subscribe();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try {
+            Future<List<ChangeEvent>> consumer = executor.submit(() -> {
+                List<ChangeEvent> received = new ArrayList<>();
+                while (received.size() < writers * perWriter) {
+                    ChangeBatch batch = subscription.poll(512, 5, TimeUnit.SECONDS);
+                    assertFalse(batch.isEmpty(), "Событие не пришло за 5 секунд");
+                    assertFalse(batch.hasGap());
+                    received.addAll(batch.getEvents());
+                }
+                return received;
+            });
+            List<Future<?>> producers = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                producers.add(executor.submit(() -> {
+                    for (int j = 0; j < perWriter; j++) {
+                        manager.createTask(new Task("Task", "Description", Status.NEW));
+                    }
+                }));
+            }
+            for (Future<?> producer : producers) {
+                producer.get(30, TimeUnit.SECONDS);
+            }
+            List<ChangeEvent> received = consumer.get(30, TimeUnit.SECONDS);
+            Set<Integer> ids = ConcurrentHashMap.newKeySet();
+            for (int i = 0; i < received.size(); i++) {
+                assertEquals(i, received.get(i).getSequence());
+                assertTrue(ids.add(received.get(i).getId()));
+            }
+            assertEquals(writers * perWriter, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T extends Task> T withId(T item, int id) {
+        item.setId(id);
+        return item;
+    }
+
+    private static List<String> describe(ChangeBatch batch) {
+        List<String> events = new ArrayList<>();
+        for (ChangeEvent event : batch.getEvents()) {
+            events.add(event.toString());
+        }
+        return events;
+    }
+}
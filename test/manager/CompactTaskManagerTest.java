@@ -0,0 +1,196 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactTaskManagerTest {
+
+    private static final String[] WORDS = {"deploy", "review", "api", "релиз", "database", "dep"};
+
+    @Test
+    void managersReturnsCompactManager() {
+        assertTrue(Managers.getCompact() instanceof CompactTaskManager);
+    }
+
+    @Test
+    void behavesLikeInMemoryManagerUnderRandomOperations() {
+        TaskManager expected = new InMemoryTaskManager();
+        TaskManager actual = new CompactTaskManager();
+        Random random = new Random(7);
+        List<Integer> taskIds = new ArrayList<>();
+        List<Integer> epicIds = new ArrayList<>();
+        List<Integer> subtaskIds = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Status status = random.nextInt(5) == 0 ? null : Status.values()[random.nextInt(3)];
+            int epicId = epicIds.isEmpty() ? 1_000_000 : epicIds.get(random.nextInt(epicIds.size()));
+            String name = text(random);
+            String description = text(random);
+            int action = random.nextInt(20);
+            if (action < 3) {
+                taskIds.add(expected.createTask(new Task(name, description, status)).getId());
+                actual.createTask(new Task(name, description, status));
+            } else if (action < 5) {
+                epicIds.add(expected.createEpic(new Epic(name, description)).getId());
+                actual.createEpic(new Epic(name, description));
+            } else if (action < 9) {
+                subtaskIds.add(expected.createSubtask(new Subtask(name, description, status, epicId)).getId());
+                actual.createSubtask(new Subtask(name, description, status, epicId));
+            } else if (action < 11 && !taskIds.isEmpty()) {
+                int taskId = taskIds.get(random.nextInt(taskIds.size()));
+                expected.updateTask(withId(new Task(name, description, status), taskId));
+                actual.updateTask(withId(new Task(name, description, status), taskId));
+            } else if (action < 15 && !subtaskIds.isEmpty()) {
+                int subtaskId = subtaskIds.get(random.nextInt(subtaskIds.size()));
+                expected.updateSubtask(withId(new Subtask(name, description, status, epicId), subtaskId));
+                actual.updateSubtask(withId(new Subtask(name, description, status, epicId), subtaskId));
+            } else if (action < 16 && !epicIds.isEmpty()) {
+                expected.updateEpic(withId(new Epic(name, description), epicId));
+                actual.updateEpic(withId(new Epic(name, description), epicId));
+            } else if (action < 17 && !subtaskIds.isEmpty()) {
+                int subtaskId = subtaskIds.remove(random.nextInt(subtaskIds.size()));
+                expected.deleteSubtask(subtaskId);
+                actual.deleteSubtask(subtaskId);
+            } else if (action < 18 && !epicIds.isEmpty()) {
+                epicIds.remove((Integer) epicId);
+                expected.deleteEpic(epicId);
+                actual.deleteEpic(epicId);
+            } else if (action < 19 && !taskIds.isEmpty()) {
+                int taskId = taskIds.remove(random.nextInt(taskIds.size()));
+                expected.deleteTask(taskId);
+                actual.deleteTask(taskId);
+            } else if (random.nextInt(50) == 0) {
+                expected.clearSubtasks();
+                actual.clearSubtasks();
+            }
+            if (i % 100 == 0) {
+                assertEquals(describe(expected), describe(actual));
+                String query = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+                assertEquals(describe(expected.search(query, 2, 20)), describe(actual.search(query, 2, 20)));
+                for (Status byStatus : Status.values()) {
+                    assertEquals(describe(byId(expected.getSubtasksByStatus(byStatus))),
+                            describe(byId(actual.getSubtasksByStatus(byStatus))));
+                }
+            }
+        }
+        assertEquals(describe(expected), describe(actual));
+    }
+
+    @Test
+    void repeatedTextsAreStoredOnceAndReleasedOnDelete() {
+        CompactTaskManager manager = new CompactTaskManager();
+        Epic epic = manager.createEpic(new Epic("Epic", "Template description"));
+        for (int i = 0; i < 1_000; i++) {
+            manager.createSubtask(new Subtask("Subtask", new String("Template description"), Status.NEW, epic.getId()));
+        }
+        assertEquals(3, manager.textCount());
+        assertSame(manager.getSubtask(1).getDescription(), manager.getSubtask(500).getDescription());
+
+        Task task = manager.createTask(new Task("Task", null, Status.NEW));
+        task.setName("Renamed");
+        manager.updateTask(task);
+        assertEquals(4, manager.textCount());
+        manager.deleteEpic(epic.getId());
+        manager.clearTasks();
+        assertEquals(0, manager.textCount());
+    }
+
+    @Test
+    void searchLowercasesWordsLikeSearchIndex() {
+        TaskManager expected = Managers.getDefault();
+        TaskManager actual = Managers.getCompact();
+        for (String name : List.of("ΟΔΟΣ ΟΔΟΣΗΜΑΝΣΗ", "İstanbul office", "Istanbul", "Deploy DEPLOYMENT")) {
+            expected.createTask(new Task(name, "Description", Status.NEW));
+            actual.createTask(new Task(name, "Description", Status.NEW));
+        }
+        for (String query : List.of("οδος", "οδοσ", "i̇stanbul", "istanbul", "deploy", "DEP desc")) {
+            assertEquals(describe(expected.search(query, 0, 10)), describe(actual.search(query, 0, 10)), query);
+        }
+    }
+
+    @Test
+    void readsReturnDetachedCopies() {
+        TaskManager manager = Managers.getCompact();
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask = manager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, epic.getId()));
+        // Переданный эпик не хранится, поэтому его статус остаётся таким, каким был при создании
+        assertEquals(Status.NEW, epic.getStatus());
+
+        Subtask read = manager.getSubtask(subtask.getId());
+        read.setStatus(Status.NEW);
+        assertNotSame(read, manager.getSubtask(subtask.getId()));
+        assertEquals(Status.DONE, manager.getSubtask(subtask.getId()).getStatus());
+        assertEquals(Status.DONE, manager.getEpic(epic.getId()).getStatus());
+        assertEquals(1, manager.getEpicsView().iterator().next().getSubtaskList().size());
+
+        Task other = new Task("Task", "Description", Status.NEW);
+        other.setId(epic.getId());
+        assertNull(manager.updateTask(other));
+        assertTrue(manager.getTasks().isEmpty());
+    }
+
+    @Test
+    void updateWithUnissuedIdIsRejectedWithoutGrowingColumns() {
+        TaskManager manager = Managers.getCompact();
+        Task task = manager.createTask(new Task("Task", "Description", Status.NEW));
+        manager.deleteTask(task.getId());
+
+        assertNull(manager.updateTask(withId(new Task("Far", "Description", Status.NEW), 2_000_000_000)));
+        assertNull(manager.updateEpic(withId(new Epic("Far", "Description"), 1)));
+        assertNull(manager.updateSubtask(withId(new Subtask("Far", "Description", Status.NEW, 0), 1)));
+        assertTrue(manager.getTasks().isEmpty());
+        assertEquals(1, manager.createTask(new Task("Next", "Description", Status.NEW)).getId());
+        // Уже выданный id можно занять снова
+        assertNotNull(manager.updateTask(withId(new Task("Again", "Description", Status.NEW), task.getId())));
+        assertEquals(2, manager.getTasks().size());
+    }
+
+    // Каждому менеджеру свой объект: InMemoryTaskManager хранит переданный, а updateEpic переписывает его список подзадач
+    private static <T extends Task> T withId(T item, int id) {
+        item.setId(id);
+        return item;
+    }
+
+    private static String text(Random random) {
+        return random.nextInt(10) == 0 ? null : WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(3);
+    }
+
+    private static String describe(TaskManager manager) {
+        return describe(byId(manager.getTasks())) + describe(byId(manager.getEpics()))
+                + describe(byId(manager.getSubtasks()));
+    }
+
+    // Порядок getTasks и выборок по статусу у InMemoryTaskManager не задан
+    private static List<? extends Task> byId(List<? extends Task> items) {
+        List<Task> sorted = new ArrayList<>(items);
+        sorted.sort(Comparator.comparing(Task::getId));
+        return sorted;
+    }
+
+    private static String describe(List<? extends Task> items) {
+        StringBuilder builder = new StringBuilder();
+        for (Task item : items) {
+            builder.append(item.getId()).append('|').append(item.getName()).append('|')
+                    .append(item.getDescription()).append('|').append(item.getStatus());
+            if (item instanceof Epic) {
+                for (Subtask subtask : ((Epic) item).getSubtaskList()) {
+                    builder.append('|').append(subtask.getId());
+                }
+            }
+            if (item instanceof Subtask) {
+                builder.append('|').append(((Subtask) item).getEpicId());
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Status;
+import task.Task;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+
+    private HistoryManager historyManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        historyManager = Managers.getConcurrentHistory();
+    }
+
+    @Test
+    void historyOrderIsMaintainedAfterDrain() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Task task = new Task("Task " + i, "Description", Status.NEW);
+            task.setId(i);
+            tasks.add(task);
+            historyManager.add(task);
+        }
+        historyManager.add(tasks.get(0));
+        historyManager.remove(1);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(199, history.size());
+        assertEquals(tasks.get(2), history.get(0));
+        assertEquals(tasks.get(0), history.get(history.size() - 1));
+    }
+
+    @Test
+    void removeAfterAddIsApplied() {
+        Task task = new Task("Task", "Description", Status.NEW);
+        task.setId(1);
+        historyManager.add(task);
+        historyManager.remove(1);
+        assertTrue(historyManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void concurrentAddsKeepOneEntryPerTask() throws Exception {
+        int threads = 8;
+        int taskCount = 100;
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            Task task = new Task("Task " + i, "Description", Status.NEW);
+            task.setId(i);
+            tasks.add(task);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    historyManager.add(tasks.get(random.nextInt(taskCount)));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(taskCount, history.size());
+        assertEquals(taskCount, new HashSet<>(history).size());
+    }
+}
@@ -0,0 +1,321 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20_000;
+    private static final int EPICS = 16;
+
+    private ConcurrentTaskManager taskManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        taskManager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    void managersReturnsConcurrentManager() {
+        assertTrue(Managers.getConcurrent() instanceof ConcurrentTaskManager);
+    }
+
+    @Test
+    void idsAreUniqueUnderContention() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        runConcurrently(random -> {
+            Task task = taskManager.createTask(new Task("Task", "Description", Status.NEW));
+            assertTrue(ids.add(task.getId()), "Идентификатор выдан дважды");
+        });
+        assertEquals(THREADS * OPERATIONS, ids.size());
+        assertEquals(THREADS * OPERATIONS, taskManager.getTasks().size());
+    }
+
+    @Test
+    void epicInvariantsHoldUnderContention() throws Exception {
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < EPICS; i++) {
+            epicIds.add(taskManager.createEpic(new Epic("Epic " + i, "Description")).getId());
+        }
+        List<Integer> subtaskIds = new CopyOnWriteArrayList<>();
+
+        runConcurrently(random -> {
+            int epicId = epicIds.get(random.nextInt(EPICS));
+            Status status = Status.values()[random.nextInt(Status.values().length)];
+            int action = random.nextInt(10);
+            if (action < 4 || subtaskIds.isEmpty()) {
+                Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", status, epicId));
+                subtaskIds.add(subtask.getId());
+            } else if (action < 8) {
+                Subtask update = new Subtask("Subtask", "Updated", status, epicId);
+                update.setId(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                if (taskManager.getSubtask(update.getId()) != null) {
+                    taskManager.updateSubtask(update);
+                }
+            } else if (action < 9) {
+                taskManager.deleteSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+            } else {
+                // Эпик отдаётся копией, поэтому её состав читается без гонки с писателями
+                for (Subtask subtask : taskManager.getEpic(epicId).getSubtaskList()) {
+                    assertEquals(epicId, subtask.getEpicId());
+                }
+            }
+        });
+
+        assertTrue(taskManager.isEpicStatusConsistent());
+        assertMembershipConsistent();
+        for (Status status : Status.values()) {
+            assertEquals(idsWithStatus(taskManager.getEpics(), status), ids(taskManager.getEpicsByStatus(status)));
+            assertEquals(idsWithStatus(taskManager.getSubtasks(), status),
+                    ids(taskManager.getSubtasksByStatus(status)));
+        }
+    }
+
+    @Test
+    void epicsAreHandedOutAsDetachedCopies() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        Epic viewed = taskManager.getEpic(epic.getId());
+        Epic listed = taskManager.getEpics().get(0);
+        Epic inView = taskManager.getEpicsView().iterator().next();
+        Epic paged = taskManager.getEpicsPage(0, 1).getItems().get(0);
+
+        Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, epic.getId()));
+
+        for (Epic copy : List.of(epic, viewed, listed, inView, paged)) {
+            assertTrue(copy.getSubtaskList().isEmpty());
+            assertEquals(Status.NEW, copy.getStatus());
+        }
+        Epic current = taskManager.getEpic(epic.getId());
+        assertEquals(List.of(subtask), current.getSubtaskList());
+        assertEquals(Status.DONE, current.getStatus());
+        assertEquals(Set.of(epic.getId()), ids(taskManager.getEpicsByStatus(Status.DONE)));
+    }
+
+    @Test
+    void deleteEpicCascadesAtomicallyUnderContention() throws Exception {
+        List<Integer> epicIds = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < EPICS; i++) {
+            epicIds.add(taskManager.createEpic(new Epic("Epic " + i, "Description")).getId());
+        }
+
+        List<Integer> subtaskIds = new CopyOnWriteArrayList<>();
+
+        // Читатели смотрят эпики и подзадачи, которые параллельно удаляются каскадом
+        runConcurrently(random -> {
+            int epicId = epicIds.get(random.nextInt(epicIds.size()));
+            int action = random.nextInt(100);
+            if (action == 0) {
+                taskManager.deleteEpic(epicId);
+                epicIds.add(taskManager.createEpic(new Epic("Epic", "Description")).getId());
+            } else if (action < 40) {
+                taskManager.getEpic(epicId);
+            } else if (action < 60 && !subtaskIds.isEmpty()) {
+                taskManager.getSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+            } else {
+                Status status = Status.values()[random.nextInt(Status.values().length)];
+                Subtask subtask = taskManager.createSubtask(new Subtask("Subtask", "Description", status, epicId));
+                subtaskIds.add(subtask.getId());
+            }
+        });
+
+        assertTrue(taskManager.isEpicStatusConsistent());
+        assertMembershipConsistent();
+        Set<Integer> live = new HashSet<>();
+        for (Epic epic : taskManager.getEpics()) {
+            live.add(epic.getId());
+        }
+        for (Subtask subtask : taskManager.getSubtasks()) {
+            live.add(subtask.getId());
+        }
+        List<Task> history = taskManager.getHistory();
+        assertFalse(history.isEmpty());
+        for (Task task : history) {
+            assertTrue(live.contains(task.getId()), "В истории остался удалённый элемент");
+        }
+    }
+
+    @Test
+    void batchCreatesReserveIdRangesUnderContention() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description"));
+        }
+        taskManager.createEpics(epics);
+        runConcurrently(random -> {
+            List<Subtask> batch = List.of(
+                    new Subtask("Subtask", "Description", Status.DONE, epics.get(random.nextInt(EPICS)).getId()),
+                    new Subtask("Subtask", "Description", Status.NEW, epics.get(random.nextInt(EPICS)).getId()));
+            taskManager.createSubtasks(batch);
+            assertEquals(batch.get(0).getId() + 1, batch.get(1).getId());
+        });
+        assertEquals(THREADS * OPERATIONS * 2, taskManager.getSubtasks().size());
+        assertMembershipConsistent();
+        assertTrue(taskManager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void pagingReturnsStableTasksOnceUnderConcurrentChurn() throws Exception {
+        Set<Integer> stable = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            stable.add(taskManager.createTask(new Task("Stable", "Description", Status.NEW)).getId());
+            taskManager.createTask(new Task("Churn", "Description", Status.NEW));
+        }
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        Future<?> churn = writer.submit(() -> {
+            Random random = new Random(0);
+            while (done.getCount() > 0) {
+                Task created = taskManager.createTask(new Task("Churn", "Description", Status.NEW));
+                int victim = random.nextInt(created.getId() + 1);
+                if (!stable.contains(victim)) {
+                    taskManager.deleteTask(victim);
+                }
+            }
+        });
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<Integer> seen = new ArrayList<>();
+                Page<Task> page = taskManager.getTasksPage(0, 100);
+                seen.addAll(pageIds(page));
+                while (page.hasNext()) {
+                    page = taskManager.getTasksPage(page.getNextCursor(), 100);
+                    seen.addAll(pageIds(page));
+                }
+                for (int i = 1; i < seen.size(); i++) {
+                    assertTrue(seen.get(i - 1) < seen.get(i), "Страницы должны идти по возрастанию id");
+                }
+                assertTrue(new HashSet<>(seen).containsAll(stable));
+            }
+        } finally {
+            done.countDown();
+            writer.shutdown();
+        }
+        churn.get(10, TimeUnit.SECONDS);
+    }
+
+    private static List<Integer> pageIds(Page<Task> page) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task task : page.getItems()) {
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void searchIndexFollowsConcurrentWritesAndDeletes() throws Exception {
+        List<Integer> epicIds = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < EPICS; i++) {
+            epicIds.add(taskManager.createEpic(new Epic("Epic " + i, "Description")).getId());
+        }
+        // Удаляются случайные id из уже выданных: задачи, а также эпики и подзадачи, которые deleteTask пропускает
+        AtomicInteger lastId = new AtomicInteger(epicIds.get(EPICS - 1));
+        runConcurrently(OPERATIONS / 4, random -> {
+            int epicId = epicIds.get(random.nextInt(epicIds.size()));
+            int action = random.nextInt(100);
+            if (action == 0) {
+                taskManager.deleteEpic(epicId);
+                epicIds.add(taskManager.createEpic(new Epic("Epic", "Description")).getId());
+            } else if (action < 30) {
+                Task task = taskManager.createTask(new Task("Draft", "Description", Status.NEW));
+                lastId.accumulateAndGet(task.getId(), Math::max);
+                task.setName("Published");
+                taskManager.updateTask(task);
+            } else if (action < 40) {
+                taskManager.deleteTask(random.nextInt(lastId.get() + 1));
+            } else {
+                taskManager.createSubtask(new Subtask("Subtask", "Description", Status.NEW, epicId));
+            }
+        });
+
+        int items = taskManager.getTasks().size() + taskManager.getEpics().size() + taskManager.getSubtasks().size();
+        assertEquals(items, taskManager.search("description", 0, Integer.MAX_VALUE).size());
+        assertEquals(taskManager.getSubtasks().size(), taskManager.search("subtask", 0, Integer.MAX_VALUE).size());
+        assertEquals(taskManager.getTasks().size(), taskManager.search("published", 0, Integer.MAX_VALUE).size());
+        assertTrue(taskManager.search("draft", 0, 10).isEmpty());
+
+        taskManager.clearEpics();
+        assertTrue(taskManager.search("subtask", 0, 10).isEmpty());
+        taskManager.clearTasks();
+        assertTrue(taskManager.search("description", 0, 10).isEmpty());
+    }
+
+    private static Set<Integer> idsWithStatus(List<? extends Task> items, Status status) {
+        Set<Integer> ids = new HashSet<>();
+        for (Task item : items) {
+            if (item.getStatus() == status) {
+                ids.add(item.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Set<Integer> ids(List<? extends Task> items) {
+        Set<Integer> ids = new HashSet<>();
+        for (Task item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private void assertMembershipConsistent() {
+        Map<Integer, Subtask> subtasks = new HashMap<>();
+        for (Subtask subtask : taskManager.getSubtasks()) {
+            subtasks.put(subtask.getId(), subtask);
+        }
+        Set<Integer> epicIds = new HashSet<>();
+        int linked = 0;
+        for (Epic epic : taskManager.getEpics()) {
+            epicIds.add(epic.getId());
+            for (Subtask subtask : epic.getSubtaskList()) {
+                assertSame(subtasks.get(subtask.getId()), subtask, "Эпик ссылается на неактуальную подзадачу");
+                assertEquals(epic.getId(), subtask.getEpicId());
+                linked++;
+            }
+        }
+        long withLiveEpic = subtasks.values().stream()
+                .filter(subtask -> epicIds.contains(subtask.getEpicId()))
+                .count();
+        assertEquals(withLiveEpic, linked);
+    }
+
+    private void runConcurrently(Operation operation) throws Exception {
+        runConcurrently(OPERATIONS, operation);
+    }
+
+    private void runConcurrently(int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    operation.run(random);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private interface Operation {
+        void run(Random random);
+    }
+}
@@ -0,0 +1,196 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGraphTest {
+
+    @Test
+    void rejectsExactlyTheEdgesThatCloseCycles() {
+        DependencyGraph graph = new DependencyGraph();
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            int blocker = random.nextInt(300);
+            int blocked = random.nextInt(300);
+            switch (random.nextInt(6)) {
+                case 0:
+                    assertEquals(removeEdge(expected, blocker, blocked), graph.remove(blocker, blocked));
+                    break;
+                case 1:
+                    graph.removeVertex(blocker);
+                    removeVertex(expected, blocker);
+                    break;
+                default:
+                    if (blocker == blocked || reaches(expected, blocked, blocker)) {
+                        assertThrows(DependencyCycleException.class, () -> graph.add(blocker, blocked));
+                    } else {
+                        boolean added = expected.computeIfAbsent(blocker, id -> new HashSet<>()).add(blocked);
+                        assertEquals(added, graph.add(blocker, blocked));
+                    }
+            }
+            if (i % 1_000 == 0) {
+                assertConsistent(graph, expected);
+            }
+        }
+        assertConsistent(graph, expected);
+    }
+
+    @Test
+    void bulkRemovalMatchesSingleRemovals() {
+        DependencyGraph bulk = new DependencyGraph();
+        DependencyGraph single = new DependencyGraph();
+        Map<Integer, Set<Integer>> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 5_000; i++) {
+            int blocker = random.nextInt(500);
+            int blocked = blocker + 1 + random.nextInt(50);
+            bulk.add(blocker, blocked);
+            single.add(blocker, blocked);
+            expected.computeIfAbsent(blocker, id -> new HashSet<>()).add(blocked);
+        }
+        // Звезда: один элемент блокирует тысячу других
+        for (int blocked = 1_000; blocked < 2_000; blocked++) {
+            bulk.add(0, blocked);
+            single.add(0, blocked);
+            expected.get(0).add(blocked);
+        }
+        List<Integer> removed = new ArrayList<>();
+        for (int id = 0; id < 2_000; id += 3) {
+            removed.add(id);
+        }
+        bulk.removeVertices(removed);
+        for (int id : removed) {
+            single.removeVertex(id);
+            removeVertex(expected, id);
+        }
+        assertConsistent(bulk, expected);
+        assertConsistent(single, expected);
+
+        bulk.removeVertices(new ArrayList<>(allVertices(expected)));
+        assertEquals(0, bulk.vertexCount());
+        assertEquals(0, bulk.edgeCount());
+    }
+
+    @Test
+    void criticalPathIsHeaviestChainSequentiallyAndInParallel() {
+        // Узкий граф из перемешанных рёбер и широкий по слоям, уровни которого делятся между подзадачами ForkJoin
+        for (int width : new int[]{0, 10_000}) {
+            DependencyGraph graph = new DependencyGraph();
+            Map<Integer, Set<Integer>> expected = new HashMap<>();
+            Random random = new Random(width);
+            int size = width == 0 ? 1_000 : width * 5;
+            List<int[]> edges = new ArrayList<>();
+            for (int a = 0; a < size; a++) {
+                for (int k = 0; k < 3; k++) {
+                    int b = width == 0 ? a + 1 + random.nextInt(64) : (a / width + 1) * width + random.nextInt(width);
+                    if (b < size) {
+                        edges.add(new int[]{a, b});
+                    }
+                }
+            }
+            Collections.shuffle(edges, random);
+            for (int[] edge : edges) {
+                graph.add(edge[0], edge[1]);
+                expected.computeIfAbsent(edge[0], id -> new HashSet<>()).add(edge[1]);
+            }
+            long[] weights = new long[size];
+            for (int i = 0; i < size; i++) {
+                weights[i] = random.nextInt(100);
+            }
+            for (boolean parallel : new boolean[]{false, true}) {
+                int[] path = graph.criticalPath(id -> weights[id], parallel);
+                long total = 0;
+                for (int i = 0; i < path.length; i++) {
+                    total += weights[path[i]];
+                    if (i > 0) {
+                        assertTrue(expected.get(path[i - 1]).contains(path[i]));
+                    }
+                }
+                assertEquals(heaviestChain(expected, weights, size), total);
+            }
+        }
+    }
+
+    private static void assertConsistent(DependencyGraph graph, Map<Integer, Set<Integer>> expected) {
+        int edges = 0;
+        for (Set<Integer> successors : expected.values()) {
+            edges += successors.size();
+        }
+        assertEquals(edges, graph.edgeCount());
+        assertEquals(allVertices(expected).size(), graph.vertexCount());
+        int[] order = graph.topologicalOrder();
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int i = 0; i < order.length; i++) {
+            position.put(order[i], i);
+        }
+        for (Map.Entry<Integer, Set<Integer>> entry : expected.entrySet()) {
+            for (int blocked : entry.getValue()) {
+                assertTrue(position.get(entry.getKey()) < position.get(blocked));
+            }
+            int[] successors = graph.successors(entry.getKey());
+            Arrays.sort(successors);
+            assertArrayEquals(entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray(), successors);
+        }
+    }
+
+    private static Set<Integer> allVertices(Map<Integer, Set<Integer>> edges) {
+        Set<Integer> vertices = new HashSet<>();
+        for (Map.Entry<Integer, Set<Integer>> entry : edges.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                vertices.add(entry.getKey());
+                vertices.addAll(entry.getValue());
+            }
+        }
+        return vertices;
+    }
+
+    private static boolean reaches(Map<Integer, Set<Integer>> edges, int from, int to) {
+        Deque<Integer> stack = new ArrayDeque<>(List.of(from));
+        Set<Integer> seen = new HashSet<>(stack);
+        while (!stack.isEmpty()) {
+            int id = stack.pop();
+            if (id == to) {
+                return true;
+            }
+            for (int next : edges.getOrDefault(id, Set.of())) {
+                if (seen.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean removeEdge(Map<Integer, Set<Integer>> edges, int blocker, int blocked) {
+        Set<Integer> successors = edges.get(blocker);
+        return successors != null && successors.remove(blocked);
+    }
+
+    private static void removeVertex(Map<Integer, Set<Integer>> edges, int id) {
+        edges.remove(id);
+        for (Set<Integer> successors : edges.values()) {
+            successors.remove(id);
+        }
+    }
+
+    // В этих графах рёбра идут только от меньших id к большим, поэтому id и есть топологический порядок
+    private static long heaviestChain(Map<Integer, Set<Integer>> edges, long[] weights, int size) {
+        Set<Integer> vertices = allVertices(edges);
+        long[] best = new long[size];
+        long result = 0;
+        for (int id = 0; id < size; id++) {
+            if (vertices.contains(id)) {
+                best[id] += weights[id];
+                result = Math.max(result, best[id]);
+                for (int next : edges.getOrDefault(id, Set.of())) {
+                    best[next] = Math.max(best[next], best[id]);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,569 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedTaskManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void stateIsRestoredFromLog() {
+        Path file = tempDir.resolve("tasks.log");
+        Task task;
+        Epic epic;
+        Subtask subtask1;
+        Subtask subtask2;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            task = manager.createTask(new Task("Task", "Description", Status.NEW));
+            epic = manager.createEpic(new Epic("Epic", "Description"));
+            subtask1 = manager.createSubtask(new Subtask("Subtask 1", "Description", Status.NEW, epic.getId()));
+            subtask2 = manager.createSubtask(new Subtask("Subtask 2", "Description", Status.NEW, epic.getId()));
+            subtask1.setStatus(Status.DONE);
+            manager.updateSubtask(subtask1);
+            task.setName("Renamed");
+            manager.updateTask(task);
+            manager.getSubtask(subtask2.getId());
+            manager.getTask(task.getId());
+            manager.deleteSubtask(subtask2.getId());
+        }
+
+        try (FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(file)) {
+            assertEquals(1, restored.getTasks().size());
+            assertEquals("Renamed", restored.getTasks().get(0).getName());
+            assertEquals(1, restored.getSubtasks().size());
+            Epic restoredEpic = restored.getEpics().get(0);
+            assertEquals(Status.DONE, restoredEpic.getStatus());
+            assertEquals(1, restoredEpic.getSubtaskList().size());
+            assertTrue(restored.isEpicStatusConsistent());
+
+            List<Task> history = restored.getHistory();
+            assertEquals(1, history.size());
+            assertEquals(task.getId(), history.get(0).getId());
+            assertEquals("Renamed", history.get(0).getName());
+        }
+    }
+
+    @Test
+    void nextIdIsRestoredFromLog() {
+        Path file = tempDir.resolve("tasks.log");
+        int lastId;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            manager.createTask(new Task("Task 1", "Description", Status.NEW));
+            lastId = manager.createTask(new Task("Task 2", "Description", Status.NEW)).getId();
+            manager.deleteTask(lastId);
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            Task task = restored.createTask(new Task("Task 3", "Description", Status.NEW));
+            assertEquals(lastId + 1, task.getId());
+        }
+    }
+
+    @Test
+    void clearOperationsAreRestored() {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.OS_BUFFERED, 0)) {
+            manager.createTask(new Task("Task", "Description", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+            manager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, epic.getId()));
+            manager.clearTasks();
+            manager.clearSubtasks();
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertTrue(restored.getTasks().isEmpty());
+            assertTrue(restored.getSubtasks().isEmpty());
+            assertEquals(Status.NEW, restored.getEpics().get(0).getStatus());
+        }
+    }
+
+    @Test
+    void tornLastRecordIsSkipped() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.GROUP_COMMIT, 5)) {
+            manager.createTask(new Task("Task 1", "Description", Status.NEW));
+            manager.createTask(new Task("Task 2", "Description", Status.NEW));
+        }
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 100, 1}), channel.size());
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(1, restored.getTasks().size());
+            assertEquals("Task 1", restored.getTasks().get(0).getName());
+            Task task = restored.createTask(new Task("Task 3", "Description", Status.NEW));
+            assertEquals(1, task.getId());
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(2, restored.getTasks().size());
+        }
+    }
+
+    @Test
+    void corruptionBeforeTheTailIsReportedAndLogIsKept() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.OS_BUFFERED, 0)) {
+            for (int i = 0; i < 3; i++) {
+                manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+            }
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        // Портим последний байт данных первой записи: за ней остаются две целые
+        bytes[8 + ByteBuffer.wrap(bytes).getInt(0) - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(ManagerSaveException.class, () -> new FileBackedTaskManager(file));
+        assertArrayEquals(bytes, Files.readAllBytes(file));
+    }
+
+    @Test
+    void snapshotRestoresStateAndTruncatesLog() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        Epic epic;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.OS_BUFFERED, 0)) {
+            manager.createTask(new Task("Task", "Description", Status.IN_PROGRESS));
+            epic = manager.createEpic(new Epic("Epic", "Описание эпика"));
+            manager.createSubtask(new Subtask("Subtask 1", null, Status.DONE, epic.getId()));
+            manager.createSubtask(new Subtask("Subtask 2", "Description", Status.NEW, epic.getId()));
+            manager.getEpic(epic.getId());
+            manager.getTask(0);
+            manager.snapshot();
+            assertTrue(Files.size(file) < 20);
+            manager.createTask(new Task("After snapshot", "Description", Status.NEW));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(2, restored.getTasks().size());
+            Epic restoredEpic = restored.getEpics().get(0);
+            assertEquals("Описание эпика", restoredEpic.getDescription());
+            assertEquals(Status.IN_PROGRESS, restoredEpic.getStatus());
+            assertEquals("Subtask 1", restoredEpic.getSubtaskList().get(0).getName());
+            assertNull(restoredEpic.getSubtaskList().get(0).getDescription());
+            assertEquals("Subtask 2", restoredEpic.getSubtaskList().get(1).getName());
+            List<Task> history = restored.getHistory();
+            assertEquals(epic.getId(), history.get(0).getId());
+            assertEquals(0, history.get(1).getId());
+            assertEquals(5, restored.createTask(new Task("Task", "Description", Status.NEW)).getId());
+        }
+    }
+
+    @Test
+    void timesAreRestoredFromLogAndSnapshot() {
+        Path file = tempDir.resolve("tasks.log");
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 9, 0, 0, 500);
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            Task task = manager.createTask(new Task("Task", "D", Status.NEW, start, Duration.ofMinutes(30)));
+            Epic epic = manager.createEpic(new Epic("Epic", "D"));
+            manager.createSubtask(new Subtask("Subtask", "D", Status.NEW, epic.getId(), start.plusHours(1),
+                    Duration.ofSeconds(90, 7)));
+            manager.createTask(new Task("Untimed", "D", Status.NEW, null, Duration.ofMinutes(5)));
+            manager.snapshot();
+            task.setStartTime(start.minusDays(1));
+            manager.updateTask(task);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(start.minusDays(1), restored.getTask(0).getStartTime());
+            assertEquals(Duration.ofMinutes(30), restored.getTask(0).getDuration());
+            assertEquals(Duration.ofSeconds(90, 7), restored.getSubtask(2).getDuration());
+            assertNull(restored.getTask(3).getStartTime());
+            assertEquals(Duration.ofMinutes(5), restored.getTask(3).getDuration());
+            assertEquals(start.plusHours(1), restored.getEpic(1).getStartTime());
+            assertEquals(List.of(0, 2), List.of(restored.getPrioritizedTasks().get(0).getId(),
+                    restored.getPrioritizedTasks().get(1).getId()));
+            assertThrows(TaskOverlapException.class,
+                    () -> restored.createTask(
+                            new Task("Overlap", "D", Status.NEW, start.plusHours(1), Duration.ofMinutes(1))));
+        }
+    }
+
+    @Test
+    void dependenciesAreRestoredFromLogAndSnapshot() {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            for (int i = 0; i < 4; i++) {
+                manager.createTask(new Task("Task " + i, "D", Status.NEW));
+            }
+            manager.addDependency(0, 1);
+            manager.addDependency(1, 2);
+            manager.snapshot();
+            manager.addDependency(2, 3);
+            manager.removeDependency(0, 1);
+            manager.deleteTask(1);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(List.of(2, 3), List.of(restored.getTopologicalOrder().get(0).getId(),
+                    restored.getTopologicalOrder().get(1).getId()));
+            assertEquals(2, restored.getTopologicalOrder().size());
+            assertThrows(DependencyCycleException.class, () -> restored.addDependency(3, 2));
+        }
+    }
+
+    @Test
+    void staleLogIsIgnoredAfterSnapshot() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        Path copy = tempDir.resolve("copy.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+            manager.createSubtask(new Subtask("Subtask", "Description", Status.NEW, epic.getId()));
+            Files.copy(file, copy);
+            manager.snapshot();
+        }
+        // Как будто процесс упал между записью снимка и очисткой журнала
+        Files.copy(copy, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(1, restored.getSubtasks().size());
+            assertEquals(1, restored.getEpics().get(0).getSubtaskList().size());
+            restored.createTask(new Task("Task", "Description", Status.NEW));
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(1, restored.getTasks().size());
+            assertEquals(1, restored.getSubtasks().size());
+        }
+    }
+
+    @Test
+    void periodicSnapshotKeepsLogShort() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, Durability.OS_BUFFERED, 0)) {
+            manager.setSnapshotInterval(10);
+            for (int i = 0; i < 25; i++) {
+                manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+            }
+        }
+        assertTrue(Files.exists(tempDir.resolve("tasks.log.snapshot")));
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(25, restored.getTasks().size());
+        }
+    }
+
+    @Test
+    void batchOperationsAreRestored() {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            manager.createTasks(List.of(new Task("Task 1", "Description", Status.NEW),
+                    new Task("Task 2", "Description", Status.NEW)));
+            Epic epic = manager.createEpics(List.of(new Epic("Epic", "Description"))).get(0);
+            List<Subtask> subtasks = manager.createSubtasks(List.of(
+                    new Subtask("Subtask 1", "Description", Status.NEW, epic.getId()),
+                    new Subtask("Subtask 2", "Description", Status.NEW, epic.getId())));
+            for (Subtask subtask : subtasks) {
+                subtask.setStatus(Status.DONE);
+            }
+            manager.updateSubtasks(subtasks);
+            manager.deleteTasks(List.of(0));
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(1, restored.getTasks().size());
+            assertEquals("Task 2", restored.getTasks().get(0).getName());
+            assertEquals(2, restored.getSubtasks().size());
+            assertEquals(Status.DONE, restored.getEpics().get(0).getStatus());
+            assertTrue(restored.isEpicStatusConsistent());
+            assertEquals(5, restored.createTask(new Task("Task 3", "Description", Status.NEW)).getId());
+        }
+    }
+
+    @Test
+    void writeBehindLogReplaysToTheSameState() {
+        Path file = tempDir.resolve("tasks.log");
+        Random random = new Random(5);
+        LocalDateTime origin = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<String> expected;
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, 256, Backpressure.BLOCK)) {
+            List<Integer> taskIds = new ArrayList<>();
+            List<Integer> subtaskIds = new ArrayList<>();
+            List<Integer> epicIds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                epicIds.add(manager.createEpic(new Epic("Epic " + i, "D")).getId());
+            }
+            for (int i = 0; i < 3_000; i++) {
+                LocalDateTime start = origin.plusHours(random.nextInt(60));
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                // Обновления идут копиями: отклонённое не должно менять хранимый объект
+                Task task = taskIds.isEmpty() ? null : manager.findTask(taskIds.get(random.nextInt(taskIds.size())));
+                Subtask subtask = subtaskIds.isEmpty() ? null
+                        : manager.findSubtask(subtaskIds.get(random.nextInt(subtaskIds.size())));
+                try {
+                    switch (random.nextInt(8)) {
+                        case 0:
+                            taskIds.add(manager.createTask(new Task("Task " + i, "D", Status.NEW, start,
+                                    Duration.ofMinutes(30))).getId());
+                            break;
+                        case 1:
+                            subtaskIds.add(manager.createSubtask(new Subtask("Subtask " + i, "D", Status.NEW, epicId,
+                                    start, Duration.ofMinutes(30))).getId());
+                            break;
+                        case 2:
+                            // Переезд во времени: освобождённый час может занять следующая операция
+                            if (task != null) {
+                                manager.updateTask(copy(task, task.getName(), task.getStatus(), start));
+                            }
+                            break;
+                        case 3:
+                            if (subtask != null) {
+                                Subtask moved = new Subtask(subtask.getName(), "D", subtask.getStatus(), epicId,
+                                        subtask.getStartTime(), subtask.getDuration());
+                                moved.setId(subtask.getId());
+                                manager.updateSubtask(moved);
+                            }
+                            break;
+                        case 4:
+                            if (random.nextInt(20) == 0) {
+                                epicIds.add(manager.createEpic(new Epic("Epic " + i, "D")).getId());
+                            } else if (subtask != null) {
+                                manager.getSubtask(subtask.getId());
+                            }
+                            break;
+                        default:
+                            // Повторные обновления без переезда сливаются в очереди
+                            if (task != null) {
+                                manager.updateTask(copy(task, "Renamed " + i,
+                                        Status.values()[random.nextInt(Status.values().length)], task.getStartTime()));
+                            }
+                    }
+                } catch (TaskOverlapException e) {
+                    // Отклонённая операция не меняет менеджер и не пишется в журнал
+                }
+                if (i == 1_500) {
+                    manager.snapshot();
+                }
+            }
+            manager.flush();
+            expected = describe(manager);
+            try (FileBackedTaskManager reader = new FileBackedTaskManager(file)) {
+                assertEquals(expected, describe(reader));
+            }
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(expected, describe(restored));
+        }
+    }
+
+    @Test
+    void writeBehindQueueRejectsOrRunsWhenFull() {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, 1, Backpressure.CALLER_RUNS)) {
+            for (int i = 0; i < 100; i++) {
+                manager.createTask(new Task("Task " + i, "D", Status.NEW));
+            }
+            manager.flush();
+            try (FileBackedTaskManager reader = new FileBackedTaskManager(file)) {
+                assertEquals(100, reader.getTasks().size());
+            }
+        }
+    }
+
+    @Test
+    void deltaCheckpointsRestoreTheSameState() {
+        Path file = tempDir.resolve("tasks.log");
+        Random random = new Random(11);
+        List<Integer> deletedTaskIds = new ArrayList<>();
+        List<String> expected = List.of("next id 0");
+        for (int session = 0; session < 4; session++) {
+            try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+                assertEquals(expected, describe(manager));
+                manager.setDeltaMergeThreshold(3);
+                for (int i = 0; i < 600; i++) {
+                    List<Task> tasks = new ArrayList<>(manager.getTasksView());
+                    List<Epic> epics = new ArrayList<>(manager.getEpicsView());
+                    List<Subtask> subtasks = new ArrayList<>(manager.getSubtasksView());
+                    Task task = tasks.isEmpty() ? null : tasks.get(random.nextInt(tasks.size()));
+                    Epic epic = epics.isEmpty() ? null : epics.get(random.nextInt(epics.size()));
+                    Subtask subtask = subtasks.isEmpty() ? null : subtasks.get(random.nextInt(subtasks.size()));
+                    switch (random.nextInt(14)) {
+                        case 0:
+                            manager.createTask(new Task("Task " + i, "D", Status.NEW));
+                            break;
+                        case 1:
+                        case 2:
+                            if (epic == null || random.nextInt(10) == 0) {
+                                manager.createEpic(new Epic("Epic " + i, "D"));
+                            } else {
+                                manager.createSubtask(new Subtask("Subtask " + i, "D", Status.NEW, epic.getId()));
+                            }
+                            break;
+                        case 3:
+                            if (task != null) {
+                                manager.updateTask(copy(task, "Renamed " + i, Status.IN_PROGRESS, null));
+                            }
+                            break;
+                        case 4:
+                        case 5:
+                            if (subtask != null && epic != null) {
+                                Subtask moved = new Subtask(subtask.getName(), "Moved " + i, Status.DONE, epic.getId());
+                                moved.setId(subtask.getId());
+                                manager.updateSubtask(moved);
+                            }
+                            break;
+                        case 6:
+                            if (task != null) {
+                                manager.deleteTask(task.getId());
+                                deletedTaskIds.add(task.getId());
+                            }
+                            break;
+                        case 7:
+                            if (subtask != null && random.nextInt(3) == 0) {
+                                manager.deleteSubtask(subtask.getId());
+                            }
+                            break;
+                        case 8:
+                            if (epic != null && random.nextInt(12) == 0) {
+                                manager.deleteEpic(epic.getId());
+                            } else if (subtask != null) {
+                                manager.getSubtask(subtask.getId());
+                            }
+                            break;
+                        case 9:
+                        case 10:
+                            if (task != null) {
+                                manager.getTask(task.getId());
+                            } else if (epic != null) {
+                                manager.getEpic(epic.getId());
+                            }
+                            break;
+                        case 11:
+                            if (task != null && subtask != null) {
+                                try {
+                                    manager.addDependency(task.getId(), subtask.getId());
+                                } catch (DependencyCycleException e) {
+                                    manager.removeDependency(subtask.getId(), task.getId());
+                                }
+                            }
+                            break;
+                        case 12:
+                            // Удалённая задача создаётся заново под прежним id: из истории она ушла и не вернётся
+                            if (!deletedTaskIds.isEmpty()) {
+                                Task revived = new Task("Revived " + i, "D", Status.NEW);
+                                revived.setId(deletedTaskIds.remove(deletedTaskIds.size() - 1));
+                                manager.updateTask(revived);
+                            }
+                            break;
+                        default:
+                            if (random.nextInt(3) == 0) {
+                                manager.checkpoint();
+                            }
+                    }
+                }
+                manager.checkpoint();
+                manager.createTask(new Task("After checkpoint " + session, "D", Status.NEW));
+                expected = describe(manager);
+            }
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(expected, describe(restored));
+            restored.mergeDeltas();
+        }
+        try (FileBackedTaskManager merged = new FileBackedTaskManager(file)) {
+            assertEquals(expected, describe(merged));
+        }
+        assertFalse(Files.exists(tempDir.resolve("tasks.log.snapshot.delta." + 1)));
+    }
+
+    @Test
+    void deltaHoldsOnlyChangedItemsAndIsMergedIntoBase() throws IOException {
+        Path file = tempDir.resolve("tasks.log");
+        Path base = tempDir.resolve("tasks.log.snapshot");
+        Path leftover = tempDir.resolve("leftover");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file)) {
+            manager.setDeltaMergeThreshold(0);
+            for (int i = 0; i < 1_000; i++) {
+                manager.createTask(new Task("Task " + i, "Description " + i, Status.NEW));
+            }
+            manager.addDependency(9, 11);
+            // Без базы первая контрольная точка пишет полный снимок
+            manager.checkpoint();
+            assertTrue(Files.exists(base));
+            manager.updateTask(copy(manager.findTask(7), "Renamed", Status.DONE, null));
+            manager.deleteTask(8);
+            manager.checkpoint();
+            Path delta = tempDir.resolve("tasks.log.snapshot.delta.2");
+            assertTrue(Files.size(delta) * 100 < Files.size(base), Files.size(delta) + " / " + Files.size(base));
+            manager.getTask(9);
+            manager.getTask(10);
+            manager.checkpoint();
+            // Задача удалена и создана заново под прежним id: из истории и графа зависимостей она ушла
+            manager.deleteTask(9);
+            Task revived = new Task("Revived", "D", Status.NEW);
+            revived.setId(9);
+            manager.updateTask(revived);
+            manager.checkpoint();
+            Files.copy(delta, leftover);
+            manager.mergeDeltas();
+            assertFalse(Files.exists(delta));
+            assertFalse(Files.exists(tempDir.resolve("tasks.log.snapshot.delta.4")));
+            manager.createTask(new Task("After merge", "D", Status.NEW));
+            // Как будто процесс упал после записи новой базы, но до удаления слитых дельт
+            Files.copy(leftover, delta);
+        }
+
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertFalse(Files.exists(tempDir.resolve("tasks.log.snapshot.delta.2")));
+            assertEquals(1_000, restored.getTasks().size());
+            assertEquals("Renamed", restored.findTask(7).getName());
+            assertNull(restored.findTask(8));
+            assertTrue(restored.getTopologicalOrder().isEmpty());
+            assertEquals("Revived", restored.findTask(9).getName());
+            assertEquals(List.of(10), restored.getHistory().stream().map(Task::getId).collect(Collectors.toList()));
+            assertEquals("After merge", restored.findTask(1_000).getName());
+            restored.snapshot();
+            assertEquals(1_001, restored.createTask(new Task("Task", "D", Status.NEW)).getId());
+        }
+    }
+
+    private static Task copy(Task task, String name, Status status, LocalDateTime start) {
+        Task copy = new Task(name, task.getDescription(), status, start, task.getDuration());
+        copy.setId(task.getId());
+        return copy;
+    }
+
+    private static List<String> describe(InMemoryTaskManager manager) {
+        List<String> state = new ArrayList<>();
+        List<Task> items = new ArrayList<>(manager.getTasksView());
+        items.addAll(manager.getEpicsView());
+        items.addAll(manager.getSubtasksView());
+        items.sort(Comparator.comparingInt(Task::getId));
+        for (Task item : items) {
+            String epic = item instanceof Subtask ? " epic " + ((Subtask) item).getEpicId()
+                    : item instanceof Epic ? " subtasks " + ((Epic) item).getSubtaskIds() : "";
+            state.add(item.getId() + " " + item.getName() + " " + item.getStatus() + " " + item.getStartTime()
+                    + " " + item.getDuration() + epic);
+        }
+        for (Task viewed : manager.getHistoryView()) {
+            state.add("viewed " + viewed.getId());
+        }
+        int[] edges = manager.dependencyEdges();
+        List<String> dependencies = new ArrayList<>();
+        for (int i = 0; i < edges.length; i += 2) {
+            dependencies.add("dependency " + edges[i] + " -> " + edges[i + 1]);
+        }
+        dependencies.sort(null);
+        state.addAll(dependencies);
+        state.add("next id " + manager.peekNextId());
+        return state;
+    }
+}
@@ -88,4 +88,57 @@ class InMemoryHistoryManagerTest {
         assertEquals(task2, history.get(0));
         assertEquals(task1, history.get(1));
     }
+
+    @Test
+    void lruHistoryEvictsLeastRecentlyViewed() {
+        HistoryManager boundedHistory = Managers.getDefaultHistory(2);
+        Task task1 = taskManager.createTask(new Task("Task 1", "Description", Status.NEW));
+        Task task2 = taskManager.createTask(new Task("Task 2", "Description", Status.NEW));
+        Task task3 = taskManager.createTask(new Task("Task 3", "Description", Status.NEW));
+        boundedHistory.add(task1);
+        boundedHistory.add(task2);
+        boundedHistory.add(task1);
+        boundedHistory.add(task3);
+
+        assertEquals(List.of(task1, task3), boundedHistory.getHistory());
+        assertEquals(1, boundedHistory.getEvictionCount());
+        assertEquals(1, boundedHistory.getHitCount());
+    }
+
+    @Test
+    void segmentedLruHistoryKeepsFrequentlyViewedTasks() {
+        HistoryManager boundedHistory = Managers.getDefaultHistory(3, SegmentedLruEvictionPolicy::new);
+        Task frequent = taskManager.createTask(new Task("Frequent", "Description", Status.NEW));
+        boundedHistory.add(frequent);
+        boundedHistory.add(frequent);
+        for (int i = 0; i < 5; i++) {
+            boundedHistory.add(taskManager.createTask(new Task("Task " + i, "Description", Status.NEW)));
+        }
+
+        List<Task> history = boundedHistory.getHistory();
+        assertEquals(3, history.size());
+        assertEquals(frequent, history.get(0));
+        assertEquals(3, boundedHistory.getEvictionCount());
+        assertEquals(1, boundedHistory.getHitCount());
+    }
+
+    @Test
+    void removedTaskIsNotEvictedLater() {
+        HistoryManager boundedHistory = Managers.getDefaultHistory(2, SegmentedLruEvictionPolicy::new);
+        Task task1 = taskManager.createTask(new Task("Task 1", "Description", Status.NEW));
+        Task task2 = taskManager.createTask(new Task("Task 2", "Description", Status.NEW));
+        Task task3 = taskManager.createTask(new Task("Task 3", "Description", Status.NEW));
+        boundedHistory.add(task1);
+        boundedHistory.add(task2);
+        boundedHistory.remove(task1.getId());
+        boundedHistory.add(task3);
+
+        assertEquals(List.of(task2, task3), boundedHistory.getHistory());
+        assertEquals(0, boundedHistory.getEvictionCount());
+    }
+
+    @Test
+    void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(0));
+    }
 }
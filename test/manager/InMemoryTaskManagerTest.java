@@ -7,7 +7,14 @@ import task.Status;
 import task.Subtask;
 import task.Task;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -288,4 +295,553 @@ class InMemoryTaskManagerTest {
 
         assertTrue(historyTask.contains(task1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void epicStatusFollowsSubtaskStatusChanges() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        assertEquals(Status.NEW, epic.getStatus());
+
+        Subtask subtask1 = manager.createSubtask(new Subtask("Subtask 1", "Description", Status.NEW, epic.getId()));
+        Subtask subtask2 = manager.createSubtask(new Subtask("Subtask 2", "Description", Status.DONE, epic.getId()));
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        subtask1.setStatus(Status.DONE);
+        manager.updateSubtask(subtask1);
+        assertEquals(Status.DONE, epic.getStatus());
+
+        manager.deleteSubtask(subtask2.getId());
+        manager.deleteSubtask(subtask1.getId());
+        assertEquals(Status.NEW, epic.getStatus());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void epicStatusCountersFollowSubtaskMoveBetweenEpics() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic1 = manager.createEpic(new Epic("Epic 1", "Description"));
+        Epic epic2 = manager.createEpic(new Epic("Epic 2", "Description"));
+        Subtask subtask = manager.createSubtask(new Subtask("Subtask", "Description", Status.DONE, epic1.getId()));
+        assertEquals(Status.DONE, epic1.getStatus());
+
+        Subtask moved = new Subtask("Subtask", "Description", Status.IN_PROGRESS, epic2.getId());
+        moved.setId(subtask.getId());
+        manager.updateSubtask(moved);
+
+        assertEquals(Status.NEW, epic1.getStatus());
+        assertEquals(0, epic1.getSubtaskList().size());
+        assertEquals(Status.IN_PROGRESS, epic2.getStatus());
+        assertEquals(List.of(moved), epic2.getSubtaskList());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void epicKeepsSubtasksUniqueAndInInsertionOrder() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic1 = manager.createEpic(new Epic("Epic 1", "Description"));
+        Epic epic2 = manager.createEpic(new Epic("Epic 2", "Description"));
+        Subtask subtask1 = manager.createSubtask(new Subtask("Subtask 1", "Description", Status.NEW, epic1.getId()));
+        Subtask subtask2 = manager.createSubtask(new Subtask("Subtask 2", "Description", Status.NEW, epic1.getId()));
+        Subtask subtask3 = manager.createSubtask(new Subtask("Subtask 3", "Description", Status.NEW, epic1.getId()));
+        epic1.addSubtask(subtask2);
+        assertEquals(3, epic1.getSubtaskCount());
+
+        Subtask updated = new Subtask("Subtask 1", "Updated", Status.DONE, epic1.getId());
+        updated.setId(subtask1.getId());
+        manager.updateSubtask(updated);
+        assertEquals(List.of(updated, subtask2, subtask3), epic1.getSubtaskList());
+        assertSame(updated, epic1.getSubtaskList().get(0));
+
+        subtask2.setEpicId(epic2.getId());
+        manager.updateSubtask(subtask2);
+        assertEquals(List.of(subtask2.getId()), new ArrayList<>(epic2.getSubtaskIds()));
+        subtask2.setEpicId(epic1.getId());
+        manager.updateSubtask(subtask2);
+        assertEquals(List.of(updated, subtask3, subtask2), epic1.getSubtaskList());
+        assertEquals(0, epic2.getSubtaskCount());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void epicCascadesRemoveSubtasksFromHistory() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "Description", Status.NEW));
+        for (int i = 0; i < 2; i++) {
+            Epic epic = manager.createEpic(new Epic("Epic " + i, "Description"));
+            manager.getEpic(epic.getId());
+            for (int j = 0; j < 3; j++) {
+                manager.getSubtask(manager.createSubtask(new Subtask("Subtask", "Description", Status.NEW,
+                        epic.getId())).getId());
+            }
+        }
+        manager.getTask(task.getId());
+
+        manager.deleteEpic(1);
+        assertEquals(List.of(5, 6, 7, 8, 0),
+                manager.getHistory().stream().map(Task::getId).collect(Collectors.toList()));
+        manager.clearEpics();
+        assertEquals(List.of(task), manager.getHistory());
+    }
+
+    @Test
+    void epicStatusCountersStayConsistentAfterClearAndCascade() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic1 = manager.createEpic(new Epic("Epic 1", "Description"));
+        Epic epic2 = manager.createEpic(new Epic("Epic 2", "Description"));
+        for (int i = 0; i < 100; i++) {
+            Status status = Status.values()[i % Status.values().length];
+            int epicId = i % 2 == 0 ? epic1.getId() : epic2.getId();
+            manager.createSubtask(new Subtask("Subtask " + i, "Description", status, epicId));
+        }
+        assertTrue(manager.isEpicStatusConsistent());
+
+        manager.deleteEpic(epic1.getId());
+        assertTrue(manager.isEpicStatusConsistent());
+
+        manager.clearSubtasks();
+        assertEquals(Status.NEW, epic2.getStatus());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void statusQueriesFollowUpdatesAndDerivedEpicStatus() {
+        assertEquals(List.of("Task 1"), names(taskManager.getTasksByStatus(Status.NEW)));
+        assertEquals(List.of("Subtask 2"), names(taskManager.getSubtasksByStatus(Status.IN_PROGRESS)));
+        assertEquals(List.of("Epic 2"), names(taskManager.getEpicsByStatus(Status.DONE)));
+
+        Subtask subtask = taskManager.getSubtask(5);
+        subtask.setStatus(Status.DONE);
+        taskManager.updateSubtask(subtask);
+        Subtask other = taskManager.getSubtask(4);
+        other.setStatus(Status.DONE);
+        taskManager.updateSubtask(other);
+
+        assertTrue(taskManager.getSubtasksByStatus(Status.IN_PROGRESS).isEmpty());
+        assertEquals(2, taskManager.getEpicsByStatus(Status.DONE).size());
+        assertTrue(taskManager.getEpicsByStatus(Status.IN_PROGRESS).isEmpty());
+        assertStatusIndexesMatchScan();
+    }
+
+    @Test
+    void statusIndexesStayInSyncAfterClearAndCascade() {
+        taskManager.deleteEpic(2);
+        assertStatusIndexesMatchScan();
+        assertTrue(taskManager.getSubtasksByStatus(Status.NEW).isEmpty());
+
+        taskManager.clearSubtasks();
+        assertStatusIndexesMatchScan();
+        assertEquals(1, taskManager.getEpicsByStatus(Status.NEW).size());
+
+        taskManager.clearTasks();
+        taskManager.clearEpics();
+        assertStatusIndexesMatchScan();
+        for (Status status : Status.values()) {
+            assertTrue(taskManager.getTasksByStatus(status).isEmpty());
+            assertTrue(taskManager.getEpicsByStatus(status).isEmpty());
+        }
+    }
+
+    private void assertStatusIndexesMatchScan() {
+        for (Status status : Status.values()) {
+            assertEquals(idsWithStatus(taskManager.getTasks(), status), ids(taskManager.getTasksByStatus(status)));
+            assertEquals(idsWithStatus(taskManager.getEpics(), status), ids(taskManager.getEpicsByStatus(status)));
+            assertEquals(idsWithStatus(taskManager.getSubtasks(), status),
+                    ids(taskManager.getSubtasksByStatus(status)));
+        }
+    }
+
+    private static Set<Integer> idsWithStatus(List<? extends Task> items, Status status) {
+        Set<Integer> ids = new HashSet<>();
+        for (Task item : items) {
+            if (item.getStatus() == status) {
+                ids.add(item.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static Set<Integer> ids(List<? extends Task> items) {
+        Set<Integer> ids = new HashSet<>();
+        for (Task item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> names(List<? extends Task> items) {
+        List<String> names = new ArrayList<>();
+        for (Task item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void searchMatchesPrefixesAndRanksNameHitsFirst() {
+        TaskManager manager = Managers.getDefault();
+        Task inDescription = manager.createTask(new Task("Deploy", "Update the API gateway", Status.NEW));
+        Task inName = manager.createTask(new Task("API tokens", "Rotate keys", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Релиз API", "Подготовка релиза"));
+        manager.createTask(new Task("Unrelated", "Nothing here", Status.NEW));
+
+        assertEquals(List.of(inName, epic, inDescription), manager.search("api", 0, 10));
+        assertEquals(List.of(inName), manager.search("ap tok", 0, 10));
+        assertEquals(List.of(epic), manager.search("РЕЛИЗ", 0, 10));
+        assertEquals(List.of(epic, inDescription), manager.search("api", 1, 2));
+        assertTrue(manager.search("missing", 0, 10).isEmpty());
+    }
+
+    @Test
+    void searchIndexFollowsUpdatesAndDeletes() {
+        Subtask subtask = taskManager.getSubtask(4);
+        subtask.setName("Migrate database");
+        taskManager.updateSubtask(subtask);
+        assertEquals(List.of(subtask), taskManager.search("migr", 0, 10));
+        assertEquals(3, taskManager.search("subtask", 0, 10).size());
+
+        taskManager.deleteEpic(2);
+        assertTrue(taskManager.search("migrate", 0, 10).isEmpty());
+        assertEquals(1, taskManager.search("subtask", 0, 10).size());
+
+        taskManager.clearTasks();
+        taskManager.clearEpics();
+        assertTrue(taskManager.search("description", 0, 10).isEmpty());
+    }
+
+    @Test
+    void deleteTaskIgnoresIdsOfOtherTypes() {
+        Subtask subtask = taskManager.getSubtask(4);
+        taskManager.deleteTask(4);
+        taskManager.deleteTask(2);
+
+        assertTrue(taskManager.getSubtasks().contains(subtask));
+        assertEquals(List.of(subtask), taskManager.search("subtask 1", 0, 10));
+        assertEquals(1, taskManager.search("epic 1", 0, 10).size());
+        assertEquals(List.of(subtask), taskManager.getHistory());
+
+        TaskManager concurrent = Managers.getConcurrent();
+        Epic epic = concurrent.createEpic(new Epic("Epic", "Description"));
+        concurrent.getEpic(epic.getId());
+        concurrent.deleteTask(epic.getId());
+        assertEquals(List.of(epic.getId()), idList(concurrent.getHistory()));
+    }
+
+    @Test
+    void batchCreateAssignsContiguousIdsAndRefreshesEpics() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        List<Task> tasks = manager.createTasks(List.of(new Task("Task 1", "Description", Status.NEW),
+                new Task("Task 2", "Description", Status.DONE)));
+        List<Epic> epics = manager.createEpics(List.of(new Epic("Epic 1", "Description"),
+                new Epic("Epic 2", "Description")));
+        int epicId = epics.get(0).getId();
+        List<Subtask> subtasks = manager.createSubtasks(List.of(
+                new Subtask("Subtask 1", "Description", Status.DONE, epicId),
+                new Subtask("Subtask 2", "Description", Status.DONE, epicId),
+                new Subtask("Subtask 3", "Description", Status.NEW, epics.get(1).getId())));
+
+        assertEquals(List.of(0, 1), List.of(tasks.get(0).getId(), tasks.get(1).getId()));
+        assertEquals(List.of(4, 5, 6), List.of(subtasks.get(0).getId(), subtasks.get(1).getId(),
+                subtasks.get(2).getId()));
+        assertEquals(Status.DONE, epics.get(0).getStatus());
+        assertEquals(List.of(subtasks.get(0), subtasks.get(1)), epics.get(0).getSubtaskList());
+        assertEquals(List.of(subtasks.get(1)), manager.search("subtask 2", 0, 10));
+        assertEquals(7, manager.createTask(new Task("Task 3", "Description", Status.NEW)).getId());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void invalidBatchIsRejectedWithoutChanges() {
+        Subtask missingEpic = new Subtask("Subtask", "Description", Status.NEW, 100);
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createSubtasks(
+                List.of(new Subtask("Subtask", "Description", Status.NEW, 2), missingEpic)));
+        Task task = new Task("Task", "Description", Status.NEW);
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createTasks(List.of(task, task)));
+        Task unknown = new Task("Unknown", "Description", Status.NEW);
+        unknown.setId(100);
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.updateTasks(List.of(taskManager.getTask(0), unknown)));
+
+        assertEquals(2, taskManager.getTasks().size());
+        assertEquals(3, taskManager.getSubtasks().size());
+        assertNull(task.getId());
+        assertEquals(7, taskManager.createTask(new Task("Task", "Description", Status.NEW)).getId());
+    }
+
+    @Test
+    void batchUpdateAndDeleteKeepEpicStatusConsistent() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        List<Subtask> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Subtask("Subtask " + i, "Description", Status.NEW, epic.getId()));
+        }
+        List<Subtask> subtasks = manager.createSubtasks(batch);
+        for (Subtask subtask : subtasks) {
+            subtask.setStatus(Status.DONE);
+        }
+        manager.updateSubtasks(subtasks);
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(10, manager.getSubtasksByStatus(Status.DONE).size());
+
+        manager.deleteSubtasks(List.of(subtasks.get(0).getId(), subtasks.get(1).getId(), 100));
+        assertEquals(8, epic.getSubtaskList().size());
+        manager.deleteEpics(List.of(epic.getId()));
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertTrue(manager.isEpicStatusConsistent());
+    }
+
+    @Test
+    void viewsAreLiveAndReadOnly() {
+        Collection<Task> tasks = taskManager.getTasksView();
+        Collection<Task> history = taskManager.getHistoryView();
+        assertEquals(2, tasks.size());
+        assertTrue(history.isEmpty());
+
+        taskManager.createTask(new Task("Task 3", "Description", Status.NEW));
+        taskManager.getTask(0);
+        taskManager.getEpic(2);
+        assertEquals(3, tasks.size());
+        assertEquals(List.of(0, 2), idList(history));
+
+        taskManager.deleteEpic(2);
+        assertEquals(1, taskManager.getEpicsView().size());
+        assertEquals(1, taskManager.getSubtasksView().size());
+        assertEquals(List.of(0), idList(history));
+        assertThrows(UnsupportedOperationException.class, () -> tasks.remove(taskManager.getTask(0)));
+        assertThrows(UnsupportedOperationException.class, () -> history.clear());
+    }
+
+    @Test
+    void pagingWalksIdsInOrderWhileStoreChanges() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        for (int i = 0; i < 10; i++) {
+            manager.createTask(new Task("Task " + i, "Description", Status.NEW));
+            manager.createEpic(new Epic("Epic " + i, "Description"));
+        }
+        List<Integer> seen = new ArrayList<>();
+        Page<Task> page = manager.getTasksPage(0, 3);
+        seen.addAll(idList(page.getItems()));
+        // Между страницами: удаляем ещё не прочитанную и уже прочитанную задачу, добавляем новую
+        manager.deleteTask(8);
+        manager.deleteTask(0);
+        manager.createTask(new Task("Task 10", "Description", Status.NEW));
+        while (page.hasNext()) {
+            page = manager.getTasksPage(page.getNextCursor(), 3);
+            seen.addAll(idList(page.getItems()));
+        }
+        assertEquals(List.of(0, 2, 4, 6, 10, 12, 14, 16, 18, 20), seen);
+        assertFalse(manager.getTasksPage(page.getNextCursor(), 3).hasNext());
+        assertTrue(manager.getEpicsPage(100, 5).getItems().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.getSubtasksPage(0, 0));
+    }
+
+    @Test
+    void pagingSkipsIdGapsWithoutWalkingThem() {
+        for (TaskManager manager : List.of(new InMemoryTaskManager(), Managers.getConcurrent())) {
+            Task first = manager.createTask(new Task("First", "Description", Status.NEW));
+            Task far = new Task("Far", "Description", Status.NEW);
+            far.setId(Integer.MAX_VALUE - 2);
+            manager.updateTask(far);
+            Page<Task> page = assertTimeoutPreemptively(Duration.ofSeconds(1), () -> manager.getTasksPage(0, 1));
+            assertEquals(List.of(first), page.getItems());
+            assertEquals(far.getId(), page.getNextCursor());
+            page = assertTimeoutPreemptively(Duration.ofSeconds(1),
+                    () -> manager.getTasksPage(first.getId() + 1, 5));
+            assertEquals(List.of(far), page.getItems());
+            assertFalse(page.hasNext());
+            assertEquals(Integer.MAX_VALUE - 1, page.getNextCursor());
+        }
+    }
+
+    @Test
+    void upsertWithUnissuedIdMovesIdCounter() {
+        Task task = new Task("Imported", "Description", Status.NEW);
+        task.setId(100);
+        taskManager.updateTask(task);
+        assertEquals(101, taskManager.createTask(new Task("Task", "Description", Status.NEW)).getId());
+        assertEquals(List.of(task), taskManager.getTasksPage(50, 1).getItems());
+    }
+
+    @Test
+    void updateDoesNotTakeOverIdOfAnotherType() {
+        LocalDateTime nine = LocalDateTime.of(2024, 5, 1, 9, 0);
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getCompact())) {
+            Epic epic = manager.createEpic(new Epic("Alpha epic", "Description"));
+            Subtask subtask = manager.createSubtask(
+                    new Subtask("Alpha subtask", "Description", Status.NEW, epic.getId(), nine, Duration.ofHours(1)));
+
+            Task intruder = new Task("Intruder", "Description", Status.NEW);
+            intruder.setId(subtask.getId());
+            assertNull(manager.updateTask(intruder));
+            Subtask fake = new Subtask("Intruder", "Description", Status.NEW, epic.getId());
+            fake.setId(epic.getId());
+            assertNull(manager.updateSubtask(fake));
+            Epic other = new Epic("Intruder", "Description");
+            other.setId(subtask.getId());
+            assertNull(manager.updateEpic(other));
+
+            assertTrue(manager.getTasks().isEmpty());
+            assertEquals(List.of(subtask.getId()), idList(manager.getSubtasks()));
+            assertEquals(List.of(epic.getId()), idList(manager.getEpics()));
+            assertEquals(List.of(subtask.getId()), idList(manager.getPrioritizedTasks()));
+            assertEquals(2, manager.search("alpha", 0, 10).size());
+        }
+    }
+
+    @Test
+    void overlappingTasksAreRejectedAndAdjacentAreAccepted() {
+        LocalDateTime nine = LocalDateTime.of(2024, 5, 1, 9, 0);
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getCompact())) {
+            Task first = manager.createTask(timed("First", nine, 60));
+            Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+            assertThrows(TaskOverlapException.class,
+                    () -> manager.createTask(timed("Inside", nine.plusMinutes(30), 10)));
+            assertThrows(TaskOverlapException.class, () -> manager.createSubtask(
+                    new Subtask("Around", "D", Status.NEW, epic.getId(), nine.minusMinutes(1), Duration.ofHours(2))));
+            Task next = manager.createTask(timed("Adjacent", nine.plusHours(1), 30));
+            manager.createTask(new Task("Untimed", "D", Status.NEW));
+
+            next.setStartTime(nine.plusMinutes(59));
+            assertThrows(TaskOverlapException.class, () -> manager.updateTask(next));
+            // Отклонённое обновление оставляет за задачей прежний интервал
+            assertThrows(TaskOverlapException.class, () -> manager.createTask(timed("Taken", nine.plusHours(1), 10)));
+            // Сдвиг задачи внутри своего же интервала пересечением не считается
+            first.setStartTime(nine.minusMinutes(15));
+            manager.updateTask(first);
+            manager.createTask(timed("Freed", nine.plusMinutes(45), 15));
+            assertEquals(3, manager.getPrioritizedTasks().size());
+        }
+    }
+
+    @Test
+    void batchWithOverlapIsRejectedAsWhole() {
+        LocalDateTime nine = LocalDateTime.of(2024, 5, 1, 9, 0);
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getCompact())) {
+            manager.createTask(timed("Existing", nine, 60));
+            assertThrows(TaskOverlapException.class, () -> manager.createTasks(List.of(
+                    timed("A", nine.plusHours(2), 30), timed("B", nine.plusHours(2).plusMinutes(20), 30))));
+            assertThrows(TaskOverlapException.class, () -> manager.createTasks(List.of(
+                    timed("C", nine.plusHours(3), 30), timed("D", nine.plusMinutes(30), 30))));
+            assertEquals(1, manager.getTasks().size());
+            assertEquals(1, manager.getPrioritizedTasks().size());
+
+            List<Task> created = manager.createTasks(List.of(timed("E", nine.plusHours(2), 30),
+                    timed("F", nine.plusHours(3), 30)));
+            // Две задачи меняются местами: по отдельности каждая пересеклась бы со старым местом другой
+            created.get(0).setStartTime(nine.plusHours(3));
+            created.get(1).setStartTime(nine.plusHours(2));
+            assertThrows(TaskOverlapException.class, () -> manager.updateTasks(created));
+        }
+    }
+
+    @Test
+    void prioritizedTasksFollowStartTimeAndSkipEpicsAndUntimed() {
+        LocalDateTime nine = LocalDateTime.of(2024, 5, 1, 9, 0);
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent(), Managers.getCompact())) {
+            Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+            Subtask late = manager.createSubtask(
+                    new Subtask("Late", "D", Status.NEW, epic.getId(), nine.plusHours(5), Duration.ofMinutes(30)));
+            Task early = manager.createTask(timed("Early", nine, 30));
+            manager.createTask(new Task("Untimed", "D", Status.NEW));
+            Task middle = manager.createTask(timed("Middle", nine.plusHours(2), 15));
+            Subtask onlyDuration = manager.createSubtask(
+                    new Subtask("Duration only", "D", Status.NEW, epic.getId(), null, Duration.ofMinutes(45)));
+
+            assertEquals(List.of(early.getId(), middle.getId(), late.getId()), idList(manager.getPrioritizedTasks()));
+            Epic stored = manager.getEpic(epic.getId());
+            assertEquals(nine.plusHours(5), stored.getStartTime());
+            assertEquals(nine.plusHours(5).plusMinutes(30), stored.getEndTime());
+            assertEquals(Duration.ofMinutes(75), stored.getDuration());
+            assertEquals(Duration.ofMinutes(45), manager.getSubtask(onlyDuration.getId()).getDuration());
+
+            manager.deleteTask(early.getId());
+            manager.deleteEpic(epic.getId());
+            assertEquals(List.of(middle.getId()), idList(manager.getPrioritizedTasks()));
+            manager.clearTasks();
+            assertTrue(manager.getPrioritizedTasks().isEmpty());
+            manager.createTask(timed("Reused slot", nine.plusHours(2), 15));
+        }
+    }
+
+    @Test
+    void dependenciesGiveReadyTasksOrderAndCriticalPath() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task design = manager.createTask(new Task("Design", "D", Status.NEW, null, Duration.ofHours(4)));
+        Task backend = manager.createTask(new Task("Backend", "D", Status.NEW, null, Duration.ofHours(8)));
+        Task frontend = manager.createTask(new Task("Frontend", "D", Status.NEW, null, Duration.ofHours(2)));
+        Epic release = manager.createEpic(new Epic("Release", "D"));
+        Subtask deploy = manager.createSubtask(
+                new Subtask("Deploy", "D", Status.NEW, release.getId(), null, Duration.ofHours(1)));
+
+        assertTrue(manager.addDependency(backend.getId(), release.getId()));
+        assertTrue(manager.addDependency(frontend.getId(), release.getId()));
+        assertTrue(manager.addDependency(design.getId(), backend.getId()));
+        assertTrue(manager.addDependency(design.getId(), frontend.getId()));
+        assertFalse(manager.addDependency(design.getId(), frontend.getId()));
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(design.getId(), 100));
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(100, design.getId()));
+        assertThrows(DependencyCycleException.class, () -> manager.addDependency(release.getId(), design.getId()));
+        assertThrows(DependencyCycleException.class, () -> manager.addDependency(design.getId(), design.getId()));
+
+        List<Integer> order = idList(manager.getTopologicalOrder());
+        assertEquals(4, order.size());
+        assertEquals(design.getId(), order.get(0));
+        assertEquals(release.getId(), order.get(3));
+        assertEquals(List.of(design.getId(), deploy.getId()), idList(manager.getReadyTasks()));
+        // Эпик весит столько, сколько его подзадачи
+        assertEquals(List.of(design.getId(), backend.getId(), release.getId()), idList(manager.getCriticalPath()));
+
+        design.setStatus(Status.DONE);
+        manager.updateTask(design);
+        assertEquals(List.of(backend.getId(), frontend.getId(), deploy.getId()), idList(manager.getReadyTasks()));
+        assertEquals(List.of(backend.getId(), frontend.getId()), idList(manager.getBlockers(release.getId()))
+                .stream().sorted().collect(Collectors.toList()));
+        assertEquals(List.of(release.getId()), idList(manager.getDependents(frontend.getId())));
+        assertTrue(manager.removeDependency(frontend.getId(), release.getId()));
+        assertFalse(manager.removeDependency(frontend.getId(), release.getId()));
+    }
+
+    @Test
+    void deletingItemsRemovesTheirDependencies() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "D", Status.NEW));
+        Task other = manager.createTask(new Task("Other", "D", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Epic", "D"));
+        Subtask subtask = manager.createSubtask(new Subtask("Subtask", "D", Status.NEW, epic.getId()));
+        manager.addDependency(task.getId(), subtask.getId());
+        manager.addDependency(subtask.getId(), other.getId());
+        manager.addDependency(epic.getId(), other.getId());
+
+        manager.deleteEpic(epic.getId());
+        assertTrue(manager.getBlockers(other.getId()).isEmpty());
+        assertTrue(manager.getDependents(task.getId()).isEmpty());
+        assertTrue(manager.getTopologicalOrder().isEmpty());
+
+        manager.addDependency(task.getId(), other.getId());
+        manager.deleteTask(other.getId());
+        assertTrue(manager.getTopologicalOrder().isEmpty());
+
+        Epic second = manager.createEpic(new Epic("Second", "D"));
+        Subtask first = manager.createSubtask(new Subtask("First", "D", Status.NEW, second.getId()));
+        Subtask last = manager.createSubtask(new Subtask("Last", "D", Status.NEW, second.getId()));
+        manager.addDependency(first.getId(), last.getId());
+        manager.addDependency(task.getId(), first.getId());
+        manager.clearSubtasks();
+        assertTrue(manager.getTopologicalOrder().isEmpty());
+        manager.addDependency(task.getId(), second.getId());
+        manager.clearTasks();
+        assertTrue(manager.getBlockers(second.getId()).isEmpty());
+    }
+
+    private static Task timed(String name, LocalDateTime start, int minutes) {
+        return new Task(name, "Description", Status.NEW, start, Duration.ofMinutes(minutes));
+    }
+
+    private static List<Integer> idList(Collection<? extends Task> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+}
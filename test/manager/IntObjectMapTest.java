@@ -0,0 +1,101 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Узкий диапазон ключей с отрицательными и кратными размеру таблицы - много коллизий и сдвигов
+            int key = random.nextBoolean() ? random.nextInt(2_000) - 1_000 : random.nextInt(64) << 16;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    void denseKeysIterateInOrderAndClearEmptiesMap() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        map.ensureCapacity(1_000);
+        for (int key = 999; key >= 0; key--) {
+            map.put(key, key);
+        }
+        List<Integer> values = new ArrayList<>(map.values());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, values.get(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+        assertNull(map.get(5));
+    }
+
+    @Test
+    void removingDenseKeysInOrderKeepsDisplacedKeysReachable() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int key = 0; key < 10_000; key++) {
+            map.put(key, key);
+        }
+        // У этих ключей исходная ячейка 0, поэтому они встают за сплошным отрезком плотных id
+        List<Integer> displaced = new ArrayList<>();
+        for (int i = 1; i < 64; i++) {
+            displaced.add(i << 16 ^ i);
+            map.put(i << 16 ^ i, i);
+        }
+        for (int key = 0; key < 10_000; key++) {
+            assertEquals(key, map.remove(key));
+            assertNull(map.get(key));
+        }
+        for (int key : displaced) {
+            assertEquals(key >>> 16, map.get(key));
+        }
+        assertEquals(displaced.size(), map.size());
+    }
+
+    @Test
+    void iteratorFailsFastOnStructuralChange() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int key = 0; key < 10; key++) {
+            map.put(key, key);
+        }
+        Iterator<Integer> afterPut = map.values().iterator();
+        afterPut.next();
+        map.put(100, 100);
+        assertThrows(ConcurrentModificationException.class, afterPut::hasNext);
+        assertThrows(ConcurrentModificationException.class, afterPut::next);
+
+        Iterator<Integer> afterRemove = map.values().iterator();
+        map.remove(3);
+        assertThrows(ConcurrentModificationException.class, afterRemove::next);
+
+        // Замена значения по существующему ключу структуру не меняет
+        Iterator<Integer> afterReplace = map.values().iterator();
+        map.put(0, -1);
+        assertEquals(-1, afterReplace.next());
+
+        Iterator<Integer> afterClear = map.values().iterator();
+        map.clear();
+        assertThrows(ConcurrentModificationException.class, afterClear::hasNext);
+    }
+}
@@ -0,0 +1,105 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTaskManagerTest {
+
+    private MetricsTaskManager taskManager;
+
+    @BeforeEach
+    public void beforeEach() {
+        taskManager = Managers.getInstrumented(Managers.getDefault());
+    }
+
+    @Test
+    void callsErrorsAndLatenciesAreCounted() {
+        Task task = taskManager.createTask(new Task("Task", "Description", Status.NEW));
+        taskManager.getTask(task.getId());
+        taskManager.getTask(task.getId());
+        taskManager.updateTask(new Task("No id", "Description", Status.NEW));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.createSubtasks(
+                List.of(new Subtask("Subtask", "Description", Status.NEW, 100))));
+
+        ManagerMetrics metrics = taskManager.getMetrics();
+        assertEquals(1, metrics.getCallCount("createTask"));
+        assertEquals(2, metrics.getCallCount("getTask"));
+        assertEquals(0, metrics.getErrorCount("getTask"));
+        assertEquals(1, metrics.getErrorCount("updateTask"));
+        assertEquals(1, metrics.getErrorCount("createSubtasks"));
+        assertTrue(metrics.getLatencyPercentile("getTask", 0.99) > 0);
+        assertEquals(0, metrics.getLatencyPercentile("search", 0.5));
+    }
+
+    @Test
+    void gaugesFollowManagerState() {
+        Epic epic = taskManager.createEpic(new Epic("Epic", "Description"));
+        taskManager.createEpic(new Epic("Empty epic", "Description"));
+        for (int i = 0; i < 3; i++) {
+            taskManager.createSubtask(new Subtask("Subtask " + i, "Description", Status.NEW, epic.getId()));
+        }
+        taskManager.getEpic(epic.getId());
+
+        ManagerMetrics metrics = taskManager.getMetrics();
+        assertEquals(0, metrics.getGauge("tasks"));
+        assertEquals(2, metrics.getGauge("epics"));
+        assertEquals(3, metrics.getGauge("subtasks"));
+        assertEquals(1, metrics.getGauge("history_length"));
+        assertEquals(3, metrics.getGauge("largest_epic_subtasks"));
+    }
+
+    @Test
+    void exportUsesPrometheusTextFormat() {
+        taskManager.createTask(new Task("Task", "Description", Status.NEW));
+        taskManager.getTask(0);
+        String text = taskManager.getMetrics().export();
+
+        assertTrue(text.contains("# TYPE kanban_task_manager_calls_total counter\n"));
+        assertTrue(text.contains("kanban_task_manager_calls_total{method=\"getTask\"} 1\n"));
+        assertTrue(text.contains("kanban_task_manager_latency_seconds_bucket{method=\"getTask\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("kanban_task_manager_latency_seconds_count{method=\"getTask\"} 1\n"));
+        assertTrue(text.contains("kanban_task_manager_tasks 1\n"));
+    }
+
+    @Test
+    void historyManagerWrapperCountsCallsAndExposesGauges() {
+        MetricsHistoryManager historyManager = Managers.getInstrumentedHistory(Managers.getDefaultHistory(2));
+        for (int i = 0; i < 3; i++) {
+            Task task = new Task("Task " + i, "Description", Status.NEW);
+            task.setId(i);
+            historyManager.add(task);
+        }
+        historyManager.remove(2);
+
+        ManagerMetrics metrics = historyManager.getMetrics();
+        assertEquals(3, metrics.getCallCount("add"));
+        assertEquals(1, metrics.getCallCount("remove"));
+        assertEquals(1, metrics.getGauge("history_length"));
+        assertEquals(1, metrics.getGauge("evictions"));
+    }
+
+    @Test
+    void histogramBucketsBoundTheRecordedValue() {
+        for (long value : new long[]{0, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            assertTrue(LatencyHistogram.upperBound(bucket) - value <= value / 8);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(100, histogram.totalCount());
+        long median = histogram.percentile(0.5);
+        assertTrue(median >= 50_000 && median <= 50_000 * 9 / 8);
+    }
+}
@@ -0,0 +1,129 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+import task.TaskTexts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTextStoreTest {
+
+    private static final int SLAB_SIZE = 256;
+
+    @Test
+    void textsMoveOffHeapAndComeBackWhenItemLeaves() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new OffHeapTextStore(SLAB_SIZE));
+        Task task = manager.createTask(new Task("Релиз 🚀", "Описание", Status.NEW));
+        assertTrue(TaskTexts.isStoredOutside(task));
+        assertEquals("Релиз 🚀", task.getName());
+        assertEquals(List.of(task), manager.search("релиз", 0, 10));
+
+        task.setDescription("Новое описание");
+        assertFalse(TaskTexts.isStoredOutside(task));
+        manager.updateTask(task);
+        assertTrue(TaskTexts.isStoredOutside(task));
+        assertEquals("Новое описание", manager.getTask(task.getId()).getDescription());
+
+        Task replacement = new Task("Replacement", null, Status.DONE);
+        replacement.setId(task.getId());
+        manager.updateTask(replacement);
+        assertFalse(TaskTexts.isStoredOutside(task));
+        assertEquals("Релиз 🚀", task.getName());
+        assertNull(manager.getTask(task.getId()).getDescription());
+
+        manager.deleteTask(replacement.getId());
+        assertFalse(TaskTexts.isStoredOutside(replacement));
+        assertEquals("Replacement", replacement.getName());
+    }
+
+    @Test
+    void compactionReleasesSlabsAfterDeletesAndClear() {
+        OffHeapTextStore store = new OffHeapTextStore(SLAB_SIZE);
+        InMemoryTaskManager manager = new InMemoryTaskManager(store);
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tasks.add(manager.createTask(new Task("Task " + i, "Description " + i, Status.NEW)));
+            manager.createSubtask(new Subtask("Subtask " + i, "Description " + i, Status.NEW, epic.getId()));
+        }
+        long filled = store.getCapacityBytes();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i % 10 != 0) {
+                manager.deleteTask(tasks.get(i).getId());
+            }
+        }
+        manager.clearSubtasks();
+        assertTrue(store.getCapacityBytes() < filled / 4, store.getCapacityBytes() + " of " + filled);
+        assertCompacted(store);
+        for (int i = 0; i < tasks.size(); i += 10) {
+            assertEquals("Task " + i, manager.getTask(tasks.get(i).getId()).getName());
+            assertEquals("Description " + i, manager.getTask(tasks.get(i).getId()).getDescription());
+        }
+
+        manager.clearTasks();
+        manager.clearEpics();
+        assertEquals(0, store.getLiveBytes());
+        assertEquals(0, store.getGarbageBytes());
+    }
+
+    @Test
+    void textsSurviveRandomChurnAndCompaction() {
+        TaskManager expected = new InMemoryTaskManager();
+        OffHeapTextStore store = new OffHeapTextStore(SLAB_SIZE);
+        TaskManager actual = new InMemoryTaskManager(store);
+        Random random = new Random(3);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String name = text(random, i);
+            String description = text(random, i + 1);
+            int action = random.nextInt(4);
+            if (action < 2 || ids.isEmpty()) {
+                ids.add(expected.createTask(new Task(name, description, Status.NEW)).getId());
+                actual.createTask(new Task(name, description, Status.NEW));
+            } else if (action < 3) {
+                int id = ids.get(random.nextInt(ids.size()));
+                Task task = new Task(name, description, Status.IN_PROGRESS);
+                task.setId(id);
+                expected.updateTask(task);
+                task = new Task(name, description, Status.IN_PROGRESS);
+                task.setId(id);
+                actual.updateTask(task);
+            } else {
+                int id = ids.remove(random.nextInt(ids.size()));
+                expected.deleteTask(id);
+                actual.deleteTask(id);
+            }
+        }
+        for (int id : ids) {
+            assertEquals(expected.getTask(id).getName(), actual.getTask(id).getName());
+            assertEquals(expected.getTask(id).getDescription(), actual.getTask(id).getDescription());
+        }
+        assertCompacted(store);
+    }
+
+    // После сжатия слабы, кроме активного и запасных, заняты живыми записями больше чем наполовину,
+    // а если сжатие не понадобилось, мусора меньше одного слаба
+    private static void assertCompacted(OffHeapTextStore store) {
+        long bound = 2 * store.getLiveBytes() + 4 * SLAB_SIZE;
+        assertTrue(store.getCapacityBytes() <= bound, store.getCapacityBytes() + " > " + bound);
+    }
+
+    // Иногда null и иногда текст длиннее слаба
+    private static String text(Random random, int seed) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return null;
+            case 1:
+                return "Длинное описание " + seed + " ".repeat(SLAB_SIZE);
+            default:
+                return "Задача " + seed + " ✓";
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntMapTest {
+
+    @Test
+    void behavesLikeTreeMapAndKeepsEveryOldVersion() {
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        List<PersistentIntMap<String>> versions = new ArrayList<>();
+        List<Map<Integer, String>> expectedVersions = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            // В основном плотные id, изредка большие - дерево растёт в высоту посреди работы
+            int key = random.nextInt(20) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(3_000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.get(key), map.get(key));
+            if (i % 5_000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new TreeMap<>(expected));
+            }
+        }
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(new ArrayList<>(expectedVersions.get(i).values()), versions.get(i).values());
+        }
+    }
+
+    @Test
+    void removingMissingKeyReturnsSameMapAndBoundsAreChecked() {
+        PersistentIntMap<Integer> map = PersistentIntMap.<Integer>empty().put(Integer.MAX_VALUE, 1).put(0, 0);
+        assertSame(map, map.remove(5));
+        assertEquals(List.of(0, 1), map.values());
+        assertNull(map.get(-1));
+        assertTrue(map.remove(0).remove(Integer.MAX_VALUE).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+}
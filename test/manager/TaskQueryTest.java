@@ -0,0 +1,231 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskQueryTest {
+
+    private static final String[] WORDS = {"API", "api-gateway", "Backend", "Docs", "Release", "Σigma"};
+
+    @Test
+    void plannedQueriesMatchStreamFilteringOnEveryManager() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getOffHeap(), Managers.getCompact(),
+                Managers.getConcurrent(), Managers.getInstrumented(Managers.getConcurrent()))) {
+            Random random = new Random(3);
+            List<Epic> epics = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                epics.add(manager.createEpic(new Epic(name(random), "Epic " + i)));
+                manager.createTask(new Task(name(random), description(random), status(random)));
+            }
+            for (int i = 0; i < 600; i++) {
+                int epicId = epics.get(random.nextInt(epics.size())).getId();
+                manager.createSubtask(new Subtask(name(random), description(random), status(random), epicId));
+            }
+            for (int i = 0; i < 300; i++) {
+                Random queryRandom = new Random(i);
+                int epicId = epics.get(queryRandom.nextInt(epics.size())).getId();
+                int id = queryRandom.nextInt(700);
+                Status status = Status.values()[queryRandom.nextInt(Status.values().length)];
+                String word = WORDS[queryRandom.nextInt(WORDS.length)];
+
+                TaskQuery.Builder<Subtask> subtasks = TaskQuery.subtasks();
+                TaskQuery.Builder<Task> any = TaskQuery.any();
+                List<Predicate<Task>> expected = new ArrayList<>();
+                int mask = queryRandom.nextInt(64);
+                if ((mask & 1) != 0) {
+                    subtasks.epic(epicId);
+                    any.epic(epicId);
+                    expected.add(item -> item instanceof Subtask && ((Subtask) item).getEpicId() == epicId);
+                }
+                if ((mask & 2) != 0) {
+                    subtasks.statusNot(status);
+                    any.statusNot(status);
+                    expected.add(item -> item.getStatus() != status);
+                }
+                if ((mask & 4) != 0) {
+                    subtasks.status(status, Status.DONE);
+                    any.status(status, Status.DONE);
+                    expected.add(item -> item.getStatus() == status || item.getStatus() == Status.DONE);
+                }
+                if ((mask & 8) != 0) {
+                    subtasks.nameStartsWith(word);
+                    any.nameStartsWith(word);
+                    expected.add(item -> item.getName().startsWith(word));
+                }
+                if ((mask & 16) != 0) {
+                    String prefix = word.substring(0, 2);
+                    subtasks.matching(prefix);
+                    any.matching(prefix);
+                    expected.add(item -> containsWordWithPrefix(item.getName(), prefix)
+                            || containsWordWithPrefix(item.getDescription(), prefix));
+                }
+                if ((mask & 32) != 0) {
+                    subtasks.id(id);
+                    any.id(id);
+                    expected.add(item -> item.getId() == id);
+                }
+                Predicate<Task> oracle = expected.stream().reduce(item -> true, Predicate::and);
+                assertEquals(ids(filter(manager.getSubtasksView(), oracle)), ids(subtasks.build().run(manager)));
+                List<Task> all = new ArrayList<>(manager.getTasksView());
+                all.addAll(manager.getEpicsView());
+                all.addAll(manager.getSubtasksView());
+                assertEquals(ids(filter(all, oracle)), ids(any.build().run(manager)));
+            }
+            assertTrue(manager.getHistory().isEmpty());
+        }
+    }
+
+    @Test
+    void plannerPicksTheMostSelectivePathAndExplainsIt() {
+        TaskManager manager = Managers.getDefault();
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            epics.add(manager.createEpic(new Epic("Epic " + i, "Description")));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            String name = (i % 100 == 0 ? "API " : "Backend ") + i;
+            Status status = i % 50 == 0 ? Status.IN_PROGRESS : Status.DONE;
+            manager.createSubtask(new Subtask(name, "Description", status, epics.get(i % 10).getId()));
+        }
+        int epicId = epics.get(0).getId();
+
+        TaskQuery<Subtask> query = TaskQuery.subtasks().epic(epicId).statusNot(Status.DONE)
+                .nameStartsWith("API").build();
+        String plan = query.explain(manager);
+        assertTrue(plan.startsWith("subtasks where epic = " + epicId
+                + " and status != DONE and name starts with \"API\""), plan);
+        assertTrue(plan.contains("access: search index \"api\", ~10 rows"), plan);
+        assertTrue(plan.contains("filter: type = SUBTASK and epic = " + epicId
+                + " and status != DONE and name starts with \"API\""), plan);
+        List<Subtask> expected = manager.getSubtasksView().stream()
+                .filter(subtask -> subtask.getEpicId() == epicId && subtask.getStatus() != Status.DONE
+                        && subtask.getName().startsWith("API"))
+                .sorted(Comparator.comparingInt(Task::getId))
+                .collect(Collectors.toList());
+        assertEquals(expected, query.run(manager));
+        assertEquals(10, expected.size());
+
+        // Одна подзадача в статусе IN_PROGRESS из 50 выбирается через индекс статусов, и он условие уже выполнил
+        TaskQuery<Subtask> inProgress = TaskQuery.subtasks().status(Status.IN_PROGRESS).build();
+        assertTrue(inProgress.explain(manager).contains("access: status index [IN_PROGRESS], ~20 rows\nfilter: none"));
+        assertEquals(20, inProgress.run(manager).size());
+
+        TaskQuery<Subtask> byEpic = TaskQuery.subtasks().epic(epicId).nameContains("9").build();
+        assertTrue(byEpic.explain(manager).contains("access: subtasks of epic " + epicId + ", ~100 rows"));
+
+        Subtask first = expected.get(0);
+        TaskQuery<Task> byId = TaskQuery.any().id(first.getId()).matching("api").build();
+        assertTrue(byId.explain(manager).contains("access: id " + first.getId() + ", ~1 rows"));
+        assertEquals(List.of(first), byId.run(manager));
+        assertTrue(byId.matches(first));
+        assertTrue(TaskQuery.epics().id(first.getId()).build().run(manager).isEmpty());
+
+        // Без индексов остаётся полный проход, но ответ тот же
+        TaskManager compact = Managers.getCompact();
+        compact.createEpic(new Epic("Epic", "Description"));
+        assertTrue(query.explain(compact).contains("access: full scan"));
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void plannerUsesAccessPathsOfEveryManagerThatHasThem() {
+        assertPlans(Managers.getConcurrent(), true);
+        assertPlans(Managers.getInstrumented(Managers.getDefault()), true);
+        assertPlans(Managers.getInstrumented(Managers.getConcurrent()), true);
+        // У CompactTaskManager нет индексов статусов и слов, но id и подзадачи эпика он отдаёт
+        assertPlans(Managers.getCompact(), false);
+        assertPlans(Managers.getInstrumented(Managers.getCompact()), false);
+    }
+
+    @Test
+    void compiledQueryIsReusedAcrossChanges() {
+        TaskManager manager = Managers.getDefault();
+        TaskQuery<Task> query = TaskQuery.tasks().status(Status.NEW).matching("release notes").build();
+        Task notes = manager.createTask(new Task("Release notes", "For 2.0", Status.NEW));
+        manager.createTask(new Task("Release", "Ship it", Status.NEW));
+        assertEquals(List.of(notes), query.run(manager));
+
+        notes.setStatus(Status.DONE);
+        manager.updateTask(notes);
+        assertTrue(query.run(manager).isEmpty());
+        assertFalse(query.matches(notes));
+
+        assertThrows(IllegalArgumentException.class, () -> TaskQuery.tasks().epic(1));
+        assertThrows(IllegalArgumentException.class, () -> TaskQuery.any().matching(" - "));
+        assertThrows(IllegalArgumentException.class, () -> TaskQuery.any().status());
+    }
+
+    private static void assertPlans(TaskManager manager, boolean indexed) {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            epics.add(manager.createEpic(new Epic("Epic " + i, "Description")));
+        }
+        for (int i = 0; i < 500; i++) {
+            String name = (i % 100 == 0 ? "API " : "Backend ") + i;
+            Status status = i % 50 == 0 ? Status.IN_PROGRESS : Status.DONE;
+            manager.createSubtask(new Subtask(name, "Description", status, epics.get(i % 10).getId()));
+        }
+        int epicId = epics.get(0).getId();
+
+        TaskQuery<Subtask> byEpic = TaskQuery.subtasks().epic(epicId).nameContains("9").build();
+        String plan = byEpic.explain(manager);
+        assertTrue(plan.contains("access: subtasks of epic " + epicId + ", ~50 rows"), plan);
+        List<Subtask> found = byEpic.run(manager);
+        assertEquals(5, found.size());
+
+        TaskQuery<Subtask> inProgress = TaskQuery.subtasks().status(Status.IN_PROGRESS).build();
+        plan = inProgress.explain(manager);
+        assertTrue(plan.contains(indexed ? "access: status index [IN_PROGRESS], ~10 rows" : "access: full scan"), plan);
+        assertEquals(10, inProgress.run(manager).size());
+
+        TaskQuery<Task> api = TaskQuery.any().matching("api").build();
+        plan = api.explain(manager);
+        assertTrue(plan.contains(indexed ? "access: search index \"api\", ~5 rows" : "access: full scan"), plan);
+        assertEquals(5, api.run(manager).size());
+
+        int id = found.get(0).getId();
+        TaskQuery<Task> byId = TaskQuery.any().id(id).build();
+        plan = byId.explain(manager);
+        assertTrue(plan.contains("access: id " + id + ", ~1 rows"), plan);
+        assertEquals(List.of(id), ids(byId.run(manager)));
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    private static String name(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(100);
+    }
+
+    private static String description(Random random) {
+        return random.nextBoolean() ? "About " + WORDS[random.nextInt(WORDS.length)].toLowerCase() : "Nothing";
+    }
+
+    private static Status status(Random random) {
+        return Status.values()[random.nextInt(Status.values().length)];
+    }
+
+    private static boolean containsWordWithPrefix(String text, String prefix) {
+        for (String word : text.split("[^\\p{L}\\p{Nd}]+")) {
+            if (word.toLowerCase(Locale.ROOT).startsWith(prefix.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Task> filter(Collection<? extends Task> items, Predicate<Task> predicate) {
+        return items.stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(List<? extends Task> items) {
+        return items.stream().map(Task::getId).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,154 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Status;
+import task.Subtask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSnapshotTest {
+
+    @Test
+    void snapshotMatchesManagerAndStaysFrozenAfterWrites() {
+        List<TaskManager> managers = List.of(new InMemoryTaskManager(), new ConcurrentTaskManager(),
+                new CompactTaskManager(), Managers.getInstrumented(new InMemoryTaskManager()));
+        for (TaskManager manager : managers) {
+            String name = manager.getClass().getSimpleName();
+            int taskId = manager.createTask(new Task("Task", "Description", Status.NEW)).getId();
+            int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+            int otherEpicId = manager.createEpic(new Epic("Other", "Description")).getId();
+            manager.createSubtask(new Subtask("First", "Description", Status.DONE, epicId));
+            int movedId = manager.createSubtask(new Subtask("Second", "Description", Status.NEW, epicId)).getId();
+            // Первый срез строится по уже существующим данным
+            TaskSnapshot before = manager.getSnapshot();
+            assertEquals(describe(manager), describe(before), name);
+            assertSame(before, manager.getSnapshot(), name);
+
+            manager.updateSubtask(withId(new Subtask("Moved", "Description", Status.DONE, otherEpicId), movedId));
+            manager.updateEpic(withId(new Epic("Renamed", "Description"), otherEpicId));
+            manager.createSubtask(new Subtask("Third", "Description", Status.IN_PROGRESS, otherEpicId));
+            manager.updateTask(withId(new Task("Task", "Changed", Status.DONE), taskId));
+            TaskSnapshot middle = manager.getSnapshot();
+            assertEquals(describe(manager), describe(middle), name);
+            assertTrue(middle.getVersion() > before.getVersion(), name);
+
+            manager.deleteEpic(epicId);
+            manager.clearTasks();
+            manager.getSnapshot().getEpic(otherEpicId).setName("Изменён читателем");
+            assertEquals(describe(manager), describe(manager.getSnapshot()), name);
+            assertEquals(List.of(
+                    "task 0 Task Description NEW",
+                    "epic 1 Epic IN_PROGRESS [3, 4]",
+                    "epic 2 Other NEW []",
+                    "subtask 3 First DONE epic 1",
+                    "subtask 4 Second NEW epic 1"), describe(before), name);
+            assertEquals(0, manager.getSnapshot().getTaskCount(), name);
+            assertEquals(List.of(4, 5), ids(manager.getSnapshot().getEpicSubtasks(otherEpicId)), name);
+        }
+    }
+
+    @Test
+    void concurrentReadersNeverSeeHalfAppliedCascades() throws Exception {
+        int epicsPerWriter = 300;
+        int subtasksPerEpic = 5;
+        TaskManager manager = Managers.getConcurrent();
+        manager.getSnapshot();
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 2; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < epicsPerWriter; i++) {
+                        int epicId = manager.createEpic(new Epic("Epic", "Description")).getId();
+                        List<Subtask> batch = new ArrayList<>();
+                        for (int j = 0; j < subtasksPerEpic; j++) {
+                            batch.add(new Subtask("Subtask", "Description", Status.DONE, epicId));
+                        }
+                        manager.createSubtasks(batch);
+                        if (i % 2 == 0) {
+                            manager.deleteEpic(epicId);
+                        }
+                    }
+                }));
+            }
+            Future<Integer> reader = executor.submit(() -> {
+                int checked = 0;
+                while (running.get()) {
+                    TaskSnapshot snapshot = manager.getSnapshot();
+                    int members = 0;
+                    for (Epic epic : snapshot.getEpics()) {
+                        int size = epic.getSubtaskList().size();
+                        // Пакет подзадач эпика и каскадное удаление видны целиком
+                        assertTrue(size == 0 || size == subtasksPerEpic, "Эпик с " + size + " подзадачами");
+                        assertEquals(size == 0 ? Status.NEW : Status.DONE, epic.getStatus());
+                        members += size;
+                    }
+                    assertEquals(members, snapshot.getSubtaskCount());
+                    checked++;
+                }
+                return checked;
+            });
+            for (Future<?> writer : writers) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            assertEquals(describe(manager), describe(manager.getSnapshot()));
+            assertEquals(epicsPerWriter, manager.getSnapshot().getEpicCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T extends Task> T withId(T item, int id) {
+        item.setId(id);
+        return item;
+    }
+
+    private static List<Integer> ids(List<? extends Task> items) {
+        List<Integer> ids = new ArrayList<>();
+        for (Task item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> describe(TaskManager manager) {
+        return describe(manager.getTasks(), manager.getEpics(), manager.getSubtasks());
+    }
+
+    private static List<String> describe(TaskSnapshot snapshot) {
+        return describe(snapshot.getTasks(), snapshot.getEpics(), snapshot.getSubtasks());
+    }
+
+    private static List<String> describe(List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) {
+        List<String> lines = new ArrayList<>();
+        for (Task task : sorted(tasks)) {
+            lines.add("task " + task.getId() + " " + task.getName() + " " + task.getDescription() + " "
+                    + task.getStatus());
+        }
+        for (Epic epic : sorted(epics)) {
+            lines.add("epic " + epic.getId() + " " + epic.getName() + " " + epic.getStatus() + " "
+                    + ids(epic.getSubtaskList()));
+        }
+        for (Subtask subtask : sorted(subtasks)) {
+            lines.add("subtask " + subtask.getId() + " " + subtask.getName() + " " + subtask.getStatus()
+                    + " epic " + subtask.getEpicId());
+        }
+        return lines;
+    }
+
+    private static <T extends Task> List<T> sorted(List<T> items) {
+        List<T> copy = new ArrayList<>(items);
+        copy.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return copy;
+    }
+}
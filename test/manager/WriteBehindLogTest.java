@@ -0,0 +1,148 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import task.Status;
+import task.Task;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindLogTest {
+
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte CLEAR = 4;
+    private static final byte OTHER = 9;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void updatesWithTheSamePlacementAreMergedInPlace() throws InterruptedException {
+        Path file = tempDir.resolve("log");
+        MutationLog log = new MutationLog(file, Durability.WRITE_BEHIND, 0);
+        WriteBehindLog writeBehind = new WriteBehindLog(log, 4, Backpressure.FAIL, WriteBehindLogTest::placement);
+        CountDownLatch release = stall(writeBehind);
+        writeBehind.submit(List.of(record(UPDATE, 1, 'a', 0), record(OTHER, 5, 'x', 0), record(UPDATE, 1, 'b', 0)));
+        writeBehind.submit(List.of(record(UPDATE, 2, 'c', 0)));
+        // Другое размещение не сливается с 'b', но следующее обновление с тем же размещением сливается уже с ним
+        writeBehind.submit(List.of(record(UPDATE, 1, 'd', 1), record(UPDATE, 1, 'e', 1)));
+        assertThrows(WriteQueueFullException.class, writeBehind::admit);
+        release.countDown();
+        writeBehind.flush();
+        writeBehind.close();
+        log.close();
+
+        assertRecords(List.of(record(UPDATE, 1, 'b', 0), record(OTHER, 5, 'x', 0), record(UPDATE, 2, 'c', 0),
+                record(UPDATE, 1, 'e', 1)), file);
+    }
+
+    @Test
+    void updateIsNotMergedAcrossADeleteOrClear() throws InterruptedException {
+        Path file = tempDir.resolve("log");
+        MutationLog log = new MutationLog(file, Durability.WRITE_BEHIND, 0);
+        WriteBehindLog writeBehind = new WriteBehindLog(log, 16, Backpressure.FAIL, WriteBehindLogTest::placement);
+        CountDownLatch release = stall(writeBehind);
+        List<byte[]> expected = List.of(record(UPDATE, 1, 'a', 0), record(DELETE, 1, 'x', 0), record(UPDATE, 1, 'b', 0),
+                record(UPDATE, 2, 'c', 0), record(CLEAR, 0, 'x', 0), record(UPDATE, 2, 'd', 0));
+        writeBehind.submit(expected);
+        release.countDown();
+        writeBehind.flush();
+        writeBehind.close();
+        log.close();
+        assertRecords(expected, file);
+    }
+
+    @Test
+    void updateDeleteUpdateReplaysToTheLiveItem() {
+        Path file = tempDir.resolve("tasks.log");
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(file, 64, Backpressure.BLOCK)) {
+            for (int i = 0; i < 20_000; i++) {
+                Task task = new Task("Task " + i, "D", Status.NEW);
+                task.setId(0);
+                manager.updateTask(task);
+                manager.deleteTask(0);
+                Task revived = new Task("Revived " + i, "D", Status.DONE);
+                revived.setId(0);
+                manager.updateTask(revived);
+            }
+            manager.flush();
+            assertEquals(1, manager.getTasks().size());
+        }
+        try (FileBackedTaskManager restored = new FileBackedTaskManager(file)) {
+            assertEquals(1, restored.getTasks().size());
+            assertEquals("Revived 19999", restored.getTasks().get(0).getName());
+        }
+    }
+
+    @Test
+    void blockedCallerWaitsForTheWriter() throws InterruptedException {
+        MutationLog log = new MutationLog(tempDir.resolve("log"), Durability.WRITE_BEHIND, 0);
+        WriteBehindLog writeBehind = new WriteBehindLog(log, 2, Backpressure.BLOCK, WriteBehindLogTest::placement);
+        CountDownLatch release = stall(writeBehind);
+        writeBehind.submit(List.of(record(OTHER, 1, 'a', 0), record(OTHER, 2, 'b', 0)));
+        Thread caller = new Thread(writeBehind::admit);
+        caller.start();
+        caller.join(200);
+        assertTrue(caller.isAlive());
+        release.countDown();
+        caller.join(10_000);
+        assertFalse(caller.isAlive());
+        writeBehind.close();
+        log.close();
+    }
+
+    // Держит писателя в checkpoint, пока не отпустят: очередь копится, как под нагрузкой
+    private static CountDownLatch stall(WriteBehindLog writeBehind) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> writeBehind.checkpoint(() -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.setDaemon(true);
+        holder.start();
+        entered.await();
+        return release;
+    }
+
+    private static void assertRecords(List<byte[]> expected, Path file) {
+        List<byte[]> records = new ArrayList<>();
+        try (MutationLog reader = new MutationLog(file, Durability.OS_BUFFERED, 0)) {
+            reader.replay(record -> records.add(Arrays.copyOfRange(record.array(), record.position(), record.limit())));
+        }
+        assertEquals(expected.size(), records.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), records.get(i));
+        }
+    }
+
+    // [op][id][значение][размещение]: обновления сливаются при равном последнем байте
+    private static byte[] record(byte op, int id, char value, int placement) {
+        return ByteBuffer.allocate(7).put(op).putInt(id).put((byte) value).put((byte) placement).array();
+    }
+
+    private static int placement(byte[] record) {
+        switch (record[0]) {
+            case UPDATE:
+                return 6;
+            case DELETE:
+                return WriteBehindLog.FORGET_ID;
+            case CLEAR:
+                return WriteBehindLog.FORGET_ALL;
+            default:
+                return WriteBehindLog.KEEP;
+        }
+    }
+}